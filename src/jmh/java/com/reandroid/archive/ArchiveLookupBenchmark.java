@@ -0,0 +1,96 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchiveLookupBenchmark {
+
+    @Param({"50000"})
+    public int entries;
+
+    private File file;
+    private ArchiveFile archive;
+    private String[] paths;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("lookup-benchmark", ".zip");
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+        byte[] data = new byte[16];
+        String[] names = new String[entries];
+        for(int i = 0; i < entries; i++){
+            String name = "res/drawable-" + (i % 16) + "/file_" + i + ".png";
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(data);
+            zip.closeEntry();
+            names[i] = name;
+        }
+        zip.close();
+        archive = new ArchiveFile(file);
+        Random random = new Random(entries);
+        paths = new String[1024];
+        for(int i = 0; i < paths.length; i++){
+            paths[i] = names[random.nextInt(entries)];
+        }
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        archive.close();
+        file.delete();
+    }
+
+    private String nextPath(){
+        String[] paths = this.paths;
+        int i = index;
+        index = (i + 1) & (paths.length - 1);
+        return paths[i];
+    }
+
+    @Benchmark
+    public void indexed(Blackhole blackhole){
+        blackhole.consume(archive.getEntry(nextPath()));
+    }
+    @Benchmark
+    public void linearScan(Blackhole blackhole){
+        String path = nextPath();
+        Iterator<ArchiveEntry> iterator = archive.getFiles();
+        while (iterator.hasNext()){
+            ArchiveEntry entry = iterator.next();
+            if(path.equals(entry.getName())){
+                blackhole.consume(entry);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.reandroid.arsc;
+
+import com.reandroid.apk.AndroidFrameworks;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.model.ConfigResolver;
+import com.reandroid.arsc.model.ResourceEntry;
+import com.reandroid.arsc.value.ResConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigResolveBenchmark {
+
+    @Param({"-en-rUS-xxhdpi-v34", "-fr-rCA-land-night-v30"})
+    public String device;
+
+    private TableBlock tableBlock;
+    private ResConfig deviceConfig;
+    private ConfigResolver.DeviceResolver deviceResolver;
+    private int[] resourceIds;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        tableBlock = AndroidFrameworks.getLatest().getTableBlock();
+        deviceConfig = ResConfig.parse(device);
+        deviceResolver = tableBlock.getConfigResolver().forConfig(deviceConfig);
+        List<Integer> idList = new ArrayList<>();
+        Iterator<ResourceEntry> iterator = tableBlock.pickOne().getResources();
+        while (iterator.hasNext()){
+            idList.add(iterator.next().getResourceId());
+        }
+        resourceIds = new int[1024];
+        int step = Math.max(1, idList.size() / resourceIds.length);
+        for(int i = 0; i < resourceIds.length; i++){
+            resourceIds[i] = idList.get((i * step) % idList.size());
+        }
+    }
+
+    @Benchmark
+    public void resolve(Blackhole blackhole){
+        int i = index;
+        index = (i + 1) & (resourceIds.length - 1);
+        blackhole.consume(deviceResolver.resolve(resourceIds[i]));
+    }
+    @Benchmark
+    public void resolveReference(Blackhole blackhole){
+        int i = index;
+        index = (i + 1) & (resourceIds.length - 1);
+        blackhole.consume(deviceResolver.resolveReference(resourceIds[i]));
+    }
+    @Benchmark
+    public void resolveCachedConfig(Blackhole blackhole){
+        int i = index;
+        index = (i + 1) & (resourceIds.length - 1);
+        blackhole.consume(tableBlock.getConfigResolver().resolve(resourceIds[i], deviceConfig));
+    }
+    @Benchmark
+    public void equalsOrMoreSpecific(Blackhole blackhole){
+        int i = index;
+        index = (i + 1) & (resourceIds.length - 1);
+        ResourceEntry resourceEntry = tableBlock.getResource(resourceIds[i]);
+        blackhole.consume(resourceEntry.getEqualsOrMoreSpecific(deviceConfig));
+    }
+}
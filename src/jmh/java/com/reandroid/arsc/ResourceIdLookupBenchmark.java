@@ -0,0 +1,91 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc;
+
+import com.reandroid.apk.AndroidFrameworks;
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.model.ResourceEntry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceIdLookupBenchmark {
+
+    private TableBlock scanTable;
+    private TableBlock indexedTable;
+    private int[] ids;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        TableBlock framework = AndroidFrameworks.getLatest().getTableBlock();
+        scanTable = new TableBlock();
+        scanTable.newPackage(0x7f, "com.example");
+        scanTable.addFramework(framework);
+        indexedTable = new TableBlock();
+        indexedTable.newPackage(0x7f, "com.example");
+        indexedTable.addFramework(framework);
+        indexedTable.setResourceIdIndexEnabled(true);
+
+        List<Integer> idList = new ArrayList<>();
+        for(PackageBlock packageBlock : framework){
+            Iterator<ResourceEntry> iterator = packageBlock.getResources();
+            while (iterator.hasNext()){
+                idList.add(iterator.next().getResourceId());
+            }
+        }
+        Random random = new Random(idList.size());
+        ids = new int[1024];
+        for(int i = 0; i < ids.length; i++){
+            ids[i] = idList.get(random.nextInt(idList.size()));
+        }
+        indexedTable.getResourceIdIndex();
+    }
+
+    private int nextId(){
+        int[] ids = this.ids;
+        int i = index;
+        index = (i + 1) & (ids.length - 1);
+        return ids[i];
+    }
+
+    @Benchmark
+    public void indexed(Blackhole blackhole){
+        blackhole.consume(indexedTable.getResource(nextId()));
+    }
+    @Benchmark
+    public void packageScan(Blackhole blackhole){
+        blackhole.consume(scanTable.getResource(nextId()));
+    }
+    @Benchmark
+    public void buildIndex(Blackhole blackhole){
+        indexedTable.refresh();
+        blackhole.consume(indexedTable.getResourceIdIndex());
+    }
+}
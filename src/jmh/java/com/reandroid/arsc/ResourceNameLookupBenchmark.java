@@ -0,0 +1,91 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc;
+
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.pool.SpecStringPool;
+import com.reandroid.arsc.value.Entry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceNameLookupBenchmark {
+
+    private static final String[] TYPES = new String[]{
+            "attr", "drawable", "layout", "string", "dimen", "id"};
+
+    @Param({"60000"})
+    public int entries;
+
+    private SpecStringPool specStringPool;
+    private int[] typeIds;
+    private String[] names;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        int perType = entries / TYPES.length;
+        for(String type : TYPES){
+            for(int i = 0; i < perType; i++){
+                Entry entry = packageBlock.getOrCreate("", type, type + "_" + i);
+                entry.setValueAsBoolean(true);
+            }
+        }
+        tableBlock.refresh();
+        specStringPool = packageBlock.getSpecStringPool();
+        Random random = new Random(entries);
+        typeIds = new int[1024];
+        names = new String[typeIds.length];
+        for(int i = 0; i < names.length; i++){
+            String type = TYPES[random.nextInt(TYPES.length)];
+            typeIds[i] = packageBlock.typeIdOf(type);
+            names[i] = type + "_" + random.nextInt(perType);
+        }
+        specStringPool.resolveResourceId(typeIds[0], names[0]);
+    }
+
+    private int next(){
+        int i = index;
+        index = (i + 1) & (names.length - 1);
+        return i;
+    }
+
+    @Benchmark
+    public void indexed(Blackhole blackhole){
+        int i = next();
+        blackhole.consume(specStringPool.resolveResourceId(typeIds[i], names[i]));
+    }
+    @Benchmark
+    public void referenceScan(Blackhole blackhole){
+        int i = next();
+        Iterator<Entry> iterator = specStringPool.getEntries(typeIds[i], names[i]);
+        if(iterator.hasNext()){
+            blackhole.consume(iterator.next().getResourceId());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.reandroid.arsc;
+
+import com.reandroid.arsc.array.EntryArray;
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.chunk.TypeBlock;
+import com.reandroid.arsc.value.ResConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SparseEntryLookupBenchmark {
+
+    private static final String[] TYPES = new String[]{"string", "drawable"};
+
+    @Param({"100000"})
+    public int entries;
+
+    @Param({"true", "false"})
+    public boolean shuffled;
+
+    private EntryArray[] entryArrays;
+    private int[] entryIds;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        int perType = entries / TYPES.length;
+        Random random = new Random(entries);
+        List<Integer> idList = new ArrayList<>();
+        for(int i = 0; i < 0xffff; i++){
+            idList.add(i);
+        }
+        entryArrays = new EntryArray[TYPES.length];
+        for(int t = 0; t < TYPES.length; t++){
+            TypeBlock typeBlock = packageBlock.getOrCreateSpecTypePair(TYPES[t])
+                    .getTypeBlockArray().getOrCreate(ResConfig.parse("-land"), true);
+            Collections.shuffle(idList, random);
+            List<Integer> ids = new ArrayList<>(idList.subList(0, perType));
+            if(!shuffled){
+                Collections.sort(ids);
+            }
+            for(int id : ids){
+                typeBlock.getOrCreateEntry((short) id).setValueAsBoolean(true);
+            }
+            entryArrays[t] = typeBlock.getEntryArray();
+        }
+        tableBlock.refresh();
+        entryIds = new int[1024];
+        for(int i = 0; i < entryIds.length; i++){
+            entryIds[i] = random.nextInt(0xffff);
+        }
+    }
+
+    @Benchmark
+    public void getEntry(Blackhole blackhole){
+        int i = index;
+        index = (i + 1) & (entryIds.length - 1);
+        blackhole.consume(entryArrays[i & 1].getEntry(entryIds[i]));
+    }
+    @Benchmark
+    public void getHighestEntryId(Blackhole blackhole){
+        int i = index;
+        index = (i + 1) & (entryIds.length - 1);
+        blackhole.consume(entryArrays[i & 1].getHighestEntryId());
+    }
+}
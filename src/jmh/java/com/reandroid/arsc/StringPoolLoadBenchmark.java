@@ -0,0 +1,73 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.reandroid.arsc;
+
+import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.arsc.pool.TableStringPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with -prof gc to compare allocation per load
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringPoolLoadBenchmark {
+
+    @Param({"200000"})
+    public int strings;
+
+    @Param({"false", "true"})
+    public boolean lazyDecode;
+
+    private byte[] poolBytes;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        TableStringPool stringPool = new TableStringPool(true);
+        for(int i = 0; i < strings; i++){
+            stringPool.createNewString("unable to connect, please try again " + i);
+        }
+        stringPool.refresh();
+        poolBytes = stringPool.getBytes();
+    }
+
+    @Benchmark
+    public TableStringPool load() throws IOException {
+        TableStringPool stringPool = new TableStringPool(true);
+        stringPool.setLazyDecode(lazyDecode);
+        BlockReader reader = new BlockReader(poolBytes);
+        stringPool.readBytes(reader);
+        reader.close();
+        return stringPool;
+    }
+    @Benchmark
+    public int loadAndDecodeAll() throws IOException {
+        TableStringPool stringPool = load();
+        int length = 0;
+        int size = stringPool.size();
+        for(int i = 0; i < size; i++){
+            length += stringPool.get(i).get().length();
+        }
+        return length;
+    }
+}
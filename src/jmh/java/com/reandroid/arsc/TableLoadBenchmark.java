@@ -0,0 +1,84 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.reandroid.arsc;
+
+import com.reandroid.apk.AndroidFrameworks;
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.io.BlockReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableLoadBenchmark {
+
+    private static final String[] TYPES = new String[]{
+            "string", "drawable", "dimen", "color", "integer", "bool", "layout", "id"
+    };
+    private static final String[] LOCALES = new String[]{
+            "", "-ar", "-de", "-es", "-fr", "-hi", "-in", "-it", "-ja", "-ko",
+            "-nl", "-pl", "-pt", "-ru", "-sv", "-th", "-tr", "-uk", "-vi", "-zh"
+    };
+
+    @Param({"framework", "synthetic"})
+    public String table;
+
+    @Param({"0", "2", "4"})
+    public int loadThreads;
+
+    private byte[] tableBytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        TableBlock tableBlock;
+        if("framework".equals(table)){
+            tableBlock = AndroidFrameworks.getLatest().getTableBlock();
+        }else {
+            tableBlock = createSyntheticTable();
+        }
+        tableBlock.refresh();
+        tableBytes = tableBlock.getBytes();
+    }
+    private static TableBlock createSyntheticTable(){
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        for(String type : TYPES){
+            for(String locale : LOCALES){
+                for(int i = 0; i < 1500; i++){
+                    packageBlock.getOrCreate(locale, type, type + "_" + i)
+                            .setValueAsString(type + locale + " value " + i);
+                }
+            }
+        }
+        return tableBlock;
+    }
+
+    @Benchmark
+    public TableBlock load() throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        tableBlock.setLoadThreads(loadThreads);
+        BlockReader reader = new BlockReader(tableBytes);
+        tableBlock.readBytes(reader);
+        return tableBlock;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.reandroid.arsc;
+
+import com.reandroid.apk.AndroidFrameworks;
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.arsc.model.ResourceEntry;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.arsc.value.ValueType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableRefreshBenchmark {
+
+    @Param({"value", "string"})
+    public String edit;
+
+    private TableBlock tableBlock;
+    private Entry[] entries;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        TableBlock framework = AndroidFrameworks.getLatest().getTableBlock();
+        framework.refresh();
+        tableBlock = new TableBlock();
+        tableBlock.readBytes(new BlockReader(framework.getBytes()));
+        tableBlock.refresh();
+        PackageBlock packageBlock = tableBlock.pickOne();
+        List<Entry> entryList = new ArrayList<>();
+        Iterator<ResourceEntry> iterator = packageBlock.getResources();
+        while (iterator.hasNext()){
+            Entry entry = iterator.next().get();
+            if(entry != null && !entry.isComplex()){
+                entryList.add(entry);
+            }
+        }
+        entries = new Entry[1024];
+        int step = Math.max(1, entryList.size() / entries.length);
+        for(int i = 0; i < entries.length; i++){
+            entries[i] = entryList.get((i * step) % entryList.size());
+        }
+    }
+    private void editNext(){
+        int i = index;
+        index = (i + 1) & (entries.length - 1);
+        Entry entry = entries[i];
+        if("string".equals(edit)){
+            entry.setValueAsString("edited " + (i & 7));
+        }else {
+            entry.setValueAsRaw(ValueType.DEC, i);
+        }
+    }
+
+    @Benchmark
+    public void refresh(Blackhole blackhole){
+        editNext();
+        tableBlock.refresh();
+        blackhole.consume(tableBlock.getRefreshedBlocksCount());
+    }
+    @Benchmark
+    public void refreshFull(Blackhole blackhole){
+        editNext();
+        blackhole.consume(tableBlock.refreshFull());
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc;
+
+import com.reandroid.apk.AndroidFrameworks;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.arsc.io.BlockWriter;
+import com.reandroid.common.BytesOutputStream;
+import com.reandroid.utils.Crc32OutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with -prof gc to compare allocation per write
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableWriteBenchmark {
+
+    private TableBlock tableBlock;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        TableBlock framework = AndroidFrameworks.getLatest().getTableBlock();
+        framework.refresh();
+        tableBlock = new TableBlock();
+        tableBlock.readBytes(new BlockReader(framework.getBytes()));
+        tableBlock.refresh();
+        buffer = ByteBuffer.allocate(tableBlock.countBytes());
+    }
+
+    @Benchmark
+    public void growingArray(Blackhole blackhole) throws IOException {
+        BytesOutputStream outputStream = new BytesOutputStream();
+        tableBlock.writeBytes(outputStream);
+        blackhole.consume(outputStream.toByteArray());
+    }
+    @Benchmark
+    public void exactArray(Blackhole blackhole){
+        blackhole.consume(tableBlock.getBytes());
+    }
+    @Benchmark
+    public void reusedBuffer(Blackhole blackhole) throws IOException {
+        ByteBuffer buffer = this.buffer;
+        buffer.clear();
+        blackhole.consume(tableBlock.writeBytes(buffer));
+    }
+    @Benchmark
+    public void streamDirect(Blackhole blackhole) throws IOException {
+        Crc32OutputStream outputStream = new Crc32OutputStream();
+        tableBlock.writeBytes(outputStream);
+        blackhole.consume(outputStream.getValue());
+    }
+    @Benchmark
+    public void streamBuffered(Blackhole blackhole) throws IOException {
+        Crc32OutputStream outputStream = new Crc32OutputStream();
+        BlockWriter.write(tableBlock, outputStream);
+        blackhole.consume(outputStream.getValue());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex;
+
+import com.reandroid.dex.model.DexFile;
+import com.reandroid.dex.model.DexLayout;
+import com.reandroid.dex.smali.SmaliReader;
+import com.reandroid.dex.smali.SmaliWriter;
+import com.reandroid.utils.io.FileUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores are classes written per second
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmaliWriteBenchmark {
+
+    private static final int CLASSES_COUNT = 2000;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private DexFile dexFile;
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        DexFile dexFile = DexFile.createDefault();
+        DexLayout dexLayout = dexFile.getOrCreateFirst();
+        for (int i = 0; i < CLASSES_COUNT; i++) {
+            dexLayout.fromSmali(SmaliReader.of(buildClass(i)));
+        }
+        dexFile.refreshFull();
+        dexFile.setSmaliThreads(threads);
+        this.dexFile = dexFile;
+        this.dir = Files.createTempDirectory("smali-bench").toFile();
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLASSES_COUNT)
+    public void writeSmali() throws IOException {
+        dexFile.writeSmali(new SmaliWriter(), dir);
+    }
+
+    private static String buildClass(int i) {
+        String superClass = i < 20 ? "Ljava/lang/Object;" : "Lbench/p" + (i % 20) + "/C" + (i % 20) + ";";
+        StringBuilder builder = new StringBuilder();
+        builder.append(".class public Lbench/p").append(i % 20).append("/C").append(i).append(";\n");
+        builder.append(".super ").append(superClass).append("\n\n");
+        builder.append(".field public value:I\n\n");
+        builder.append(".method public constructor <init>()V\n");
+        builder.append("    .registers 1\n");
+        builder.append("    invoke-direct {p0}, ").append(superClass).append("-><init>()V\n");
+        builder.append("    return-void\n");
+        builder.append(".end method\n");
+        for (int m = 0; m < 4; m++) {
+            builder.append("\n.method public m").append(m).append("(I)Ljava/lang/String;\n");
+            builder.append("    .registers 4\n");
+            builder.append("    iget v0, p0, Lbench/p").append(i % 20).append("/C").append(i).append(";->value:I\n");
+            builder.append("    if-eqz p1, :cond_0\n");
+            builder.append("    add-int/2addr v0, p1\n");
+            builder.append("    :cond_0\n");
+            builder.append("    const-string v1, \"value ").append(i).append('_').append(m).append("\"\n");
+            builder.append("    return-object v1\n");
+            builder.append(".end method\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Crc32Benchmark {
+
+    @Param({"64", "4096", "1048576"})
+    public int size;
+
+    private byte[] data;
+    private Crc32 crc32;
+    private TableCrc32 tableCrc32;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        data = new byte[size];
+        new Random(size).nextBytes(data);
+        crc32 = new Crc32();
+        tableCrc32 = new TableCrc32();
+    }
+
+    @Benchmark
+    public long crc32() {
+        Crc32 crc32 = this.crc32;
+        crc32.reset();
+        crc32.update(data, 0, data.length);
+        return crc32.getValue();
+    }
+    @Benchmark
+    public long tableCrc32() {
+        TableCrc32 crc32 = this.tableCrc32;
+        crc32.reset();
+        crc32.update(data, 0, data.length);
+        return crc32.getValue();
+    }
+
+    /**
+     * The former byte-at-a-time implementation of Crc32, kept as baseline
+     * */
+    static class TableCrc32 {
+        private static final long[] CRC_TABLE;
+
+        static {
+            long[] table = new long[256];
+            CRC_TABLE = table;
+            for (int i = 0; i < 256; i++) {
+                long c = i;
+                for (int j = 0; j < 8; j++) {
+                    if ((c & 1) == 1) {
+                        c = 0xedb88320L ^ (c >> 1);
+                    } else {
+                        c = c >> 1;
+                    }
+                }
+                table[i] = c;
+            }
+        }
+        private long mCrc = 0xffffffffL;
+
+        long getValue() {
+            return mCrc ^ 0xffffffffL;
+        }
+        void reset() {
+            this.mCrc = 0xffffffffL;
+        }
+        void update(byte[] data, int offset, int length) {
+            long c = mCrc;
+            int end = offset + length;
+            long[] table = CRC_TABLE;
+            for (int i = offset; i < end; i++) {
+                int b = data[i] & 0xff;
+                c = table[(int)((c ^ b) & 0xff)] ^ (c >> 8);
+            }
+            this.mCrc = c;
+        }
+    }
+}
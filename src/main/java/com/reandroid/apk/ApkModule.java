@@ -17,6 +17,7 @@ package com.reandroid.apk;
 
 import com.reandroid.archive.*;
 import com.reandroid.archive.block.ApkSignatureBlock;
+import com.reandroid.archive.io.ArchiveEntrySource;
 import com.reandroid.archive.io.ArchiveFileEntrySource;
 import com.reandroid.archive.writer.*;
 import com.reandroid.arsc.ApkFile;
@@ -40,6 +41,8 @@ import com.reandroid.xml.XMLDocument;
 import com.reandroid.xml.XMLElement;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
@@ -477,6 +480,77 @@ public class ApkModule implements ApkFile, Closeable {
         writer.setWriteProgress(progress);
         writer.write();
     }
+    /**
+     * Writes changes back into the archive file this module was loaded from, see
+     * {@link ApkIncrementalWriter}. Compacts (fully rewrites) the file when more than a
+     * quarter of it would be unreferenced bytes.
+     * */
+    public void updateApk(File file) throws IOException {
+        updateApk(file, DEFAULT_COMPACT_RATIO);
+    }
+    /**
+     * @param compactRatio maximum fraction of the file left as unreferenced bytes by replaced
+     *                     or removed entries before a full rewrite is done instead
+     * */
+    public void updateApk(File file, float compactRatio) throws IOException {
+        ApkIncrementalWriter writer = createApkIncrementalWriter(file);
+        long unused = writer.getUnusedBytes();
+        if(unused <= file.length() * compactRatio){
+            writer.write();
+            return;
+        }
+        writer.close();
+        logMessage("Compacting, unused bytes = " + unused);
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try{
+            writeApk(tmp);
+        }catch (IOException | RuntimeException ex){
+            tmp.delete();
+            throw ex;
+        }
+        // the loaded archive still holds the file open, replacing it fails on some platforms
+        close();
+        boolean moved = false;
+        try{
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        }finally {
+            if(!moved){
+                tmp.delete();
+            }
+            reattachArchive(file);
+        }
+    }
+    /**
+     * Replaces entries read from the closed archive with entries of the given file
+     * */
+    private void reattachArchive(File file) throws IOException {
+        ArchiveFile archive = new ArchiveFile(file);
+        ZipEntryMap zipEntryMap = getZipEntryMap();
+        InputSource[] sources = zipEntryMap.toArray().clone();
+        int length = sources.length;
+        for(int i = 0; i < length; i++){
+            InputSource inputSource = sources[i];
+            if(!(inputSource instanceof ArchiveEntrySource)){
+                continue;
+            }
+            InputSource replace = archive.getEntrySource(inputSource.getAlias());
+            if(replace != null){
+                replace.setSort(inputSource.getSort());
+                sources[i] = replace;
+            }
+        }
+        zipEntryMap.clear();
+        zipEntryMap.addAll(sources);
+        setCloseable(archive);
+    }
+    public ApkIncrementalWriter createApkIncrementalWriter(File file) throws IOException {
+        updateUncompressedFiles();
+        ApkIncrementalWriter writer = new ApkIncrementalWriter(file,
+                getZipEntryMap().toArray(true));
+        applyDefaultApkWriterSetting(writer);
+        return writer;
+    }
     public byte[] writeApkBytes() throws IOException {
         ApkByteWriter writer = createApkByteWriter();
         writer.write();
@@ -1335,4 +1409,5 @@ public class ApkModule implements ApkFile, Closeable {
         return apkModule;
     }
 
+    private static final float DEFAULT_COMPACT_RATIO = 0.25f;
 }
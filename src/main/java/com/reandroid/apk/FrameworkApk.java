@@ -21,6 +21,7 @@ import com.reandroid.arsc.chunk.TableBlock;
 import com.reandroid.arsc.chunk.xml.AndroidManifestBlock;
 import com.reandroid.arsc.chunk.xml.ResXmlAttribute;
 import com.reandroid.arsc.chunk.xml.ResXmlElement;
+import com.reandroid.arsc.model.FlatTable;
 import com.reandroid.arsc.model.FrameworkTable;
 import com.reandroid.arsc.value.ValueType;
 
@@ -40,6 +41,9 @@ public class FrameworkApk extends ApkModule{
     private String packageName;
     private boolean mOptimizing;
     private boolean mDestroyed;
+    private FlatTable mFlatTable;
+    private TableBlock mFlatTableSource;
+    private int mFlatTableCount;
     public FrameworkApk(String moduleName, ZipEntryMap zipEntryMap) {
         super(moduleName, zipEntryMap);
         super.setLoadDefaultFramework(false);
@@ -54,6 +58,8 @@ public class FrameworkApk extends ApkModule{
             this.versionCode = -1;
             this.versionName = "-1";
             this.packageName = "destroyed";
+            this.mFlatTable = null;
+            this.mFlatTableSource = null;
             super.destroy();
             this.mDestroyed = true;
         }
@@ -144,6 +150,8 @@ public class FrameworkApk extends ApkModule{
     public void setTableBlock(TableBlock tableBlock){
         synchronized (mLock){
             super.setTableBlock(tableBlock);
+            this.mFlatTable = null;
+            this.mFlatTableSource = null;
             this.versionCode = 0;
             this.versionName = null;
             this.packageName = null;
@@ -174,6 +182,42 @@ public class FrameworkApk extends ApkModule{
         archive.add(blockInputSource);
         return frameworkTable;
     }
+    /**
+     * Read only view of resources.arsc for lookups without loading the table blocks,
+     * see {@link FlatTable}. If the table is already loaded the view is built from its current
+     * state, and built again after the table changes (see {@link TableBlock#getModificationCount()}).
+     * */
+    public FlatTable getFlatTable() throws IOException {
+        synchronized (mLock){
+            FlatTable flatTable = this.mFlatTable;
+            TableBlock tableBlock = getLoadedTableBlock();
+            if(flatTable != null && tableBlock != null && (tableBlock != mFlatTableSource
+                    || tableBlock.getModificationCount() != mFlatTableCount)){
+                flatTable = null;
+            }
+            if(flatTable == null){
+                flatTable = loadFlatTable();
+                this.mFlatTable = flatTable;
+                this.mFlatTableSource = tableBlock;
+                if(tableBlock != null){
+                    this.mFlatTableCount = tableBlock.getModificationCount();
+                }
+            }
+            return flatTable;
+        }
+    }
+    private FlatTable loadFlatTable() throws IOException {
+        InputSource inputSource = getZipEntryMap().getInputSource(TableBlock.FILE_NAME);
+        if(inputSource == null){
+            throw new IOException("Entry not found: " + TableBlock.FILE_NAME);
+        }
+        InputStream inputStream = inputSource.openStream();
+        try {
+            return FlatTable.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
     public void optimize(){
         synchronized (mLock){
             if(mOptimizing){
@@ -191,6 +235,8 @@ public class FrameworkApk extends ApkModule{
             }
             FrameworkOptimizer optimizer = new FrameworkOptimizer(this);
             optimizer.optimize();
+            mFlatTable = null;
+            mFlatTableSource = null;
             mOptimizing = false;
             initValues();
         }
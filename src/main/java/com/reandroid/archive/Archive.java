@@ -31,8 +31,6 @@ import com.reandroid.utils.io.IOUtil;
 import java.io.*;
 import java.util.*;
 import java.util.function.Predicate;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 public abstract class Archive<T extends ZipInput> implements Closeable {
 
@@ -40,16 +38,50 @@ public abstract class Archive<T extends ZipInput> implements Closeable {
     private final ArchiveEntry[] entryList;
     private final EndRecord endRecord;
     private final ApkSignatureBlock apkSignatureBlock;
+    private final boolean centralDirectoryOnly;
+    private volatile Map<String, ArchiveEntry> entryIndex;
+    private ZipCodecPool codecPool;
 
     public Archive(T zipInput) throws IOException {
+        this(zipInput, false);
+    }
+    /**
+     * @param centralDirectoryOnly if true only end record and central directory are read,
+     *                             local file headers are read on demand when entry data is
+     *                             first accessed
+     * */
+    public Archive(T zipInput, boolean centralDirectoryOnly) throws IOException {
         this.zipInput = zipInput;
+        this.centralDirectoryOnly = centralDirectoryOnly;
         CentralFileDirectory cfd = new CentralFileDirectory();
         cfd.visit(zipInput);
         this.endRecord = cfd.getEndRecord();
         LocalFileDirectory lfd = new LocalFileDirectory(cfd);
-        lfd.visit(zipInput);
-        this.entryList  = lfd.buildArchiveEntryList();
+        if(centralDirectoryOnly){
+            lfd.visitCentralOnly(zipInput);
+            this.entryList = lfd.buildLazyArchiveEntryList(zipInput);
+        }else {
+            lfd.visit(zipInput);
+            this.entryList = lfd.buildArchiveEntryList();
+        }
         this.apkSignatureBlock = lfd.getApkSigBlock();
+        for(ArchiveEntry entry : entryList){
+            entry.setArchive(this);
+        }
+    }
+
+    public boolean isCentralDirectoryOnly() {
+        return centralDirectoryOnly;
+    }
+    public ZipCodecPool getCodecPool() {
+        ZipCodecPool codecPool = this.codecPool;
+        if(codecPool == null){
+            codecPool = ZipCodecPool.getDefault();
+        }
+        return codecPool;
+    }
+    public void setCodecPool(ZipCodecPool codecPool) {
+        this.codecPool = codecPool;
     }
 
     public ZipEntryMap createZipEntryMap(){
@@ -93,21 +125,44 @@ public abstract class Archive<T extends ZipInput> implements Closeable {
 
     abstract InputSource createInputSource(ArchiveEntry entry);
     public InputSource getEntrySource(String path){
+        ArchiveEntry entry = getEntry(path);
+        if(entry != null){
+            return createInputSource(entry);
+        }
+        return null;
+    }
+    public ArchiveEntry getEntry(String path){
         if(path == null){
             return null;
         }
+        ArchiveEntry entry = getEntryIndex().get(path);
+        if(entry != null && !path.equals(entry.getName())){
+            // entry renamed after the index was built
+            this.entryIndex = null;
+            entry = getEntryIndex().get(path);
+        }
+        return entry;
+    }
+    void onEntryRenamed(){
+        this.entryIndex = null;
+    }
+    private Map<String, ArchiveEntry> getEntryIndex(){
+        Map<String, ArchiveEntry> entryIndex = this.entryIndex;
+        if(entryIndex != null){
+            return entryIndex;
+        }
         ArchiveEntry[] entryList = this.entryList;
         int length = entryList.length;
+        entryIndex = new HashMap<>(length + length / 3 + 1);
         for(int i = 0; i < length; i++){
             ArchiveEntry entry = entryList[i];
             if(entry.isDirectory()){
                 continue;
             }
-            if(path.equals(entry.getName())){
-                return createInputSource(entry);
-            }
+            entryIndex.putIfAbsent(entry.getName(), entry);
         }
-        return null;
+        this.entryIndex = entryIndex;
+        return entryIndex;
     }
     public InputStream openRawInputStream(ArchiveEntry archiveEntry) throws IOException {
         return zipInput.getInputStream(archiveEntry.getFileOffset(), archiveEntry.getDataSize());
@@ -117,8 +172,7 @@ public abstract class Archive<T extends ZipInput> implements Closeable {
         if(!archiveEntry.isCompressed()){
             return rawInputStream;
         }
-        return new InflaterInputStream(rawInputStream,
-                new Inflater(true), 1024*1000);
+        return getCodecPool().openInflaterInputStream(rawInputStream, 1024*1000);
     }
     public Iterator<ArchiveEntry> getFiles() {
         return iterator(ArchiveEntry::isFile);
@@ -148,6 +202,19 @@ public abstract class Archive<T extends ZipInput> implements Closeable {
     public int extractAll(File dir, Predicate<ArchiveEntry> filter) throws IOException {
         return extractAll(dir, filter, null);
     }
+    /**
+     * Extracts entries on the given number of worker threads, each worker reuses its own
+     * Inflater and buffers. Progress is reported to the logger.
+     * */
+    public int extractAll(File dir, Predicate<ArchiveEntry> filter, APKLogger logger, int threads) throws IOException {
+        if(threads <= 1){
+            return extractAll(dir, filter, logger);
+        }
+        List<ArchiveEntry> entryList = CollectionUtil.toList(iterator(filter));
+        ArchiveExtractor extractor = new ArchiveExtractor(this,
+                entryList.toArray(new ArchiveEntry[0]), dir, logger);
+        return extractor.extract(threads);
+    }
     public int extractAll(File dir, Predicate<ArchiveEntry> filter, APKLogger logger) throws IOException {
         Iterator<ArchiveEntry> iterator = iterator(filter);
         int result = 0;
@@ -182,7 +249,7 @@ public abstract class Archive<T extends ZipInput> implements Closeable {
         applyAttributes(archiveEntry, file);
     }
     @SuppressWarnings("ResultOfMethodCallIgnored")
-    private void applyAttributes(ArchiveEntry archiveEntry, File file) {
+    void applyAttributes(ArchiveEntry archiveEntry, File file) {
         FilePermissions permissions = archiveEntry.getFilePermissions();
         if(permissions.get() != 0) {
             permissions.apply(file);
@@ -195,7 +262,7 @@ public abstract class Archive<T extends ZipInput> implements Closeable {
         FileOutputStream outputStream = new FileOutputStream(file);
         IOUtil.writeAll(openInputStream(archiveEntry), outputStream);
     }
-    private File toFile(File dir, ArchiveEntry archiveEntry){
+    File toFile(File dir, ArchiveEntry archiveEntry){
         String name = archiveEntry.getName().replace('/', File.separatorChar);
         return new File(dir, name);
     }
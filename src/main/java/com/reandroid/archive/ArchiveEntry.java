@@ -22,6 +22,7 @@ import com.reandroid.utils.io.FilePermissions;
 
 public class ArchiveEntry {
     private final LocalFileHeader localFileHeader;
+    private Archive<?> archive;
     public ArchiveEntry(LocalFileHeader lfh){
         this.localFileHeader = lfh;
     }
@@ -39,28 +40,28 @@ public class ArchiveEntry {
         return localFileHeader.getMethod();
     }
     public void setMethod(int method){
-        localFileHeader.setMethod(method);
+        getLocalFileHeader().setMethod(method);
         getCentralEntryHeader().setMethod(method);
     }
     public long getSize() {
         return localFileHeader.getSize();
     }
     public void setSize(long size) {
-        localFileHeader.setSize(size);
+        getLocalFileHeader().setSize(size);
         getCentralEntryHeader().setSize(size);
     }
     public long getCrc() {
         return localFileHeader.getCrc();
     }
     public void setCrc(long crc) {
-        localFileHeader.setCrc(crc);
+        getLocalFileHeader().setCrc(crc);
         getCentralEntryHeader().setCrc(crc);
     }
     public long getCompressedSize() {
         return localFileHeader.getCompressedSize();
     }
     public void setCompressedSize(long csize) {
-        localFileHeader.setCompressedSize(csize);
+        getLocalFileHeader().setCompressedSize(csize);
         getCentralEntryHeader().setCompressedSize(csize);
     }
     public long getFileOffset() {
@@ -77,8 +78,25 @@ public class ArchiveEntry {
         return name;
     }
     public void setName(String name){
-        localFileHeader.setFileName(name);
+        getLocalFileHeader().setFileName(name);
         getCentralEntryHeader().setFileName(name);
+        Archive<?> archive = this.archive;
+        if(archive != null){
+            archive.onEntryRenamed();
+        }
+    }
+    void setArchive(Archive<?> archive) {
+        this.archive = archive;
+    }
+    /**
+     * Codec pool of the archive this entry was read from, or the default pool
+     * */
+    public ZipCodecPool getCodecPool(){
+        Archive<?> archive = this.archive;
+        if(archive != null){
+            return archive.getCodecPool();
+        }
+        return ZipCodecPool.getDefault();
     }
     public String getComment(){
         return getCentralEntryHeader().getComment();
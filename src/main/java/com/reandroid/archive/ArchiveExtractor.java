@@ -0,0 +1,251 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive;
+
+import com.reandroid.apk.APKLogger;
+import com.reandroid.archive.io.ZipFileInput;
+import com.reandroid.archive.io.ZipInput;
+import com.reandroid.utils.io.FileUtil;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Extracts entries on a pool of workers, each worker owns one Inflater and its io buffers
+ * which are reused for every entry it extracts. Entry data is read with positional reads
+ * so workers never share the channel position.
+ * */
+class ArchiveExtractor {
+    private final Archive<?> archive;
+    private final ArchiveEntry[] entries;
+    private final File dir;
+    private final APKLogger logger;
+    private final AtomicInteger nextIndex;
+    private final AtomicInteger extractedCount;
+    private int lastLoggedPercent;
+
+    ArchiveExtractor(Archive<?> archive, ArchiveEntry[] entries, File dir, APKLogger logger){
+        this.archive = archive;
+        this.entries = entries;
+        this.dir = dir;
+        this.logger = logger;
+        this.nextIndex = new AtomicInteger();
+        this.extractedCount = new AtomicInteger();
+    }
+
+    int extract(int threads) throws IOException {
+        int length = entries.length;
+        if(threads > length){
+            threads = length;
+        }
+        if(threads < 1){
+            return 0;
+        }
+        logMessage("Extracting " + length + " entries, threads = " + threads);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> futures = new ArrayList<>(threads);
+        try{
+            for(int i = 0; i < threads; i++){
+                futures.add(executorService.submit(new Worker()));
+            }
+            for(Future<Void> future : futures){
+                awaitWorker(future);
+            }
+        }finally {
+            executorService.shutdownNow();
+        }
+        return extractedCount.get();
+    }
+    private void onExtracted(ArchiveEntry archiveEntry){
+        int count = extractedCount.incrementAndGet();
+        APKLogger logger = this.logger;
+        if(logger == null){
+            return;
+        }
+        synchronized (this){
+            long size = archiveEntry.getDataSize();
+            if(size > LOG_LARGE_FILE_SIZE){
+                logger.logVerbose("Extracted ["
+                        + FileUtil.toReadableFileSize(size) + "] " + archiveEntry.getName());
+            }
+            int percent = (int) ((count * 100L) / entries.length);
+            if(percent >= lastLoggedPercent + 10 || count == entries.length){
+                lastLoggedPercent = percent;
+                logger.logMessage("Extracted " + count + "/" + entries.length);
+            }
+        }
+    }
+    private void logMessage(String message){
+        APKLogger logger = this.logger;
+        if(logger != null){
+            synchronized (this){
+                logger.logMessage(message);
+            }
+        }
+    }
+    private static void awaitWorker(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if(cause instanceof IOException){
+                throw (IOException) cause;
+            }
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    class Worker implements Callable<Void> {
+        private final Inflater inflater;
+        private final byte[] inputBuffer;
+        private final byte[] outputBuffer;
+
+        Worker(){
+            this.inflater = archive.getCodecPool().obtainInflater();
+            this.inputBuffer = new byte[BUFFER_SIZE];
+            this.outputBuffer = new byte[BUFFER_SIZE];
+        }
+        @Override
+        public Void call() throws IOException {
+            ArchiveEntry[] entries = ArchiveExtractor.this.entries;
+            int length = entries.length;
+            try{
+                int i;
+                while ((i = nextIndex.getAndIncrement()) < length){
+                    if(Thread.currentThread().isInterrupted()){
+                        throw new InterruptedIOException("Extraction interrupted");
+                    }
+                    ArchiveEntry archiveEntry = entries[i];
+                    extract(archiveEntry);
+                    onExtracted(archiveEntry);
+                }
+            }finally {
+                archive.getCodecPool().release(inflater);
+            }
+            return null;
+        }
+        private void extract(ArchiveEntry archiveEntry) throws IOException {
+            if(archiveEntry.isDirectory()){
+                return;
+            }
+            File file = archive.toFile(dir, archiveEntry);
+            FileUtil.ensureParentDirectory(file);
+            FileChannel outputChannel = FileUtil.openWriteChannel(file);
+            try{
+                if(archiveEntry.getMethod() != Archive.STORED){
+                    extractCompressed(archiveEntry, outputChannel);
+                }else {
+                    extractStored(archiveEntry, outputChannel);
+                }
+            }finally {
+                outputChannel.close();
+            }
+            archive.applyAttributes(archiveEntry, file);
+        }
+        private void extractStored(ArchiveEntry archiveEntry, FileChannel outputChannel) throws IOException {
+            ZipInput zipInput = archive.getZipInput();
+            long offset = archiveEntry.getFileOffset();
+            long length = archiveEntry.getDataSize();
+            if(zipInput instanceof ZipFileInput && !((ZipFileInput) zipInput).isMapped()){
+                FileChannel inputChannel = ((ZipFileInput) zipInput).getFileChannel();
+                long position = 0;
+                while (position < length){
+                    long transferred = inputChannel.transferTo(offset + position,
+                            length - position, outputChannel);
+                    if(transferred <= 0){
+                        throw new EOFException("Unexpected end of stored data: "
+                                + archiveEntry.getName());
+                    }
+                    position += transferred;
+                }
+                return;
+            }
+            InputStream inputStream = zipInput.getPositionalInputStream(offset, length);
+            byte[] buffer = this.outputBuffer;
+            long position = 0;
+            int read;
+            try{
+                while ((read = inputStream.read(buffer, 0, buffer.length)) > 0){
+                    writeFully(outputChannel, buffer, read);
+                    position += read;
+                }
+            }finally {
+                inputStream.close();
+            }
+            if(position != length){
+                throw new EOFException("Unexpected end of stored data: "
+                        + archiveEntry.getName());
+            }
+        }
+        private void extractCompressed(ArchiveEntry archiveEntry, FileChannel outputChannel) throws IOException {
+            Inflater inflater = this.inflater;
+            inflater.reset();
+            InputStream inputStream = archive.getZipInput().getPositionalInputStream(
+                    archiveEntry.getFileOffset(), archiveEntry.getDataSize());
+            byte[] input = this.inputBuffer;
+            byte[] output = this.outputBuffer;
+            try{
+                while (!inflater.finished()){
+                    if(inflater.needsInput()){
+                        int read = inputStream.read(input, 0, input.length);
+                        if(read <= 0){
+                            throw new EOFException("Unexpected end of compressed data: "
+                                    + archiveEntry.getName());
+                        }
+                        inflater.setInput(input, 0, read);
+                    }
+                    int inflated = inflater.inflate(output, 0, output.length);
+                    if(inflated > 0){
+                        writeFully(outputChannel, output, inflated);
+                    }else if(inflater.needsDictionary()){
+                        throw new ArchiveException("Dictionary required: " + archiveEntry.getName());
+                    }
+                }
+            }catch (DataFormatException ex){
+                throw new ArchiveException("Invalid compressed data: "
+                        + archiveEntry.getName() + ", " + ex.getMessage());
+            }finally {
+                inputStream.close();
+            }
+        }
+    }
+    private static void writeFully(FileChannel channel, byte[] bytes, int length) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, 0, length);
+        while (byteBuffer.hasRemaining()){
+            channel.write(byteBuffer);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 1024 * 64;
+    private static final long LOG_LARGE_FILE_SIZE = 1024 * 1000 * 20;
+}
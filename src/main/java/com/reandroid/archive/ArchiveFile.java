@@ -28,9 +28,19 @@ public class ArchiveFile extends Archive<ZipFileInput>{
     public ArchiveFile(ZipFileInput zipInput) throws IOException {
         super(zipInput);
     }
+    public ArchiveFile(ZipFileInput zipInput, boolean centralDirectoryOnly) throws IOException {
+        super(zipInput, centralDirectoryOnly);
+    }
     public ArchiveFile(File file) throws IOException {
         this(new ZipFileInput(file));
     }
+    /**
+     * @param mapped if true the file is memory-mapped and STORED entries (e.g. resources.arsc)
+     *               are parsed directly from the mapping, see {@link ZipFileInput#setMapped(boolean)}
+     * */
+    public ArchiveFile(File file, boolean mapped) throws IOException {
+        this(new ZipFileInput(file, mapped));
+    }
 
     @Override
     InputSource createInputSource(ArchiveEntry entry) {
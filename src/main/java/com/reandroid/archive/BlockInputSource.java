@@ -17,6 +17,7 @@ package com.reandroid.archive;
 
 import com.reandroid.arsc.base.Block;
 import com.reandroid.arsc.base.BlockRefresh;
+import com.reandroid.arsc.io.BlockWriter;
 import com.reandroid.utils.Crc32OutputStream;
 
 import java.io.IOException;
@@ -52,12 +53,12 @@ public class BlockInputSource<T extends Block> extends ByteInputSource {
     public long getCrc() throws IOException{
         Block block = getBlock();
         Crc32OutputStream outputStream = new Crc32OutputStream();
-        block.writeBytes(outputStream);
+        BlockWriter.write(block, outputStream);
         return outputStream.getValue();
     }
     @Override
     public long write(OutputStream outputStream) throws IOException {
-        return getBlock().writeBytes(outputStream);
+        return BlockWriter.write(getBlock(), outputStream);
     }
     @Override
     public byte[] getBytes() {
@@ -0,0 +1,106 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive;
+
+import com.reandroid.archive.block.CentralEntryHeader;
+import com.reandroid.archive.block.DataDescriptor;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.io.ZipInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Entry built from central directory only, the local file header is read on first access
+ * of {@link #getFileOffset()} or {@link #getLocalFileHeader()}, and before any setter
+ * modifies the header
+ * */
+public class LazyArchiveEntry extends ArchiveEntry {
+    private final ZipInput zipInput;
+    private volatile boolean mResolved;
+
+    public LazyArchiveEntry(LocalFileHeader lfh, ZipInput zipInput) {
+        super(lfh);
+        this.zipInput = zipInput;
+    }
+
+    public boolean isResolved() {
+        return mResolved;
+    }
+    @Override
+    public long getFileOffset() {
+        resolve();
+        return super.getFileOffset();
+    }
+    @Override
+    public LocalFileHeader getLocalFileHeader() {
+        resolve();
+        return super.getLocalFileHeader();
+    }
+    private void resolve() {
+        if(mResolved){
+            return;
+        }
+        synchronized (this){
+            if(mResolved){
+                return;
+            }
+            try {
+                readLocalFileHeader();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            mResolved = true;
+        }
+    }
+    /**
+     * Re-reads the synthesized header in place from the real local header, the same way
+     * {@link com.reandroid.archive.model.LocalFileDirectory#visit(ZipInput)} does,
+     * so that extra field, general purpose flags and data descriptor match eager mode.
+     * */
+    private void readLocalFileHeader() throws IOException {
+        LocalFileHeader lfh = super.getLocalFileHeader();
+        CentralEntryHeader ceh = getCentralEntryHeader();
+        ZipInput zipInput = this.zipInput;
+        long offset = ceh.getLocalRelativeOffset();
+        InputStream inputStream = zipInput.getPositionalInputStream(offset,
+                zipInput.getLength() - offset);
+        lfh.setHasDataDescriptor(false);
+        lfh.readBytes(inputStream);
+        if(!lfh.isValidSignature()){
+            inputStream.close();
+            throw new ArchiveException("Error reading LFH at "
+                    + offset + ", for CEH = " + ceh.getFileName());
+        }
+        offset = offset + lfh.countBytes();
+        lfh.setFileOffset(offset);
+        ceh.setFileOffset(offset);
+
+        lfh.updateDataDescriptor();
+        lfh.setCentralEntryHeader(ceh);
+
+        DataDescriptor dataDescriptor = lfh.getDataDescriptor();
+        if(dataDescriptor != null) {
+            inputStream.skip(lfh.getDataSize());
+            int read = dataDescriptor.readBytes(inputStream);
+            if(read != dataDescriptor.countBytes()) {
+                lfh.setHasDataDescriptor(false);
+            }
+        }
+        inputStream.close();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Thread safe pool of raw (nowrap) zlib {@link Deflater}s, kept per compression level, and
+ * {@link Inflater}s. Returned codecs are reset and kept up to {@link #getMaxIdle()} per kind,
+ * the rest are ended immediately instead of holding native memory until finalized.
+ * */
+public class ZipCodecPool {
+    private final DeflaterSlot[] deflaters;
+    private final Deque<Inflater> inflaters;
+    private final AtomicInteger idleInflaters;
+    private final int maxIdle;
+
+    private final AtomicLong deflaterRequests = new AtomicLong();
+    private final AtomicLong deflaterHits = new AtomicLong();
+    private final AtomicLong inflaterRequests = new AtomicLong();
+    private final AtomicLong inflaterHits = new AtomicLong();
+    private final AtomicInteger liveDeflaters = new AtomicInteger();
+    private final AtomicInteger liveInflaters = new AtomicInteger();
+
+    public ZipCodecPool(int maxIdle){
+        this.maxIdle = maxIdle;
+        int levels = Deflater.BEST_COMPRESSION + 2;
+        this.deflaters = new DeflaterSlot[levels];
+        for(int i = 0; i < levels; i++){
+            this.deflaters[i] = new DeflaterSlot();
+        }
+        this.inflaters = new ConcurrentLinkedDeque<>();
+        this.idleInflaters = new AtomicInteger();
+    }
+    public ZipCodecPool(){
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+    /**
+     * @param level {@link Deflater#DEFAULT_COMPRESSION} or 0 to 9
+     * */
+    public Deflater obtainDeflater(int level){
+        DeflaterSlot slot = deflaters[levelIndex(level)];
+        deflaterRequests.incrementAndGet();
+        Deflater deflater = slot.idle.pollFirst();
+        if(deflater != null){
+            slot.idleCount.decrementAndGet();
+            deflaterHits.incrementAndGet();
+            return deflater;
+        }
+        liveDeflaters.incrementAndGet();
+        return new PooledDeflater(level);
+    }
+    public void release(Deflater deflater){
+        if(!(deflater instanceof PooledDeflater)){
+            deflater.end();
+            return;
+        }
+        DeflaterSlot slot = deflaters[levelIndex(((PooledDeflater) deflater).level)];
+        if(slot.idleCount.incrementAndGet() > maxIdle){
+            slot.idleCount.decrementAndGet();
+            liveDeflaters.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        slot.idle.offerFirst(deflater);
+    }
+    public Inflater obtainInflater(){
+        inflaterRequests.incrementAndGet();
+        Inflater inflater = inflaters.pollFirst();
+        if(inflater != null){
+            idleInflaters.decrementAndGet();
+            inflaterHits.incrementAndGet();
+            return inflater;
+        }
+        liveInflaters.incrementAndGet();
+        return new PooledInflater();
+    }
+    public void release(Inflater inflater){
+        if(!(inflater instanceof PooledInflater)){
+            inflater.end();
+            return;
+        }
+        if(idleInflaters.incrementAndGet() > maxIdle){
+            idleInflaters.decrementAndGet();
+            liveInflaters.decrementAndGet();
+            inflater.end();
+            return;
+        }
+        inflater.reset();
+        inflaters.offerFirst(inflater);
+    }
+    /**
+     * Inflating stream whose inflater goes back to this pool on close.
+     * */
+    public InputStream openInflaterInputStream(InputStream inputStream, int bufferSize){
+        return new PooledInflaterInputStream(this, inputStream, obtainInflater(), bufferSize);
+    }
+    /**
+     * Sync-flushing deflating stream whose deflater goes back to this pool on close,
+     * closing also closes the given stream.
+     * */
+    public DeflaterOutputStream openDeflaterOutputStream(OutputStream outputStream, int level){
+        return new PooledDeflaterOutputStream(this, outputStream, obtainDeflater(level));
+    }
+    /**
+     * Ends all idle codecs.
+     * */
+    public void clear(){
+        for(DeflaterSlot slot : deflaters){
+            Deflater deflater;
+            while ((deflater = slot.idle.pollFirst()) != null){
+                slot.idleCount.decrementAndGet();
+                liveDeflaters.decrementAndGet();
+                deflater.end();
+            }
+        }
+        Inflater inflater;
+        while ((inflater = inflaters.pollFirst()) != null){
+            idleInflaters.decrementAndGet();
+            liveInflaters.decrementAndGet();
+            inflater.end();
+        }
+    }
+
+    public long getDeflaterRequests() {
+        return deflaterRequests.get();
+    }
+    public long getDeflaterHits() {
+        return deflaterHits.get();
+    }
+    public long getInflaterRequests() {
+        return inflaterRequests.get();
+    }
+    public long getInflaterHits() {
+        return inflaterHits.get();
+    }
+    public int getIdleDeflaters(){
+        int result = 0;
+        for(DeflaterSlot slot : deflaters){
+            result += slot.idleCount.get();
+        }
+        return result;
+    }
+    public int getIdleInflaters(){
+        return idleInflaters.get();
+    }
+    /**
+     * Number of codecs created by this pool and not ended yet, idle or in use.
+     * Codecs of streams that were never closed are counted until collected.
+     * */
+    public int getLiveDeflaters() {
+        return liveDeflaters.get();
+    }
+    public int getLiveInflaters() {
+        return liveInflaters.get();
+    }
+    /**
+     * Approximate zlib native memory held by live codecs, based on default window and
+     * memory level state sizes.
+     * */
+    public long getNativeMemoryEstimate(){
+        return (long) getLiveDeflaters() * DEFLATER_NATIVE_SIZE
+                + (long) getLiveInflaters() * INFLATER_NATIVE_SIZE;
+    }
+    @Override
+    public String toString() {
+        return "deflaters: hits=" + getDeflaterHits() + "/" + getDeflaterRequests()
+                + ", live=" + getLiveDeflaters()
+                + ", inflaters: hits=" + getInflaterHits() + "/" + getInflaterRequests()
+                + ", live=" + getLiveInflaters()
+                + ", native~" + getNativeMemoryEstimate();
+    }
+
+    private static int levelIndex(int level){
+        if(level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION){
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        return level + 1;
+    }
+
+    public static ZipCodecPool getDefault(){
+        return DEFAULT;
+    }
+
+    static class DeflaterSlot {
+        final Deque<Deflater> idle = new ConcurrentLinkedDeque<>();
+        final AtomicInteger idleCount = new AtomicInteger();
+    }
+    static class PooledDeflater extends Deflater {
+        final int level;
+        PooledDeflater(int level){
+            super(level, true);
+            this.level = level;
+        }
+    }
+    static class PooledInflater extends Inflater {
+        PooledInflater(){
+            super(true);
+        }
+    }
+    static class PooledInflaterInputStream extends InflaterInputStream {
+        private final ZipCodecPool pool;
+        private boolean released;
+        PooledInflaterInputStream(ZipCodecPool pool, InputStream inputStream, Inflater inflater, int bufferSize){
+            super(inputStream, inflater, bufferSize);
+            this.pool = pool;
+        }
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            }finally {
+                if(!released){
+                    released = true;
+                    pool.release(inf);
+                }
+            }
+        }
+    }
+    static class PooledDeflaterOutputStream extends DeflaterOutputStream {
+        private final ZipCodecPool pool;
+        private boolean released;
+        PooledDeflaterOutputStream(ZipCodecPool pool, OutputStream outputStream, Deflater deflater){
+            super(outputStream, deflater, true);
+            this.pool = pool;
+        }
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            }finally {
+                if(!released){
+                    released = true;
+                    pool.release(def);
+                }
+            }
+        }
+    }
+
+    private static final ZipCodecPool DEFAULT = new ZipCodecPool();
+
+    private static final long DEFLATER_NATIVE_SIZE = 268 * 1024;
+    private static final long INFLATER_NATIVE_SIZE = 40 * 1024;
+}
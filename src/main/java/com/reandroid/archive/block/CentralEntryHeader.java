@@ -35,14 +35,116 @@ public class CentralEntryHeader extends CommonHeader {
 
     @Override
     boolean isZip64Value(){
-        return isZip64Value(getInteger(OFFSET_localRelativeOffset));
+        return isZip64Value(getInteger(OFFSET_size))
+                || isZip64Value(getInteger(OFFSET_compressed_size))
+                || isZip64Value(getInteger(OFFSET_localRelativeOffset));
     }
     @Override
     int getZip64BytesLength(){
-        return 12;
+        int length = 4;
+        for(int field : ZIP64_FIELDS){
+            if(isZip64Value(getInteger(field))){
+                length += 8;
+            }
+        }
+        return length;
+    }
+    @Override
+    public long getSize(){
+        int offset = getOffsetZip64Field(OFFSET_size);
+        if(offset < 0){
+            return super.getSize();
+        }
+        return getLong(offset);
+    }
+    @Override
+    public void setSize(long value){
+        setZip64Values(value, getCompressedSize(), getLocalRelativeOffset());
+    }
+    @Override
+    public long getCompressedSize(){
+        int offset = getOffsetZip64Field(OFFSET_compressed_size);
+        if(offset < 0){
+            return super.getCompressedSize();
+        }
+        return getLong(offset);
     }
-    private int getOffsetZip64LocalRelativeOffset(){
-        return getOffsetZip64FieldLength() + 2;
+    @Override
+    public void setCompressedSize(long value){
+        setZip64Values(getSize(), value, getLocalRelativeOffset());
+    }
+    /**
+     * Zip64 extended information extra field holds only the values whose 32-bit field
+     * is 0xFFFFFFFF, in order: size, compressed size, local header offset
+     * */
+    private int getOffsetZip64Field(int field){
+        if(!isZip64Value(getInteger(field)) || !hasZip64Extra()){
+            return -1;
+        }
+        int offset = getOffsetZip64FieldLength() + 2;
+        int end = offset + getZip64FieldLength();
+        for(int i : ZIP64_FIELDS){
+            if(i == field){
+                break;
+            }
+            if(isZip64Value(getInteger(i))){
+                offset += 8;
+            }
+        }
+        if(offset + 8 > end){
+            return -1;
+        }
+        return offset;
+    }
+    @Override
+    boolean hasZip64Extra(){
+        return getExtraLength() >= 4 && getZip64FieldHeader() == ZIP64_EXTRA_ID;
+    }
+    private void setZip64Values(long size, long compressedSize, long offset){
+        boolean zip64 = isZip64Value(size) || isZip64Value(compressedSize) || isZip64Value(offset);
+        boolean hasZip64Extra = hasZip64Extra();
+        if(!zip64 && !hasZip64Extra){
+            putInteger(OFFSET_size, size);
+            putInteger(OFFSET_compressed_size, compressedSize);
+            putInteger(OFFSET_localRelativeOffset, offset);
+            return;
+        }
+        byte[] extra = getExtra();
+        int remaining = 0;
+        if(hasZip64Extra){
+            remaining = 4 + getZip64FieldLength();
+        }
+        long[] values = new long[]{size, compressedSize, offset};
+        int zip64Length = 0;
+        if(zip64){
+            for(long value : values){
+                if(isZip64Value(value)){
+                    zip64Length += 8;
+                }
+            }
+            zip64Length += 4;
+        }
+        byte[] result = new byte[zip64Length + extra.length - remaining];
+        System.arraycopy(extra, remaining, result, zip64Length, extra.length - remaining);
+        if(zip64){
+            putShort(result, 0, ZIP64_EXTRA_ID);
+            putShort(result, 2, zip64Length - 4);
+            int position = 4;
+            for(long value : values){
+                if(isZip64Value(value)){
+                    putLong(result, position, value);
+                    position += 8;
+                }
+            }
+        }
+        setExtra(result);
+        for(int i = 0; i < values.length; i++){
+            long value = values[i];
+            if(isZip64Value(value)){
+                value = 0xffffffffL;
+            }
+            putInteger(ZIP64_FIELDS[i], value);
+        }
     }
     @Override
     int readComment(InputStream inputStream) throws IOException {
@@ -102,19 +204,14 @@ public class CentralEntryHeader extends CommonHeader {
         putShort(OFFSET_commentLength, value);
     }
     public long getLocalRelativeOffset(){
-        if(isZip64()){
-            return getLong(getOffsetZip64LocalRelativeOffset());
+        int offset = getOffsetZip64Field(OFFSET_localRelativeOffset);
+        if(offset < 0){
+            return getIntegerUnsigned(OFFSET_localRelativeOffset);
         }
-        return getIntegerUnsigned(OFFSET_localRelativeOffset);
+        return getLong(offset);
     }
     public void setLocalRelativeOffset(long offset){
-        if(isZip64Value() || isZip64Value(offset)){
-            ensureZip64();
-            putInteger(OFFSET_localRelativeOffset, -1);
-            putLong(getOffsetZip64LocalRelativeOffset(), offset);
-        }else {
-            putInteger(OFFSET_localRelativeOffset, offset);
-        }
+        setZip64Values(getSize(), getCompressedSize(), offset);
     }
 
     public int getInternalFileAttributes(){
@@ -218,6 +315,7 @@ public class CentralEntryHeader extends CommonHeader {
         CentralEntryHeader ceh = new CentralEntryHeader();
         ceh.setSignature(ZipSignature.CENTRAL_FILE);
         ceh.setVersionMadeBy(lfh.getVersionMadeBy());
+        ceh.setFileName(lfh.getFileName());
         long offset = lfh.getFileOffset() - lfh.countBytes();
         ceh.setLocalRelativeOffset(offset);
         ceh.getGeneralPurposeFlag().setValue(lfh.getGeneralPurposeFlag().getValue());
@@ -226,7 +324,6 @@ public class CentralEntryHeader extends CommonHeader {
         ceh.setCrc(lfh.getCrc());
         ceh.setCompressedSize(lfh.getCompressedSize());
         ceh.setSize(lfh.getSize());
-        ceh.setFileName(lfh.getFileName());
         return ceh;
     }
     private static final int OFFSET_signature = 0;
@@ -248,4 +345,7 @@ public class CentralEntryHeader extends CommonHeader {
     private static final int OFFSET_localRelativeOffset = 42;
     private static final int OFFSET_fileName = 46;
 
+    private static final int[] ZIP64_FIELDS = new int[]{
+            OFFSET_size, OFFSET_compressed_size, OFFSET_localRelativeOffset};
+
 }
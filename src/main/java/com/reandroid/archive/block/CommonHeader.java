@@ -218,17 +218,27 @@ public abstract class CommonHeader extends ZipHeader {
 
 
     void ensureZip64(){
-        if(getExtraLength() >= getZip64BytesLength()){
+        if(hasZip64Extra()){
             return;
         }
-        setExtraLength(getZip64BytesLength());
+        byte[] extra = getExtra();
+        int length = getZip64BytesLength();
+        byte[] result = new byte[length + extra.length];
+        System.arraycopy(extra, 0, result, length, extra.length);
+        putShort(result, 0, ZIP64_EXTRA_ID);
+        putShort(result, 2, length - 4);
+        setExtra(result);
+    }
+    boolean hasZip64Extra(){
+        return getExtraLength() >= getZip64BytesLength()
+                && getZip64FieldHeader() == ZIP64_EXTRA_ID;
     }
 
     boolean isZip64(){
-        return isZip64Value() && getExtraLength() >= getZip64BytesLength();
+        return isZip64Value() && hasZip64Extra();
     }
     boolean isZip64Value(){
-        return isZip64Value(getInteger(getOffsetCompressedSize()))
+        return isZip64Value(getInteger(getOffsetSize()))
                 || isZip64Value(getInteger(getOffsetCompressedSize()));
     }
 
@@ -259,7 +269,7 @@ public abstract class CommonHeader extends ZipHeader {
 
 
     int getOffsetZip64CompressedSize(){
-        return getOffsetExtra() + 8;
+        return getOffsetZip64Size() + 8;
     }
     private int getOffsetZip64Size(){
         return getOffsetZip64FieldLength() + 2;
@@ -456,4 +466,6 @@ public abstract class CommonHeader extends ZipHeader {
     private static final int OFFSET_versionMadeBy = 4;
     private static final int OFFSET_platform = 5;
 
+    static final int ZIP64_EXTRA_ID = 0x0001;
+
 }
@@ -18,14 +18,52 @@ package com.reandroid.archive.block;
 import com.reandroid.archive.ZipSignature;
 import com.reandroid.utils.HexUtil;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 public class DataDescriptor extends ZipHeader{
+    private boolean zip64;
     public DataDescriptor() {
         super(MIN_LENGTH, ZipSignature.DATA_DESCRIPTOR);
     }
 
+    public boolean isZip64() {
+        return zip64;
+    }
+    /**
+     * Zip64 descriptors have 8 byte compressed and uncompressed sizes, set this before
+     * reading when the entry is known to be zip64.
+     * */
+    public void setZip64(boolean zip64) {
+        if(zip64 == this.zip64){
+            return;
+        }
+        long compressedSize = getCompressedSize();
+        long size = getSize();
+        this.zip64 = zip64;
+        setBytesLength(zip64 ? ZIP64_LENGTH : MIN_LENGTH, false);
+        setCompressedSize(compressedSize);
+        setSize(size);
+    }
+    @Override
+    int readNext(InputStream inputStream) throws IOException {
+        if(!zip64){
+            return 0;
+        }
+        int extra = ZIP64_LENGTH - MIN_LENGTH;
+        byte[] bytes = new byte[extra];
+        int read = inputStream.read(bytes, 0, extra);
+        setBytesLength(ZIP64_LENGTH, false);
+        if(read > 0){
+            putBytes(bytes, 0, MIN_LENGTH, read);
+        }
+        return Math.max(read, 0);
+    }
+
     public DataDescriptor copy(){
         DataDescriptor dd = new DataDescriptor();
         dd.setSignature(ZipSignature.DATA_DESCRIPTOR);
+        dd.setZip64(isZip64());
         dd.setCrc(getCrc());
         dd.setCompressedSize(getCompressedSize());
         dd.setSize(getSize());
@@ -39,16 +77,36 @@ public class DataDescriptor extends ZipHeader{
         putInteger(OFFSET_crc, value);
     }
     public long getCompressedSize(){
+        if(zip64){
+            return getLong(OFFSET_compressed_size);
+        }
         return getIntegerUnsigned(OFFSET_compressed_size);
     }
     public void setCompressedSize(long value){
-        putInteger(OFFSET_compressed_size, value);
+        if(zip64){
+            putLong(OFFSET_compressed_size, value);
+        }else if(isZip64Length(value)){
+            setZip64(true);
+            putLong(OFFSET_compressed_size, value);
+        }else {
+            putInteger(OFFSET_compressed_size, value);
+        }
     }
     public long getSize(){
+        if(zip64){
+            return getLong(OFFSET_zip64_size);
+        }
         return getIntegerUnsigned(OFFSET_size);
     }
     public void setSize(long value){
-        putInteger(OFFSET_size, value);
+        if(zip64){
+            putLong(OFFSET_zip64_size, value);
+        }else if(isZip64Length(value)){
+            setZip64(true);
+            putLong(OFFSET_zip64_size, value);
+        }else {
+            putInteger(OFFSET_size, value);
+        }
     }
 
     @Override
@@ -58,6 +116,9 @@ public class DataDescriptor extends ZipHeader{
         builder.append(", crc=").append(HexUtil.toHex8(getCrc()));
         builder.append(", compressed=").append(getCompressedSize());
         builder.append(", size=").append(getSize());
+        if(zip64){
+            builder.append(", zip64");
+        }
         return builder.toString();
     }
     public static DataDescriptor fromLocalFile(LocalFileHeader lfh){
@@ -72,6 +133,8 @@ public class DataDescriptor extends ZipHeader{
     private static final int OFFSET_crc = 4;
     private static final int OFFSET_compressed_size = 8;
     private static final int OFFSET_size = 12;
+    private static final int OFFSET_zip64_size = 16;
 
     public static final int MIN_LENGTH = 16;
+    public static final int ZIP64_LENGTH = 24;
 }
@@ -96,6 +96,9 @@ public class LocalFileHeader extends CommonHeader {
     public void setCompressedSize(long value) {
         DataDescriptor dataDescriptor = getDataDescriptor();
         if (dataDescriptor != null) {
+            if(isZip64Value(value)){
+                ensureZip64DataDescriptor();
+            }
             dataDescriptor.setCompressedSize(value);
             setCompressedSizeInternal(0);
         } else {
@@ -103,10 +106,8 @@ public class LocalFileHeader extends CommonHeader {
         }
     }
     private void setCompressedSizeInternal(long value){
-        if (isZip64Value() || isZip64Value(value)){
-            ensureZip64();
-            putInteger(getOffsetCompressedSize(), -1);
-            setZip64CompressedSize(value);
+        if (isZip64() || isZip64Value(value)){
+            setZip64Sizes(getSizeInternal(), value);
         } else {
             putInteger(getOffsetCompressedSize(), value);
         }
@@ -143,6 +144,9 @@ public class LocalFileHeader extends CommonHeader {
     public void setSize(long value) {
         DataDescriptor dataDescriptor = getDataDescriptor();
         if (dataDescriptor != null) {
+            if(isZip64Value(value)){
+                ensureZip64DataDescriptor();
+            }
             dataDescriptor.setSize(value);
             setSizeInternal(0);
         } else {
@@ -150,14 +154,50 @@ public class LocalFileHeader extends CommonHeader {
         }
     }
     private void setSizeInternal(long value){
-        if (isZip64Value() || isZip64Value(value)){
-            ensureZip64();
-            putInteger(getOffsetSize(), -1);
-            setZip64CompressedSize(value);
+        if (isZip64() || isZip64Value(value)){
+            setZip64Sizes(value, getCompressedSizeInternal());
         } else {
             putInteger(getOffsetSize(), value);
         }
     }
+    /**
+     * Local zip64 extra field must carry both sizes, with the 32-bit fields set to 0xFFFFFFFF
+     * */
+    private void setZip64Sizes(long size, long compressedSize){
+        ensureZip64();
+        putInteger(getOffsetSize(), -1);
+        putInteger(getOffsetCompressedSize(), -1);
+        setZip64Size(size);
+        setZip64CompressedSize(compressedSize);
+    }
+    /**
+     * Readers pick the 24 byte zip64 data descriptor only when the local header has a zip64
+     * extra field, its sizes are left zero since the real values follow the data
+     * */
+    private void ensureZip64DataDescriptor(){
+        if(!hasZip64Extra()){
+            ensureZip64();
+            setZip64Size(0);
+            setZip64CompressedSize(0);
+        }
+        getDataDescriptor().setZip64(true);
+    }
+    /**
+     * For headers written before the entry sizes are known: enables the data descriptor and
+     * reserves a zip64 extra field, so the descriptor can carry sizes of 4 GiB or more
+     * */
+    public void reserveZip64DataDescriptor(){
+        setHasDataDescriptor(true);
+        ensureZip64DataDescriptor();
+    }
+    /**
+     * True if this header carries a zip64 extended information extra field, a data
+     * descriptor following the entry then has 8 byte sizes
+     * */
+    @Override
+    public boolean hasZip64Extra(){
+        return super.hasZip64Extra();
+    }
     @Override
     public long getCrc() {
         DataDescriptor dataDescriptor = getDataDescriptor();
@@ -184,7 +224,11 @@ public class LocalFileHeader extends CommonHeader {
         DataDescriptor dataDescriptor = this.dataDescriptor;
         if (hasDataDescriptor()) {
             if(dataDescriptor == null) {
-                this.dataDescriptor = DataDescriptor.fromLocalFile(this);
+                dataDescriptor = DataDescriptor.fromLocalFile(this);
+                if(hasZip64Extra()){
+                    dataDescriptor.setZip64(true);
+                }
+                this.dataDescriptor = dataDescriptor;
                 setCrcInternal(0);
                 setCompressedSizeInternal(0);
                 setSizeInternal(0);
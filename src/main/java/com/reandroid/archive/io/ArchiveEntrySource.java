@@ -21,8 +21,6 @@ import com.reandroid.archive.ArchiveEntry;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 public class ArchiveEntrySource<T extends ZipInput> extends InputSource {
 
@@ -64,7 +62,12 @@ public class ArchiveEntrySource<T extends ZipInput> extends InputSource {
         }
         try{
             byte[] buffer = new byte[1024];
-            openInflaterInputStream().read(buffer, 0, buffer.length);
+            InputStream inputStream = openInflaterInputStream();
+            try {
+                inputStream.read(buffer, 0, buffer.length);
+            }finally {
+                inputStream.close();
+            }
             archiveEntry.setMethod(Archive.DEFLATED);
             this.setMethod(Archive.DEFLATED);
             return true;
@@ -85,8 +88,7 @@ public class ArchiveEntrySource<T extends ZipInput> extends InputSource {
         ArchiveEntry archiveEntry = getArchiveEntry();
         InputStream inputStream = getZipSource().getInputStream(
                 archiveEntry.getFileOffset(), archiveEntry.getDataSize());
-        return new InflaterInputStream(inputStream,
-                new Inflater(true), 512);
+        return archiveEntry.getCodecPool().openInflaterInputStream(inputStream, 512);
     }
     @Override
     public long getLength() throws IOException{
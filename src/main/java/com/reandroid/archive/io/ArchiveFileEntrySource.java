@@ -43,6 +43,19 @@ public class ArchiveFileEntrySource extends ArchiveEntrySource<ZipFileInput> {
         return bytes;
     }
 
+    /**
+     * Returns read-only view of entry data for STORED entries, a slice of the file mapping
+     * when the source {@link ZipFileInput#isMapped()}. Returns null for compressed entries.
+     * */
+    public ByteBuffer getByteBuffer() throws IOException {
+        if(getMethod() != Archive.STORED){
+            return null;
+        }
+        ArchiveEntry archiveEntry = getArchiveEntry();
+        return getZipSource().getByteBuffer(archiveEntry.getFileOffset(),
+                archiveEntry.getDataSize());
+    }
+
     FileChannel getFileChannel() throws IOException {
         ZipFileInput zipInput = getZipSource();
         FileChannel fileChannel = zipInput.getFileChannel();
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a region of channel using absolute positions, the channel position is never
+ * changed thus many streams can read the same channel concurrently.
+ * */
+public class PositionalChannelInputStream extends InputStream {
+    private final FileChannel fileChannel;
+    private final long end;
+    private long position;
+    private long mark;
+
+    public PositionalChannelInputStream(FileChannel fileChannel, long offset, long length){
+        this.fileChannel = fileChannel;
+        this.position = offset;
+        this.end = offset + length;
+        this.mark = offset;
+    }
+    @Override
+    public int read() throws IOException {
+        byte[] bytes = new byte[1];
+        int read = read(bytes, 0, 1);
+        if(read < 0){
+            return read;
+        }
+        return bytes[0] & 0xff;
+    }
+    @Override
+    public int read(byte[] bytes) throws IOException {
+        return read(bytes, 0, bytes.length);
+    }
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if(length == 0){
+            return 0;
+        }
+        long available = end - position;
+        if(available <= 0){
+            return -1;
+        }
+        if(length > available){
+            length = (int) available;
+        }
+        int read = fileChannel.read(ByteBuffer.wrap(bytes, offset, length), position);
+        if(read > 0){
+            position += read;
+        }
+        return read;
+    }
+    @Override
+    public long skip(long amount) {
+        if(amount <= 0){
+            return 0;
+        }
+        long available = end - position;
+        if(amount > available){
+            amount = available;
+        }
+        position += amount;
+        return amount;
+    }
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+    @Override
+    public synchronized void mark(int readLimit) {
+        this.mark = position;
+    }
+    @Override
+    public synchronized void reset() {
+        this.position = mark;
+    }
+    @Override
+    public void close() {
+        position = end;
+    }
+}
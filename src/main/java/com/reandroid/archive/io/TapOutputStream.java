@@ -0,0 +1,77 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Forwards every write to the underlying stream and, when set, mirrors the same bytes to a
+ * secondary tap stream (e.g. a digest). Closing does not close the tap.
+ * */
+public class TapOutputStream extends OutputStream {
+    private final OutputStream outputStream;
+    private OutputStream tap;
+
+    public TapOutputStream(OutputStream outputStream){
+        this.outputStream = outputStream;
+    }
+
+    public OutputStream getTap() {
+        return tap;
+    }
+    public void setTap(OutputStream tap) {
+        this.tap = tap;
+    }
+    public void write(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer, 0, buffer.length)) >= 0){
+            write(buffer, 0, read);
+        }
+        inputStream.close();
+    }
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if(length == 0){
+            return;
+        }
+        outputStream.write(bytes, offset, length);
+        OutputStream tap = this.tap;
+        if(tap != null){
+            tap.write(bytes, offset, length);
+        }
+    }
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+    @Override
+    public void write(int i) throws IOException {
+        write(new byte[]{(byte) i}, 0, 1);
+    }
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+}
@@ -23,8 +23,10 @@ import java.io.OutputStream;
 
 public class ZipByteOutput extends ZipOutput{
     private final BytesOutputStream bis;
+    private final TapOutputStream tapStream;
     public ZipByteOutput(){
         this.bis = new BytesOutputStream();
+        this.tapStream = new TapOutputStream(bis);
     }
     public byte[] toByteArray(){
         return bis.toByteArray();
@@ -47,13 +49,21 @@ public class ZipByteOutput extends ZipOutput{
     }
     @Override
     public void write(InputStream inputStream) throws IOException {
-        bis.write(inputStream);
+        if(tapStream.getTap() == null){
+            bis.write(inputStream);
+        }else {
+            tapStream.write(inputStream);
+        }
     }
     public void write(byte[] bytes) throws IOException {
-        bis.write(bytes);
+        tapStream.write(bytes);
+    }
+    @Override
+    public void setTap(OutputStream tap) {
+        tapStream.setTap(tap);
     }
     @Override
     public OutputStream getOutputStream() {
-        return bis;
+        return tapStream;
     }
 }
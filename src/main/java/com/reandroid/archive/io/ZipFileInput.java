@@ -15,10 +15,12 @@
  */
 package com.reandroid.archive.io;
 
+import com.reandroid.common.ByteBufferInputStream;
 import com.reandroid.common.FileChannelInputStream;
 import com.reandroid.utils.io.FileUtil;
 
 import java.io.*;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
@@ -26,9 +28,76 @@ public class ZipFileInput extends ZipInput {
     private final File file;
     private FileChannel fileChannel;
     private InputStream mCurrentInputStream;
+    private boolean mapped;
+    private ByteBuffer mappedBuffer;
     public ZipFileInput(File file){
         this.file = file;
     }
+    public ZipFileInput(File file, boolean mapped){
+        this.file = file;
+        this.mapped = mapped;
+    }
+
+    public boolean isMapped() {
+        return mapped;
+    }
+    /**
+     * When enabled the file is mapped into memory once and entry streams are served as
+     * slices of the mapping, see {@link #getByteBuffer(long, long)}
+     * */
+    public void setMapped(boolean mapped) {
+        if(!mapped){
+            this.mappedBuffer = null;
+        }
+        this.mapped = mapped;
+    }
+    /**
+     * Returns read-only view of the given region, in mapped mode this is a slice of the
+     * file mapping (no copy), otherwise the bytes are read into a heap buffer.
+     * */
+    public ByteBuffer getByteBuffer(long offset, long length) throws IOException {
+        if(length > Integer.MAX_VALUE){
+            throw new IOException("Length too large for ByteBuffer: " + length);
+        }
+        ByteBuffer mappedBuffer = getMappedBuffer();
+        if(mappedBuffer != null){
+            ByteBuffer slice = mappedBuffer.duplicate();
+            ((Buffer) slice).position((int) offset);
+            ((Buffer) slice).limit((int) (offset + length));
+            return slice.slice();
+        }
+        ByteBuffer byteBuffer = ByteBuffer.allocate((int) length);
+        FileChannel fileChannel = getFileChannel();
+        while (byteBuffer.hasRemaining()){
+            int read = fileChannel.read(byteBuffer, offset + byteBuffer.position());
+            if(read < 0){
+                throw new EOFException("Finished reading: " + (offset + byteBuffer.position()));
+            }
+        }
+        ((Buffer) byteBuffer).flip();
+        return byteBuffer.asReadOnlyBuffer();
+    }
+    private ByteBuffer getMappedBuffer() throws IOException {
+        if(!mapped){
+            return null;
+        }
+        ByteBuffer mappedBuffer = this.mappedBuffer;
+        if(mappedBuffer != null){
+            return mappedBuffer;
+        }
+        synchronized (this){
+            long length = getLength();
+            if(length > Integer.MAX_VALUE){
+                // too large for a single mapping, fall back to channel reads
+                this.mapped = false;
+                return null;
+            }
+            mappedBuffer = getFileChannel().map(FileChannel.MapMode.READ_ONLY, 0, length)
+                    .asReadOnlyBuffer();
+            this.mappedBuffer = mappedBuffer;
+            return mappedBuffer;
+        }
+    }
 
     public File getFile(){
         return file;
@@ -52,6 +121,9 @@ public class ZipFileInput extends ZipInput {
     }
     @Override
     public InputStream getInputStream(long offset, long length) throws IOException {
+        if(isMapped() && getMappedBuffer() != null){
+            return new ByteBufferInputStream(getByteBuffer(offset, length));
+        }
         closeCurrentInputStream();
         FileChannel fileChannel = getFileChannel();
         fileChannel.position(offset);
@@ -59,6 +131,14 @@ public class ZipFileInput extends ZipInput {
         return mCurrentInputStream;
     }
 
+    @Override
+    public InputStream getPositionalInputStream(long offset, long length) throws IOException {
+        if(isMapped() && getMappedBuffer() != null){
+            return new ByteBufferInputStream(getByteBuffer(offset, length));
+        }
+        return new PositionalChannelInputStream(getFileChannel(), offset, length);
+    }
+
     @Override
     public byte[] getFooter(int minLength) throws IOException {
         long position = getLength();
@@ -85,6 +165,7 @@ public class ZipFileInput extends ZipInput {
     }
     @Override
     public void close() throws IOException {
+        this.mappedBuffer = null;
         closeCurrentInputStream();
         closeChannel();
     }
@@ -20,26 +20,83 @@ import com.reandroid.utils.io.FileUtil;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 public class ZipFileOutput extends ZipOutput{
     private final File file;
+    private final boolean append;
     private FileChannel fileChannel;
-    private FileChannelOutputStream outputStream;
+    private TapOutputStream outputStream;
+    private OutputStream tap;
     public ZipFileOutput(File file) throws IOException {
-        initFile(file);
+        this(file, false);
+    }
+    /**
+     * @param append if true the existing file is opened for in-place updates, otherwise it is
+     *               replaced by an empty file
+     * */
+    public ZipFileOutput(File file, boolean append) throws IOException {
+        if(append){
+            if(!file.isFile()){
+                throw new IOException("No such file: " + file);
+            }
+        }else {
+            initFile(file);
+        }
         this.file = file;
+        this.append = append;
     }
     public File getFile() {
         return file;
     }
+    public boolean isAppend() {
+        return append;
+    }
+    public void truncate(long size) throws IOException {
+        getFileChannel().truncate(size);
+    }
     public void write(FileChannel input, long length) throws IOException{
         FileChannel fileChannel = getFileChannel();
+        if(tap != null){
+            writeTapped(input, length, fileChannel);
+            return;
+        }
         long pos = fileChannel.position();
         length = fileChannel.transferFrom(input, pos, length);
         fileChannel.position(pos + length);
     }
+    private void writeTapped(FileChannel input, long length, FileChannel fileChannel) throws IOException {
+        OutputStream tap = this.tap;
+        byte[] buffer = new byte[(int) Math.min(length, TAP_BUFFER_SIZE)];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        while (length > 0){
+            byteBuffer.clear();
+            if(length < buffer.length){
+                byteBuffer.limit((int) length);
+            }
+            int read = input.read(byteBuffer);
+            if(read < 0){
+                break;
+            }
+            byteBuffer.flip();
+            while (byteBuffer.hasRemaining()){
+                fileChannel.write(byteBuffer);
+            }
+            tap.write(buffer, 0, read);
+            length -= read;
+        }
+    }
+    @Override
+    public void setTap(OutputStream tap) {
+        this.tap = tap;
+        TapOutputStream outputStream = this.outputStream;
+        if(outputStream != null){
+            outputStream.setTap(tap);
+        }
+    }
 
     @Override
     public long position() throws IOException {
@@ -70,7 +127,11 @@ public class ZipFileOutput extends ZipOutput{
             return fileChannel;
         }
         synchronized (this){
-            fileChannel = FileUtil.openWriteChannel(file);
+            if(append){
+                fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+            }else {
+                fileChannel = FileUtil.openWriteChannel(file);
+            }
             this.fileChannel = fileChannel;
             return fileChannel;
         }
@@ -87,16 +148,20 @@ public class ZipFileOutput extends ZipOutput{
         while ((read = inputStream.read(buffer, 0, bufferLength)) > 0){
             ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
             fileChannel.write(byteBuffer);
+            if(tap != null){
+                tap.write(buffer, 0, read);
+            }
             result += read;
         }
         inputStream.close();
         fileChannel.position(pos + result);
     }
     @Override
-    public FileChannelOutputStream getOutputStream() throws IOException {
-        FileChannelOutputStream outputStream = this.outputStream;
+    public OutputStream getOutputStream() throws IOException {
+        TapOutputStream outputStream = this.outputStream;
         if(outputStream == null){
-            outputStream = new FileChannelOutputStream(getFileChannel());
+            outputStream = new TapOutputStream(new FileChannelOutputStream(getFileChannel()));
+            outputStream.setTap(tap);
             this.outputStream = outputStream;
         }
         return outputStream;
@@ -116,4 +181,6 @@ public class ZipFileOutput extends ZipOutput{
         }
         file.createNewFile();
     }
+
+    private static final int TAP_BUFFER_SIZE = 64 * 1024;
 }
@@ -16,7 +16,15 @@
 package com.reandroid.archive.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 public abstract class ZipInput implements ReadOnlyStream {
     public abstract byte[] getFooter(int minLength) throws IOException;
+    /**
+     * Same as {@link #getInputStream(long, long)} but the returned stream is independent of
+     * the shared position, safe for concurrent readers
+     * */
+    public InputStream getPositionalInputStream(long offset, long length) throws IOException {
+        return getInputStream(offset, length);
+    }
 }
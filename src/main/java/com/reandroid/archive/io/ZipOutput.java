@@ -15,5 +15,11 @@
  */
 package com.reandroid.archive.io;
 
+import java.io.OutputStream;
+
 public abstract class ZipOutput implements WriteOnlyStream{
+    /**
+     * Mirrors every byte written from now on to the given stream, null stops mirroring.
+     * */
+    public abstract void setTap(OutputStream tap);
 }
@@ -20,9 +20,11 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 public class ZipStreamOutput extends ZipOutput {
+    private final TapOutputStream tapStream;
     private final CountingOutputStream<OutputStream> countingStream;
     public ZipStreamOutput(OutputStream outputStream){
-        this.countingStream = new CountingOutputStream<>(outputStream, true);
+        this.tapStream = new TapOutputStream(outputStream);
+        this.countingStream = new CountingOutputStream<>(tapStream, true);
     }
     @Override
     public long position() throws IOException {
@@ -48,6 +50,10 @@ public class ZipStreamOutput extends ZipOutput {
         countingStream.write(bytes);
     }
     @Override
+    public void setTap(OutputStream tap) {
+        tapStream.setTap(tap);
+    }
+    @Override
     public OutputStream getOutputStream(){
         return countingStream;
     }
@@ -17,6 +17,7 @@ package com.reandroid.archive.model;
 
 import com.reandroid.archive.ArchiveEntry;
 import com.reandroid.archive.ArchiveException;
+import com.reandroid.archive.LazyArchiveEntry;
 import com.reandroid.archive.block.*;
 import com.reandroid.archive.block.ApkSignatureBlock;
 import com.reandroid.archive.io.ZipInput;
@@ -58,11 +59,11 @@ public class LocalFileDirectory {
             offset = offset + lfh.countBytes();
             ceh.setFileOffset(offset);
 
+            lfh.updateDataDescriptor();
             lfh.setCentralEntryHeader(ceh);
 
             inputStream.skip(lfh.getDataSize());
 
-            lfh.updateDataDescriptor();
             DataDescriptor dataDescriptor = lfh.getDataDescriptor();
             if(dataDescriptor != null) {
                 int read = dataDescriptor.readBytes(inputStream);
@@ -77,6 +78,23 @@ public class LocalFileDirectory {
             index++;
         }
     }
+    /**
+     * Builds local headers from central directory without reading the archive body,
+     * entries returned by {@link #buildLazyArchiveEntryList(ZipInput)} read the real
+     * local header on demand.
+     * */
+    public void visitCentralOnly(ZipInput zipInput) throws IOException {
+        List<LocalFileHeader> headerList = this.getHeaderList();
+        int index = 0;
+        for(CentralEntryHeader ceh : getCentralFileDirectory().getHeaderList()){
+            LocalFileHeader lfh = LocalFileHeader.fromCentralEntryHeader(ceh);
+            lfh.setCentralEntryHeader(ceh);
+            lfh.setIndex(index);
+            headerList.add(lfh);
+            index++;
+        }
+        visitApkSigBlock(zipInput);
+    }
     private void visitApkSigBlock(ZipInput zipInput) throws IOException{
         CentralFileDirectory cfd = getCentralFileDirectory();
         SignatureFooter footer = cfd.getSignatureFooter();
@@ -113,4 +131,13 @@ public class LocalFileDirectory {
         }
         return entryList;
     }
+    public ArchiveEntry[] buildLazyArchiveEntryList(ZipInput zipInput){
+        List<LocalFileHeader> headerList = getHeaderList();
+        int size = headerList.size();
+        ArchiveEntry[] entryList = new ArchiveEntry[size];
+        for(int i = 0; i < size; i++){
+            entryList[i] = new LazyArchiveEntry(headerList.get(i), zipInput);
+        }
+        return entryList;
+    }
 }
@@ -25,13 +25,36 @@ import java.io.File;
 import java.io.IOException;
 
 public class ApkFileWriter extends ApkWriter<ZipFileOutput, FileOutputSource> {
-    private BufferFileInput buffer;
+    private BufferFileInput[] buffers;
+    private int compressionThreads = 1;
     public ApkFileWriter(File file, InputSource[] sources) throws IOException {
-        super(new ZipFileOutput(file), sources);
+        this(new ZipFileOutput(file), sources);
     }
+    ApkFileWriter(ZipFileOutput zipOutput, InputSource[] sources) {
+        super(zipOutput, sources);
+    }
+
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+    /**
+     * Number of workers used to compress changed files, values less than 2 keep the
+     * single-threaded buffering. The written archive is identical in both modes.
+     * */
+    public void setCompressionThreads(int compressionThreads) {
+        this.compressionThreads = compressionThreads;
+    }
+
     @Override
     void closeBuffer() throws IOException{
-        buffer.close();
+        BufferFileInput[] buffers = this.buffers;
+        if(buffers == null){
+            return;
+        }
+        for(BufferFileInput buffer : buffers){
+            buffer.close();
+        }
+        this.buffers = null;
     }
     @Override
     void writeApk(FileOutputSource outputSource, ZipAligner zipAligner) throws IOException{
@@ -39,10 +62,19 @@ public class ApkFileWriter extends ApkWriter<ZipFileOutput, FileOutputSource> {
     }
     @Override
     void prepareOutputs(FileOutputSource[] outList) throws IOException {
-        logMessage("Buffering compress changed files ...");
-        BufferFileInput buffer = writeBuffer(outList);
-        buffer.unlock();
-        this.buffer = buffer;
+        int threads = getCompressionThreads();
+        BufferFileInput[] buffers;
+        if(threads > 1){
+            logMessage("Buffering compress changed files, threads = " + threads + " ...");
+            buffers = writeBufferParallel(outList, threads);
+        }else {
+            logMessage("Buffering compress changed files ...");
+            buffers = new BufferFileInput[]{writeBuffer(outList)};
+        }
+        for(BufferFileInput buffer : buffers){
+            buffer.unlock();
+        }
+        this.buffers = buffers;
     }
     @Override
     FileOutputSource[] createOutArray(int length){
@@ -86,11 +118,22 @@ public class ApkFileWriter extends ApkWriter<ZipFileOutput, FileOutputSource> {
         output.close();
         return input;
     }
+    private BufferFileInput[] writeBufferParallel(FileOutputSource[] outputList, int threads) throws IOException {
+        File[] segmentFiles = new File[threads];
+        for(int i = 0; i < threads; i++){
+            segmentFiles[i] = getBufferFile("_" + i);
+        }
+        ParallelBufferWriter bufferWriter = new ParallelBufferWriter(this, segmentFiles);
+        return bufferWriter.write(outputList);
+    }
     private File getBufferFile(){
+        return getBufferFile("");
+    }
+    private File getBufferFile(String suffix){
         File file = getZipOutput().getFile();
         File dir = file.getParentFile();
         String name = file.getAbsolutePath();
-        name = "tmp" + name.hashCode();
+        name = "tmp" + name.hashCode() + suffix;
         File bufFile;
         if(dir != null){
             bufFile = new File(dir, name);
@@ -0,0 +1,179 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import com.reandroid.archive.ArchiveEntry;
+import com.reandroid.archive.InputSource;
+import com.reandroid.archive.block.CentralEntryHeader;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.block.SignatureFooter;
+import com.reandroid.archive.io.ArchiveFileEntrySource;
+import com.reandroid.archive.io.ZipFileInput;
+import com.reandroid.archive.io.ZipFileOutput;
+import com.reandroid.archive.model.CentralFileDirectory;
+import com.reandroid.utils.io.IOUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Updates an existing archive in place. Entries still backed by the same file keep their local
+ * records where they are; changed and new entries are appended after the last entry (over the
+ * old signature block and central directory) followed by a new central directory, and the file
+ * is truncated to the new length.
+ * <br/>
+ * Records of removed or replaced entries stay behind as unreferenced bytes, use
+ * {@link #getUnusedBytes()} to decide when a full rewrite with {@link ApkFileWriter} (compaction)
+ * is worth it.
+ * */
+public class ApkIncrementalWriter extends ApkFileWriter {
+    private final File file;
+    private final Map<String, CentralEntryHeader> currentHeaders;
+    private long appendOffset;
+    private boolean mPrepared;
+
+    public ApkIncrementalWriter(File file, InputSource[] sources) throws IOException {
+        super(new ZipFileOutput(file, true), sources);
+        this.file = file;
+        this.currentHeaders = new HashMap<>();
+        readCurrentDirectory();
+    }
+
+    /**
+     * Offset where changed entries start to be written, i.e. the end of the existing entries.
+     * */
+    public long getAppendOffset() {
+        return appendOffset;
+    }
+    /**
+     * Number of bytes before {@link #getAppendOffset()} that are not referenced by
+     * any of the retained entries.
+     * */
+    public long getUnusedBytes() {
+        long used = 0;
+        for(InputSource inputSource : getInputSources()){
+            if(isRetained(inputSource)){
+                used += new RetainedOutputSource(inputSource).getRecordLength();
+            }
+        }
+        return getAppendOffset() - used;
+    }
+    public int countRetained(){
+        int count = 0;
+        for(InputSource inputSource : getInputSources()){
+            if(isRetained(inputSource)){
+                count ++;
+            }
+        }
+        return count;
+    }
+    @Override
+    void prepareOutputs(FileOutputSource[] outList) throws IOException {
+        logMessage("Retained entries: " + countRetained() + "/" + outList.length);
+        super.prepareOutputs(outList);
+        getZipOutput().position(getAppendOffset());
+        mPrepared = true;
+    }
+    @Override
+    void writeApk(FileOutputSource outputSource, ZipAligner zipAligner) throws IOException {
+        if(outputSource instanceof RetainedOutputSource){
+            return;
+        }
+        super.writeApk(outputSource, zipAligner);
+    }
+    @Override
+    FileOutputSource toOutputSource(InputSource inputSource){
+        if(isRetained(inputSource)){
+            return new RetainedOutputSource(inputSource);
+        }
+        return super.toOutputSource(inputSource);
+    }
+    @Override
+    void digestRetained(OutputStream contentDigest) throws IOException {
+        ZipFileInput zipInput = new ZipFileInput(file);
+        try {
+            InputStream inputStream = zipInput.getPositionalInputStream(0, getAppendOffset());
+            IOUtil.writeAll(inputStream, contentDigest, false);
+            inputStream.close();
+        }finally {
+            zipInput.close();
+        }
+    }
+    @Override
+    public void close() throws IOException {
+        if(mPrepared){
+            ZipFileOutput zipOutput = getZipOutput();
+            zipOutput.truncate(zipOutput.position());
+            mPrepared = false;
+        }
+        super.close();
+    }
+    private boolean isRetained(InputSource inputSource){
+        if(inputSource.getClass() != ArchiveFileEntrySource.class){
+            return false;
+        }
+        ArchiveFileEntrySource entrySource = (ArchiveFileEntrySource) inputSource;
+        if(!isSameFile(entrySource.getZipSource().getFile())){
+            return false;
+        }
+        ArchiveEntry archiveEntry = entrySource.getArchiveEntry();
+        String name = archiveEntry.getName();
+        if(!name.equals(inputSource.getAlias()) || inputSource.getMethod() != archiveEntry.getMethod()){
+            return false;
+        }
+        // the source archive could have been loaded from an older version of the file
+        CentralEntryHeader ceh = currentHeaders.get(name);
+        if(ceh == null){
+            return false;
+        }
+        LocalFileHeader lfh = archiveEntry.getLocalFileHeader();
+        return ceh.getLocalRelativeOffset() == lfh.getFileOffset() - lfh.countBytes()
+                && ceh.getCrc() == lfh.getCrc()
+                && ceh.getCompressedSize() == lfh.getCompressedSize();
+    }
+    private boolean isSameFile(File source){
+        if(source == null){
+            return false;
+        }
+        try {
+            return source.getCanonicalFile().equals(file.getCanonicalFile());
+        } catch (IOException ignored) {
+            return source.getAbsoluteFile().equals(file.getAbsoluteFile());
+        }
+    }
+    private void readCurrentDirectory() throws IOException {
+        ZipFileInput zipInput = new ZipFileInput(file);
+        try {
+            CentralFileDirectory cfd = new CentralFileDirectory();
+            cfd.visit(zipInput);
+            for(CentralEntryHeader ceh : cfd.getHeaderList()){
+                currentHeaders.put(ceh.getFileName(), ceh);
+            }
+            long offset = cfd.getEndRecord().getOffsetOfCentralDirectory();
+            SignatureFooter footer = cfd.getSignatureFooter();
+            if(footer != null){
+                offset -= footer.getSignatureSize() + 8;
+            }
+            this.appendOffset = offset;
+        }finally {
+            zipInput.close();
+        }
+    }
+}
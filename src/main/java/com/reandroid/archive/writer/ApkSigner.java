@@ -0,0 +1,352 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import com.reandroid.archive.block.ApkSignatureBlock;
+import com.reandroid.archive.block.SignatureId;
+import com.reandroid.archive.block.SignatureInfo;
+import com.reandroid.arsc.base.Block;
+import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.utils.io.IOUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Signs with APK signature scheme v2 and/or v3 while {@link ApkWriter} writes the archive.
+ * The contents of zip entries are digested in 1 MB chunks as they are written (optionally on
+ * a worker pool, see {@link #setDigestThreads(int)}), the central directory and end record are
+ * digested before being written, so no extra read or rewrite pass over the archive is needed.
+ * <br/>
+ * Only SHA-256 based algorithms are used (RSA PKCS#1 v1.5, ECDSA or DSA depending on the key).
+ * V3 is emitted without a signing certificate lineage.
+ * */
+public class ApkSigner {
+    private final PrivateKey privateKey;
+    private final List<X509Certificate> certificates;
+    private boolean v2SigningEnabled;
+    private boolean v3SigningEnabled;
+    private int digestThreads;
+
+    public ApkSigner(PrivateKey privateKey, List<X509Certificate> certificates){
+        if(certificates == null || certificates.isEmpty()){
+            throw new IllegalArgumentException("No certificates");
+        }
+        this.privateKey = privateKey;
+        this.certificates = new ArrayList<>(certificates);
+        this.v2SigningEnabled = true;
+        this.v3SigningEnabled = true;
+        this.digestThreads = 1;
+        getAlgorithmId();
+    }
+
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+    public List<X509Certificate> getCertificates() {
+        return certificates;
+    }
+    public boolean isV2SigningEnabled() {
+        return v2SigningEnabled;
+    }
+    public void setV2SigningEnabled(boolean v2SigningEnabled) {
+        this.v2SigningEnabled = v2SigningEnabled;
+    }
+    public boolean isV3SigningEnabled() {
+        return v3SigningEnabled;
+    }
+    public void setV3SigningEnabled(boolean v3SigningEnabled) {
+        this.v3SigningEnabled = v3SigningEnabled;
+    }
+    public int getDigestThreads() {
+        return digestThreads;
+    }
+    /**
+     * Number of workers hashing 1 MB chunks, values less than 2 hash on the writing thread.
+     * */
+    public void setDigestThreads(int digestThreads) {
+        this.digestThreads = digestThreads;
+    }
+
+    ChunkDigestStream newContentDigest(){
+        return new ChunkDigestStream(getDigestThreads());
+    }
+    /**
+     * @param contentDigest the finished digest of everything before the signature block
+     * @param centralDirectory bytes of the central directory as it will be written
+     * @param endRecord bytes of the end record, its central directory offset pointing at the
+     *                  start of the signature block
+     * @param source signature block to carry over unrelated entries from, can be null
+     * */
+    ApkSignatureBlock sign(ChunkDigestStream contentDigest, byte[] centralDirectory,
+                           byte[] endRecord, ApkSignatureBlock source) throws IOException {
+        List<byte[]> chunkDigests = new ArrayList<>(contentDigest.finish());
+        chunkDigests.addAll(ChunkDigestStream.digestChunks(centralDirectory));
+        chunkDigests.addAll(ChunkDigestStream.digestChunks(endRecord));
+        byte[] digest = ChunkDigestStream.digestContent(chunkDigests);
+
+        ApkSignatureBlock signatureBlock = new ApkSignatureBlock();
+        copyUnrelated(source, signatureBlock);
+        try {
+            if(isV2SigningEnabled()){
+                signatureBlock.add(toSignatureInfo(SignatureId.V2, signV2(digest)));
+            }
+            if(isV3SigningEnabled()){
+                signatureBlock.add(toSignatureInfo(SignatureId.V3, signV3(digest)));
+            }
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("Failed to sign: " + ex.getMessage(), ex);
+        }
+        signatureBlock.sortSignatures();
+        return signatureBlock;
+    }
+    private byte[] signV2(byte[] digest) throws GeneralSecurityException, IOException {
+        byte[] attributes;
+        if(isV3SigningEnabled()){
+            byte[] strippingProtection = new byte[8];
+            Block.putInteger(strippingProtection, 0, ATTR_STRIPPING_PROTECTION);
+            Block.putInteger(strippingProtection, 4, 3);
+            attributes = lengthPrefixed(lengthPrefixed(strippingProtection));
+        }else {
+            attributes = lengthPrefixed(new byte[0]);
+        }
+        byte[] signedData = concat(
+                encodeDigests(digest),
+                encodeCertificates(),
+                attributes);
+        byte[] signer = concat(
+                lengthPrefixed(signedData),
+                encodeSignatures(signedData),
+                lengthPrefixed(getPublicKey().getEncoded()));
+        return lengthPrefixed(lengthPrefixed(signer));
+    }
+    private byte[] signV3(byte[] digest) throws GeneralSecurityException, IOException {
+        byte[] sdkRange = new byte[8];
+        Block.putInteger(sdkRange, 0, V3_MIN_SDK);
+        Block.putInteger(sdkRange, 4, Integer.MAX_VALUE);
+        byte[] signedData = concat(
+                encodeDigests(digest),
+                encodeCertificates(),
+                sdkRange,
+                lengthPrefixed(new byte[0]));
+        byte[] signer = concat(
+                lengthPrefixed(signedData),
+                sdkRange,
+                encodeSignatures(signedData),
+                lengthPrefixed(getPublicKey().getEncoded()));
+        return lengthPrefixed(lengthPrefixed(signer));
+    }
+    private byte[] encodeDigests(byte[] digest) throws IOException {
+        return lengthPrefixed(lengthPrefixed(concat(
+                intBytes(getAlgorithmId()),
+                lengthPrefixed(digest))));
+    }
+    private byte[] encodeCertificates() throws GeneralSecurityException, IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for(X509Certificate certificate : getCertificates()){
+            outputStream.write(lengthPrefixed(certificate.getEncoded()));
+        }
+        return lengthPrefixed(outputStream.toByteArray());
+    }
+    private byte[] encodeSignatures(byte[] signedData) throws GeneralSecurityException, IOException {
+        Signature signature = Signature.getInstance(getJcaAlgorithm());
+        signature.initSign(getPrivateKey());
+        signature.update(signedData);
+        byte[] signatureBytes = signature.sign();
+        return lengthPrefixed(lengthPrefixed(concat(
+                intBytes(getAlgorithmId()),
+                lengthPrefixed(signatureBytes))));
+    }
+    private PublicKey getPublicKey(){
+        return getCertificates().get(0).getPublicKey();
+    }
+    private int getAlgorithmId(){
+        String algorithm = getPrivateKey().getAlgorithm();
+        if("RSA".equals(algorithm)){
+            return ALGORITHM_RSA_PKCS1_V1_5_WITH_SHA256;
+        }
+        if("EC".equals(algorithm)){
+            return ALGORITHM_ECDSA_WITH_SHA256;
+        }
+        if("DSA".equals(algorithm)){
+            return ALGORITHM_DSA_WITH_SHA256;
+        }
+        throw new IllegalArgumentException("Unsupported key algorithm: " + algorithm);
+    }
+    private String getJcaAlgorithm(){
+        int id = getAlgorithmId();
+        if(id == ALGORITHM_RSA_PKCS1_V1_5_WITH_SHA256){
+            return "SHA256withRSA";
+        }
+        if(id == ALGORITHM_ECDSA_WITH_SHA256){
+            return "SHA256withECDSA";
+        }
+        return "SHA256withDSA";
+    }
+
+    private static void copyUnrelated(ApkSignatureBlock source, ApkSignatureBlock destination) throws IOException {
+        if(source == null){
+            return;
+        }
+        for(SignatureInfo signatureInfo : source){
+            SignatureId id = signatureInfo.getId();
+            if(SignatureId.V2.equals(id) || SignatureId.V3.equals(id)
+                    || SignatureId.V31.equals(id) || SignatureId.STAMP_V1.equals(id)
+                    || SignatureId.STAMP_V2.equals(id) || SignatureId.PADDING.equals(id)){
+                continue;
+            }
+            SignatureInfo copy = new SignatureInfo();
+            copy.readBytes(new BlockReader(signatureInfo.getBytes()));
+            destination.add(copy);
+        }
+    }
+    private static SignatureInfo toSignatureInfo(SignatureId signatureId, byte[] value) throws IOException {
+        byte[] bytes = new byte[12 + value.length];
+        long size = 4L + value.length;
+        Block.putLong(bytes, 0, size);
+        Block.putInteger(bytes, 8, signatureId.getId());
+        System.arraycopy(value, 0, bytes, 12, value.length);
+        SignatureInfo signatureInfo = new SignatureInfo();
+        signatureInfo.readBytes(new BlockReader(bytes));
+        return signatureInfo;
+    }
+    private static byte[] lengthPrefixed(byte[] bytes){
+        byte[] result = new byte[4 + bytes.length];
+        Block.putInteger(result, 0, bytes.length);
+        System.arraycopy(bytes, 0, result, 4, bytes.length);
+        return result;
+    }
+    private static byte[] concat(byte[]... arrays){
+        int length = 0;
+        for(byte[] bytes : arrays){
+            length += bytes.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for(byte[] bytes : arrays){
+            System.arraycopy(bytes, 0, result, offset, bytes.length);
+            offset += bytes.length;
+        }
+        return result;
+    }
+    private static byte[] intBytes(int value){
+        byte[] bytes = new byte[4];
+        Block.putInteger(bytes, 0, value);
+        return bytes;
+    }
+
+    public static ApkSigner fromKeyStore(KeyStore keyStore, String alias, char[] keyPassword) throws IOException {
+        try {
+            if(alias == null){
+                alias = keyStore.aliases().nextElement();
+            }
+            Key key = keyStore.getKey(alias, keyPassword);
+            if(!(key instanceof PrivateKey)){
+                throw new IOException("No private key for alias: " + alias);
+            }
+            Certificate[] chain = keyStore.getCertificateChain(alias);
+            if(chain == null || chain.length == 0){
+                throw new IOException("No certificate for alias: " + alias);
+            }
+            List<X509Certificate> certificates = new ArrayList<>(chain.length);
+            for(Certificate certificate : chain){
+                certificates.add((X509Certificate) certificate);
+            }
+            return new ApkSigner((PrivateKey) key, certificates);
+        } catch (GeneralSecurityException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+    /**
+     * @param type keystore type (e.g. "JKS", "PKCS12"), null for the platform default
+     * @param alias key alias, null to take the first one
+     * */
+    public static ApkSigner fromKeyStore(File file, String type, char[] storePassword,
+                                         String alias, char[] keyPassword) throws IOException {
+        try {
+            if(type == null){
+                type = KeyStore.getDefaultType();
+            }
+            KeyStore keyStore = KeyStore.getInstance(type);
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                keyStore.load(inputStream, storePassword);
+            }finally {
+                inputStream.close();
+            }
+            return fromKeyStore(keyStore, alias, keyPassword);
+        } catch (GeneralSecurityException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+    /**
+     * @param keyFile unencrypted PKCS#8 private key, DER or PEM
+     * @param certificateFile X.509 certificate (chain), DER or PEM
+     * */
+    public static ApkSigner fromPkcs8(File keyFile, File certificateFile) throws IOException {
+        PrivateKey privateKey = readPkcs8(IOUtil.readFully(keyFile));
+        List<X509Certificate> certificates = new ArrayList<>();
+        InputStream inputStream = new FileInputStream(certificateFile);
+        try {
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            for(Certificate certificate : factory.generateCertificates(inputStream)){
+                certificates.add((X509Certificate) certificate);
+            }
+        } catch (CertificateException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }finally {
+            inputStream.close();
+        }
+        return new ApkSigner(privateKey, certificates);
+    }
+    private static PrivateKey readPkcs8(byte[] bytes) throws IOException {
+        String text = new String(bytes, StandardCharsets.US_ASCII);
+        int start = text.indexOf("-----BEGIN");
+        if(start >= 0){
+            start = text.indexOf('\n', start) + 1;
+            int end = text.indexOf("-----END", start);
+            bytes = Base64.getMimeDecoder().decode(text.substring(start, end));
+        }
+        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(bytes);
+        for(String algorithm : new String[]{"RSA", "EC", "DSA"}){
+            try {
+                return KeyFactory.getInstance(algorithm).generatePrivate(keySpec);
+            } catch (InvalidKeySpecException | NoSuchAlgorithmException ignored) {
+            }
+        }
+        throw new IOException("Unsupported PKCS#8 private key");
+    }
+
+    private static final int ALGORITHM_RSA_PKCS1_V1_5_WITH_SHA256 = 0x0103;
+    private static final int ALGORITHM_ECDSA_WITH_SHA256 = 0x0201;
+    private static final int ALGORITHM_DSA_WITH_SHA256 = 0x0301;
+    private static final int ATTR_STRIPPING_PROTECTION = 0xbeeff00d;
+    private static final int V3_MIN_SDK = 28;
+}
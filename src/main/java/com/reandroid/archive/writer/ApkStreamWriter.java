@@ -22,15 +22,38 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 public class ApkStreamWriter extends ApkWriter<ZipStreamOutput, StreamOutputSource>{
+    private int streamingWindow;
+
     public ApkStreamWriter(ZipStreamOutput zipOutput, InputSource[] sources) {
         super(zipOutput, sources);
     }
     public ApkStreamWriter(OutputStream outputStream, InputSource[] sources) {
         this(new ZipStreamOutput(outputStream), sources);
     }
+
+    public int getStreamingWindow() {
+        return streamingWindow;
+    }
+    /**
+     * Sets maximum bytes of compressed data held in memory per entry. Zero (default) buffers
+     * each entry fully before writing its local header; a positive value writes in a single
+     * pass, entries whose compressed size exceeds the window are followed by a zip64 data
+     * descriptor.
+     * */
+    public void setStreamingWindow(int streamingWindow) {
+        if(streamingWindow < 0){
+            throw new IllegalArgumentException("Negative streaming window: " + streamingWindow);
+        }
+        this.streamingWindow = streamingWindow;
+    }
     @Override
     void writeApk(StreamOutputSource outputSource, ZipAligner zipAligner) throws IOException {
-        outputSource.writeApk(getZipOutput(), zipAligner);
+        int window = getStreamingWindow();
+        if(window > 0){
+            outputSource.writeApk(getZipOutput(), zipAligner, window);
+        }else {
+            outputSource.writeApk(getZipOutput(), zipAligner);
+        }
     }
     @Override
     void prepareOutputs(StreamOutputSource[] outList) throws IOException {
@@ -19,8 +19,10 @@ import com.reandroid.apk.APKLogger;
 import com.reandroid.archive.ArchiveInfo;
 import com.reandroid.archive.InputSource;
 import com.reandroid.archive.WriteProgress;
+import com.reandroid.archive.ZipCodecPool;
 import com.reandroid.archive.ZipSignature;
 import com.reandroid.archive.block.*;
+import com.reandroid.archive.io.ZipByteOutput;
 import com.reandroid.archive.io.ZipOutput;
 
 import java.io.Closeable;
@@ -32,7 +34,10 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
     private final T zipOutput;
     private final InputSource[] inputSources;
     private ZipAligner zipAligner;
+    private CompressionLevels compressionLevels;
+    private ZipCodecPool codecPool;
     private ApkSignatureBlock apkSignatureBlock;
+    private ApkSigner apkSigner;
     private APKLogger apkLogger;
     private WriteProgress writeProgress;
     private final HeaderInterceptorChain interceptorChain;
@@ -41,6 +46,8 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
         this.zipOutput = zipOutput;
         this.inputSources = sources;
         this.zipAligner = ZipAligner.apkAligner();
+        this.compressionLevels = new CompressionLevels();
+        this.codecPool = ZipCodecPool.getDefault();
         this.interceptorChain = HeaderInterceptorChain.createDefault();
     }
 
@@ -49,12 +56,21 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
             OUT[] outList = buildOutputEntries();
 
             prepareOutputs(outList);
-            writeApkList(outList);
-
-            closeBuffer();
-
-            writeSignatureBlock();
-            writeCEHList(outList);
+            ChunkDigestStream contentDigest = startContentDigest();
+            try {
+                writeApkList(outList);
+                closeBuffer();
+                if(contentDigest != null){
+                    writeSigned(outList, contentDigest);
+                }else {
+                    writeSignatureBlock();
+                    writeCEHList(outList);
+                }
+            }finally {
+                if(contentDigest != null){
+                    contentDigest.close();
+                }
+            }
 
             this.close();
         }
@@ -76,24 +92,29 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
     void closeBuffer() throws IOException{
     }
     private void writeCEHList(OUT[] outputList) throws IOException{
+        long offset = position();
+        EndRecord endRecord = writeCentralDirectory(outputList, getZipOutput(), offset);
+        writeEndRecord(endRecord, getOutputStream(), position());
+    }
+    private EndRecord writeCentralDirectory(OUT[] outputList, ZipOutput zipOutput, long offset) throws IOException{
         EndRecord endRecord = new EndRecord();
         endRecord.setSignature(ZipSignature.END_RECORD);
-        long offset = position();
         endRecord.setOffsetOfCentralDirectory(offset);
         int count = outputList.length;
         endRecord.setNumberOfDirectories(count);
         endRecord.setTotalNumberOfDirectories(count);
-        ZipOutput zipOutput = getZipOutput();
+        long start = zipOutput.position();
         for(int i = 0; i < count; i++){
             OUT outputSource = outputList[i];
             outputSource.writeCEH(zipOutput);
         }
-        long cedLength = position() - offset;
+        long cedLength = zipOutput.position() - start;
         endRecord.setLengthOfCentralDirectory(cedLength);
-        OutputStream outputStream = getOutputStream();
+        return endRecord;
+    }
+    private void writeEndRecord(EndRecord endRecord, OutputStream outputStream, long offsetOfRecord) throws IOException{
         Zip64Record zip64Record = endRecord.getZip64Record();
         if(zip64Record != null){
-            long offsetOfRecord = position();
             logMessage("ZIP64: " + zip64Record);
             zip64Record.writeBytes(outputStream);
             Zip64Locator zip64Locator = endRecord.getZip64Locator();
@@ -101,7 +122,52 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
             logMessage("ZIP64: " + zip64Locator);
             zip64Locator.writeBytes(outputStream);
         }
-        endRecord.writeBytes(getOutputStream());
+        endRecord.writeBytes(outputStream);
+    }
+    private ChunkDigestStream startContentDigest() throws IOException {
+        ApkSigner apkSigner = getApkSigner();
+        if(apkSigner == null){
+            return null;
+        }
+        ChunkDigestStream contentDigest = apkSigner.newContentDigest();
+        getZipOutput().setTap(contentDigest);
+        digestRetained(contentDigest);
+        return contentDigest;
+    }
+    /**
+     * Feeds bytes that are part of the output but not written by this writer
+     * (e.g. entries kept in place) to the content digest.
+     * */
+    void digestRetained(OutputStream contentDigest) throws IOException {
+    }
+    /**
+     * Pads entries, then builds the central directory in memory so that it can be digested
+     * and signed before the signature block is written in front of it.
+     * */
+    private void writeSigned(OUT[] outputList, ChunkDigestStream contentDigest) throws IOException{
+        writeSignaturePadding();
+        ZipOutput zipOutput = getZipOutput();
+        zipOutput.setTap(null);
+        long offset = position();
+        ZipByteOutput centralOutput = new ZipByteOutput();
+        EndRecord endRecord = writeCentralDirectory(outputList, centralOutput, offset);
+        byte[] centralDirectory = centralOutput.toByteArray();
+        OutputStream outputStream = getOutputStream();
+        if(ZipHeader.isZip64Length(offset) || endRecord.getZip64Record() != null){
+            logMessage("ZIP64 mode, skip signing!");
+            outputStream.write(centralDirectory);
+            writeEndRecord(endRecord, outputStream, position());
+            return;
+        }
+        logMessage("Signing ...");
+        byte[] endRecordBytes = endRecord.getBytes().clone();
+        ApkSignatureBlock signatureBlock = getApkSigner().sign(contentDigest,
+                centralDirectory, endRecordBytes, getApkSignatureBlock());
+        signatureBlock.updatePadding();
+        signatureBlock.writeBytes(outputStream);
+        endRecord.setOffsetOfCentralDirectory(position());
+        outputStream.write(centralDirectory);
+        writeEndRecord(endRecord, outputStream, position());
     }
     OUT[] buildOutputEntries(){
         InputSource[] sources = this.getInputSources();
@@ -111,10 +177,13 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
         if(interceptorChain.isDisabled()){
             interceptorChain = null;
         }
+        CompressionLevels compressionLevels = getCompressionLevels();
+        ZipCodecPool codecPool = getCodecPool();
         for(int i = 0; i < length; i++){
             InputSource inputSource = sources[i];
             OUT out = toOutputSource(inputSource);
             out.setHeaderInterceptor(interceptorChain);
+            out.setCompression(codecPool, compressionLevels.getLevel(inputSource.getAlias()));
             results[i] = out;
         }
         return results;
@@ -144,6 +213,28 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
         this.zipAligner = zipAligner;
     }
 
+    public ApkSigner getApkSigner() {
+        return apkSigner;
+    }
+    /**
+     * Signs the written archive with v2/v3 schemes, unrelated entries of
+     * {@link #getApkSignatureBlock()} are carried over to the new signature block.
+     * */
+    public void setApkSigner(ApkSigner apkSigner) {
+        this.apkSigner = apkSigner;
+    }
+    public CompressionLevels getCompressionLevels() {
+        return compressionLevels;
+    }
+    public void setCompressionLevels(CompressionLevels compressionLevels) {
+        this.compressionLevels = compressionLevels;
+    }
+    public ZipCodecPool getCodecPool() {
+        return codecPool;
+    }
+    public void setCodecPool(ZipCodecPool codecPool) {
+        this.codecPool = codecPool;
+    }
     public void setApkSignatureBlock(ApkSignatureBlock apkSignatureBlock) {
         this.apkSignatureBlock = apkSignatureBlock;
     }
@@ -161,14 +252,17 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
             logMessage("ZIP64 mode, skip writing signature block!");
             return;
         }
+        writeSignaturePadding();
+        signatureBlock.updatePadding();
+        signatureBlock.writeBytes(getOutputStream());
+    }
+    private void writeSignaturePadding() throws IOException {
+        long offset = position();
         int alignment = 4096;
         int filesPadding = (int) ((alignment - (offset % alignment)) % alignment);
-        OutputStream outputStream = getOutputStream();
         if(filesPadding > 0){
-            outputStream.write(new byte[filesPadding]);
+            getOutputStream().write(new byte[filesPadding]);
         }
-        signatureBlock.updatePadding();
-        signatureBlock.writeBytes(outputStream);
     }
 
     @Override
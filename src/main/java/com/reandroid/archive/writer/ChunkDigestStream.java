@@ -0,0 +1,220 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import com.reandroid.arsc.base.Block;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Splits everything written to it into 1 MB chunks and computes the APK signature scheme
+ * chunk digests (SHA-256 over 0xa5, little endian chunk length and the chunk bytes). With more
+ * than one thread, full chunks are hashed on a worker pool while writing continues; the number
+ * of chunks in flight is bounded so memory stays at a few MB regardless of the archive size.
+ * */
+class ChunkDigestStream extends OutputStream {
+    private final ExecutorService executorService;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final List<Future<byte[]>> pending;
+    private final List<byte[]> digests;
+    private byte[] chunk;
+    private int chunkLength;
+    private long length;
+
+    ChunkDigestStream(int threads){
+        if(threads > 1){
+            this.executorService = Executors.newFixedThreadPool(threads);
+            int count = threads * 2;
+            this.freeBuffers = new ArrayBlockingQueue<>(count);
+            for(int i = 0; i < count; i++){
+                this.freeBuffers.add(new byte[CHUNK_SIZE]);
+            }
+        }else {
+            this.executorService = null;
+            this.freeBuffers = null;
+        }
+        this.pending = new ArrayList<>();
+        this.digests = new ArrayList<>();
+    }
+
+    public long getLength() {
+        return length;
+    }
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0){
+            byte[] chunk = getChunk();
+            int count = Math.min(length, chunk.length - chunkLength);
+            System.arraycopy(bytes, offset, chunk, chunkLength, count);
+            chunkLength += count;
+            offset += count;
+            length -= count;
+            this.length += count;
+            if(chunkLength == chunk.length){
+                submitChunk();
+            }
+        }
+    }
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+    @Override
+    public void write(int i) throws IOException {
+        write(new byte[]{(byte) i}, 0, 1);
+    }
+    /**
+     * Hashes the remaining partial chunk and returns all chunk digests in order,
+     * the worker pool is released.
+     * */
+    List<byte[]> finish() throws IOException {
+        try {
+            if(chunkLength != 0){
+                submitChunk();
+            }
+            for(Future<byte[]> future : pending){
+                digests.add(await(future));
+            }
+            pending.clear();
+            return digests;
+        }finally {
+            close();
+        }
+    }
+    @Override
+    public void close() {
+        ExecutorService executorService = this.executorService;
+        if(executorService != null){
+            executorService.shutdownNow();
+        }
+    }
+    private byte[] getChunk() throws IOException {
+        byte[] chunk = this.chunk;
+        if(chunk != null){
+            return chunk;
+        }
+        if(freeBuffers == null){
+            chunk = new byte[CHUNK_SIZE];
+        }else {
+            chunk = takeBuffer();
+        }
+        this.chunk = chunk;
+        this.chunkLength = 0;
+        return chunk;
+    }
+    private byte[] takeBuffer() throws IOException {
+        try {
+            byte[] buffer;
+            while ((buffer = freeBuffers.poll(100, TimeUnit.MILLISECONDS)) == null){
+                collectDone();
+            }
+            return buffer;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        }
+    }
+    private void collectDone() throws IOException {
+        while (!pending.isEmpty() && pending.get(0).isDone()){
+            digests.add(await(pending.remove(0)));
+        }
+    }
+    private void submitChunk() throws IOException {
+        final byte[] chunk = this.chunk;
+        final int length = this.chunkLength;
+        ExecutorService executorService = this.executorService;
+        if(executorService == null){
+            digests.add(digestChunk(chunk, 0, length));
+            this.chunkLength = 0;
+            return;
+        }
+        this.chunk = null;
+        this.chunkLength = 0;
+        pending.add(executorService.submit(() -> {
+            try {
+                return digestChunk(chunk, 0, length);
+            }finally {
+                freeBuffers.add(chunk);
+            }
+        }));
+        collectDone();
+    }
+
+    static byte[] digestChunk(byte[] bytes, int offset, int length){
+        MessageDigest digest = newDigest();
+        byte[] prefix = new byte[5];
+        prefix[0] = (byte) 0xa5;
+        Block.putInteger(prefix, 1, length);
+        digest.update(prefix);
+        digest.update(bytes, offset, length);
+        return digest.digest();
+    }
+    static List<byte[]> digestChunks(byte[] bytes){
+        List<byte[]> results = new ArrayList<>();
+        int offset = 0;
+        int length = bytes.length;
+        while (offset < length){
+            int count = Math.min(CHUNK_SIZE, length - offset);
+            results.add(digestChunk(bytes, offset, count));
+            offset += count;
+        }
+        return results;
+    }
+    /**
+     * The top-level content digest over all chunk digests of all sections, in section order.
+     * */
+    static byte[] digestContent(List<byte[]> chunkDigests){
+        MessageDigest digest = newDigest();
+        byte[] prefix = new byte[5];
+        prefix[0] = (byte) 0x5a;
+        Block.putInteger(prefix, 1, chunkDigests.size());
+        digest.update(prefix);
+        for(byte[] chunkDigest : chunkDigests){
+            digest.update(chunkDigest);
+        }
+        return digest.digest();
+    }
+    static MessageDigest newDigest(){
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    static final int CHUNK_SIZE = 1024 * 1024;
+}
@@ -0,0 +1,73 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+/**
+ * Deflate level of changed entries by file name, e.g. {@link Deflater#BEST_SPEED} for
+ * <code>^res/raw/.*</code> and {@link Deflater#BEST_COMPRESSION} for <code>^classes\d*\.dex$</code>.
+ * Patterns are checked in the order they were added.
+ * */
+public class CompressionLevels {
+
+    private final Map<Pattern, Integer> levelMap;
+    private int defaultLevel;
+
+    public CompressionLevels(){
+        this.levelMap = new LinkedHashMap<>();
+        this.defaultLevel = Deflater.DEFAULT_COMPRESSION;
+    }
+
+    public void setLevel(Pattern patternFileName, int level){
+        if(patternFileName == null){
+            return;
+        }
+        checkLevel(level);
+        levelMap.remove(patternFileName);
+        levelMap.put(patternFileName, level);
+    }
+    public void clearLevels(){
+        levelMap.clear();
+    }
+    public int getDefaultLevel() {
+        return defaultLevel;
+    }
+    public void setDefaultLevel(int defaultLevel) {
+        checkLevel(defaultLevel);
+        this.defaultLevel = defaultLevel;
+    }
+    public int getLevel(String name){
+        if(name != null && !levelMap.isEmpty()) {
+            for(Map.Entry<Pattern, Integer> entry : levelMap.entrySet()){
+                Matcher matcher = entry.getKey().matcher(name);
+                if(matcher.matches()){
+                    return entry.getValue();
+                }
+            }
+        }
+        return defaultLevel;
+    }
+    private static void checkLevel(int level){
+        if(level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION){
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+    }
+}
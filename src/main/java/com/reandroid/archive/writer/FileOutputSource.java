@@ -41,6 +41,30 @@ class FileOutputSource extends OutputSource {
         }
         this.entryBuffer = writeBuffer(input, output);
     }
+    boolean makeBufferFromEntry(){
+        EntryBuffer entryBuffer = this.entryBuffer;
+        if(entryBuffer == null){
+            entryBuffer = makeFromEntry();
+            this.entryBuffer = entryBuffer;
+        }
+        return entryBuffer != null;
+    }
+    InputSource readBufferSource(ReadAheadBuffer buffer) throws IOException {
+        InputSource inputSource = getInputSource();
+        try {
+            inputSource.write(buffer);
+        }finally {
+            buffer.close();
+        }
+        inputSource.disposeInputSource();
+        return buffer.toInputSource(inputSource.getAlias(), inputSource.getMethod());
+    }
+    void makeBuffer(BufferFileInput input, ZipOutput output, InputSource bufferSource) throws IOException {
+        long offset = output.position();
+        writeBuffer(output, bufferSource);
+        long length = output.position() - offset;
+        this.entryBuffer = new EntryBuffer(input, offset, length);
+    }
     private EntryBuffer writeBuffer(BufferFileInput input, ZipOutput output) throws IOException {
         long offset = output.position();
         writeBuffer(output);
@@ -18,6 +18,7 @@ package com.reandroid.archive.writer;
 import com.reandroid.apk.APKLogger;
 import com.reandroid.archive.Archive;
 import com.reandroid.archive.InputSource;
+import com.reandroid.archive.ZipCodecPool;
 import com.reandroid.archive.ZipSignature;
 import com.reandroid.archive.block.CentralEntryHeader;
 import com.reandroid.archive.block.DataDescriptor;
@@ -36,27 +37,40 @@ class OutputSource {
     private LocalFileHeader lfh;
     private APKLogger apkLogger;
     private HeaderInterceptor headerInterceptor;
+    private ZipCodecPool codecPool;
+    private int compressionLevel;
 
     OutputSource(InputSource inputSource){
         this.inputSource = inputSource;
+        this.codecPool = ZipCodecPool.getDefault();
+        this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
     }
 
     void writeBuffer(ZipOutput zipOutput) throws IOException {
-        LocalFileHeader lfh = getLocalFileHeader();
         InputSource inputSource = getInputSource();
-        OutputStream rawStream = zipOutput.getOutputStream();
+        writeBuffer(zipOutput, inputSource);
+        inputSource.disposeInputSource();
+    }
+    void writeBuffer(ZipOutput zipOutput, InputSource inputSource) throws IOException {
+        writeBuffer(zipOutput.getOutputStream(), inputSource);
+    }
+    void writeBuffer(OutputStream rawStream, InputSource inputSource) throws IOException {
+        LocalFileHeader lfh = getLocalFileHeader();
         CountingOutputStream<OutputStream> rawCounter = new CountingOutputStream<>(rawStream);
         CountingOutputStream<DeflaterOutputStream> deflateCounter = null;
 
         if(inputSource.getMethod() != Archive.STORED){
             DeflaterOutputStream deflaterInputStream =
-                    new DeflaterOutputStream(rawCounter, new Deflater(Deflater.DEFAULT_COMPRESSION, true), true);
+                    codecPool.openDeflaterOutputStream(rawCounter, compressionLevel);
             deflateCounter = new CountingOutputStream<>(deflaterInputStream, false);
         }
         if(deflateCounter != null){
             rawCounter.disableCrc(true);
-            inputSource.write(deflateCounter);
-            deflateCounter.close();
+            try {
+                inputSource.write(deflateCounter);
+            }finally {
+                deflateCounter.close();
+            }
             rawCounter.close();
         }else {
             inputSource.write(rawCounter);
@@ -73,7 +87,6 @@ class OutputSource {
             lfh.setMethod(Archive.STORED);
             lfh.setCrc(rawCounter.getCrc32());
         }
-        inputSource.disposeInputSource();
     }
     void writeCEH(ZipOutput zipOutput) throws IOException{
         LocalFileHeader lfh = getLocalFileHeader();
@@ -90,14 +103,28 @@ class OutputSource {
         dataDescriptor.writeBytes(apkFileWriter.getOutputStream());
     }
     void writeLFH(ZipOutput zipOutput, ZipAligner zipAligner) throws IOException {
+        writeLFH(zipOutput, zipAligner, false);
+    }
+    /**
+     * @param requireDataDescriptor true if sizes and crc are not known yet and will follow
+     *                              the data in a zip64 data descriptor
+     * */
+    void writeLFH(ZipOutput zipOutput, ZipAligner zipAligner, boolean requireDataDescriptor) throws IOException {
         LocalFileHeader lfh = getLocalFileHeader();
         if(zipAligner != null){
             zipAligner.align(zipOutput.position(), lfh);
         }
         notifyLFHWrite(lfh);
+        if(requireDataDescriptor){
+            lfh.reserveZip64DataDescriptor();
+        }
         lfh.writeBytes(zipOutput.getOutputStream());
     }
 
+    void setCompression(ZipCodecPool codecPool, int compressionLevel) {
+        this.codecPool = codecPool;
+        this.compressionLevel = compressionLevel;
+    }
     public void setHeaderInterceptor(HeaderInterceptor interceptor) {
         this.headerInterceptor = interceptor;
     }
@@ -0,0 +1,169 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import com.reandroid.archive.InputSource;
+import com.reandroid.arsc.chunk.TableBlock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Compresses changed entries on a bounded worker pool. Entries are read one at a time on the
+ * calling thread (input sources are not thread safe), each worker deflates into its own buffer
+ * segment and {@link ApkWriter} later copies the segments back in the original order.
+ * Read ahead entries keep at most {@link #READ_AHEAD_LIMIT} bytes in memory each, the rest
+ * goes to a temporary file next to the segments.
+ * */
+class ParallelBufferWriter {
+    private final ApkFileWriter apkFileWriter;
+    private final BufferFileInput[] inputs;
+    private final BufferFileOutput[] outputs;
+    private final BlockingQueue<Task> queue;
+    private final File segmentFile;
+    private long submittedBytes;
+    private int readCount;
+
+    ParallelBufferWriter(ApkFileWriter apkFileWriter, File[] segmentFiles) throws IOException {
+        this.apkFileWriter = apkFileWriter;
+        int length = segmentFiles.length;
+        this.inputs = new BufferFileInput[length];
+        this.outputs = new BufferFileOutput[length];
+        for(int i = 0; i < length; i++){
+            File file = segmentFiles[i];
+            this.outputs[i] = new BufferFileOutput(file);
+            this.inputs[i] = new BufferFileInput(file);
+        }
+        this.queue = new ArrayBlockingQueue<>(length);
+        this.segmentFile = segmentFiles[0];
+    }
+
+    BufferFileInput[] write(FileOutputSource[] outputList) throws IOException {
+        int threads = outputs.length;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> futures = new ArrayList<>(threads);
+        try{
+            for(int i = 0; i < threads; i++){
+                final int index = i;
+                futures.add(executorService.submit(() -> runWorker(index)));
+            }
+            submitAll(outputList, futures);
+            for(int i = 0; i < threads; i++){
+                submit(Task.END, futures);
+            }
+            for(Future<Void> future : futures){
+                awaitWorker(future);
+            }
+        }finally {
+            executorService.shutdownNow();
+            for(BufferFileOutput output : outputs){
+                output.close();
+            }
+        }
+        return inputs;
+    }
+    private void submitAll(FileOutputSource[] outputList, List<Future<Void>> futures) throws IOException {
+        FileOutputSource tableSource = null;
+        for(FileOutputSource fileOutputSource : outputList){
+            InputSource inputSource = fileOutputSource.getInputSource();
+            if(tableSource == null && TableBlock.FILE_NAME.equals(inputSource.getAlias())){
+                tableSource = fileOutputSource;
+                continue;
+            }
+            submit(fileOutputSource, futures);
+        }
+        if(tableSource != null){
+            submit(tableSource, futures);
+        }
+    }
+    private void submit(FileOutputSource fileOutputSource, List<Future<Void>> futures) throws IOException {
+        if(fileOutputSource.makeBufferFromEntry()){
+            return;
+        }
+        InputSource inputSource = fileOutputSource.getInputSource();
+        apkFileWriter.onCompressFileProgress(inputSource.getAlias(),
+                inputSource.getMethod(),
+                submittedBytes);
+        fileOutputSource.getLocalFileHeader();
+        ReadAheadBuffer buffer = new ReadAheadBuffer(READ_AHEAD_LIMIT,
+                new File(segmentFile.getPath() + "_read" + (readCount++)));
+        InputSource bufferSource = fileOutputSource.readBufferSource(buffer);
+        submittedBytes += buffer.getLength();
+        submit(new Task(fileOutputSource, bufferSource), futures);
+    }
+    private void submit(Task task, List<Future<Void>> futures) throws IOException {
+        try {
+            while (!queue.offer(task, 100, TimeUnit.MILLISECONDS)){
+                for(Future<Void> future : futures){
+                    if(future.isDone()){
+                        awaitWorker(future);
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        }
+    }
+    private Void runWorker(int index) throws IOException, InterruptedException {
+        BufferFileInput input = inputs[index];
+        BufferFileOutput output = outputs[index];
+        while (true){
+            Task task = queue.take();
+            if(task == Task.END){
+                return null;
+            }
+            try {
+                task.fileOutputSource.makeBuffer(input, output, task.bufferSource);
+            }finally {
+                task.bufferSource.disposeInputSource();
+            }
+        }
+    }
+    private static void awaitWorker(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if(cause instanceof IOException){
+                throw (IOException) cause;
+            }
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    static class Task {
+        final FileOutputSource fileOutputSource;
+        final InputSource bufferSource;
+        Task(FileOutputSource fileOutputSource, InputSource bufferSource){
+            this.fileOutputSource = fileOutputSource;
+            this.bufferSource = bufferSource;
+        }
+        static final Task END = new Task(null, null);
+    }
+
+    private static final int READ_AHEAD_LIMIT = 8 * 1024 * 1024;
+}
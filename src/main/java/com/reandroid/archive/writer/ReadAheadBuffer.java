@@ -0,0 +1,146 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import com.reandroid.archive.FileInputSource;
+import com.reandroid.archive.InputSource;
+
+import java.io.*;
+
+/**
+ * Holds the uncompressed bytes of an entry read ahead for a compression worker. Up to the
+ * limit the bytes stay in memory, larger entries continue into the given file, so entries
+ * waiting in the queue hold at most limit bytes of heap each and have no 2 GiB array cap.
+ * */
+class ReadAheadBuffer extends OutputStream {
+    private final int limit;
+    private final File file;
+    private byte[] buffer;
+    private int count;
+    private OutputStream fileStream;
+    private long length;
+
+    ReadAheadBuffer(int limit, File file){
+        this.limit = limit;
+        this.file = file;
+        this.buffer = new byte[Math.min(limit, 8192)];
+    }
+
+    long getLength() {
+        return length;
+    }
+    boolean isSpilled(){
+        return fileStream != null;
+    }
+    /**
+     * Closes this buffer and returns its bytes as a source, disposing the source releases
+     * the memory or deletes the file.
+     * */
+    InputSource toInputSource(String name, int method) throws IOException {
+        close();
+        InputSource inputSource;
+        if(isSpilled()){
+            inputSource = new SpilledSource(file, name);
+        }else {
+            inputSource = new BufferSource(buffer, count, name);
+        }
+        inputSource.setMethod(method);
+        this.buffer = null;
+        return inputSource;
+    }
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        this.length += length;
+        OutputStream fileStream = this.fileStream;
+        if(fileStream == null){
+            int count = this.count;
+            if(count + length <= limit){
+                ensureCapacity(count + length);
+                System.arraycopy(bytes, offset, buffer, count, length);
+                this.count = count + length;
+                return;
+            }
+            file.deleteOnExit();
+            fileStream = new BufferedOutputStream(new FileOutputStream(file), 1024 * 64);
+            this.fileStream = fileStream;
+            fileStream.write(buffer, 0, count);
+            this.buffer = null;
+            this.count = 0;
+        }
+        fileStream.write(bytes, offset, length);
+    }
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+    @Override
+    public void write(int i) throws IOException {
+        write(new byte[]{(byte) i}, 0, 1);
+    }
+    @Override
+    public void close() throws IOException {
+        OutputStream fileStream = this.fileStream;
+        if(fileStream != null){
+            fileStream.close();
+        }
+    }
+    private void ensureCapacity(int capacity){
+        byte[] buffer = this.buffer;
+        if(capacity <= buffer.length){
+            return;
+        }
+        int length = Math.min(Math.max(buffer.length << 1, capacity), limit);
+        byte[] result = new byte[length];
+        System.arraycopy(buffer, 0, result, 0, count);
+        this.buffer = result;
+    }
+
+    static class BufferSource extends InputSource {
+        private byte[] buffer;
+        private final int length;
+        BufferSource(byte[] buffer, int length, String name){
+            super(name);
+            this.buffer = buffer;
+            this.length = length;
+        }
+        @Override
+        public long write(OutputStream outputStream) throws IOException {
+            outputStream.write(buffer, 0, length);
+            return length;
+        }
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(buffer, 0, length);
+        }
+        @Override
+        public long getLength() {
+            return length;
+        }
+        @Override
+        public void disposeInputSource() {
+            buffer = new byte[0];
+        }
+    }
+    static class SpilledSource extends FileInputSource {
+        SpilledSource(File file, String name){
+            super(file, name);
+        }
+        @Override
+        public void disposeInputSource() {
+            getFile().delete();
+        }
+    }
+}
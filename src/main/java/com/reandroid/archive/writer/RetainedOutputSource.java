@@ -0,0 +1,53 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import com.reandroid.archive.InputSource;
+import com.reandroid.archive.block.DataDescriptor;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.io.ZipFileOutput;
+
+/**
+ * An entry whose local record is kept untouched at its current offset of the output file,
+ * only its central directory header is written.
+ * */
+class RetainedOutputSource extends ArchiveOutputSource {
+
+    RetainedOutputSource(InputSource inputSource){
+        super(inputSource);
+    }
+
+    long getRecordOffset(){
+        LocalFileHeader lfh = getLocalFileHeader();
+        return lfh.getFileOffset() - lfh.countBytes();
+    }
+    long getRecordLength(){
+        LocalFileHeader lfh = getLocalFileHeader();
+        long length = lfh.countBytes() + lfh.getDataSize();
+        DataDescriptor dataDescriptor = lfh.getDataDescriptor();
+        if(dataDescriptor != null){
+            length += dataDescriptor.countBytes();
+        }
+        return length;
+    }
+    @Override
+    LocalFileHeader getLocalFileHeader(){
+        return getArchiveSource().getArchiveEntry().getLocalFileHeader();
+    }
+    @Override
+    void writeApk(ZipFileOutput zipFileOutput, ZipAligner zipAligner) {
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Keeps written bytes in a fixed size window, once the window overflows the target stream is
+ * requested and everything (window and following writes) goes straight to it.
+ * Closing does not close the target.
+ * */
+class SpillOutputStream extends OutputStream {
+    private final byte[] window;
+    private final SpillTarget spillTarget;
+    private int count;
+    private OutputStream target;
+
+    SpillOutputStream(int windowSize, SpillTarget spillTarget){
+        this.window = new byte[windowSize];
+        this.spillTarget = spillTarget;
+    }
+
+    boolean isSpilled(){
+        return target != null;
+    }
+    void writeWindow(OutputStream outputStream) throws IOException {
+        outputStream.write(window, 0, count);
+    }
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        OutputStream target = this.target;
+        if(target == null){
+            if(count + length <= window.length){
+                System.arraycopy(bytes, offset, window, count, length);
+                count += length;
+                return;
+            }
+            target = spillTarget.open();
+            this.target = target;
+            target.write(window, 0, count);
+        }
+        target.write(bytes, offset, length);
+    }
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+    @Override
+    public void write(int i) throws IOException {
+        write(new byte[]{(byte) i}, 0, 1);
+    }
+    @Override
+    public void close() {
+    }
+
+    interface SpillTarget {
+        OutputStream open() throws IOException;
+    }
+}
@@ -15,11 +15,18 @@
  */
 package com.reandroid.archive.writer;
 
+import com.reandroid.archive.Archive;
+import com.reandroid.archive.ArchiveEntry;
 import com.reandroid.archive.InputSource;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.io.ArchiveEntrySource;
+import com.reandroid.archive.io.CountingOutputStream;
 import com.reandroid.archive.io.ZipByteOutput;
 import com.reandroid.archive.io.ZipStreamOutput;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 class StreamOutputSource extends OutputSource{
     StreamOutputSource(InputSource inputSource) {
@@ -35,4 +42,80 @@ class StreamOutputSource extends OutputSource{
         zipOutput.write(buffer.toByteArray());
         writeDD(zipOutput);
     }
+    /**
+     * Writes without buffering the whole entry: archive entries of unchanged method are copied
+     * raw, stored entries are written after a crc pass over the source, and deflated output is
+     * kept in a window of the given size; if it overflows, the local header is written with a
+     * zip64 data descriptor (sizes are not known yet) and the rest is streamed.
+     * */
+    void writeApk(ZipStreamOutput zipOutput, ZipAligner zipAligner, int windowSize) throws IOException {
+        InputSource inputSource = getInputSource();
+        if(isRawCopy(inputSource)){
+            writeRaw(zipOutput, zipAligner, (ArchiveEntrySource<?>) inputSource);
+        }else if(inputSource.getMethod() == Archive.STORED){
+            writeStored(zipOutput, zipAligner);
+        }else {
+            writeDeflated(zipOutput, zipAligner, windowSize);
+        }
+        inputSource.disposeInputSource();
+        writeDD(zipOutput);
+    }
+    private void writeRaw(ZipStreamOutput zipOutput, ZipAligner zipAligner,
+                          ArchiveEntrySource<?> entrySource) throws IOException {
+        ArchiveEntry archiveEntry = entrySource.getArchiveEntry();
+        LocalFileHeader lfh = getLocalFileHeader();
+        lfh.setMethod(archiveEntry.getMethod());
+        lfh.setCrc(archiveEntry.getCrc());
+        lfh.setCompressedSize(archiveEntry.getCompressedSize());
+        lfh.setSize(archiveEntry.getSize());
+        writeLFH(zipOutput, zipAligner);
+        lfh.setFileOffset(zipOutput.position());
+        InputStream inputStream = entrySource.getZipSource().getInputStream(
+                archiveEntry.getFileOffset(), archiveEntry.getDataSize());
+        try {
+            zipOutput.write(inputStream);
+        }finally {
+            inputStream.close();
+        }
+    }
+    private void writeStored(ZipStreamOutput zipOutput, ZipAligner zipAligner) throws IOException {
+        InputSource inputSource = getInputSource();
+        LocalFileHeader lfh = getLocalFileHeader();
+        long length = inputSource.getLength();
+        lfh.setMethod(Archive.STORED);
+        lfh.setCrc(inputSource.getCrc());
+        lfh.setCompressedSize(length);
+        lfh.setSize(length);
+        writeLFH(zipOutput, zipAligner);
+        lfh.setFileOffset(zipOutput.position());
+        CountingOutputStream<OutputStream> counter =
+                new CountingOutputStream<>(zipOutput.getOutputStream(), true);
+        inputSource.write(counter);
+        if(counter.getSize() != length){
+            throw new IOException("Source length changed while writing: "
+                    + inputSource.getAlias() + ", " + length + " -> " + counter.getSize());
+        }
+    }
+    private void writeDeflated(ZipStreamOutput zipOutput, ZipAligner zipAligner, int windowSize) throws IOException {
+        SpillOutputStream window = new SpillOutputStream(windowSize, () -> {
+            getLocalFileHeader().setMethod(Archive.DEFLATED);
+            writeLFH(zipOutput, zipAligner, true);
+            getLocalFileHeader().setFileOffset(zipOutput.position());
+            return zipOutput.getOutputStream();
+        });
+        writeBuffer(window, getInputSource());
+        if(!window.isSpilled()){
+            writeLFH(zipOutput, zipAligner);
+            getLocalFileHeader().setFileOffset(zipOutput.position());
+            window.writeWindow(zipOutput.getOutputStream());
+        }
+    }
+    private static boolean isRawCopy(InputSource inputSource){
+        if(!(inputSource instanceof ArchiveEntrySource)){
+            return false;
+        }
+        ArchiveEntry archiveEntry = ((ArchiveEntrySource<?>) inputSource).getArchiveEntry();
+        return archiveEntry.getMethod() == Archive.DEFLATED
+                && inputSource.getMethod() == Archive.DEFLATED;
+    }
 }
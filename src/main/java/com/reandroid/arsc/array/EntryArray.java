@@ -152,6 +152,14 @@ public class EntryArray extends OffsetBlockArray<Entry> implements JSONConvert<J
         if(packageBlock == null){
             return null;
         }
+        Entry any = packageBlock.getSpecStringPool().getEntry(typeBlock.getId(), entryName);
+        if(any == null){
+            return null;
+        }
+        Entry local = getEntry(any.getId());
+        if(local != null && entryName.equals(local.getName())){
+            return local;
+        }
         Iterator<Entry> iterator = packageBlock.getEntries(
                 typeBlock.getTypeName(), entryName);
         while (iterator.hasNext()){
@@ -184,7 +184,7 @@ public abstract class OffsetBlockArray<T extends Block> extends BlockArray<T> im
             refreshAlignment(reader, getAlignItem());
         }
     }
-    private int getZeroPosition(){
+    int getZeroPosition(){
         int start = startReference.get();
         if(start < 0){
             start = 0;
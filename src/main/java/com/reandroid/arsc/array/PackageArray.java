@@ -129,6 +129,10 @@ public class PackageArray extends BlockArray<PackageBlock>
     protected void onRefreshed() {
         refreshPackageCount();
     }
+    @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
+    }
     private void refreshPackageCount(){
         mPackageCount.set(size());
     }
@@ -15,39 +15,180 @@
  */
 package com.reandroid.arsc.array;
 
+import java.util.Arrays;
+
 public class SparseOffsetsArray extends IntegerOffsetArray {
+    /**
+     * Lookup state over the first mCheckedSize idx values, extended lazily on lookup.
+     * aapt2 writes idx in ascending order, in that case lookups binary search the
+     * raw array directly; otherwise a direct idx to (index + 1) table is kept.
+     * */
+    private int mOrder = ORDER_ASCENDING;
+    private int mCheckedSize;
+    private int mLastIdx = Integer.MIN_VALUE;
+    private int[] mPositions;
+    private int mFirstNoEntry = NO_ENTRY;
+    private boolean mResizing;
+
     public SparseOffsetsArray(){
         super();
     }
     public int getHighestId(){
-        int result = NO_ENTRY;
-        int size = size();
-        for(int i=0; i<size;i++){
-            int id = getIdx(i);
-            if(id > result){
-                result = id;
+        ensureChecked();
+        int result = 0;
+        if(mOrder == ORDER_ASCENDING){
+            if(mLastIdx > result){
+                result = mLastIdx;
             }
+            return result;
         }
-        if(result == NO_ENTRY){
-            result = 0;
+        int[] positions = mPositions;
+        for(int i = positions.length - 1; i > 0; i--){
+            if(positions[i] != 0){
+                return i;
+            }
         }
         return result;
     }
     public int indexOf(int idx){
-        int size = super.size();
-        for(int i=0; i<size; i++){
-            if(idx == getIdx(i)){
-                return i;
+        ensureChecked();
+        if(mOrder == ORDER_ASCENDING){
+            return binarySearch(idx);
+        }
+        if(idx == NO_ENTRY){
+            return mFirstNoEntry;
+        }
+        int[] positions = mPositions;
+        if(idx < 0 || idx >= positions.length){
+            return NO_ENTRY;
+        }
+        return positions[idx] - 1;
+    }
+    private int binarySearch(int idx){
+        byte[] bytes = getBytesInternal();
+        int low = 0;
+        int high = mCheckedSize - 1;
+        while (low <= high){
+            int mid = (low + high) >>> 1;
+            int value = toIdx(getInteger(bytes, mid * 4));
+            if(value < idx){
+                low = mid + 1;
+            }else if(value > idx){
+                high = mid - 1;
+            }else {
+                return mid;
             }
         }
         return NO_ENTRY;
     }
-    public int getIdx(int i){
-        int value = super.get(i);
-        if(value != NO_ENTRY) {
-            value = value & 0xffff;
+    private void ensureChecked(){
+        int size = size();
+        for(int i = mCheckedSize; i < size; i++){
+            int idx = getIdx(i);
+            if(mOrder == ORDER_ASCENDING){
+                if(idx > mLastIdx){
+                    mLastIdx = idx;
+                    continue;
+                }
+                buildPositions(i);
+            }
+            addPosition(i, idx);
+        }
+        mCheckedSize = size;
+    }
+    private void buildPositions(int size){
+        mOrder = ORDER_POSITIONS;
+        mPositions = new int[mLastIdx + 1 > 0 ? mLastIdx + 1 : 0];
+        mFirstNoEntry = NO_ENTRY;
+        for(int i = 0; i < size; i++){
+            addPosition(i, getIdx(i));
+        }
+    }
+    private void addPosition(int index, int idx){
+        if(idx == NO_ENTRY){
+            if(mFirstNoEntry == NO_ENTRY){
+                mFirstNoEntry = index;
+            }
+            return;
+        }
+        int[] positions = mPositions;
+        if(idx >= positions.length){
+            int length = positions.length * 2;
+            if(length <= idx){
+                length = idx + 1;
+            }
+            if(length > 0x10000){
+                length = 0x10000;
+            }
+            positions = Arrays.copyOf(positions, length);
+            mPositions = positions;
+        }
+        if(positions[idx] == 0){
+            positions[idx] = index + 1;
         }
-        return value;
+    }
+    /**
+     * Drops lookup state at and after the given index, must be called while
+     * the old idx values are still in place
+     * */
+    private void uncheckFrom(int index){
+        int checked = mCheckedSize;
+        if(index >= checked){
+            return;
+        }
+        if(index <= 0){
+            resetChecked();
+            return;
+        }
+        if(mOrder == ORDER_ASCENDING){
+            mLastIdx = getIdx(index - 1);
+        }else {
+            int[] positions = mPositions;
+            for(int i = index; i < checked; i++){
+                int idx = getIdx(i);
+                if(idx != NO_ENTRY && positions[idx] == i + 1){
+                    positions[idx] = 0;
+                }
+            }
+            if(mFirstNoEntry >= index){
+                mFirstNoEntry = NO_ENTRY;
+            }
+        }
+        mCheckedSize = index;
+    }
+    private void resetChecked(){
+        mOrder = ORDER_ASCENDING;
+        mCheckedSize = 0;
+        mLastIdx = Integer.MIN_VALUE;
+        mPositions = null;
+        mFirstNoEntry = NO_ENTRY;
+    }
+    @Override
+    public void put(int index, int value){
+        if(index < mCheckedSize && toIdx(super.get(index)) != toIdx(value)){
+            uncheckFrom(index);
+        }
+        super.put(index, value);
+    }
+    @Override
+    public void setSize(int size){
+        uncheckFrom(size);
+        mResizing = true;
+        try {
+            super.setSize(size);
+        }finally {
+            mResizing = false;
+        }
+    }
+    @Override
+    protected void onBytesChanged(){
+        super.onBytesChanged();
+        if(!mResizing){
+            resetChecked();
+        }
+    }
+    public int getIdx(int i){
+        return toIdx(super.get(i));
     }
     public void setIdx(int index, int idx){
         int value;
@@ -84,4 +225,14 @@ public class SparseOffsetsArray extends IntegerOffsetArray {
         }
         super.put(index, value);
     }
+
+    private static int toIdx(int value){
+        if(value != NO_ENTRY) {
+            value = value & 0xffff;
+        }
+        return value;
+    }
+
+    private static final int ORDER_ASCENDING = 0;
+    private static final int ORDER_POSITIONS = 1;
 }
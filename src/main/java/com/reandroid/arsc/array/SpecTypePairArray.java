@@ -217,6 +217,10 @@ public class SpecTypePairArray extends BlockArray<SpecTypePair>
     @Override
     protected void onRefreshed() {
 
+    }
+    @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
     }
     @Override
     protected void onPreRefresh(){
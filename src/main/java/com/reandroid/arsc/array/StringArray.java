@@ -15,6 +15,8 @@
   */
 package com.reandroid.arsc.array;
 
+import com.reandroid.arsc.header.StringPoolHeader;
+import com.reandroid.arsc.io.BlockReader;
 import com.reandroid.arsc.item.IntegerItem;
 import com.reandroid.arsc.item.StringItem;
 import com.reandroid.arsc.pool.StringPool;
@@ -24,12 +26,14 @@ import com.reandroid.json.JSONObject;
 import com.reandroid.utils.CompareUtil;
 import com.reandroid.utils.ObjectsUtil;
 
+import java.io.IOException;
 import java.util.Comparator;
 import java.util.Iterator;
 
 public abstract class StringArray<T extends StringItem> extends OffsetBlockArray<T> implements JSONConvert<JSONArray> {
 
     private boolean mUtf8;
+    private boolean mLazyDecode;
 
     public StringArray(OffsetArray offsets, IntegerItem itemCount, IntegerItem itemStart, boolean is_utf8) {
         super(offsets, itemCount, itemStart);
@@ -52,6 +56,66 @@ public abstract class StringArray<T extends StringItem> extends OffsetBlockArray
     public boolean isUtf8() {
         return mUtf8;
     }
+    public boolean isLazyDecode() {
+        return mLazyDecode;
+    }
+    /**
+     * When enabled, the next read keeps all string bytes in one buffer and
+     * items decode on first access
+     * */
+    public void setLazyDecode(boolean lazyDecode) {
+        this.mLazyDecode = lazyDecode;
+    }
+
+    @Override
+    public void onReadBytes(BlockReader reader) throws IOException {
+        int size = size();
+        if(size == 0 || !isLazyDecode()){
+            super.onReadBytes(reader);
+            return;
+        }
+        int zeroPosition = getZeroPosition();
+        int end = getStringsEnd(reader);
+        if(end < zeroPosition){
+            end = zeroPosition;
+        }
+        byte[] buffer = new byte[end - zeroPosition];
+        reader.seek(zeroPosition);
+        reader.readFully(buffer);
+        int noEntry = OffsetArray.NO_ENTRY;
+        int[] offsetArray = getOffsetArray().getOffsets();
+        int limit = buffer.length;
+        int maximumPosition = 0;
+        for(int i = 0; i < size; i++){
+            T item = get(i);
+            int offset = offsetArray[i];
+            if(offset == noEntry){
+                item.setNull(true);
+                continue;
+            }
+            int position = item.linkSharedBytesInternal(buffer, offset, limit);
+            if(position > maximumPosition){
+                maximumPosition = position;
+            }
+        }
+        reader.seek(zeroPosition + maximumPosition);
+        refreshAlignment(reader, getAlignItem());
+    }
+    private int getStringsEnd(BlockReader reader){
+        int end = reader.length();
+        StringPool<?> stringPool = getParentInstance(StringPool.class);
+        if(stringPool == null){
+            return end;
+        }
+        StringPoolHeader header = stringPool.getHeaderBlock();
+        if(header.getCountStyles().get() != 0){
+            int stylesStart = header.getStartStyles().get();
+            if(stylesStart > 0 && stylesStart < end){
+                end = stylesStart;
+            }
+        }
+        return end;
+    }
 
     @SuppressWarnings("unchecked")
     @Override
@@ -74,7 +138,10 @@ public abstract class StringArray<T extends StringItem> extends OffsetBlockArray
     }
     @Override
     public boolean sort(Comparator<? super T> comparator) {
-        boolean sorted = super.sort(comparator);
+        boolean sorted = false;
+        if(needsSort(comparator)) {
+            sorted = super.sort(comparator);
+        }
         getStyleArray().sort();
         return sorted;
     }
@@ -39,7 +39,7 @@ public class TypeBlockArray extends BlockArray<TypeBlock>
         implements JSONConvert<JSONArray>, Comparator<TypeBlock> {
     private byte mTypeId;
     private Boolean mHasComplexEntry;
-    private Map<String, TypeBlock> mQualifiersMap;
+    private volatile Map<String, TypeBlock> mQualifiersMap;
 
     public TypeBlockArray(){
         super();
@@ -166,16 +166,12 @@ public class TypeBlockArray extends BlockArray<TypeBlock>
     private TypeBlock getFromQualifiersMap(String qualifiers) {
         Map<String, TypeBlock> map = this.mQualifiersMap;
         if (map == null) {
-            buildQualifiersMap();
-            map = this.mQualifiersMap;
-            return map.get(qualifiers);
+            return buildQualifiersMap().get(qualifiers);
         }
         TypeBlock typeBlock = map.get(qualifiers);
         if (typeBlock != null && !qualifiers.equals(typeBlock.getQualifiers()) ||
                 typeBlock != null && typeBlock.getParent() == null) {
-            buildQualifiersMap();
-            map = this.mQualifiersMap;
-            typeBlock = map.get(qualifiers);
+            typeBlock = buildQualifiersMap().get(qualifiers);
         }
         return typeBlock;
     }
@@ -199,14 +195,19 @@ public class TypeBlockArray extends BlockArray<TypeBlock>
         }
         return null;
     }
-    private void buildQualifiersMap() {
+    /**
+     * Fills a new map before publishing it, concurrent readers (e.g. smali resource
+     * comments on several threads) only ever see a complete map
+     * */
+    private Map<String, TypeBlock> buildQualifiersMap() {
         Map<String, TypeBlock> map = new HashMap<>(size());
-        this.mQualifiersMap = map;
         Iterator<TypeBlock> iterator = iterator();
         while (iterator.hasNext()) {
             TypeBlock typeBlock = iterator.next();
             map.put(typeBlock.getQualifiers(), typeBlock);
         }
+        this.mQualifiersMap = map;
+        return map;
     }
     public TypeBlock getTypeBlock(ResConfig config, boolean sparse){
         if(config == null){
@@ -333,6 +334,10 @@ public class TypeBlockArray extends BlockArray<TypeBlock>
         this.mQualifiersMap = null;
     }
     @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
+    }
+    @Override
     public void onChanged() {
         super.onChanged();
         mQualifiersMap = null;
@@ -27,6 +27,7 @@ public abstract class Block {
     private int mIndex=-1;
     private Block mParent;
     private boolean mNull;
+    private boolean mDirty = true;
     private BlockLoad mBlockLoad;
     public abstract byte[] getBytes();
     public abstract int countBytes();
@@ -70,7 +71,76 @@ public abstract class Block {
         return mNull;
     }
     public void setNull(boolean is_null){
-        mNull=is_null;
+        if(is_null != mNull){
+            mNull = is_null;
+            markDirty();
+        }
+    }
+    /**
+     * Returns true if this block or any of its descendants changed in size, order or
+     * structure since its last refresh. Blocks are dirty until they are refreshed for the
+     * first time, including blocks that are read from bytes.
+     * */
+    public final boolean isDirty(){
+        return mDirty;
+    }
+    /**
+     * Marks this block and all of its parents dirty.
+     * */
+    public final void markDirty(){
+        Block block = this;
+        while (true){
+            block.mDirty = true;
+            Block parent = block.mParent;
+            if(parent == null){
+                block.onMarkedDirty(this);
+                return;
+            }
+            block = parent;
+        }
+    }
+    /**
+     * Called on the root block whenever it or any of its descendants is marked dirty,
+     * the given block is the one markDirty() was called on.
+     * */
+    protected void onMarkedDirty(Block block){
+    }
+    /**
+     * Tells the root block that bytes of this block were changed in place, e.g. a value set
+     * without changing size. Unlike {@link #markDirty()} this does not make blocks dirty.
+     * */
+    public final void markModified(){
+        Block block = this;
+        Block parent;
+        while ((parent = block.mParent) != null){
+            block = parent;
+        }
+        block.onModified(this);
+    }
+    /**
+     * Called on the root block whenever bytes of it or any of its descendants are changed
+     * in place, the given block is the one markModified() was called on.
+     * */
+    protected void onModified(Block block){
+    }
+    protected final void clearDirty(){
+        mDirty = false;
+    }
+    /**
+     * Returns true if this block can skip refresh while it is not dirty, i.e. the work of its
+     * refresh depends only on its own descendants.
+     * */
+    protected boolean isIncrementalRefresh(){
+        return false;
+    }
+    /**
+     * Called whenever an incremental block is refreshed, by default forwarded to the parent.
+     * */
+    protected void onIncrementalRefresh(Block block){
+        Block parent = getParent();
+        if(parent != null){
+            parent.onIncrementalRefresh(block);
+        }
     }
     public final int getIndex(){
         return mIndex;
@@ -82,6 +152,10 @@ public abstract class Block {
         }
         mIndex=index;
         if(old!=-1 && index!=-1){
+            Block parent = mParent;
+            if(parent != null){
+                parent.markDirty();
+            }
             onIndexChanged(old, index);
         }
     }
@@ -89,10 +163,17 @@ public abstract class Block {
 
     }
     public final void setParent(Block parent){
-        if(parent==this){
+        Block old = mParent;
+        if(parent==this || parent==old){
             return;
         }
         mParent=parent;
+        if(old != null){
+            old.markDirty();
+        }
+        if(parent != null){
+            parent.markDirty();
+        }
     }
     public final Block getParent(){
         return mParent;
@@ -35,9 +35,17 @@ public abstract class BlockContainer<T extends Block> extends Block implements B
         if(isNull()){
             return;
         }
+        boolean incremental = isIncrementalRefresh();
+        if(incremental && !isDirty()){
+            return;
+        }
         onPreRefresh();
         refreshChildes();
         onRefreshed();
+        if(incremental){
+            clearDirty();
+            onIncrementalRefresh(this);
+        }
     }
     protected void refreshChildes(){
         T[] childes = getChildes();
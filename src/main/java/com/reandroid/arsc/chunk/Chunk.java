@@ -70,6 +70,13 @@ public abstract class Chunk<T extends HeaderBlock> extends ExpandableBlockContai
         alignItem.align(this);
     }
     protected abstract void onChunkRefreshed();
+    @Override
+    public int countBytes() {
+        if(!isDirty() && isIncrementalRefresh() && !isNull()){
+            return getHeaderBlock().getChunkSize();
+        }
+        return super.countBytes();
+    }
     public void onChunkLoaded(){
 
     }
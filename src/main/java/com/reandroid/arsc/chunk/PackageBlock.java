@@ -630,6 +630,10 @@ public class PackageBlock extends Chunk<PackageHeader>
         refreshSpecStringPoolOffset();
         refreshSpecStringCount();
     }
+    @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
+    }
 
     public void serializePublicXml(File file) throws IOException {
         XmlSerializer serializer = XMLFactory.newSerializer(file);
@@ -80,6 +80,10 @@ public class SpecBlock extends Chunk<SpecHeader> implements JSONConvert<JSONObje
     protected void onChunkRefreshed() {
         specFlagsArray.refresh();
     }
+    @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
+    }
 
     public void merge(SpecBlock specBlock){
         if(specBlock == null || specBlock==this){
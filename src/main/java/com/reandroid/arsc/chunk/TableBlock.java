@@ -18,18 +18,25 @@ package com.reandroid.arsc.chunk;
 import com.reandroid.arsc.ARSCLib;
 import com.reandroid.arsc.ApkFile;
 import com.reandroid.arsc.array.PackageArray;
+import com.reandroid.arsc.base.Block;
 import com.reandroid.arsc.header.HeaderBlock;
 import com.reandroid.arsc.header.InfoHeader;
+import com.reandroid.arsc.header.PackageHeader;
+import com.reandroid.arsc.header.SpecHeader;
 import com.reandroid.arsc.header.TableHeader;
+import com.reandroid.arsc.header.TypeHeader;
 import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.arsc.io.BlockWriter;
+import com.reandroid.arsc.model.ConfigResolver;
 import com.reandroid.arsc.model.ResourceEntry;
+import com.reandroid.arsc.model.ResourceIdIndex;
 import com.reandroid.arsc.model.ResourceName;
+import com.reandroid.arsc.pool.StringPool;
 import com.reandroid.arsc.pool.TableStringPool;
 import com.reandroid.arsc.value.Entry;
 import com.reandroid.arsc.value.ResConfig;
 import com.reandroid.arsc.value.StagedAliasEntry;
 import com.reandroid.arsc.value.ValueItem;
-import com.reandroid.common.BytesOutputStream;
 import com.reandroid.common.ReferenceResolver;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONObject;
@@ -39,6 +46,10 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
@@ -54,6 +65,13 @@ public class TableBlock extends Chunk<TableHeader>
     private ReferenceResolver referenceResolver;
     private PackageBlock mCurrentPackage;
     private PackageBlock mEmptyTablePackage;
+    private boolean mResourceIdIndexEnabled;
+    private int mLoadThreads;
+    private volatile TableStateHolder<ResourceIdIndex> mIndexHolder;
+    private volatile TableStateHolder<ConfigResolver> mConfigResolverHolder;
+    private int mStructureCount;
+    private int mModifiedCount;
+    private int mRefreshedBlocksCount;
 
     public TableBlock() {
         super(new TableHeader(), 2);
@@ -81,6 +99,7 @@ public class TableBlock extends Chunk<TableHeader>
     }
     public void setCurrentPackage(PackageBlock packageBlock){
         mCurrentPackage = packageBlock;
+        mStructureCount ++;
     }
     public PackageBlock getPackageBlockByTag(Object tag){
         for(PackageBlock packageBlock : this){
@@ -102,6 +121,9 @@ public class TableBlock extends Chunk<TableHeader>
         if(resourceId == 0){
             return null;
         }
+        if(isResourceIdIndexEnabled()){
+            return getResourceIdIndex().getResource(resourceId);
+        }
         Iterator<PackageBlock> iterator = getAllPackages();
         while (iterator.hasNext()){
             PackageBlock packageBlock = iterator.next();
@@ -380,6 +402,7 @@ public class TableBlock extends Chunk<TableHeader>
     }
     public void removePackage(PackageBlock packageBlock){
         getPackageArray().remove(packageBlock);
+        mStructureCount ++;
     }
     public Iterator<PackageBlock> getAllPackages(){
         return getAllPackages((PackageBlock) null);
@@ -597,6 +620,7 @@ public class TableBlock extends Chunk<TableHeader>
         return getPackageArray().getPackageBlockById(pkgId);
     }
     public PackageBlock newPackage(int id, String name){
+        mStructureCount ++;
         PackageBlock packageBlock = getPackageArray().createNext();
         packageBlock.setId(id);
         if(name != null){
@@ -629,6 +653,70 @@ public class TableBlock extends Chunk<TableHeader>
         }
     }
 
+    public boolean isResourceIdIndexEnabled() {
+        return mResourceIdIndexEnabled;
+    }
+    /**
+     * When enabled, {@link #getResource(int)} answers from a {@link ResourceIdIndex} of this
+     * table and its frameworks. The index is rebuilt on first lookup after this table or any
+     * framework changes in structure, i.e. entries, types, configs, packages, their ids or
+     * staged aliases are added, removed or changed. Editing entry values or strings and
+     * refreshing keep the index.
+     * */
+    public void setResourceIdIndexEnabled(boolean enabled) {
+        this.mResourceIdIndexEnabled = enabled;
+        if(!enabled){
+            mIndexHolder = null;
+        }
+    }
+    public int getLoadThreads() {
+        return mLoadThreads;
+    }
+    /**
+     * Number of workers used to parse the type chunks of each package while reading, values
+     * less than 2 keep the single-threaded read. Chunks are attached in file order before
+     * parsing, the loaded table is identical in both modes.
+     * */
+    public void setLoadThreads(int loadThreads) {
+        this.mLoadThreads = loadThreads;
+    }
+    /**
+     * Number of chunks and chunk lists the last {@link #refresh()} went through, those
+     * unchanged since their previous refresh are skipped. Everything is refreshed on the
+     * first call after reading.
+     * */
+    public int getRefreshedBlocksCount() {
+        return mRefreshedBlocksCount;
+    }
+    /**
+     * Changes whenever this table is read, refreshed, changes in structure (i.e. is marked
+     * dirty), has bytes edited in place (e.g. a value set) or its packages or frameworks are
+     * replaced. Caches built from the table compare this to detect changes.
+     * */
+    public int getModificationCount() {
+        return mStructureCount + mModifiedCount;
+    }
+    public ResourceIdIndex getResourceIdIndex(){
+        TableStateHolder<ResourceIdIndex> holder = this.mIndexHolder;
+        if(holder == null || !holder.isValid(this)){
+            holder = new TableStateHolder<>(this, ResourceIdIndex.build(getAllPackages()));
+            this.mIndexHolder = holder;
+        }
+        return holder.value;
+    }
+    /**
+     * Returns a best-match resolver over this table and its frameworks, a new resolver
+     * (with empty per-config caches) is created on first call after this table or any
+     * framework changes in structure (see {@link #setResourceIdIndexEnabled(boolean)}).
+     * */
+    public ConfigResolver getConfigResolver(){
+        TableStateHolder<ConfigResolver> holder = this.mConfigResolverHolder;
+        if(holder == null || !holder.isValid(this)){
+            holder = new TableStateHolder<>(this, new ConfigResolver(this));
+            this.mConfigResolverHolder = holder;
+        }
+        return holder.value;
+    }
     private void refreshPackageCount(){
         int count = getPackageArray().size();
         getHeaderBlock().getPackageCount().set(count);
@@ -636,12 +724,34 @@ public class TableBlock extends Chunk<TableHeader>
     @Override
     protected void onChunkRefreshed() {
         refreshPackageCount();
+        mModifiedCount ++;
+    }
+    @Override
+    protected void onMarkedDirty(Block block) {
+        if(isStructuralChange(block, false)){
+            mStructureCount ++;
+        }else {
+            mModifiedCount ++;
+        }
+    }
+    @Override
+    protected void onModified(Block block) {
+        if(isStructuralChange(block, true)){
+            mStructureCount ++;
+        }else {
+            mModifiedCount ++;
+        }
     }
     @Override
     protected void onPreRefresh() {
+        mRefreshedBlocksCount = 0;
         getPackageArray().removeIf(PackageBlock::isEmpty);
         super.onPreRefresh();
     }
+    @Override
+    protected void onIncrementalRefresh(Block block) {
+        mRefreshedBlocksCount ++;
+    }
 
     @Override
     public void onReadBytes(BlockReader reader) throws IOException {
@@ -677,6 +787,7 @@ public class TableBlock extends Chunk<TableHeader>
         }
         reader.close();
         linkStringsInternal();
+        mStructureCount ++;
     }
 
     public void readBytes(File file) throws IOException{
@@ -695,10 +806,25 @@ public class TableBlock extends Chunk<TableHeader>
         if(dir!=null && !dir.exists()){
             dir.mkdirs();
         }
-        OutputStream outputStream=new FileOutputStream(file);
-        int length = super.writeBytes(outputStream);
-        outputStream.close();
-        return length;
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return writeBytes(channel);
+        } finally {
+            channel.close();
+        }
+    }
+    /**
+     * Writes through a pooled buffer in large chunks, the channel is not closed
+     * */
+    public final int writeBytes(WritableByteChannel channel) throws IOException{
+        return BlockWriter.write(this, channel);
+    }
+    /**
+     * Writes at current position of the buffer, see {@link BlockWriter#write(Block, ByteBuffer)}
+     * */
+    public final int writeBytes(ByteBuffer buffer) throws IOException{
+        return BlockWriter.write(this, buffer);
     }
     public int searchResourceIdAlias(int resourceId){
         return resolveStagedAlias(resourceId, 0);
@@ -752,6 +878,7 @@ public class TableBlock extends Chunk<TableHeader>
     public void addFramework(TableBlock frameworkTable){
         if(frameworkTable != null && !containsFramework(frameworkTable)){
             mFrameWorks.add(frameworkTable);
+            mStructureCount ++;
         }
     }
     public boolean containsFramework(TableBlock tableBlock) {
@@ -770,9 +897,11 @@ public class TableBlock extends Chunk<TableHeader>
     }
     public void removeFramework(TableBlock tableBlock){
         mFrameWorks.remove(tableBlock);
+        mStructureCount ++;
     }
     public void clearFrameworks(){
         mFrameWorks.clear();
+        mStructureCount ++;
     }
     public PackageBlock parsePublicXml(XmlPullParser parser) throws IOException,
             XmlPullParserException {
@@ -804,14 +933,7 @@ public class TableBlock extends Chunk<TableHeader>
     }
     @Override
     public byte[] getBytes(){
-        BytesOutputStream outputStream = new BytesOutputStream(
-                getHeaderBlock().getChunkSize());
-        try {
-            writeBytes(outputStream);
-            outputStream.close();
-        } catch (IOException ignored) {
-        }
-        return outputStream.toByteArray();
+        return BlockWriter.getBytes(this);
     }
     public boolean isSimilarTo(TableBlock tableBlock) {
         if(tableBlock == this) {
@@ -843,6 +965,80 @@ public class TableBlock extends Chunk<TableHeader>
         return builder.toString();
     }
 
+    /**
+     * True if a change of the block can change what the resource id index and config resolver
+     * are built from: packages, types, entries, configs, ids and staged aliases. Changes of
+     * entry values and string pools are not, nor are sizes and offsets written in place.
+     * */
+    private static boolean isStructuralChange(Block block, boolean inPlace){
+        Block current = block;
+        while (current != null){
+            if(current instanceof Entry || current instanceof StringPool){
+                return false;
+            }
+            if(current instanceof ResConfig || current instanceof StagedAlias){
+                return true;
+            }
+            current = current.getParent();
+        }
+        return !inPlace || isIdItem(block);
+    }
+    private static boolean isIdItem(Block block){
+        Block parent = block.getParent();
+        if(parent instanceof PackageHeader){
+            return block == ((PackageHeader) parent).getPackageId();
+        }
+        if(parent instanceof TypeHeader){
+            return block == ((TypeHeader) parent).getId();
+        }
+        if(parent instanceof SpecHeader){
+            return block == ((SpecHeader) parent).getId();
+        }
+        return false;
+    }
+
+    private static final class TableStateHolder<T> {
+        final T value;
+        private final int structureCount;
+        private final TableBlock[] frameworks;
+        private final int[] frameworkCounts;
+
+        TableStateHolder(TableBlock tableBlock, T value){
+            List<TableBlock> frameworkList = tableBlock.getFrameWorks();
+            int size = frameworkList.size();
+            TableBlock[] frameworks = new TableBlock[size];
+            int[] frameworkCounts = new int[size];
+            for(int i = 0; i < size; i++){
+                TableBlock framework = frameworkList.get(i);
+                frameworks[i] = framework;
+                frameworkCounts[i] = framework.mStructureCount;
+            }
+            this.value = value;
+            this.structureCount = tableBlock.mStructureCount;
+            this.frameworks = frameworks;
+            this.frameworkCounts = frameworkCounts;
+        }
+        boolean isValid(TableBlock tableBlock){
+            if(structureCount != tableBlock.mStructureCount){
+                return false;
+            }
+            List<TableBlock> frameworkList = tableBlock.getFrameWorks();
+            TableBlock[] frameworks = this.frameworks;
+            int size = frameworks.length;
+            if(size != frameworkList.size()){
+                return false;
+            }
+            for(int i = 0; i < size; i++){
+                TableBlock framework = frameworks[i];
+                if(framework != frameworkList.get(i)
+                        || frameworkCounts[i] != framework.mStructureCount){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     public static TableBlock load(File file) throws IOException{
         return load(new FileInputStream(file));
     }
@@ -19,6 +19,7 @@ import com.reandroid.arsc.array.*;
 import com.reandroid.arsc.base.Block;
 import com.reandroid.arsc.container.SpecTypePair;
 import com.reandroid.arsc.header.TypeHeader;
+import com.reandroid.arsc.io.BlockWriter;
 import com.reandroid.arsc.item.IntegerItem;
 import com.reandroid.arsc.item.SpecString;
 import com.reandroid.arsc.item.TypeString;
@@ -35,8 +36,6 @@ import com.reandroid.utils.ObjectsUtil;
 import com.reandroid.utils.collection.CollectionUtil;
 import com.reandroid.utils.collection.IterableIterator;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 
@@ -159,7 +158,14 @@ public class TypeBlock extends Chunk<TypeHeader>
         setTypeId((byte) (0xff & id));
     }
     public void setTypeId(byte id){
+        if(id == getTypeId()){
+            return;
+        }
         getHeaderBlock().getId().set(id);
+        PackageBlock packageBlock = getPackageBlock();
+        if(packageBlock != null){
+            packageBlock.getSpecStringPool().clearNameIndex();
+        }
     }
     public void setTypeName(String name){
         TypeStringPool typeStringPool = getTypeStringPool();
@@ -310,19 +316,17 @@ public class TypeBlock extends Chunk<TypeHeader>
         getHeaderBlock().getConfig().refresh();
         super.onPreRefresh();
     }
+    @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
+    }
     /*
      * method Block.addBytes is inefficient for large size byte array
      * so let's override here because this block is the largest
      */
     @Override
     public byte[] getBytes(){
-        ByteArrayOutputStream os=new ByteArrayOutputStream();
-        try {
-            writeBytes(os);
-            os.close();
-        } catch (IOException ignored) {
-        }
-        return os.toByteArray();
+        return BlockWriter.getBytes(this);
     }
     @Override
     public JSONObject toJson() {
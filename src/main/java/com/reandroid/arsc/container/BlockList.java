@@ -534,6 +534,7 @@ public class BlockList<T extends Block> extends Block implements BlockRefresh, S
             return;
         }
         mItems = ArrayCollection.empty();
+        markDirty();
     }
     private void unlockList(){
         if(!mItems.isImmutableEmpty()){
@@ -579,11 +580,19 @@ public class BlockList<T extends Block> extends Block implements BlockRefresh, S
         if(isNull()){
             return;
         }
+        boolean incremental = isIncrementalRefresh();
+        if(incremental && !isDirty()){
+            return;
+        }
         trimToSize();
         onPreRefresh();
         refreshChildes();
         onRefreshed();
         onChanged();
+        if(incremental){
+            clearDirty();
+            onIncrementalRefresh(this);
+        }
     }
     protected void onPreRefresh(){
     }
@@ -592,6 +601,7 @@ public class BlockList<T extends Block> extends Block implements BlockRefresh, S
     }
     public void onChanged(){
         mItems.onChanged();
+        markDirty();
     }
     private void refreshChildes(){
         Iterator<?> iterator = iterator();
@@ -21,6 +21,7 @@ import com.reandroid.arsc.header.HeaderBlock;
 import com.reandroid.arsc.header.SpecHeader;
 import com.reandroid.arsc.header.TypeHeader;
 import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.arsc.io.ParallelBlockLoader;
 import com.reandroid.arsc.list.OverlayableList;
 import com.reandroid.arsc.list.StagedAliasList;
 
@@ -34,6 +35,7 @@ public class PackageBody extends FixedBlockContainer {
     private final OverlayableList mOverlayableList;
     private final BlockList<OverlayablePolicy> mOverlayablePolicyList;
     private final BlockList<UnknownChunk> mUnknownChunkList;
+    private ParallelBlockLoader mTypeBlockLoader;
 
     public PackageBody(){
         super(6);
@@ -83,13 +85,40 @@ public class PackageBody extends FixedBlockContainer {
         return mUnknownChunkList;
     }
 
+    @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
+    }
     @Override
     public void onReadBytes(BlockReader reader) throws IOException{
-        boolean readOk=true;
-        while (readOk){
-            readOk=readNextBlock(reader);
+        ParallelBlockLoader loader = createTypeBlockLoader();
+        this.mTypeBlockLoader = loader;
+        try{
+            boolean readOk=true;
+            while (readOk){
+                readOk=readNextBlock(reader);
+            }
+            if(loader != null){
+                loader.await();
+            }
+        }finally {
+            this.mTypeBlockLoader = null;
+            if(loader != null){
+                loader.close();
+            }
         }
     }
+    private ParallelBlockLoader createTypeBlockLoader(){
+        PackageBlock packageBlock = getParentInstance(PackageBlock.class);
+        if(packageBlock == null){
+            return null;
+        }
+        TableBlock tableBlock = packageBlock.getTableBlock();
+        if(tableBlock == null || tableBlock.getLoadThreads() < 2){
+            return null;
+        }
+        return new ParallelBlockLoader(tableBlock.getLoadThreads());
+    }
     private boolean readNextBlock(BlockReader reader) throws IOException {
         HeaderBlock headerBlock = reader.readHeaderBlock();
         if(headerBlock==null){
@@ -124,7 +153,12 @@ public class PackageBody extends FixedBlockContainer {
         SpecTypePair specTypePair = mSpecTypePairArray.getOrCreate(typeHeader.getId().getByte());
         TypeBlock typeBlock = specTypePair.getTypeBlockArray().createNext(
                 typeHeader.isSparse(), typeHeader.isOffset16());
-        typeBlock.readBytes(reader);
+        ParallelBlockLoader loader = this.mTypeBlockLoader;
+        if(loader != null){
+            loader.submit(typeBlock, reader, typeHeader.getChunkSize());
+        }else {
+            typeBlock.readBytes(reader);
+        }
     }
     private void readLibraryBlock(BlockReader reader) throws IOException{
         LibraryBlock libraryBlock=new LibraryBlock();
@@ -114,7 +114,7 @@ public class SpecTypePair extends BlockContainer<Block>
         }
         SpecStringPool specStringPool = packageBlock.getSpecStringPool();
         int resourceId = specStringPool
-                .resolveResourceId(this, name);
+                .resolveResourceId(getId(), name);
         if(resourceId == 0){
             return null;
         }
@@ -338,6 +338,10 @@ public class SpecTypePair extends BlockContainer<Block>
     @Override
     protected void onRefreshed() {
 
+    }
+    @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
     }
     @Override
     public int getChildesCount() {
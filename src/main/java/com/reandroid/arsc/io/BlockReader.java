@@ -18,13 +18,17 @@ package com.reandroid.arsc.io;
 import com.reandroid.arsc.header.InfoHeader;
 import com.reandroid.arsc.header.SpecHeader;
 import com.reandroid.arsc.header.TypeHeader;
+import com.reandroid.common.ByteBufferInputStream;
 
 import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 
 public class BlockReader extends InputStream {
     private final Object mLock = new Object();
 
     private byte[] BUFFER;
+    private ByteBuffer byteBuffer;
     private final int mStart;
     private final int mLength;
     private int mPosition;
@@ -40,8 +44,34 @@ public class BlockReader extends InputStream {
     public BlockReader(byte[] buffer) {
         this(buffer, 0, buffer.length);
     }
+    /**
+     * Reads directly from the given buffer (e.g. a slice of memory-mapped file) without
+     * copying it to heap, start is absolute index on the buffer
+     * */
+    public BlockReader(ByteBuffer byteBuffer, int start, int length) {
+        this.byteBuffer = byteBuffer.duplicate();
+        this.mStart = start;
+        this.mLength = length;
+        this.mPosition = 0;
+    }
+    public BlockReader(ByteBuffer byteBuffer) {
+        this(byteBuffer.slice(), 0, byteBuffer.remaining());
+    }
     public BlockReader(InputStream in) throws IOException {
-        this(loadBuffer(in));
+        if(in instanceof ByteBufferInputStream){
+            ByteBuffer byteBuffer = ((ByteBufferInputStream) in).getByteBuffer();
+            int length = byteBuffer.remaining();
+            in.skip(length);
+            this.byteBuffer = byteBuffer;
+            this.mStart = 0;
+            this.mLength = length;
+        }else {
+            byte[] buffer = loadBuffer(in);
+            this.BUFFER = buffer;
+            this.mStart = 0;
+            this.mLength = buffer.length;
+        }
+        this.mPosition = 0;
     }
     public BlockReader(InputStream in, int length) throws IOException {
         this(loadBuffer(in, length));
@@ -93,19 +123,27 @@ public class BlockReader extends InputStream {
         return (short) (bytes[0] & 0xff |
                 (bytes[1] & 0xff) << 8);
     }
+    /**
+     * @return the backing array, or null when reading from {@link #getByteBuffer()}
+     * */
     public byte[] getBuffer(){
         return BUFFER;
     }
+    public ByteBuffer getByteBuffer(){
+        return byteBuffer;
+    }
     public byte[] getBytes(){
         int len = length();
-        if(this.BUFFER.length == len){
+        if(this.BUFFER != null && this.BUFFER.length == len){
             return BUFFER;
         }
         byte[] bytes = new byte[len];
         if(len==0){
             return bytes;
         }
-        System.arraycopy(BUFFER, mStart, bytes, 0, len);
+        synchronized (mLock){
+            copyBuffer(mStart, bytes, 0, len);
+        }
         return bytes;
     }
     public BlockReader create(int len){
@@ -117,6 +155,10 @@ public class BlockReader extends InputStream {
             len = this.mLength - start;
         }
         start = start + this.mStart;
+        ByteBuffer byteBuffer = this.byteBuffer;
+        if(byteBuffer != null){
+            return new BlockReader(byteBuffer, start, len);
+        }
         return new BlockReader(BUFFER, start, len);
     }
     public boolean isAvailable(){
@@ -185,17 +227,24 @@ public class BlockReader extends InputStream {
         }
         synchronized (mLock){
             int actualPosition = mStart + mPosition;
-            int i;
-            for(i = 0; i < length; i++){
-                bytes[start + i] = BUFFER[actualPosition + i];
-                mPosition ++;
-                if(mPosition >= mLength){
-                    i++;
-                    break;
-                }
+            int available = mLength - mPosition;
+            if(length > available){
+                length = available;
             }
-            return i;
+            copyBuffer(actualPosition, bytes, start, length);
+            mPosition += length;
+            return length;
+        }
+    }
+    private void copyBuffer(int actualPosition, byte[] bytes, int start, int length){
+        byte[] buffer = this.BUFFER;
+        if(buffer != null){
+            System.arraycopy(buffer, actualPosition, bytes, start, length);
+            return;
         }
+        ByteBuffer byteBuffer = this.byteBuffer;
+        ((Buffer) byteBuffer).position(actualPosition);
+        byteBuffer.get(bytes, start, length);
     }
     public int getPosition(){
         return mPosition;
@@ -214,7 +263,13 @@ public class BlockReader extends InputStream {
         }
         synchronized (mLock){
             int actPos = mStart + i;
-            int val = BUFFER[actPos] & 0xff;
+            int val;
+            byte[] buffer = this.BUFFER;
+            if(buffer != null){
+                val = buffer[actPos] & 0xff;
+            }else {
+                val = byteBuffer.get(actPos) & 0xff;
+            }
             mPosition ++;
             return val;
         }
@@ -243,6 +298,7 @@ public class BlockReader extends InputStream {
     public void close(){
         mIsClosed=true;
         BUFFER=null;
+        byteBuffer=null;
         mMark=0;
     }
     @Override
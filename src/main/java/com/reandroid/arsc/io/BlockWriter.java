@@ -0,0 +1,243 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc.io;
+
+import com.reandroid.arsc.base.Block;
+import com.reandroid.common.BytesOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Collects the many small writes of a block tree into a buffer and passes them on in large
+ * writes. The target is either a fixed buffer, which must have room for everything written,
+ * or a channel / stream which is drained from a pooled buffer. Closing flushes and returns
+ * the pooled buffer, the target channel or stream is left open. Once a write has failed,
+ * closing only returns the buffer, partial data is not flushed.
+ * */
+public class BlockWriter extends OutputStream {
+    private final WritableByteChannel channel;
+    private final OutputStream outputStream;
+    private final ByteBufferPool pool;
+    private ByteBuffer buffer;
+    private long mPosition;
+    private boolean mFailed;
+
+    public BlockWriter(ByteBuffer buffer) {
+        this.channel = null;
+        this.outputStream = null;
+        this.pool = null;
+        this.buffer = buffer;
+    }
+    public BlockWriter(WritableByteChannel channel, ByteBufferPool pool) {
+        this.channel = channel;
+        this.outputStream = null;
+        this.pool = pool;
+        this.buffer = pool.obtain();
+    }
+    public BlockWriter(WritableByteChannel channel) {
+        this(channel, ByteBufferPool.getDefault());
+    }
+    public BlockWriter(OutputStream outputStream, ByteBufferPool pool) {
+        this.channel = null;
+        this.outputStream = outputStream;
+        this.pool = pool;
+        this.buffer = pool.obtain();
+    }
+    public BlockWriter(OutputStream outputStream) {
+        this(outputStream, ByteBufferPool.getDefault());
+    }
+
+    public int write(Block block) throws IOException {
+        try {
+            return block.writeBytes(this);
+        } catch (IOException | RuntimeException ex) {
+            mFailed = true;
+            throw ex;
+        }
+    }
+    /**
+     * Number of bytes written so far, including the bytes still in buffer
+     * */
+    public long getPosition() {
+        return mPosition;
+    }
+    @Override
+    public void write(int b) throws IOException {
+        ByteBuffer buffer = ensureOpen();
+        if(!buffer.hasRemaining()){
+            drain(buffer, 1);
+        }
+        buffer.put((byte) b);
+        mPosition ++;
+    }
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ByteBuffer buffer = ensureOpen();
+        if(length > buffer.remaining()){
+            drain(buffer, length);
+            if(length >= buffer.capacity()){
+                writeDirect(bytes, offset, length);
+                mPosition += length;
+                return;
+            }
+        }
+        buffer.put(bytes, offset, length);
+        mPosition += length;
+    }
+    @Override
+    public void flush() throws IOException {
+        ByteBuffer buffer = this.buffer;
+        if(buffer == null || pool == null){
+            return;
+        }
+        drain(buffer, 0);
+        if(outputStream != null){
+            outputStream.flush();
+        }
+    }
+    @Override
+    public void close() throws IOException {
+        ByteBuffer buffer = this.buffer;
+        if(buffer == null){
+            return;
+        }
+        try {
+            if(!mFailed){
+                flush();
+            }
+        } finally {
+            this.buffer = null;
+            if(pool != null){
+                pool.release(buffer);
+            }
+        }
+    }
+    private ByteBuffer ensureOpen() throws IOException {
+        ByteBuffer buffer = this.buffer;
+        if(buffer == null){
+            throw new IOException("Writer closed");
+        }
+        return buffer;
+    }
+    private void drain(ByteBuffer buffer, int required) throws IOException {
+        if(pool == null){
+            mFailed = true;
+            throw new IOException("Buffer overflow, remaining = " + buffer.remaining()
+                    + ", required = " + required);
+        }
+        ((Buffer) buffer).flip();
+        try {
+            if(channel != null){
+                while (buffer.hasRemaining()){
+                    channel.write(buffer);
+                }
+            }else if(buffer.hasRemaining()){
+                outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                        buffer.remaining());
+            }
+        } catch (IOException ex) {
+            mFailed = true;
+            throw ex;
+        }
+        ((Buffer) buffer).clear();
+    }
+    private void writeDirect(byte[] bytes, int offset, int length) throws IOException {
+        try {
+            writeTarget(bytes, offset, length);
+        } catch (IOException ex) {
+            mFailed = true;
+            throw ex;
+        }
+    }
+    private void writeTarget(byte[] bytes, int offset, int length) throws IOException {
+        if(channel != null){
+            ByteBuffer wrap = ByteBuffer.wrap(bytes, offset, length);
+            while (wrap.hasRemaining()){
+                channel.write(wrap);
+            }
+        }else {
+            outputStream.write(bytes, offset, length);
+        }
+    }
+
+    /**
+     * Counts the block first and writes it in to exact size array, no intermediate buffers
+     * */
+    public static byte[] toByteArray(Block block) throws IOException {
+        byte[] bytes = new byte[block.countBytes()];
+        BlockWriter writer = new BlockWriter(ByteBuffer.wrap(bytes));
+        writer.write(block);
+        if(writer.getPosition() != bytes.length){
+            throw new IOException("Size mismatch, counted = " + bytes.length
+                    + ", written = " + writer.getPosition());
+        }
+        return bytes;
+    }
+    /**
+     * Same as {@link #toByteArray(Block)}, but if the counted size does not match the bytes
+     * written it falls back to writing through a growing stream. The result is always what
+     * the block writes, never a truncated or empty array.
+     * */
+    public static byte[] getBytes(Block block) {
+        try {
+            return toByteArray(block);
+        } catch (IOException ignored) {
+            // counted size is off, see below
+        }
+        BytesOutputStream outputStream = new BytesOutputStream(block.countBytes());
+        try {
+            block.writeBytes(outputStream);
+            outputStream.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return outputStream.toByteArray();
+    }
+    /**
+     * Writes the block at current position of the buffer and advances its position,
+     * throws before writing anything if the buffer has not enough room.
+     * */
+    public static int write(Block block, ByteBuffer buffer) throws IOException {
+        int length = block.countBytes();
+        if(length > buffer.remaining()){
+            throw new IOException("Buffer overflow, remaining = " + buffer.remaining()
+                    + ", required = " + length);
+        }
+        BlockWriter writer = new BlockWriter(buffer);
+        return writer.write(block);
+    }
+    public static int write(Block block, WritableByteChannel channel) throws IOException {
+        BlockWriter writer = new BlockWriter(channel);
+        try {
+            return writer.write(block);
+        } finally {
+            writer.close();
+        }
+    }
+    public static int write(Block block, OutputStream outputStream) throws IOException {
+        BlockWriter writer = new BlockWriter(outputStream);
+        try {
+            return writer.write(block);
+        } finally {
+            writer.close();
+        }
+    }
+}
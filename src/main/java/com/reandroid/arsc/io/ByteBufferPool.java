@@ -0,0 +1,103 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc.io;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe pool of equally sized heap {@link ByteBuffer}s used as write buffers, see
+ * {@link BlockWriter}. Returned buffers are cleared and kept up to {@link #getMaxIdle()},
+ * the rest are left to the garbage collector.
+ * */
+public class ByteBufferPool {
+    private final Deque<ByteBuffer> buffers;
+    private final AtomicInteger idleBuffers;
+    private final int bufferSize;
+    private final int maxIdle;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    public ByteBufferPool(int bufferSize, int maxIdle){
+        if(bufferSize <= 0){
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.maxIdle = maxIdle;
+        this.buffers = new ConcurrentLinkedDeque<>();
+        this.idleBuffers = new AtomicInteger();
+    }
+    public ByteBufferPool(){
+        this(DEFAULT_BUFFER_SIZE, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+    public ByteBuffer obtain(){
+        requests.incrementAndGet();
+        ByteBuffer buffer = buffers.pollFirst();
+        if(buffer != null){
+            idleBuffers.decrementAndGet();
+            hits.incrementAndGet();
+            return buffer;
+        }
+        return ByteBuffer.allocate(bufferSize);
+    }
+    public void release(ByteBuffer buffer){
+        if(buffer == null || buffer.capacity() != bufferSize
+                || buffer.isReadOnly() || !buffer.hasArray()){
+            return;
+        }
+        if(idleBuffers.incrementAndGet() > maxIdle){
+            idleBuffers.decrementAndGet();
+            return;
+        }
+        ((Buffer) buffer).clear();
+        buffers.offerFirst(buffer);
+    }
+    public int getIdleCount(){
+        return idleBuffers.get();
+    }
+    public long getRequestsCount(){
+        return requests.get();
+    }
+    public long getHitsCount(){
+        return hits.get();
+    }
+    @Override
+    public String toString(){
+        return getClass().getSimpleName() + ": size = " + bufferSize
+                + ", idle = " + getIdleCount()
+                + ", hits = " + getHitsCount() + "/" + getRequestsCount();
+    }
+
+    public static ByteBufferPool getDefault(){
+        return DEFAULT;
+    }
+
+    public static final int DEFAULT_BUFFER_SIZE = 128 * 1024;
+
+    private static final ByteBufferPool DEFAULT = new ByteBufferPool();
+}
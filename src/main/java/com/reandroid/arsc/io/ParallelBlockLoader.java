@@ -0,0 +1,92 @@
+ /*
+  *  Copyright (C) 2022 github.com/REAndroid
+  *
+  *  Licensed under the Apache License, Version 2.0 (the "License");
+  *  you may not use this file except in compliance with the License.
+  *  You may obtain a copy of the License at
+  *
+  *      http://www.apache.org/licenses/LICENSE-2.0
+  *
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+  */
+package com.reandroid.arsc.io;
+
+import com.reandroid.arsc.base.Block;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads independent blocks on a bounded worker pool. Blocks must be created and attached to
+ * their parent on the calling thread, only parsing of their own bytes runs on the workers,
+ * so the resulting tree is the same as a serial read. None of the submitted blocks may be
+ * accessed before {@link #await()} returns.
+ * */
+public class ParallelBlockLoader implements Closeable {
+    private final ExecutorService executorService;
+    private final List<Future<Void>> futures;
+
+    public ParallelBlockLoader(int threads){
+        this.executorService = Executors.newFixedThreadPool(threads);
+        this.futures = new ArrayList<>();
+    }
+
+    /**
+     * Queues block to read the next length bytes of reader, and advances reader past them.
+     * */
+    public void submit(Block block, BlockReader reader, int length){
+        BlockReader blockReader = reader.create(length);
+        reader.offset(length);
+        futures.add(executorService.submit(() -> {
+            block.readBytes(blockReader);
+            blockReader.close();
+            return null;
+        }));
+    }
+    /**
+     * Waits for every submitted block, failures are thrown in submission order.
+     * */
+    public void await() throws IOException {
+        List<Future<Void>> futures = this.futures;
+        try{
+            for(Future<Void> future : futures){
+                awaitWorker(future);
+            }
+        }finally {
+            futures.clear();
+        }
+    }
+    @Override
+    public void close(){
+        executorService.shutdownNow();
+    }
+
+    private static void awaitWorker(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if(cause instanceof IOException){
+                throw (IOException) cause;
+            }
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
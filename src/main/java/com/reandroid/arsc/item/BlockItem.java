@@ -51,6 +51,7 @@ public abstract class BlockItem extends Block {
             return;
         }
         mBytes = bytes;
+        markDirty();
         if(notify){
             onBytesChanged();
         }
@@ -63,7 +64,10 @@ public abstract class BlockItem extends Block {
             length = 0;
         }
         if(length == 0){
-            mBytes = EMPTY;
+            if(mBytes.length != 0){
+                mBytes = EMPTY;
+                markDirty();
+            }
             if(notify){
                 onBytesChanged();
             }
@@ -79,6 +83,7 @@ public abstract class BlockItem extends Block {
         }
         System.arraycopy(mBytes, 0, bytes, 0, old);
         mBytes = bytes;
+        markDirty();
         if(notify){
             onBytesChanged();
         }
@@ -50,6 +50,7 @@ public class ByteArray extends BlockItem {
         for(int i=0;i<max;i++){
             bts[i]=value;
         }
+        markModified();
     }
     public final void ensureArraySize(int s){
         int sz=size();
@@ -79,12 +80,14 @@ public class ByteArray extends BlockItem {
     public final void put(int index, byte value){
         byte[] bts = getBytesInternal();
         bts[index]=value;
+        markModified();
     }
     public boolean getBit(int byteOffset, int bitIndex){
         return getBit(getBytesInternal(), byteOffset, bitIndex);
     }
     public void putBit(int byteOffset, int bitIndex, boolean bit){
         putBit(getBytesInternal(), byteOffset, bitIndex, bit);
+        markModified();
     }
     public final void putShort(int offset, int value){
         putShort(offset, (short) value);
@@ -93,6 +96,7 @@ public class ByteArray extends BlockItem {
         byte[] bts = getBytesInternal();
         bts[offset+1]= (byte) (val >>> 8 & 0xff);
         bts[offset]= (byte) (val & 0xff);
+        markModified();
     }
     public final int getShortUnsigned(int offset){
         return 0xffff & getShort(offset);
@@ -110,6 +114,7 @@ public class ByteArray extends BlockItem {
         bts[offset+2]= (byte) (val >>> 16 & 0xff);
         bts[offset+1]= (byte) (val >>> 8 & 0xff);
         bts[offset]= (byte) (val & 0xff);
+        markModified();
     }
     public final int getInteger(int offset){
         byte[] bts = getBytesInternal();
@@ -132,6 +137,7 @@ public class ByteArray extends BlockItem {
             len=avail;
         }
         System.arraycopy(val, 0, bts, offset, len);
+        markModified();
     }
     public final byte[] getByteArray(int offset, int length){
         byte[] bts = getBytesInternal();
@@ -44,6 +44,7 @@ public class ByteItem extends BlockItem implements IntegerReference, DirectStrea
     }
     public void set(byte value) {
         getBytesInternal()[0] = value;
+        markModified();
     }
     public byte getByte() {
         return getBytesInternal()[0];
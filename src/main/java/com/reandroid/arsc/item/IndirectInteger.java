@@ -28,6 +28,7 @@ public class IndirectInteger extends IndirectItem<BlockItem> implements IntegerR
     @Override
     public void set(int value){
         Block.putInteger(getBytesInternal(), getOffset(), value);
+        getBlockItem().markModified();
     }
     public boolean isNull(){
         return (getBytesInternal().length - getOffset()) < 4;
@@ -31,6 +31,7 @@ public class IndirectLong extends IndirectItem<BlockItem> implements LongReferen
     @Override
     public void set(long value) {
         Block.putLong(getBytesInternal(), getOffset(), value);
+        getBlockItem().markModified();
     }
     @Override
     public int get(){
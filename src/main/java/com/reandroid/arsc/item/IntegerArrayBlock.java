@@ -60,5 +60,6 @@ public class IntegerArrayBlock extends ShortArrayBlock{
     @Override
     public void put(int index, int value){
         putInteger(getBytesInternal(), index * 4, value);
+        markModified();
     }
 }
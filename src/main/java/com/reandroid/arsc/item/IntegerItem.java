@@ -50,6 +50,7 @@ public class IntegerItem extends BlockItem implements ReferenceItem, DirectStrea
         } else {
             putInteger(bytes, 0, value);
         }
+        markModified();
     }
     @Override
     public int get(){
@@ -44,6 +44,7 @@ public class LongItem extends BlockItem implements LongReference, DirectStreamRe
         } else {
             putLong(bytes, 0, value);
         }
+        markModified();
     }
     @Override
     public long getLong(){
@@ -106,6 +106,7 @@ public class ShortArrayBlock extends BlockItem implements IntegerArray {
     }
     public void put(int index, int value){
         putShort(getBytesInternal(), index * 2, value);
+        markModified();
     }
     @Override
     public String toString(){
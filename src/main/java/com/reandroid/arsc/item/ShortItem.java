@@ -48,6 +48,7 @@ public class ShortItem extends BlockItem implements IntegerReference, DirectStre
         } else {
             putShort(bytes, 0, value);
         }
+        markModified();
     }
     @Override
     public int get(){
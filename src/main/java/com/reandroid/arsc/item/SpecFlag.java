@@ -27,6 +27,7 @@ public class SpecFlag extends IndirectItem<SpecFlagsArray> {
     }
     public void setFlagByte(byte flag){
         getBlockItem().getBytesInternal()[getOffset() + OFFSET_FLAG] = flag;
+        getBlockItem().markModified();
     }
     public void addFlagByte(byte flag){
         flag = (byte) ((getFlagByte() & 0xff) | (flag & 0xff));
@@ -16,9 +16,11 @@
 package com.reandroid.arsc.item;
 
 import com.reandroid.arsc.base.Block;
+import com.reandroid.arsc.pool.SpecStringPool;
 import com.reandroid.arsc.value.Entry;
 import com.reandroid.utils.CompareUtil;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.function.Predicate;
 
@@ -65,6 +67,34 @@ public class SpecString extends StringItem {
         });
     }
     @Override
+    public void addReference(ReferenceItem ref){
+        super.addReference(ref);
+        onReferenceAdded(ref);
+    }
+    @Override
+    public void addReferenceIfAbsent(ReferenceItem ref){
+        super.addReferenceIfAbsent(ref);
+        onReferenceAdded(ref);
+    }
+    @Override
+    public void addReference(Collection<ReferenceItem> refList){
+        super.addReference(refList);
+        if(refList != null){
+            for(ReferenceItem ref : refList){
+                onReferenceAdded(ref);
+            }
+        }
+    }
+    private void onReferenceAdded(ReferenceItem ref){
+        if(ref == null){
+            return;
+        }
+        SpecStringPool specStringPool = getParentInstance(SpecStringPool.class);
+        if(specStringPool != null){
+            specStringPool.onReferenceAdded(this, ref);
+        }
+    }
+    @Override
     public StyleItem getOrCreateStyle(){
         // Spec (resource name) don't have style unless to obfuscate/confuse other decompilers
         return null;
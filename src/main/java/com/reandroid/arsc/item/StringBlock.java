@@ -29,7 +29,13 @@ public abstract class StringBlock extends BlockItem implements StringReference {
         mCache = StringsUtil.EMPTY;
     }
     public String get(){
-        return mCache;
+        String cache = this.mCache;
+        if(cache == DECODE_PENDING){
+            // a racing reader at worst decodes twice, strings are safely published
+            cache = decodePending();
+            this.mCache = cache;
+        }
+        return cache;
     }
     public void set(String text){
         set(text, true);
@@ -38,7 +44,7 @@ public abstract class StringBlock extends BlockItem implements StringReference {
         if(text == null || text.length() == 0){
             text = StringsUtil.EMPTY;
         }
-        String old = this.mCache;
+        String old = get();
         boolean firstTime = countBytes() == 0;
         if(firstTime) {
             old = null;
@@ -55,6 +61,15 @@ public abstract class StringBlock extends BlockItem implements StringReference {
     protected void onBytesChanged(){
         mCache = decodeString(getBytesInternal());
     }
+    /**
+     * Defers decoding until the next call of {@link #get()}
+     * */
+    protected void setDecodePending(){
+        mCache = DECODE_PENDING;
+    }
+    protected String decodePending(){
+        return decodeString(getBytesInternal());
+    }
     protected void onStringChanged(String old, String text){
     }
     protected abstract String decodeString(byte[] bytes);
@@ -71,5 +86,11 @@ public abstract class StringBlock extends BlockItem implements StringReference {
         return get();
     }
 
+    /**
+     * Not thread safe, decoders keep state between calls
+     * */
+    @Deprecated
     public static final CharsetDecoder UTF8_DECODER = StandardCharsets.UTF_8.newDecoder();
+
+    private static final String DECODE_PENDING = new String("");
 }
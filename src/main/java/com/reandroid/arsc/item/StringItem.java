@@ -32,12 +32,15 @@ import com.reandroid.xml.StyleDocument;
 import org.xmlpull.v1.XmlSerializer;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -46,13 +49,16 @@ import java.util.function.Predicate;
 public class StringItem extends StringBlock implements JSONConvert<JSONObject>, Comparable<StringItem> {
 
     private boolean mUtf8;
-    private final Set<ReferenceItem> mReferencedList;
+    private Set<ReferenceItem> mReferencedList;
     private StyleItem mStyleItem;
 
+    private byte[] mSharedBuffer;
+    private int mSharedOffset;
+    private int mSharedLength;
+
     public StringItem(boolean utf8) {
         super();
         this.mUtf8 = utf8;
-        this.mReferencedList = new HashSet<>();
     }
 
     public StyleDocument getStyleDocument() {
@@ -83,26 +89,50 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
     }
 
     public boolean removeReference(ReferenceItem ref){
-        return mReferencedList.remove(ref);
+        Set<ReferenceItem> referencedList = this.mReferencedList;
+        if(referencedList != null){
+            return referencedList.remove(ref);
+        }
+        return false;
     }
     public void removeAllReference(){
-        mReferencedList.clear();
+        Set<ReferenceItem> referencedList = this.mReferencedList;
+        if(referencedList != null){
+            referencedList.clear();
+        }
     }
     public boolean hasReference(){
         ensureStringLinkUnlocked();
-        if(mReferencedList.size() == 0) {
+        Set<ReferenceItem> referencedList = this.mReferencedList;
+        if(referencedList == null || referencedList.size() == 0) {
             return false;
         }
-        return FilterIterator.of(mReferencedList.iterator(),
+        return FilterIterator.of(referencedList.iterator(),
                 referenceItem -> !(referenceItem instanceof StyleItem.StyleIndexReference))
                 .hasNext();
     }
     public int getReferencesSize() {
-        return mReferencedList.size();
+        Set<ReferenceItem> referencedList = this.mReferencedList;
+        if(referencedList != null){
+            return referencedList.size();
+        }
+        return 0;
     }
     public Collection<ReferenceItem> getReferencedList(){
         ensureStringLinkUnlocked();
-        return mReferencedList;
+        Set<ReferenceItem> referencedList = this.mReferencedList;
+        if(referencedList != null){
+            return referencedList;
+        }
+        return Collections.emptySet();
+    }
+    private Set<ReferenceItem> getOrCreateReferencedList(){
+        Set<ReferenceItem> referencedList = this.mReferencedList;
+        if(referencedList == null){
+            referencedList = new HashSet<>();
+            this.mReferencedList = referencedList;
+        }
+        return referencedList;
     }
     void ensureStringLinkUnlocked(){
         StringPool<?> stringPool = getParentInstance(StringPool.class);
@@ -112,12 +142,12 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
     }
     public void addReference(ReferenceItem ref){
         if(ref!=null){
-            mReferencedList.add(ref);
+            getOrCreateReferencedList().add(ref);
         }
     }
     public void addReferenceIfAbsent(ReferenceItem ref){
         if(ref!=null){
-            mReferencedList.add(ref);
+            getOrCreateReferencedList().add(ref);
         }
     }
     public void addReference(Collection<ReferenceItem> refList){
@@ -126,12 +156,16 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
         }
         for(ReferenceItem ref:refList){
             if(ref != null){
-                this.mReferencedList.add(ref);
+                getOrCreateReferencedList().add(ref);
             }
         }
     }
     private void reUpdateReferences(int newIndex){
-        ReferenceItem[] referenceItems = mReferencedList.toArray(new ReferenceItem[0]);
+        Set<ReferenceItem> referencedList = this.mReferencedList;
+        if(referencedList == null){
+            return;
+        }
+        ReferenceItem[] referenceItems = referencedList.toArray(new ReferenceItem[0]);
         for(ReferenceItem ref:referenceItems){
             ref.set(newIndex);
         }
@@ -249,11 +283,96 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
         if(utf8 == mUtf8){
             return;
         }
+        String text = null;
+        if(countBytes() != 0){
+            text = get();
+        }
         mUtf8 = utf8;
-        onBytesChanged();
+        if(text == null){
+            onBytesChanged();
+        }else {
+            setBytesInternal(encodeString(text), false);
+        }
+    }
+    /**
+     * Points this item to its bytes inside a buffer shared by the whole pool, the string is
+     * decoded on first access and the bytes are copied out only when they are requested
+     * or modified.
+     * @return the end offset of this string in the buffer
+     * */
+    public int linkSharedBytesInternal(byte[] buffer, int offset, int limit){
+        super.setBytesInternal(null, false);
+        mSharedBuffer = null;
+        if(limit - offset < 4){
+            return offset;
+        }
+        int[] lengthResult;
+        int add;
+        if(isUtf8()){
+            lengthResult = decodeUtf8StringByteLength(buffer, offset);
+            add = 1;
+        }else {
+            lengthResult = decodeUtf16StringByteLength(buffer, offset);
+            add = 2;
+        }
+        int end = lengthResult[0] + lengthResult[1] + add;
+        if(end > limit || end < offset){
+            end = limit;
+        }
+        mSharedBuffer = buffer;
+        mSharedOffset = offset;
+        mSharedLength = end - offset;
+        setDecodePending();
+        return end;
+    }
+    private void releaseSharedBytes(){
+        byte[] buffer = mSharedBuffer;
+        if(buffer == null){
+            return;
+        }
+        mSharedBuffer = null;
+        int offset = mSharedOffset;
+        byte[] bytes = Arrays.copyOfRange(buffer, offset, offset + mSharedLength);
+        super.setBytesInternal(bytes, false);
+    }
+    @Override
+    protected byte[] getBytesInternal() {
+        releaseSharedBytes();
+        return super.getBytesInternal();
+    }
+    @Override
+    void setBytesInternal(byte[] bytes, boolean notify){
+        mSharedBuffer = null;
+        super.setBytesInternal(bytes, notify);
+    }
+    @Override
+    protected String decodePending(){
+        byte[] buffer = mSharedBuffer;
+        if(buffer != null){
+            return decodeString(buffer, mSharedOffset, mSharedLength, mUtf8);
+        }
+        return super.decodePending();
+    }
+    @Override
+    public int countBytes() {
+        if(mSharedBuffer != null && !isNull()){
+            return mSharedLength;
+        }
+        return super.countBytes();
+    }
+    @Override
+    protected int onWriteBytes(OutputStream stream) throws IOException {
+        byte[] buffer = mSharedBuffer;
+        if(buffer == null || isNull()){
+            return super.onWriteBytes(stream);
+        }
+        int length = mSharedLength;
+        stream.write(buffer, mSharedOffset, length);
+        return length;
     }
     @Override
     public void onReadBytes(BlockReader reader) throws IOException {
+        mSharedBuffer = null;
         if(reader.available() < 4){
             return;
         }
@@ -270,16 +389,19 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
         reader.offset(-4);
         int[] lengthResult;
         if(isUtf8()){
-            lengthResult = decodeUtf8StringByteLength(bytes);
+            lengthResult = decodeUtf8StringByteLength(bytes, 0);
         }else {
-            lengthResult = decodeUtf16StringByteLength(bytes);
+            lengthResult = decodeUtf16StringByteLength(bytes, 0);
         }
         int add = isUtf8()? 1:2;
         return lengthResult[0] + lengthResult[1] + add;
     }
     @Override
     protected String decodeString(byte[] bytes){
-        return decodeString(bytes, mUtf8);
+        if(bytes == null){
+            return null;
+        }
+        return decodeString(bytes, 0, bytes.length, mUtf8);
     }
     @Override
     protected byte[] encodeString(String str){
@@ -289,45 +411,124 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
             return encodeUtf16ToBytes(str);
         }
     }
-    private String decodeString(byte[] allStringBytes, boolean isUtf8) {
-        if(isNullBytes(allStringBytes)){
-            if(allStringBytes==null||allStringBytes.length==0){
+    /**
+     * Decodes the string whose length prefix starts at the given absolute position,
+     * for read only views that keep no items. The buffer position is not changed.
+     * */
+    public static String decodeString(ByteBuffer buffer, int position, boolean utf8){
+        int available = buffer.limit() - position;
+        if(available < 2){
+            return null;
+        }
+        byte[] prefix = new byte[4];
+        int prefixLength = Math.min(4, available);
+        for(int i = 0; i < prefixLength; i++){
+            prefix[i] = buffer.get(position + i);
+        }
+        int[] offLen;
+        if(utf8){
+            offLen = decodeUtf8StringByteLength(prefix, 0);
+        }else {
+            offLen = decodeUtf16StringByteLength(prefix, 0);
+        }
+        int length = offLen[0] + offLen[1] + (utf8 ? 1 : 2);
+        if(length > available){
+            length = available;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        ((Buffer) duplicate).position(position);
+        duplicate.get(bytes);
+        return decodeString(bytes, 0, length, utf8);
+    }
+    private static String decodeString(byte[] allStringBytes, int start, int length, boolean isUtf8) {
+        if(isNullBytes(allStringBytes, start, length)){
+            if(length == 0){
                 return null;
             }
             return "";
         }
         int[] offLen;
         if(isUtf8){
-            offLen=decodeUtf8StringByteLength(allStringBytes);
+            offLen=decodeUtf8StringByteLength(allStringBytes, start);
         }else {
-            offLen=decodeUtf16StringByteLength(allStringBytes);
+            offLen=decodeUtf16StringByteLength(allStringBytes, start);
         }
-        CharsetDecoder charsetDecoder;
-        if(isUtf8){
-            charsetDecoder=UTF8_DECODER;
-        }else {
-            charsetDecoder=UTF16LE_DECODER;
+        int offset = offLen[0];
+        int byteLength = offLen[1];
+        if(!isUtf8){
+            // malformed pairs become U+FFFD, same as a reporting decoder followed by fallback
+            return new String(allStringBytes, offset, byteLength, StandardCharsets.UTF_16LE);
         }
-        try {
-            ByteBuffer buf=ByteBuffer.wrap(allStringBytes, offLen[0], offLen[1]);
-            CharBuffer charBuffer=charsetDecoder.decode(buf);
-            return charBuffer.toString();
-        } catch (CharacterCodingException ex) {
-            if(isUtf8){
-                return tryThreeByteDecoder(allStringBytes, offLen[0], offLen[1]);
-            }
-            return new String(allStringBytes, offLen[0], offLen[1], StandardCharsets.UTF_16LE);
+        if(isStandardUtf8(allStringBytes, offset, byteLength)){
+            return new String(allStringBytes, offset, byteLength, StandardCharsets.UTF_8);
         }
+        return tryThreeByteDecoder(allStringBytes, offset, byteLength);
     }
-    private String tryThreeByteDecoder(byte[] bytes, int offset, int length){
+    private static String tryThreeByteDecoder(byte[] bytes, int offset, int length){
+        // decoders keep state, a new instance keeps concurrent decoding safe on this rare path
         try {
             ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, offset, length);
-            CharBuffer charBuffer = DECODER_3B.decode(byteBuffer);
+            CharBuffer charBuffer = new ThreeByteCharsetDecoder().decode(byteBuffer);
             return charBuffer.toString();
         } catch (CharacterCodingException e) {
             return new String(bytes, offset, length, StandardCharsets.UTF_8);
         }
     }
+    /**
+     * Accepts exactly what a reporting UTF-8 CharsetDecoder accepts, i.e. no overlong forms,
+     * surrogates or code points above U+10FFFF
+     * */
+    private static boolean isStandardUtf8(byte[] bytes, int offset, int length){
+        int i = offset;
+        int end = offset + length;
+        if(i < 0 || end > bytes.length){
+            return false;
+        }
+        while (i < end){
+            int b1 = bytes[i] & 0xff;
+            if(b1 < 0x80){
+                i ++;
+                continue;
+            }
+            int count;
+            int min = 0x80;
+            int max = 0xbf;
+            if(b1 >= 0xc2 && b1 <= 0xdf){
+                count = 1;
+            }else if(b1 >= 0xe0 && b1 <= 0xef){
+                count = 2;
+                if(b1 == 0xe0){
+                    min = 0xa0;
+                }else if(b1 == 0xed){
+                    max = 0x9f;
+                }
+            }else if(b1 >= 0xf0 && b1 <= 0xf4){
+                count = 3;
+                if(b1 == 0xf0){
+                    min = 0x90;
+                }else if(b1 == 0xf4){
+                    max = 0x8f;
+                }
+            }else {
+                return false;
+            }
+            if(i + count >= end){
+                return false;
+            }
+            int b2 = bytes[i + 1] & 0xff;
+            if(b2 < min || b2 > max){
+                return false;
+            }
+            for(int k = 2; k <= count; k++){
+                if((bytes[i + k] & 0xc0) != 0x80){
+                    return false;
+                }
+            }
+            i += count + 1;
+        }
+        return true;
+    }
     public boolean hasStyle(){
         StyleItem styleItem=getStyle();
         if(styleItem==null){
@@ -467,8 +668,8 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
         return getIndex() + ":" + xml;
     }
 
-    private static int[] decodeUtf8StringByteLength(byte[] lengthBytes) {
-        int offset=0;
+    private static int[] decodeUtf8StringByteLength(byte[] lengthBytes, int start) {
+        int offset = start;
         int val = lengthBytes[offset];
         int length;
         if ((val & 0x80) != 0) {
@@ -489,26 +690,29 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
         }
         return new int[] { offset, length};
     }
-    private static int[] decodeUtf16StringByteLength(byte[] lengthBytes) {
-        int val = ((lengthBytes[1] & 0xFF) << 8 | lengthBytes[0] & 0xFF);
+    private static int[] decodeUtf16StringByteLength(byte[] lengthBytes, int start) {
+        int val = ((lengthBytes[start + 1] & 0xFF) << 8 | lengthBytes[start] & 0xFF);
         if ((val & 0x8000) != 0) {
-            int high = (lengthBytes[3] & 0xFF) << 8;
-            int low = (lengthBytes[2] & 0xFF);
+            int high = (lengthBytes[start + 3] & 0xFF) << 8;
+            int low = (lengthBytes[start + 2] & 0xFF);
             int len_value =  ((val & 0x7FFF) << 16) + (high + low);
-            return new int[] {4, len_value * 2};
+            return new int[] {start + 4, len_value * 2};
 
         }
-        return new int[] {2, val * 2};
+        return new int[] {start + 2, val * 2};
     }
     static boolean isNullBytes(byte[] bts){
         if(bts==null){
             return true;
         }
-        int max=bts.length;
-        if(max<2){
+        return isNullBytes(bts, 0, bts.length);
+    }
+    private static boolean isNullBytes(byte[] bts, int start, int length){
+        if(length<2){
             return true;
         }
-        for(int i=2; i<max;i++){
+        int max = start + length;
+        for(int i = start + 2; i<max;i++){
             if(bts[i] != 0){
                 return false;
             }
@@ -602,8 +806,6 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
         return result;
     }
 
-    private static final CharsetDecoder UTF16LE_DECODER = StandardCharsets.UTF_16LE.newDecoder();
-    private static final CharsetDecoder DECODER_3B = ThreeByteCharsetDecoder.INSTANCE;
 
     public static final String NAME_string = ObjectsUtil.of("string");
     public static final String NAME_style = ObjectsUtil.of("style");
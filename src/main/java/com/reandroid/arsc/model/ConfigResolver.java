@@ -0,0 +1,266 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.reandroid.arsc.model;
+
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.chunk.TypeBlock;
+import com.reandroid.arsc.container.SpecTypePair;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.arsc.value.ResConfig;
+import com.reandroid.arsc.value.ResConfigMatcher;
+import com.reandroid.arsc.value.ResValue;
+import com.reandroid.arsc.value.ValueType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the entry the Android runtime would pick for a given device configuration, i.e.
+ * the AOSP best-match (ResTable_config::match and isBetterThan) over every config of a type.
+ * The configs of each type are packed once on creation; per device configuration the
+ * matching configs and their ranking are computed on first use of a type and cached, as
+ * AssetManager2 does with its filtered config lists.
+ * Use {@link #forConfig(ResConfig)} and keep the returned {@link DeviceResolver} for bulk
+ * lookups, its queries do not allocate.
+ * The resolver does not follow later changes, see {@link TableBlock#getConfigResolver()}.
+ * */
+public class ConfigResolver {
+
+    private final ResourceIdIndex resourceIdIndex;
+    private final Map<PackageBlock, CompiledType[]> packageMap;
+    private final int typesCount;
+    private final Map<ResConfig, DeviceResolver> deviceMap;
+
+    public ConfigResolver(TableBlock tableBlock){
+        this.resourceIdIndex = tableBlock.getResourceIdIndex();
+        Map<PackageBlock, CompiledType[]> packageMap = new IdentityHashMap<>();
+        int ordinal = 0;
+        Iterator<PackageBlock> iterator = tableBlock.getAllPackages();
+        while (iterator.hasNext()){
+            PackageBlock packageBlock = iterator.next();
+            if(packageMap.containsKey(packageBlock)){
+                continue;
+            }
+            CompiledType[] types = new CompiledType[256];
+            for(SpecTypePair specTypePair : packageBlock.listSpecTypePairs()){
+                types[specTypePair.getId() & 0xff] = new CompiledType(ordinal, specTypePair);
+                ordinal ++;
+            }
+            packageMap.put(packageBlock, types);
+        }
+        this.packageMap = packageMap;
+        this.typesCount = ordinal;
+        this.deviceMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the cached resolver for the given device configuration, later changes to
+     * config are not reflected.
+     * */
+    public DeviceResolver forConfig(ResConfig config){
+        DeviceResolver resolver = deviceMap.get(config);
+        if(resolver == null){
+            ResConfig copy = new ResConfig();
+            copy.copyFrom(config);
+            resolver = new DeviceResolver(this, copy);
+            DeviceResolver exist = deviceMap.putIfAbsent(copy, resolver);
+            if(exist != null){
+                resolver = exist;
+            }
+        }
+        return resolver;
+    }
+    public Entry resolve(int resourceId, ResConfig config){
+        return forConfig(config).resolve(resourceId);
+    }
+    public Entry resolveReference(int resourceId, ResConfig config){
+        return forConfig(config).resolveReference(resourceId);
+    }
+    public int getCachedConfigsCount(){
+        return deviceMap.size();
+    }
+    public void clearCache(){
+        deviceMap.clear();
+    }
+
+    CompiledType getType(PackageBlock packageBlock, int typeId){
+        CompiledType[] types = packageMap.get(packageBlock);
+        if(types == null){
+            return null;
+        }
+        return types[typeId];
+    }
+    @Override
+    public String toString(){
+        return getClass().getSimpleName() + ": types = " + typesCount
+                + ", configs = " + getCachedConfigsCount();
+    }
+
+    public static class DeviceResolver {
+        private final ConfigResolver configResolver;
+        private final ResConfig config;
+        private final int[] requested;
+        private final FilteredType[] filteredTypes;
+
+        DeviceResolver(ConfigResolver configResolver, ResConfig config){
+            this.configResolver = configResolver;
+            this.config = config;
+            this.requested = ResConfigMatcher.packRequested(config);
+            this.filteredTypes = new FilteredType[configResolver.typesCount];
+        }
+
+        public ResConfig getConfig() {
+            return config;
+        }
+        /**
+         * Returns the best matching entry of the resource, or null if none of its configs
+         * match. Staged resource ids resolve to their finalized id.
+         * */
+        public Entry resolve(int resourceId){
+            ConfigResolver configResolver = this.configResolver;
+            ResourceIdIndex resourceIdIndex = configResolver.resourceIdIndex;
+            int id = resourceIdIndex.resolve(resourceId);
+            if(id == 0){
+                return null;
+            }
+            CompiledType compiledType = configResolver.getType(
+                    resourceIdIndex.getPackageBlock(resourceId), (id >>> 16) & 0xff);
+            if(compiledType == null){
+                return null;
+            }
+            FilteredType filteredType = getFilteredType(compiledType);
+            TypeBlock[] typeBlocks = compiledType.typeBlocks;
+            int[] candidates = filteredType.candidates;
+            int entryId = id & 0xffff;
+            int best = -1;
+            Entry result = null;
+            int length = candidates.length;
+            for(int i = 0; i < length; i++){
+                Entry entry = typeBlocks[candidates[i]].getEntry(entryId);
+                if(entry == null || entry.isNull()){
+                    continue;
+                }
+                if(best < 0 || filteredType.isBetter(i, best)){
+                    best = i;
+                    result = entry;
+                }
+            }
+            return result;
+        }
+        /**
+         * Same as {@link #resolve(int)} but follows reference values to the final entry.
+         * Returns null if any link of the chain does not resolve or the chain is deeper
+         * than {@link #MAX_REFERENCE_DEPTH} links (e.g. circular references).
+         * */
+        public Entry resolveReference(int resourceId){
+            Entry entry = resolve(resourceId);
+            int depth = 0;
+            while (entry != null){
+                if(entry.isComplex()){
+                    return entry;
+                }
+                ResValue resValue = entry.getResValue();
+                if(resValue == null || resValue.getValueType() != ValueType.REFERENCE
+                        || resValue.getData() == 0){
+                    return entry;
+                }
+                if(depth == MAX_REFERENCE_DEPTH){
+                    return null;
+                }
+                entry = resolve(resValue.getData());
+                depth ++;
+            }
+            return null;
+        }
+        private FilteredType getFilteredType(CompiledType compiledType){
+            FilteredType filteredType = filteredTypes[compiledType.ordinal];
+            if(filteredType == null){
+                filteredType = new FilteredType(compiledType, requested);
+                filteredTypes[compiledType.ordinal] = filteredType;
+            }
+            return filteredType;
+        }
+        @Override
+        public String toString(){
+            return getClass().getSimpleName() + ": " + config;
+        }
+    }
+
+    static class CompiledType {
+        final int ordinal;
+        final TypeBlock[] typeBlocks;
+        final int[] keys;
+
+        CompiledType(int ordinal, SpecTypePair specTypePair){
+            this.ordinal = ordinal;
+            List<TypeBlock> typeBlockList = new ArrayList<>();
+            Iterator<TypeBlock> iterator = specTypePair.getTypeBlocks();
+            while (iterator.hasNext()){
+                typeBlockList.add(iterator.next());
+            }
+            int length = typeBlockList.size();
+            TypeBlock[] typeBlocks = typeBlockList.toArray(new TypeBlock[length]);
+            int[] keys = new int[length * ResConfigMatcher.KEY_SIZE];
+            for(int i = 0; i < length; i++){
+                ResConfigMatcher.pack(typeBlocks[i].getResConfig(), keys,
+                        i * ResConfigMatcher.KEY_SIZE);
+            }
+            this.typeBlocks = typeBlocks;
+            this.keys = keys;
+        }
+    }
+    static class FilteredType {
+        // indexes of matching configs, in file order
+        final int[] candidates;
+        // bit (i * length + j) is set if candidates[i] is better than candidates[j]
+        private final long[] betterBits;
+
+        FilteredType(CompiledType compiledType, int[] requested){
+            int[] keys = compiledType.keys;
+            int size = ResConfigMatcher.KEY_SIZE;
+            int count = compiledType.typeBlocks.length;
+            int[] candidates = new int[count];
+            int length = 0;
+            for(int i = 0; i < count; i++){
+                if(ResConfigMatcher.match(keys, i * size, requested)){
+                    candidates[length] = i;
+                    length ++;
+                }
+            }
+            candidates = Arrays.copyOf(candidates, length);
+            long[] betterBits = new long[(length * length + 63) >>> 6];
+            for(int i = 0; i < length; i++){
+                int offset = candidates[i] * size;
+                for(int j = 0; j < length; j++){
+                    if(i != j && ResConfigMatcher.isBetterThan(keys, offset,
+                            keys, candidates[j] * size, requested)){
+                        int bit = i * length + j;
+                        betterBits[bit >>> 6] |= 1L << bit;
+                    }
+                }
+            }
+            this.candidates = candidates;
+            this.betterBits = betterBits;
+        }
+        boolean isBetter(int i, int j){
+            int bit = i * candidates.length + j;
+            return (betterBits[bit >>> 6] & (1L << bit)) != 0;
+        }
+    }
+
+    public static final int MAX_REFERENCE_DEPTH = 20;
+}
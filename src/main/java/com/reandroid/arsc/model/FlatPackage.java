@@ -0,0 +1,573 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc.model;
+
+import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.arsc.value.ResConfig;
+import com.reandroid.arsc.value.ResConfigMatcher;
+import com.reandroid.utils.collection.EmptyIterator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Package chunk of a {@link FlatTable}. Entries are indexed by resource in a few int
+ * arrays: for every (type id, entry id) slot, the range of its entries in
+ * {@link #entryOffsets} (absolute position in table buffer) and {@link #entryChunks}
+ * (index of its type chunk, i.e. its config), in file order.
+ * */
+public class FlatPackage implements Iterable<FlatResource> {
+    private final FlatTable flatTable;
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int id;
+    private final String name;
+    private final FlatStringPool typeStrings;
+    private final FlatStringPool keyStrings;
+    private final int typeIdOffset;
+
+    private final int[] specOffsets;
+    private final int[] typeChunks;
+    private final int[] typeChunkStart;
+    private final int[] slotStart;
+    private final int[] resourceStart;
+    private final int[] entryOffsets;
+    private final int[] entryChunks;
+    // (staged id << 32 | finalized id) sorted
+    private final long[] stagedAliases;
+
+    // (name hash << 32 | resource id) sorted, built on first name lookup
+    private volatile long[] nameIndex;
+    // ResConfigMatcher keys of every type chunk, built on first best match
+    private volatile int[] configKeys;
+    private ResConfig[] resConfigs;
+
+    FlatPackage(FlatTable flatTable, ByteBuffer buffer, int offset) throws IOException {
+        this.flatTable = flatTable;
+        this.buffer = buffer;
+        this.offset = offset;
+        int headerSize = buffer.getShort(offset + 2) & 0xffff;
+        int end = offset + buffer.getInt(offset + 4);
+        this.id = buffer.getInt(offset + 8);
+        this.name = readName(buffer, offset + 12);
+        this.typeStrings = new FlatStringPool(buffer, childOffset(buffer, offset, 268));
+        this.keyStrings = new FlatStringPool(buffer, childOffset(buffer, offset, 276));
+        this.typeIdOffset = headerSize >= 288 ? buffer.getInt(offset + 284) : 0;
+
+        int[] specOffsets = new int[256];
+        int[] slotsCount = new int[256];
+        int[] chunksCount = new int[257];
+        int[] allChunks = new int[64];
+        int allChunksCount = 0;
+        long[] stagedAliases = new long[0];
+        int position = offset + headerSize;
+        while (position + 8 <= end){
+            int type = buffer.getShort(position) & 0xffff;
+            int size = buffer.getInt(position + 4);
+            if(size < 8 || position + size > end){
+                throw new IOException("Invalid chunk at " + position + ", size = " + size);
+            }
+            if(type == TYPE_SPEC){
+                int typeId = buffer.get(position + 8) & 0xff;
+                specOffsets[typeId] = position;
+                slotsCount[typeId] = Math.max(slotsCount[typeId], buffer.getInt(position + 12));
+            }else if(type == TYPE_TYPE){
+                int typeId = buffer.get(position + 8) & 0xff;
+                chunksCount[typeId + 1] ++;
+                slotsCount[typeId] = Math.max(slotsCount[typeId], countSlots(buffer, position));
+                if(allChunksCount == allChunks.length){
+                    allChunks = Arrays.copyOf(allChunks, allChunksCount * 2);
+                }
+                allChunks[allChunksCount] = position;
+                allChunksCount ++;
+            }else if(type == TYPE_STAGED_ALIAS){
+                stagedAliases = readStagedAliases(buffer, position, stagedAliases);
+            }
+            position += size;
+        }
+        int[] typeChunkStart = chunksCount;
+        int[] slotStart = new int[257];
+        for(int i = 0; i < 256; i++){
+            typeChunkStart[i + 1] += typeChunkStart[i];
+            slotStart[i + 1] = slotStart[i] + slotsCount[i];
+        }
+        int[] typeChunks = new int[allChunksCount];
+        int[] cursor = Arrays.copyOf(typeChunkStart, 256);
+        for(int i = 0; i < allChunksCount; i++){
+            int chunk = allChunks[i];
+            typeChunks[cursor[buffer.get(chunk + 8) & 0xff] ++] = chunk;
+        }
+        int[] resourceStart = new int[slotStart[256] + 1];
+        for(int i = 0; i < allChunksCount; i++){
+            scanEntries(buffer, typeChunks[i], i, slotStart, resourceStart, null, null);
+        }
+        int length = resourceStart.length;
+        for(int i = 1; i < length; i++){
+            resourceStart[i] += resourceStart[i - 1];
+        }
+        int[] entryOffsets = new int[resourceStart[length - 1]];
+        int[] entryChunks = new int[entryOffsets.length];
+        cursor = Arrays.copyOf(resourceStart, length);
+        for(int i = 0; i < allChunksCount; i++){
+            scanEntries(buffer, typeChunks[i], i, slotStart, cursor, entryOffsets, entryChunks);
+        }
+        this.specOffsets = specOffsets;
+        this.typeChunks = typeChunks;
+        this.typeChunkStart = typeChunkStart;
+        this.slotStart = slotStart;
+        this.resourceStart = resourceStart;
+        this.entryOffsets = entryOffsets;
+        this.entryChunks = entryChunks;
+        Arrays.sort(stagedAliases);
+        this.stagedAliases = stagedAliases;
+    }
+
+    public FlatTable getFlatTable() {
+        return flatTable;
+    }
+    public int getId() {
+        return id;
+    }
+    public String getName() {
+        return name;
+    }
+    public String getTypeName(int typeId){
+        return typeStrings.get(typeId - 1 - typeIdOffset);
+    }
+    public int getTypeId(String typeName){
+        int index = typeStrings.indexOf(typeName);
+        if(index < 0){
+            return 0;
+        }
+        return index + 1 + typeIdOffset;
+    }
+    /**
+     * Same as {@link com.reandroid.arsc.chunk.PackageBlock#getResource(int)}, a staged id
+     * not found in this package resolves through the staged aliases of this package
+     * */
+    public FlatResource getResource(int resourceId){
+        FlatResource resource = findResource(resourceId);
+        if(resource != null){
+            return resource;
+        }
+        int finalized = resolveStagedAlias(resourceId);
+        if(finalized == 0 || finalized == resourceId){
+            return null;
+        }
+        return findResource(finalized);
+    }
+    /**
+     * Returns the finalized id of the given staged id or zero
+     * */
+    public int resolveStagedAlias(int stagedId){
+        long[] stagedAliases = this.stagedAliases;
+        long key = ((long) stagedId) << 32;
+        int i = Arrays.binarySearch(stagedAliases, key);
+        if(i < 0){
+            i = -(i + 1);
+        }
+        if(i < stagedAliases.length && (stagedAliases[i] >> 32) == stagedId){
+            return (int) stagedAliases[i];
+        }
+        return 0;
+    }
+    private FlatResource findResource(int resourceId){
+        if(((resourceId >>> 24) & 0xff) != id){
+            return null;
+        }
+        int typeId = (resourceId >>> 16) & 0xff;
+        int entryId = resourceId & 0xffff;
+        int slot = slotStart[typeId] + entryId;
+        if(slot >= slotStart[typeId + 1] || resourceStart[slot] == resourceStart[slot + 1]){
+            return null;
+        }
+        return new FlatResource(this, resourceId, slot);
+    }
+    public FlatResource getResource(String type, String name){
+        if(type == null || name == null){
+            return null;
+        }
+        int typeId = getTypeId(type);
+        if(typeId == 0){
+            return null;
+        }
+        long[] nameIndex = getNameIndex();
+        long hash = name.hashCode();
+        int i = Arrays.binarySearch(nameIndex, hash << 32);
+        if(i < 0){
+            i = -(i + 1);
+        }
+        int length = nameIndex.length;
+        while (i < length && (nameIndex[i] >> 32) == hash){
+            int resourceId = (int) nameIndex[i];
+            if(((resourceId >>> 16) & 0xff) == typeId){
+                FlatResource resource = findResource(resourceId);
+                if(resource != null && name.equals(resource.getName())){
+                    return resource;
+                }
+            }
+            i ++;
+        }
+        return null;
+    }
+    /**
+     * Iterates resources having at least one entry, in type id and entry id order
+     * */
+    @Override
+    public Iterator<FlatResource> iterator(){
+        if(entryOffsets.length == 0){
+            return EmptyIterator.of();
+        }
+        return new Iterator<FlatResource>() {
+            private int typeId;
+            private int slot = nextSlot(-1);
+            @Override
+            public boolean hasNext() {
+                return slot >= 0;
+            }
+            @Override
+            public FlatResource next() {
+                int slot = this.slot;
+                if(slot < 0){
+                    throw new NoSuchElementException();
+                }
+                while (slot >= slotStart[typeId + 1]){
+                    typeId ++;
+                }
+                this.slot = nextSlot(slot);
+                int resourceId = (id << 24) | (typeId << 16) | (slot - slotStart[typeId]);
+                return new FlatResource(FlatPackage.this, resourceId, slot);
+            }
+        };
+    }
+    public Iterator<FlatResource> getResources(){
+        return iterator();
+    }
+    public int getResourcesCount(){
+        int result = 0;
+        int[] resourceStart = this.resourceStart;
+        int length = resourceStart.length - 1;
+        for(int i = 0; i < length; i++){
+            if(resourceStart[i] != resourceStart[i + 1]){
+                result ++;
+            }
+        }
+        return result;
+    }
+    public int getEntriesCount(){
+        return entryOffsets.length;
+    }
+    public int getTypeChunksCount(){
+        return typeChunks.length;
+    }
+    public int getConfigsCount(int typeId){
+        return typeChunkStart[typeId + 1] - typeChunkStart[typeId];
+    }
+    private int nextSlot(int slot){
+        int[] resourceStart = this.resourceStart;
+        int length = resourceStart.length - 1;
+        for(int i = slot + 1; i < length; i++){
+            if(resourceStart[i] != resourceStart[i + 1]){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int getStart(int slot){
+        return resourceStart[slot];
+    }
+    int getEnd(int slot){
+        return resourceStart[slot + 1];
+    }
+    int getEntryOffset(int index){
+        return entryOffsets[index];
+    }
+    int getChunkIndex(int index){
+        return entryChunks[index];
+    }
+    int getChunkOffset(int chunkIndex){
+        return typeChunks[chunkIndex];
+    }
+    int getSpecOffset(int typeId){
+        return specOffsets[typeId];
+    }
+    int getTypeIdOffset(){
+        return typeIdOffset;
+    }
+    int getOffset(){
+        return offset;
+    }
+    FlatStringPool getTypeStrings(){
+        return typeStrings;
+    }
+    FlatStringPool getKeyStrings(){
+        return keyStrings;
+    }
+    String getKey(int index){
+        int entry = entryOffsets[index];
+        int key;
+        if(isCompact(entry)){
+            key = buffer.getShort(entry) & 0xffff;
+        }else {
+            key = buffer.getInt(entry + 4);
+        }
+        return keyStrings.get(key);
+    }
+    boolean isComplex(int index){
+        return (buffer.getShort(entryOffsets[index] + 2) & FLAG_COMPLEX) != 0;
+    }
+    /**
+     * Value type byte of simple entry, or -1 for complex
+     * */
+    int getValueType(int index){
+        int entry = entryOffsets[index];
+        int flags = buffer.getShort(entry + 2) & 0xffff;
+        if((flags & FLAG_COMPLEX) != 0){
+            return -1;
+        }
+        if((flags & FLAG_COMPACT) != 0){
+            return flags >>> 8;
+        }
+        int value = entry + (buffer.getShort(entry) & 0xffff);
+        return buffer.get(value + 3) & 0xff;
+    }
+    int getData(int index){
+        int entry = entryOffsets[index];
+        int flags = buffer.getShort(entry + 2) & 0xffff;
+        if((flags & FLAG_COMPACT) != 0){
+            return buffer.getInt(entry + 4);
+        }
+        if((flags & FLAG_COMPLEX) != 0){
+            // parent of bag
+            return buffer.getInt(entry + 8);
+        }
+        int value = entry + (buffer.getShort(entry) & 0xffff);
+        return buffer.getInt(value + 4);
+    }
+    private boolean isCompact(int entry){
+        return (buffer.getShort(entry + 2) & FLAG_COMPACT) != 0;
+    }
+    synchronized ResConfig getResConfig(int chunkIndex){
+        ResConfig[] resConfigs = this.resConfigs;
+        if(resConfigs == null){
+            resConfigs = new ResConfig[typeChunks.length];
+            this.resConfigs = resConfigs;
+        }
+        ResConfig resConfig = resConfigs[chunkIndex];
+        if(resConfig == null){
+            resConfig = readResConfig(typeChunks[chunkIndex]);
+            resConfigs[chunkIndex] = resConfig;
+        }
+        return resConfig;
+    }
+    private ResConfig readResConfig(int chunk){
+        int start = chunk + 20;
+        int size = buffer.getInt(start);
+        ResConfig resConfig = new ResConfig();
+        try {
+            resConfig.readBytes(new BlockReader(buffer, start, size));
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+        return resConfig;
+    }
+    int[] getConfigKeys(){
+        int[] configKeys = this.configKeys;
+        if(configKeys == null){
+            int length = typeChunks.length;
+            int size = ResConfigMatcher.KEY_SIZE;
+            configKeys = new int[length * size];
+            for(int i = 0; i < length; i++){
+                ResConfigMatcher.pack(getResConfig(i), configKeys, i * size);
+            }
+            this.configKeys = configKeys;
+        }
+        return configKeys;
+    }
+    private long[] getNameIndex(){
+        long[] nameIndex = this.nameIndex;
+        if(nameIndex == null){
+            int[] resourceStart = this.resourceStart;
+            int count = getResourcesCount();
+            nameIndex = new long[count];
+            int i = 0;
+            int slot = nextSlot(-1);
+            int typeId = 0;
+            while (slot >= 0){
+                while (slot >= slotStart[typeId + 1]){
+                    typeId ++;
+                }
+                String key = getKey(resourceStart[slot]);
+                long hash = key == null ? 0 : key.hashCode();
+                int resourceId = (id << 24) | (typeId << 16) | (slot - slotStart[typeId]);
+                nameIndex[i] = (hash << 32) | (resourceId & 0xffffffffL);
+                i ++;
+                slot = nextSlot(slot);
+            }
+            Arrays.sort(nameIndex);
+            this.nameIndex = nameIndex;
+        }
+        return nameIndex;
+    }
+    @Override
+    public String toString(){
+        return getClass().getSimpleName() + ": " + String.format("0x%02x", id)
+                + " " + name + ", entries = " + getEntriesCount();
+    }
+
+    private static int childOffset(ByteBuffer buffer, int offset, int field){
+        int value = buffer.getInt(offset + field);
+        if(value == 0){
+            return -1;
+        }
+        return offset + value;
+    }
+    private static String readName(ByteBuffer buffer, int start){
+        byte[] bytes = new byte[256];
+        int length = 0;
+        while (length < 256){
+            byte b1 = buffer.get(start + length);
+            byte b2 = buffer.get(start + length + 1);
+            if(b1 == 0 && b2 == 0){
+                break;
+            }
+            bytes[length] = b1;
+            bytes[length + 1] = b2;
+            length += 2;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_16LE);
+    }
+    private static long[] readStagedAliases(ByteBuffer buffer, int chunk, long[] stagedAliases){
+        int count = buffer.getInt(chunk + 8);
+        int start = chunk + (buffer.getShort(chunk + 2) & 0xffff);
+        int length = stagedAliases.length;
+        stagedAliases = Arrays.copyOf(stagedAliases, length + count);
+        for(int i = 0; i < count; i++){
+            int position = start + i * 8;
+            long staged = buffer.getInt(position);
+            long finalized = buffer.getInt(position + 4) & 0xffffffffL;
+            stagedAliases[length + i] = (staged << 32) | finalized;
+        }
+        return stagedAliases;
+    }
+    private static int countSlots(ByteBuffer buffer, int chunk){
+        int count = buffer.getInt(chunk + 12);
+        if((buffer.get(chunk + 9) & FLAG_SPARSE) == 0){
+            return count;
+        }
+        int offsets = chunk + (buffer.getShort(chunk + 2) & 0xffff);
+        int result = 0;
+        for(int i = 0; i < count; i++){
+            int value = buffer.getInt(offsets + i * 4);
+            if(value == NO_ENTRY){
+                continue;
+            }
+            int entryId = value & 0xffff;
+            if(entryId >= result){
+                result = entryId + 1;
+            }
+        }
+        return result;
+    }
+    /**
+     * Counts entries per slot in to positions[slot + 1] if entryOffsets is null,
+     * otherwise fills entries at positions[slot] and advances it
+     * */
+    private static void scanEntries(ByteBuffer buffer, int chunk, int chunkIndex, int[] slotStart,
+                                    int[] positions, int[] entryOffsets, int[] entryChunks){
+        int typeId = buffer.get(chunk + 8) & 0xff;
+        int flags = buffer.get(chunk + 9) & 0xff;
+        int count = buffer.getInt(chunk + 12);
+        int entriesStart = chunk + buffer.getInt(chunk + 16);
+        int offsets = chunk + (buffer.getShort(chunk + 2) & 0xffff);
+        int base = slotStart[typeId];
+        int lastSparseId = -1;
+        BitSet sparseIds = null;
+        for(int i = 0; i < count; i++){
+            int entryId;
+            int entryOffset;
+            if((flags & FLAG_SPARSE) != 0){
+                int value = buffer.getInt(offsets + i * 4);
+                if(value == NO_ENTRY){
+                    continue;
+                }
+                entryId = value & 0xffff;
+                // same as SparseOffsetsArray: any order, the first of a repeated id wins
+                if(entryId <= lastSparseId){
+                    if(sparseIds == null){
+                        sparseIds = sparseIdsBefore(buffer, offsets, i);
+                    }
+                    if(sparseIds.get(entryId)){
+                        continue;
+                    }
+                }else {
+                    lastSparseId = entryId;
+                }
+                if(sparseIds != null){
+                    sparseIds.set(entryId);
+                }
+                entryOffset = ((value >>> 16) & 0xffff) * 4;
+            }else if((flags & FLAG_OFFSET16) != 0){
+                int value = buffer.getShort(offsets + i * 2) & 0xffff;
+                if(value == 0xffff){
+                    continue;
+                }
+                entryId = i;
+                entryOffset = value * 4;
+            }else {
+                entryOffset = buffer.getInt(offsets + i * 4);
+                if(entryOffset == NO_ENTRY){
+                    continue;
+                }
+                entryId = i;
+            }
+            int slot = base + entryId;
+            if(entryOffsets == null){
+                positions[slot + 1] ++;
+            }else {
+                int position = positions[slot];
+                positions[slot] = position + 1;
+                entryOffsets[position] = entriesStart + entryOffset;
+                entryChunks[position] = chunkIndex;
+            }
+        }
+    }
+    private static BitSet sparseIdsBefore(ByteBuffer buffer, int offsets, int end){
+        BitSet bitSet = new BitSet();
+        for(int i = 0; i < end; i++){
+            int value = buffer.getInt(offsets + i * 4);
+            if(value != NO_ENTRY){
+                bitSet.set(value & 0xffff);
+            }
+        }
+        return bitSet;
+    }
+
+    private static final int TYPE_TYPE = 0x0201;
+    private static final int TYPE_SPEC = 0x0202;
+    private static final int TYPE_STAGED_ALIAS = 0x0206;
+    private static final int NO_ENTRY = 0xFFFFFFFF;
+    private static final int FLAG_SPARSE = 0x01;
+    private static final int FLAG_OFFSET16 = 0x02;
+    private static final int FLAG_COMPLEX = 0x0001;
+    private static final int FLAG_COMPACT = 0x0008;
+}
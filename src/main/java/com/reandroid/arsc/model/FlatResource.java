@@ -0,0 +1,253 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc.model;
+
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.arsc.value.ResConfig;
+import com.reandroid.arsc.value.ResConfigMatcher;
+import com.reandroid.arsc.value.ValueType;
+import com.reandroid.utils.HexUtil;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read only counterpart of {@link ResourceEntry} over a {@link FlatTable}. The entries of
+ * the resource are addressed by index, one per config in file order; values are read
+ * directly from the table buffer and a full {@link Entry} is only created by the get
+ * methods and {@link #iterator()}.
+ * */
+public class FlatResource implements Iterable<Entry> {
+    private final FlatPackage flatPackage;
+    private final int resourceId;
+    private final int slot;
+
+    FlatResource(FlatPackage flatPackage, int resourceId, int slot){
+        this.flatPackage = flatPackage;
+        this.resourceId = resourceId;
+        this.slot = slot;
+    }
+
+    public FlatPackage getFlatPackage() {
+        return flatPackage;
+    }
+    public int getResourceId() {
+        return resourceId;
+    }
+    public String getHexId(){
+        return HexUtil.toHex8(getResourceId());
+    }
+    public String getPackageName(){
+        return flatPackage.getName();
+    }
+    public String getType(){
+        return flatPackage.getTypeName((resourceId >>> 16) & 0xff);
+    }
+    public String getName(){
+        return flatPackage.getKey(flatPackage.getStart(slot));
+    }
+    public ResourceName toResourceName() {
+        String name = getName();
+        if(name == null) {
+            return null;
+        }
+        return new ResourceName(getPackageName(), getType(), name);
+    }
+    public int getConfigsCount(){
+        return flatPackage.getEnd(slot) - flatPackage.getStart(slot);
+    }
+    /**
+     * The returned config is shared by all entries of its type chunk, do not modify
+     * */
+    public ResConfig getResConfig(int index){
+        return flatPackage.getResConfig(chunkIndex(index));
+    }
+    public Iterator<ResConfig> getConfigs(){
+        return new Iterator<ResConfig>() {
+            private int index;
+            @Override
+            public boolean hasNext() {
+                return index < getConfigsCount();
+            }
+            @Override
+            public ResConfig next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                ResConfig resConfig = getResConfig(index);
+                index ++;
+                return resConfig;
+            }
+        };
+    }
+    public int indexOf(ResConfig resConfig){
+        int count = getConfigsCount();
+        for(int i = 0; i < count; i++){
+            if(getResConfig(i).equals(resConfig)){
+                return i;
+            }
+        }
+        return -1;
+    }
+    /**
+     * Index of the default config, or the first one if there is none, same choice as
+     * {@link ResourceEntry#get()}
+     * */
+    public int getDefaultIndex(){
+        int count = getConfigsCount();
+        for(int i = 0; i < count; i++){
+            if(getResConfig(i).isDefault()){
+                return i;
+            }
+        }
+        return 0;
+    }
+    /**
+     * Index of the config the Android runtime would pick for the given device
+     * configuration, or -1 if none matches. See {@link ConfigResolver}
+     * */
+    public int getBestMatchIndex(ResConfig deviceConfig){
+        int[] requested = ResConfigMatcher.packRequested(deviceConfig);
+        int[] keys = flatPackage.getConfigKeys();
+        int size = ResConfigMatcher.KEY_SIZE;
+        int best = -1;
+        int count = getConfigsCount();
+        for(int i = 0; i < count; i++){
+            int offset = chunkIndex(i) * size;
+            if(!ResConfigMatcher.match(keys, offset, requested)){
+                continue;
+            }
+            if(best < 0 || ResConfigMatcher.isBetterThan(keys, offset,
+                    keys, chunkIndex(best) * size, requested)){
+                best = i;
+            }
+        }
+        return best;
+    }
+    public boolean isComplex(int index){
+        return flatPackage.isComplex(entryIndex(index));
+    }
+    /**
+     * Value type of simple entry, null for complex entry
+     * */
+    public ValueType getValueType(int index){
+        int type = flatPackage.getValueType(entryIndex(index));
+        if(type < 0){
+            return null;
+        }
+        return ValueType.valueOf((byte) type);
+    }
+    /**
+     * Data of simple entry or the parent id of complex entry
+     * */
+    public int getData(int index){
+        return flatPackage.getData(entryIndex(index));
+    }
+    /**
+     * Table string of a {@link ValueType#STRING} value without style markup, otherwise null
+     * */
+    public String getValueAsString(int index){
+        if(getValueType(index) != ValueType.STRING){
+            return null;
+        }
+        return flatPackage.getFlatTable().getString(getData(index));
+    }
+    public ValueType getValueType(){
+        return getValueType(getDefaultIndex());
+    }
+    public int getData(){
+        return getData(getDefaultIndex());
+    }
+    public String getValueAsString(){
+        return getValueAsString(getDefaultIndex());
+    }
+
+    public Entry get(){
+        return get(getDefaultIndex());
+    }
+    public Entry get(int index){
+        return flatPackage.getFlatTable().materialize(flatPackage,
+                chunkIndex(index), resourceId & 0xffff);
+    }
+    public Entry get(ResConfig resConfig){
+        int index = indexOf(resConfig);
+        if(index < 0){
+            return null;
+        }
+        return get(index);
+    }
+    public Entry get(String qualifiers){
+        return get(ResConfig.parse(qualifiers));
+    }
+    public Entry getBestMatch(ResConfig deviceConfig){
+        int index = getBestMatchIndex(deviceConfig);
+        if(index < 0){
+            return null;
+        }
+        return get(index);
+    }
+    /**
+     * Materializes the type chunks of every config of this resource
+     * */
+    @Override
+    public Iterator<Entry> iterator(){
+        return new Iterator<Entry>() {
+            private int index;
+            @Override
+            public boolean hasNext() {
+                return index < getConfigsCount();
+            }
+            @Override
+            public Entry next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                Entry entry = get(index);
+                index ++;
+                return entry;
+            }
+        };
+    }
+    private int entryIndex(int index){
+        if(index < 0 || index >= getConfigsCount()){
+            throw new IndexOutOfBoundsException("Index = " + index
+                    + ", configs = " + getConfigsCount());
+        }
+        return flatPackage.getStart(slot) + index;
+    }
+    private int chunkIndex(int index){
+        return flatPackage.getChunkIndex(entryIndex(index));
+    }
+    @Override
+    public int hashCode(){
+        return resourceId;
+    }
+    @Override
+    public boolean equals(Object obj) {
+        if(obj == this){
+            return true;
+        }
+        if(!(obj instanceof FlatResource)){
+            return false;
+        }
+        FlatResource resource = (FlatResource) obj;
+        return resourceId == resource.resourceId && flatPackage == resource.flatPackage;
+    }
+    @Override
+    public String toString(){
+        return getHexId() + " @" + getPackageName() + ":" + getType() + "/" + getName();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc.model;
+
+import com.reandroid.arsc.item.StringItem;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Read only string pool chunk over the table buffer of {@link FlatTable}, strings are
+ * decoded on every call and nothing but the chunk position is kept.
+ * */
+class FlatStringPool {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int size;
+    private final int offsetsStart;
+    private final int stringsStart;
+    private final boolean utf8;
+    // (hash << 32 | index) sorted, built on first indexOf
+    private volatile long[] hashIndex;
+
+    FlatStringPool(ByteBuffer buffer, int offset){
+        this.buffer = buffer;
+        this.offset = offset;
+        if(offset < 0){
+            this.size = 0;
+            this.offsetsStart = 0;
+            this.stringsStart = 0;
+            this.utf8 = false;
+            return;
+        }
+        this.size = buffer.getInt(offset + 8);
+        this.offsetsStart = offset + (buffer.getShort(offset + 2) & 0xffff);
+        this.stringsStart = offset + buffer.getInt(offset + 20);
+        this.utf8 = (buffer.getInt(offset + 16) & FLAG_UTF8) != 0;
+    }
+
+    int getOffset(){
+        return offset;
+    }
+    int size(){
+        return size;
+    }
+    String get(int index){
+        if(index < 0 || index >= size){
+            return null;
+        }
+        int position = stringsStart + buffer.getInt(offsetsStart + index * 4);
+        return StringItem.decodeString(buffer, position, utf8);
+    }
+    int indexOf(String str){
+        if(str == null){
+            return -1;
+        }
+        long[] hashIndex = getHashIndex();
+        long hash = str.hashCode();
+        int i = Arrays.binarySearch(hashIndex, hash << 32);
+        if(i < 0){
+            i = -(i + 1);
+        }
+        int length = hashIndex.length;
+        while (i < length && (hashIndex[i] >> 32) == hash){
+            int index = (int) hashIndex[i];
+            if(str.equals(get(index))){
+                return index;
+            }
+            i ++;
+        }
+        return -1;
+    }
+    private long[] getHashIndex(){
+        long[] hashIndex = this.hashIndex;
+        if(hashIndex == null){
+            int size = this.size;
+            hashIndex = new long[size];
+            for(int i = 0; i < size; i++){
+                String str = get(i);
+                long hash = str == null ? 0 : str.hashCode();
+                hashIndex[i] = (hash << 32) | i;
+            }
+            Arrays.sort(hashIndex);
+            this.hashIndex = hashIndex;
+        }
+        return hashIndex;
+    }
+
+    private static final int FLAG_UTF8 = 0x100;
+}
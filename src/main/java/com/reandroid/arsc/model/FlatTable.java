@@ -0,0 +1,309 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc.model;
+
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.chunk.TypeBlock;
+import com.reandroid.arsc.container.SpecTypePair;
+import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.arsc.pool.SpecStringPool;
+import com.reandroid.arsc.pool.TableStringPool;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.utils.collection.ArrayIterator;
+import com.reandroid.utils.collection.EmptyIterator;
+import com.reandroid.utils.collection.IterableIterator;
+import com.reandroid.utils.io.IOUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Read only view of a resources.arsc for lookups over large tables, e.g. frameworks of
+ * several android versions at once. Instead of a block tree, entries are indexed in a few
+ * int arrays per package (see {@link FlatPackage}) over the original buffer, which can be
+ * memory-mapped with {@link #load(File)}; strings are decoded on demand.
+ * A full {@link Entry} is materialized only when requested, its type chunk is then read in
+ * to a skeleton {@link TableBlock} holding just the string pools and the requested type
+ * chunks. Materialized entries are for reading, changes are not reflected in this view.
+ * */
+public class FlatTable implements Iterable<FlatPackage> {
+    private final ByteBuffer buffer;
+    private final FlatStringPool stringPool;
+    private final FlatPackage[] packages;
+
+    private TableBlock mTableBlock;
+    private final Map<FlatPackage, Materialized> mMaterializedMap;
+    private int mMaterializedCount;
+
+    public FlatTable(ByteBuffer buffer) throws IOException {
+        buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int limit = buffer.limit();
+        if(limit < 12 || (buffer.getShort(0) & 0xffff) != TYPE_TABLE){
+            throw new IOException("Not resource table");
+        }
+        int end = buffer.getInt(4);
+        if(end > limit || end < 12){
+            throw new IOException("Invalid table size = " + end + ", available = " + limit);
+        }
+        this.buffer = buffer;
+        int stringPoolOffset = -1;
+        FlatPackage[] packages = new FlatPackage[0];
+        int position = buffer.getShort(2) & 0xffff;
+        while (position + 8 <= end){
+            int type = buffer.getShort(position) & 0xffff;
+            int size = buffer.getInt(position + 4);
+            if(size < 8 || position + size > end){
+                throw new IOException("Invalid chunk at " + position + ", size = " + size);
+            }
+            if(type == TYPE_STRING){
+                if(stringPoolOffset < 0){
+                    stringPoolOffset = position;
+                }
+            }else if(type == TYPE_PACKAGE){
+                int length = packages.length;
+                FlatPackage[] update = new FlatPackage[length + 1];
+                System.arraycopy(packages, 0, update, 0, length);
+                update[length] = new FlatPackage(this, buffer, position);
+                packages = update;
+            }
+            position += size;
+        }
+        this.stringPool = new FlatStringPool(buffer, stringPoolOffset);
+        this.packages = packages;
+        this.mMaterializedMap = new IdentityHashMap<>();
+    }
+
+    public int size(){
+        return packages.length;
+    }
+    public FlatPackage get(int index){
+        return packages[index];
+    }
+    @Override
+    public Iterator<FlatPackage> iterator(){
+        return new ArrayIterator<>(packages);
+    }
+    public FlatPackage pickOne(){
+        if(packages.length == 0){
+            return null;
+        }
+        return packages[0];
+    }
+    public FlatPackage pickOne(int packageId){
+        for(FlatPackage flatPackage : packages){
+            if(flatPackage.getId() == packageId){
+                return flatPackage;
+            }
+        }
+        return null;
+    }
+    public FlatPackage getPackage(String packageName){
+        for(FlatPackage flatPackage : packages){
+            if(flatPackage.getName().equals(packageName)){
+                return flatPackage;
+            }
+        }
+        return null;
+    }
+    public Iterator<FlatResource> getResources(){
+        if(packages.length == 0){
+            return EmptyIterator.of();
+        }
+        return new IterableIterator<FlatPackage, FlatResource>(iterator()) {
+            @Override
+            public Iterator<FlatResource> iterator(FlatPackage element) {
+                return element.iterator();
+            }
+        };
+    }
+    /**
+     * Same resolution as {@link TableBlock#getResource(int)}, packages are searched in order
+     * and each resolves its own staged aliases
+     * */
+    public FlatResource getResource(int resourceId){
+        if(resourceId == 0){
+            return null;
+        }
+        for(FlatPackage flatPackage : packages){
+            FlatResource resource = flatPackage.getResource(resourceId);
+            if(resource != null){
+                return resource;
+            }
+        }
+        return null;
+    }
+    public FlatResource getResource(ResourceName resourceName){
+        return getResource(resourceName.getPackageName(),
+                resourceName.getType(), resourceName.getName());
+    }
+    /**
+     * @param packageName if null, all packages are searched
+     * */
+    public FlatResource getResource(String packageName, String type, String name){
+        for(FlatPackage flatPackage : packages){
+            if(packageName != null && !packageName.equals(flatPackage.getName())){
+                continue;
+            }
+            FlatResource resource = flatPackage.getResource(type, name);
+            if(resource != null){
+                return resource;
+            }
+        }
+        return null;
+    }
+    public String getString(int index){
+        return stringPool.get(index);
+    }
+    public int getStringsCount(){
+        return stringPool.size();
+    }
+    public int getEntriesCount(){
+        int result = 0;
+        for(FlatPackage flatPackage : packages){
+            result += flatPackage.getEntriesCount();
+        }
+        return result;
+    }
+    /**
+     * Number of type chunks read in to the skeleton table so far
+     * */
+    public synchronized int getMaterializedCount(){
+        return mMaterializedCount;
+    }
+
+    synchronized Entry materialize(FlatPackage flatPackage, int chunkIndex, int entryId){
+        try {
+            return getTypeBlock(flatPackage, chunkIndex).getEntry(entryId);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+    private TypeBlock getTypeBlock(FlatPackage flatPackage, int chunkIndex) throws IOException {
+        Materialized materialized = getMaterialized(flatPackage);
+        TypeBlock typeBlock = materialized.typeBlocks[chunkIndex];
+        if(typeBlock != null){
+            return typeBlock;
+        }
+        ByteBuffer buffer = this.buffer;
+        PackageBlock packageBlock = materialized.packageBlock;
+        int chunk = flatPackage.getChunkOffset(chunkIndex);
+        int typeId = buffer.get(chunk + 8) & 0xff;
+        SpecTypePair specTypePair = packageBlock.getSpecTypePairArray().getOrCreate((byte) typeId);
+        int spec = flatPackage.getSpecOffset(typeId);
+        if(spec != 0 && !materialized.specLoaded[typeId]){
+            specTypePair.getSpecBlock().readBytes(createReader(spec));
+            materialized.specLoaded[typeId] = true;
+        }
+        int flags = buffer.get(chunk + 9);
+        typeBlock = specTypePair.getTypeBlockArray().createNext(
+                (flags & 0x01) != 0, (flags & 0x02) != 0);
+        typeBlock.readBytes(createReader(chunk));
+        typeBlock.linkTableStringsInternal(mTableBlock.getTableStringPool());
+        typeBlock.linkSpecStringsInternal(packageBlock.getSpecStringPool());
+        materialized.typeBlocks[chunkIndex] = typeBlock;
+        mMaterializedCount ++;
+        return typeBlock;
+    }
+    private Materialized getMaterialized(FlatPackage flatPackage) throws IOException {
+        Materialized materialized = mMaterializedMap.get(flatPackage);
+        if(materialized != null){
+            return materialized;
+        }
+        TableBlock tableBlock = getTableBlock();
+        PackageBlock packageBlock = tableBlock.getPackageArray().createNext();
+        int offset = flatPackage.getOffset();
+        packageBlock.getHeaderBlock().readBytes(new BlockReader(buffer, offset,
+                buffer.getShort(offset + 2) & 0xffff));
+        int typeStrings = flatPackage.getTypeStrings().getOffset();
+        if(typeStrings >= 0){
+            packageBlock.getTypeStringPool().readBytes(createReader(typeStrings));
+        }
+        int keyStrings = flatPackage.getKeyStrings().getOffset();
+        if(keyStrings >= 0){
+            SpecStringPool specStringPool = packageBlock.getSpecStringPool();
+            specStringPool.setLazyDecode(true);
+            specStringPool.readBytes(createReader(keyStrings));
+        }
+        materialized = new Materialized(packageBlock, flatPackage.getTypeChunksCount());
+        mMaterializedMap.put(flatPackage, materialized);
+        return materialized;
+    }
+    private TableBlock getTableBlock() throws IOException {
+        TableBlock tableBlock = this.mTableBlock;
+        if(tableBlock == null){
+            tableBlock = new TableBlock();
+            int offset = stringPool.getOffset();
+            if(offset >= 0){
+                TableStringPool tableStringPool = tableBlock.getTableStringPool();
+                tableStringPool.setLazyDecode(true);
+                tableStringPool.readBytes(createReader(offset));
+            }
+            this.mTableBlock = tableBlock;
+        }
+        return tableBlock;
+    }
+    private BlockReader createReader(int chunk){
+        return new BlockReader(buffer, chunk, buffer.getInt(chunk + 4));
+    }
+    @Override
+    public String toString(){
+        return getClass().getSimpleName() + ": packages = " + size()
+                + ", entries = " + getEntriesCount();
+    }
+
+    public static FlatTable load(byte[] bytes) throws IOException {
+        return new FlatTable(ByteBuffer.wrap(bytes));
+    }
+    public static FlatTable load(InputStream inputStream) throws IOException {
+        return load(IOUtil.readFully(inputStream));
+    }
+    /**
+     * Maps the file read only, the table then takes no heap for its bytes
+     * */
+    public static FlatTable load(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new FlatTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            channel.close();
+        }
+    }
+
+    static class Materialized {
+        final PackageBlock packageBlock;
+        final TypeBlock[] typeBlocks;
+        final boolean[] specLoaded;
+
+        Materialized(PackageBlock packageBlock, int typeChunksCount){
+            this.packageBlock = packageBlock;
+            this.typeBlocks = new TypeBlock[typeChunksCount];
+            this.specLoaded = new boolean[256];
+        }
+    }
+
+    private static final int TYPE_STRING = 0x0001;
+    private static final int TYPE_TABLE = 0x0002;
+    private static final int TYPE_PACKAGE = 0x0200;
+}
@@ -192,6 +192,17 @@ public class ResourceEntry implements Iterable<Entry>{
         }
         return result;
     }
+    /**
+     * Returns the entry the Android runtime would pick for the given device configuration,
+     * see {@link ConfigResolver}
+     * */
+    public Entry getBestMatch(ResConfig deviceConfig){
+        TableBlock tableBlock = getPackageBlock().getTableBlock();
+        if(tableBlock == null){
+            return null;
+        }
+        return tableBlock.getConfigResolver().resolve(getResourceId(), deviceConfig);
+    }
     public Entry get(){
         Entry result = null;
         for(Entry entry : this){
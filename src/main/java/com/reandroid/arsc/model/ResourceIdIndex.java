@@ -0,0 +1,284 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc.model;
+
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.StagedAlias;
+import com.reandroid.arsc.container.SpecTypePair;
+import com.reandroid.arsc.value.StagedAliasEntry;
+
+import java.util.*;
+
+/**
+ * Immutable lookup of 0xPPTTEEEE resource ids to the package that owns them, packed in
+ * primitive arrays. Resolution order is the same as walking packages one by one with
+ * {@link PackageBlock#getResource(int)} and then falling back to the first staged alias,
+ * i.e. {@link com.reandroid.arsc.chunk.TableBlock#getResource(int)}.
+ * The index does not follow later changes, build a new one after modifying packages
+ * ({@link com.reandroid.arsc.chunk.TableBlock#getResourceIdIndex()} does so on its own).
+ * */
+public class ResourceIdIndex {
+
+    private final PackageBlock[] packages;
+    private final short[] packageSlots;
+    private final int[] typeOffsets;
+    private final int[] typeLengths;
+    private final int[] owners;
+    private final int[] aliasIds;
+    private final int[] aliasOwners;
+    private final int[] aliasTargets;
+    private final int size;
+
+    private ResourceIdIndex(Builder builder){
+        this.packages = builder.packageList.toArray(new PackageBlock[0]);
+
+        short[] packageSlots = new short[256];
+        Arrays.fill(packageSlots, (short) -1);
+        int slots = 0;
+        int total = 0;
+        for(Map.Entry<Integer, int[]> entry : builder.typeMap.entrySet()){
+            int packageId = entry.getKey() >>> 8;
+            if(packageSlots[packageId] < 0){
+                packageSlots[packageId] = (short) slots;
+                slots ++;
+            }
+            total += builder.typeLengthMap.get(entry.getKey());
+        }
+        int[] typeOffsets = new int[slots << 8];
+        Arrays.fill(typeOffsets, -1);
+        int[] typeLengths = new int[slots << 8];
+        int[] owners = new int[total];
+        int offset = 0;
+        for(Map.Entry<Integer, int[]> entry : builder.typeMap.entrySet()){
+            int key = entry.getKey();
+            int length = builder.typeLengthMap.get(key);
+            int i = (packageSlots[key >>> 8] << 8) | (key & 0xff);
+            typeOffsets[i] = offset;
+            typeLengths[i] = length;
+            System.arraycopy(entry.getValue(), 0, owners, offset, length);
+            offset += length;
+        }
+        this.packageSlots = packageSlots;
+        this.typeOffsets = typeOffsets;
+        this.typeLengths = typeLengths;
+        this.owners = owners;
+
+        int aliasCount = builder.aliasMap.size();
+        Integer[] ids = builder.aliasMap.keySet().toArray(new Integer[0]);
+        Arrays.sort(ids);
+        int[] aliasIds = new int[aliasCount];
+        int[] aliasOwners = new int[aliasCount];
+        int[] aliasTargets = new int[aliasCount];
+        for(int i = 0; i < aliasCount; i++){
+            int id = ids[i];
+            long value = builder.aliasMap.get(id);
+            aliasIds[i] = id;
+            aliasOwners[i] = (int) (value >>> 32);
+            aliasTargets[i] = (int) value;
+        }
+        this.aliasIds = aliasIds;
+        this.aliasOwners = aliasOwners;
+        this.aliasTargets = aliasTargets;
+        this.size = builder.size + aliasCount;
+    }
+
+    public ResourceEntry getResource(int resourceId){
+        int owner = findOwner(resourceId);
+        if(owner != 0){
+            return new ResourceEntry(packages[owner - 1], resourceId);
+        }
+        int i = findAlias(resourceId);
+        if(i < 0){
+            return null;
+        }
+        return new ResourceEntry(packages[aliasOwners[i] - 1], aliasTargets[i]);
+    }
+    public PackageBlock getPackageBlock(int resourceId){
+        int owner = findOwner(resourceId);
+        if(owner != 0){
+            return packages[owner - 1];
+        }
+        int i = findAlias(resourceId);
+        if(i < 0){
+            return null;
+        }
+        return packages[aliasOwners[i] - 1];
+    }
+    /**
+     * Returns the id an entry is stored under, staged ids resolve to their finalized id.
+     * Returns zero if not found
+     * */
+    public int resolve(int resourceId){
+        if(findOwner(resourceId) != 0){
+            return resourceId;
+        }
+        int i = findAlias(resourceId);
+        if(i < 0){
+            return 0;
+        }
+        return aliasTargets[i];
+    }
+    public boolean contains(int resourceId){
+        return findOwner(resourceId) != 0 || findAlias(resourceId) >= 0;
+    }
+    public int size(){
+        return size;
+    }
+    private int findOwner(int resourceId){
+        int slot = packageSlots[resourceId >>> 24];
+        if(slot < 0){
+            return 0;
+        }
+        int i = (slot << 8) | ((resourceId >>> 16) & 0xff);
+        int offset = typeOffsets[i];
+        int entryId = resourceId & 0xffff;
+        if(offset < 0 || entryId >= typeLengths[i]){
+            return 0;
+        }
+        return owners[offset + entryId];
+    }
+    private int findAlias(int resourceId){
+        int[] aliasIds = this.aliasIds;
+        if(aliasIds.length == 0){
+            return -1;
+        }
+        int i = Arrays.binarySearch(aliasIds, resourceId);
+        if(i < 0){
+            return -1;
+        }
+        return i;
+    }
+    @Override
+    public String toString(){
+        return getClass().getSimpleName() + ": packages = " + packages.length
+                + ", size = " + size();
+    }
+
+    public static ResourceIdIndex build(Iterator<PackageBlock> iterator){
+        Builder builder = new Builder();
+        List<PackageBlock> packageList = new ArrayList<>();
+        while (iterator.hasNext()){
+            PackageBlock packageBlock = iterator.next();
+            packageList.add(packageBlock);
+            builder.addPackage(packageBlock);
+        }
+        builder.addTableAliases(packageList);
+        return new ResourceIdIndex(builder);
+    }
+
+    static class Builder {
+        final List<PackageBlock> packageList = new ArrayList<>();
+        final Map<Integer, int[]> typeMap = new LinkedHashMap<>();
+        final Map<Integer, Integer> typeLengthMap = new HashMap<>();
+        final Map<Integer, Long> aliasMap = new HashMap<>();
+        int size;
+
+        Builder(){
+        }
+        void addPackage(PackageBlock packageBlock){
+            int packageId = packageBlock.getId();
+            if(packageId == 0){
+                return;
+            }
+            packageList.add(packageBlock);
+            int owner = packageList.size();
+            for(SpecTypePair specTypePair : packageBlock.listSpecTypePairs()){
+                int typeId = specTypePair.getId();
+                int highest = specTypePair.getHighestEntryId();
+                for(int entryId = 0; entryId <= highest; entryId++){
+                    if(specTypePair.getAnyEntry((short) entryId) != null){
+                        int resourceId = (packageId << 24) | (typeId << 16) | entryId;
+                        if(!aliasMap.containsKey(resourceId)){
+                            putOwner(resourceId, owner);
+                        }
+                    }
+                }
+            }
+            for(StagedAlias stagedAlias : packageBlock.listStagedAlias()){
+                for(StagedAliasEntry aliasEntry : stagedAlias.listStagedAliasEntry()){
+                    int staged = aliasEntry.getStagedResId();
+                    int finalized = aliasEntry.getFinalizedResId();
+                    if(finalized == 0 || finalized == staged || isClaimed(staged)){
+                        continue;
+                    }
+                    if(((finalized >>> 24) == packageId) && packageBlock.getResource(
+                            (finalized >>> 16) & 0xff, finalized & 0xffff) != null){
+                        aliasMap.put(staged, toAlias(owner, finalized));
+                    }
+                }
+            }
+        }
+        void addTableAliases(List<PackageBlock> packages){
+            Set<Integer> seen = new HashSet<>();
+            for(PackageBlock packageBlock : packages){
+                for(StagedAlias stagedAlias : packageBlock.listStagedAlias()){
+                    for(StagedAliasEntry aliasEntry : stagedAlias.listStagedAliasEntry()){
+                        int staged = aliasEntry.getStagedResId();
+                        if(!seen.add(staged) || isClaimed(staged)){
+                            continue;
+                        }
+                        int finalized = aliasEntry.getFinalizedResId();
+                        int owner = getOwner(finalized);
+                        if(owner != 0 && finalized != staged){
+                            aliasMap.put(staged, toAlias(owner, finalized));
+                        }
+                    }
+                }
+            }
+        }
+        private boolean isClaimed(int resourceId){
+            return getOwner(resourceId) != 0 || aliasMap.containsKey(resourceId);
+        }
+        private int getOwner(int resourceId){
+            if(resourceId == 0){
+                return 0;
+            }
+            int key = resourceId >>> 16;
+            int[] owners = typeMap.get(key);
+            int entryId = resourceId & 0xffff;
+            if(owners == null || entryId >= typeLengthMap.get(key)){
+                return 0;
+            }
+            return owners[entryId];
+        }
+        private void putOwner(int resourceId, int owner){
+            int key = resourceId >>> 16;
+            int entryId = resourceId & 0xffff;
+            int[] owners = typeMap.get(key);
+            int length = 0;
+            if(owners == null){
+                owners = new int[entryId + 1];
+                typeMap.put(key, owners);
+            }else {
+                length = typeLengthMap.get(key);
+                if(entryId >= owners.length){
+                    owners = Arrays.copyOf(owners, Math.max(entryId + 1, owners.length * 2));
+                    typeMap.put(key, owners);
+                }
+            }
+            if(entryId >= length){
+                typeLengthMap.put(key, entryId + 1);
+            }
+            if(owners[entryId] == 0){
+                owners[entryId] = owner;
+                size ++;
+            }
+        }
+        private static long toAlias(int owner, int resourceId){
+            return (((long) owner) << 32) | (resourceId & 0xffffffffL);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.arsc.pool;
+
+import com.reandroid.arsc.item.SpecString;
+import com.reandroid.arsc.value.Entry;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * (typeId, name) to entry lookup of one package. Keeps the first entry found for each pair,
+ * a hit is checked against the entry's current type and name reference since entries
+ * can be moved or detached without notice.
+ * */
+class SpecNameIndex {
+
+    private final Map<String, Node> nameMap;
+
+    SpecNameIndex(int initialSize){
+        this.nameMap = new HashMap<>(initialSize);
+    }
+
+    /**
+     * @return null if absent or {@link #STALE} if the indexed entry no longer matches
+     * */
+    Entry find(int typeId, String name){
+        Node node = nameMap.get(name);
+        while (node != null){
+            if(node.typeId == typeId){
+                if(node.isValid()){
+                    return node.entry;
+                }
+                return STALE;
+            }
+            node = node.next;
+        }
+        return null;
+    }
+    /**
+     * @return false if the entry is not attached to a type, the index should be discarded
+     * */
+    boolean add(SpecString specString, Entry entry, String name){
+        int typeId = entry.getTypeId();
+        if(typeId == 0){
+            return false;
+        }
+        Node node = nameMap.get(name);
+        if(node == null){
+            nameMap.put(name, new Node(typeId, entry, specString));
+            return true;
+        }
+        while (true){
+            if(node.typeId == typeId){
+                return true;
+            }
+            if(node.next == null){
+                node.next = new Node(typeId, entry, specString);
+                return true;
+            }
+            node = node.next;
+        }
+    }
+    void addAll(SpecString specString){
+        String name = specString.get();
+        if(name == null){
+            return;
+        }
+        Iterator<Entry> iterator = specString.getUsers(Entry.class);
+        while (iterator.hasNext()){
+            Entry entry = iterator.next();
+            if(entry != null){
+                add(specString, entry, name);
+            }
+        }
+    }
+    /**
+     * Moves entries of the renamed string to the new name
+     * */
+    void rename(String old, SpecString specString){
+        if(old != null){
+            Node previous = null;
+            Node node = nameMap.get(old);
+            while (node != null){
+                if(node.specString == specString){
+                    if(previous == null){
+                        if(node.next == null){
+                            nameMap.remove(old);
+                        }else {
+                            nameMap.put(old, node.next);
+                        }
+                    }else {
+                        previous.next = node.next;
+                    }
+                }else {
+                    previous = node;
+                }
+                node = node.next;
+            }
+        }
+        addAll(specString);
+    }
+    int size(){
+        return nameMap.size();
+    }
+
+    static SpecNameIndex build(StringPool<SpecString> specStringPool){
+        SpecNameIndex index = new SpecNameIndex(specStringPool.size());
+        Iterator<SpecString> iterator = specStringPool.iterator();
+        while (iterator.hasNext()){
+            index.addAll(iterator.next());
+        }
+        return index;
+    }
+
+    static final Entry STALE = new Entry();
+
+    static class Node {
+        final int typeId;
+        final Entry entry;
+        final SpecString specString;
+        Node next;
+
+        Node(int typeId, Entry entry, SpecString specString){
+            this.typeId = typeId;
+            this.entry = entry;
+            this.specString = specString;
+        }
+        boolean isValid(){
+            Entry entry = this.entry;
+            SpecString specString = this.specString;
+            return specString.getParent() != null
+                    && entry.getSpecReference() == specString.getIndex()
+                    && entry.getTypeId() == typeId;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.reandroid.arsc.array.StringArray;
 import com.reandroid.arsc.base.Block;
 import com.reandroid.arsc.chunk.PackageBlock;
 import com.reandroid.arsc.item.IntegerItem;
+import com.reandroid.arsc.item.ReferenceItem;
 import com.reandroid.arsc.item.SpecString;
 import com.reandroid.arsc.value.Entry;
 import com.reandroid.utils.collection.IterableIterator;
@@ -28,18 +29,84 @@ import com.reandroid.utils.collection.IterableIterator;
 import java.util.Iterator;
 
 public class SpecStringPool extends StringPool<SpecString>{
+    private SpecNameIndex nameIndex;
+
     public SpecStringPool(boolean is_utf8){
         super(is_utf8);
     }
 
     public int resolveResourceId(int typeId, String name){
-        Iterator<Entry> itr = getEntries(typeId, name);
-        if(itr.hasNext()){
-            return itr.next().getResourceId();
+        Entry entry = getEntry(typeId, name);
+        if(entry != null){
+            return entry.getResourceId();
         }
         return 0;
     }
+    /**
+     * Returns any entry (of any config) with the given type id and name, looked up from an
+     * index built on first call and kept in sync with renames and new references.
+     * */
+    public Entry getEntry(int typeId, String name){
+        if(name == null){
+            return null;
+        }
+        Entry entry = getNameIndex().find(typeId, name);
+        if(entry != SpecNameIndex.STALE){
+            return entry;
+        }
+        nameIndex = null;
+        entry = getNameIndex().find(typeId, name);
+        if(entry != SpecNameIndex.STALE){
+            return entry;
+        }
+        return null;
+    }
+    public void clearNameIndex(){
+        nameIndex = null;
+    }
+    private SpecNameIndex getNameIndex(){
+        SpecNameIndex index = this.nameIndex;
+        if(index == null){
+            ensureStringLinkUnlockedInternal();
+            index = SpecNameIndex.build(this);
+            this.nameIndex = index;
+        }
+        return index;
+    }
+    public void onReferenceAdded(SpecString specString, ReferenceItem referenceItem){
+        SpecNameIndex index = this.nameIndex;
+        if(index == null){
+            return;
+        }
+        Entry entry = referenceItem.getReferredParent(Entry.class);
+        String name = specString.get();
+        if(entry != null && name != null && !index.add(specString, entry, name)){
+            nameIndex = null;
+        }
+    }
+    @Override
+    public void onStringChanged(String old, SpecString stringItem) {
+        super.onStringChanged(old, stringItem);
+        SpecNameIndex index = this.nameIndex;
+        if(index == null || isStringLinkLocked()){
+            return;
+        }
+        index.rename(old, stringItem);
+        Iterator<SpecString> iterator = getAll(old);
+        while (iterator.hasNext()){
+            index.addAll(iterator.next());
+        }
+    }
+    @Override
+    public void clear() {
+        nameIndex = null;
+        super.clear();
+    }
     public int resolveResourceId(String type, String name){
+        PackageBlock packageBlock = getPackageBlock();
+        if(type != null && packageBlock != null){
+            return resolveResourceId(packageBlock.typeIdOf(type), name);
+        }
         Iterator<Entry> itr = getEntries(type, name);
         if(itr.hasNext()){
             return itr.next().getResourceId();
@@ -78,6 +145,10 @@ public class SpecStringPool extends StringPool<SpecString>{
         };
     }
     @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
+    }
+    @Override
     StringArray<SpecString> newInstance(OffsetArray offsets, IntegerItem itemCount, IntegerItem itemStart, boolean is_utf8) {
         return new SpecStringArray(offsets, itemCount, itemStart, is_utf8);
     }
@@ -87,6 +158,7 @@ public class SpecStringPool extends StringPool<SpecString>{
 
     @Override
     void linkStrings(){
+        nameIndex = null;
         super.linkStrings();
         PackageBlock packageBlock = getPackageBlock();
         if(packageBlock != null){
@@ -24,8 +24,8 @@ import com.reandroid.arsc.chunk.Chunk;
 import com.reandroid.arsc.header.StringPoolHeader;
 import com.reandroid.arsc.io.BlockLoad;
 import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.arsc.io.BlockWriter;
 import com.reandroid.arsc.item.*;
-import com.reandroid.common.BytesOutputStream;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONObject;
@@ -53,6 +53,7 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
 
     private final MultiMap<String, T> poolMap;
     private boolean stringLinkLocked;
+    private boolean poolMapPending;
 
     StringPool(boolean is_utf8, boolean stringLinkLocked){
         super(new StringPoolHeader(), 4);
@@ -114,6 +115,7 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
         getStyleArray().clear();
         getStringsArray().clear();
         poolMap.clear();
+        poolMapPending = false;
     }
     /**
      * Use clear()
@@ -129,8 +131,19 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
     public boolean isStringLinkLocked(){
         return stringLinkLocked;
     }
+    public boolean isLazyDecode(){
+        return getStringsArray().isLazyDecode();
+    }
+    /**
+     * Read mode for large pools, must be set before reading. Strings stay as slices of
+     * one buffer and are decoded on first access, the lookup map is built on first query.
+     * */
+    public void setLazyDecode(boolean lazyDecode){
+        getStringsArray().setLazyDecode(lazyDecode);
+    }
     public void ensureStringLinkUnlockedInternal(){
         synchronized (mLock){
+            ensurePoolMap();
             if(!stringLinkLocked){
                 return;
             }
@@ -174,7 +187,13 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
             createNewString(str);
         }
     }
+    private void ensurePoolMap() {
+        if(poolMapPending) {
+            reloadPoolMap();
+        }
+    }
     private void reloadPoolMap() {
+        poolMapPending = false;
         if(poolMap.size() == 0) {
             poolMap.clear();
             poolMap.setInitialSize(size());
@@ -218,15 +237,18 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
         return null;
     }
     public boolean contains(String str){
+        synchronized (mLock){
+            ensurePoolMap();
+        }
         return poolMap.containsKey(str);
     }
     public void onStringChanged(String old, T stringItem) {
-        if(!stringLinkLocked){
+        if(!stringLinkLocked && !poolMapPending){
             poolMap.updateKey(old, stringItem.getXml(), stringItem);
         }
     }
     public void onStringRemoved(T stringItem) {
-        if(!stringLinkLocked) {
+        if(!stringLinkLocked && !poolMapPending) {
             poolMap.remove(stringItem.getXml(), stringItem);
         }
     }
@@ -359,7 +381,11 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
     @Override
     public void onChunkLoaded() {
         linkStylesInternal();
-        reloadPoolMap();
+        if(isLazyDecode()){
+            poolMapPending = true;
+        }else {
+            reloadPoolMap();
+        }
     }
 
     @Override
@@ -371,14 +397,7 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
     }
     @Override
     public byte[] getBytes(){
-        BytesOutputStream outputStream = new BytesOutputStream(
-                getHeaderBlock().getChunkSize());
-        try {
-            writeBytes(outputStream);
-            outputStream.close();
-        } catch (IOException ignored) {
-        }
-        return outputStream.toByteArray();
+        return BlockWriter.getBytes(this);
     }
     @Override
     public JSONArray toJson() {
@@ -395,6 +414,7 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
     }
 
     boolean containsInternal(T item) {
+        ensurePoolMap();
         return poolMap.containsValue(item.getXml(),
                 stringItem -> stringItem.compareTo(item) == 0);
     }
@@ -53,6 +53,10 @@ public class TableStringPool extends StringPool<TableString> {
         }
     }
     @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
+    }
+    @Override
     StringArray<TableString> newInstance(OffsetArray offsets, IntegerItem itemCount, IntegerItem itemStart, boolean is_utf8) {
         return new TableStringArray(offsets, itemCount, itemStart, is_utf8);
     }
@@ -93,6 +93,10 @@ public class TypeStringPool extends StringPool<TypeString> {
         return typeString;
     }
     @Override
+    protected boolean isIncrementalRefresh() {
+        return true;
+    }
+    @Override
     StringArray<TypeString> newInstance(OffsetArray offsets, IntegerItem itemCount, IntegerItem itemStart, boolean is_utf8) {
         return new TypeStringArray(offsets, itemCount, itemStart, is_utf8);
     }
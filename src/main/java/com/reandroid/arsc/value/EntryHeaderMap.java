@@ -38,12 +38,14 @@ public class EntryHeaderMap extends ValueHeader {
     }
     public void setParentId(int parentId){
         putInteger(getBytesInternal(), OFFSET_PARENT_ID, parentId);
+        markModified();
     }
     public int getValuesCount(){
         return getInteger(getBytesInternal(), OFFSET_VALUE_COUNT);
     }
     public void setValuesCount(int valuesCount){
         putInteger(getBytesInternal(), OFFSET_VALUE_COUNT, valuesCount);
+        markModified();
     }
 
     @Override
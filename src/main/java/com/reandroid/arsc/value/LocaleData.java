@@ -123,13 +123,13 @@ public class LocaleData {
         }
 
         int[] request_ancestors = new int [LocaleDataTables.MAX_PARENT_DEPTH+1];
-        int[] left_right_index = new int[0];
+        int[] left_right_index = new int[1];
         // Find the parents of the request, but stop as soon as we saw left or right
-        int[][] left_and_right = {{left, right}};
+        int[] left_and_right = {left, right};
         int ancestor_count = findAncestors(
                 request_ancestors, left_right_index,
                 request, requested_script,
-                left_and_right[0], left_and_right.length);
+                left_and_right, left_and_right.length);
         if (left_right_index[0] == 0) { // We saw left earlier
             return 1;
         }
@@ -162,7 +162,7 @@ public class LocaleData {
         // code (in dictionary order) better, with two-letter codes before
         // three-digit codes (since two-letter codes are more specific).
 
-        return (int)((right & 0xffffffff00000000L) - (left & 0xffffffff00000000L));
+        return Long.signum((right & 0xffffffffL) - (left & 0xffffffffL));
     }
     public static void localeDataComputeScript(char[] out, char[] language, char[] region) {
         if (language[0] == '\0') {
@@ -0,0 +1,590 @@
+ /*
+  *  Copyright (C) 2022 github.com/REAndroid
+  *
+  *  Licensed under the Apache License, Version 2.0 (the "License");
+  *  you may not use this file except in compliance with the License.
+  *  You may obtain a copy of the License at
+  *
+  *      http://www.apache.org/licenses/LICENSE-2.0
+  *
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+  */
+package com.reandroid.arsc.value;
+
+/**
+ *
+ * Converted from AOSP: frameworks/base/libs/androidfw/ResourceTypes.cpp
+ * ResTable_config::match, isBetterThan and isLocaleBetterThan
+ *
+ * Configs are packed into int keys of {@link #KEY_SIZE} so that many configs can be kept
+ * in a single flat array and compared without allocation. The locale script of each config
+ * is computed once while packing.
+ * */
+
+public class ResConfigMatcher {
+
+    public static int[] pack(ResConfig config){
+        int[] key = new int[KEY_SIZE];
+        pack(config, key, 0);
+        return key;
+    }
+    public static void pack(ResConfig config, int[] out, int offset){
+        out[offset + MCC] = config.getMcc();
+        out[offset + MNC] = config.getMnc();
+        int language = toShort(config.getLanguageBytes());
+        int country = toShort(config.getRegionBytes());
+        out[offset + LANGUAGE] = language;
+        out[offset + COUNTRY] = country;
+        out[offset + ORIENTATION] = config.getOrientationValue();
+        out[offset + TOUCHSCREEN] = config.getTouchscreenValue();
+        out[offset + DENSITY] = config.getDensityValue();
+        out[offset + KEYBOARD] = config.getKeyboardValue();
+        out[offset + NAVIGATION] = config.getNavigationValue();
+        out[offset + INPUT_FLAGS] = config.getInputFlagsValue();
+        out[offset + GRAMMATICAL_INFLECTION] = config.getGenderValue();
+        out[offset + SCREEN_WIDTH] = config.getScreenWidth();
+        out[offset + SCREEN_HEIGHT] = config.getScreenHeight();
+        out[offset + SDK_VERSION] = config.getSdkVersion();
+        out[offset + MINOR_VERSION] = config.getMinorVersion();
+        out[offset + SCREEN_LAYOUT] = config.getScreenLayout();
+        out[offset + UI_MODE] = config.getUiMode();
+        out[offset + SMALLEST_SCREEN_WIDTH_DP] = config.getSmallestScreenWidthDp();
+        out[offset + SCREEN_WIDTH_DP] = config.getScreenWidthDp();
+        out[offset + SCREEN_HEIGHT_DP] = config.getScreenHeightDp();
+        int script = toInt(config.getLocaleScriptBytes(), 0);
+        out[offset + LOCALE_SCRIPT] = script;
+        byte[] variant = config.getLocaleVariantBytes();
+        out[offset + LOCALE_VARIANT_HIGH] = toInt(variant, 0);
+        out[offset + LOCALE_VARIANT_LOW] = toInt(variant, 4);
+        out[offset + SCREEN_LAYOUT2] = config.getScreenLayout2();
+        out[offset + COLOR_MODE] = config.getColorMode();
+        if(script == 0){
+            script = computeScript(language, country);
+        }
+        out[offset + MATCH_SCRIPT] = script;
+    }
+    /**
+     * Packs a device configuration, same as {@link #pack(ResConfig)} but the locale script
+     * is filled in when missing as AOSP does for the requested configuration.
+     * */
+    public static int[] packRequested(ResConfig config){
+        int[] key = pack(config);
+        key[LOCALE_SCRIPT] = key[MATCH_SCRIPT];
+        return key;
+    }
+
+    public static boolean match(int[] keys, int offset, int[] settings){
+        if(keys[offset + MCC] != 0 || keys[offset + MNC] != 0){
+            int mcc = keys[offset + MCC];
+            if(mcc != 0 && mcc != settings[MCC]){
+                return false;
+            }
+            int mnc = keys[offset + MNC];
+            if(mnc != 0 && mnc != settings[MNC]){
+                return false;
+            }
+        }
+        int language = keys[offset + LANGUAGE];
+        int country = keys[offset + COUNTRY];
+        if(language != 0 || country != 0){
+            // Don't consider country and variants when deciding matches
+            if(!langsAreEquivalent(language, settings[LANGUAGE])){
+                return false;
+            }
+            int script = keys[offset + MATCH_SCRIPT];
+            // Fall back to comparing countries if the script of either
+            // the request or this config could not be determined
+            if(settings[LOCALE_SCRIPT] == 0 || script == 0){
+                if(country != 0 && country != settings[COUNTRY]){
+                    return false;
+                }
+            }else if(script != settings[LOCALE_SCRIPT]){
+                return false;
+            }
+        }
+        int inflection = keys[offset + GRAMMATICAL_INFLECTION];
+        if(inflection != 0 && inflection != settings[GRAMMATICAL_INFLECTION]){
+            return false;
+        }
+        int screenLayout = keys[offset + SCREEN_LAYOUT];
+        int uiMode = keys[offset + UI_MODE];
+        int smallestWidth = keys[offset + SMALLEST_SCREEN_WIDTH_DP];
+        if(screenLayout != 0 || uiMode != 0 || smallestWidth != 0){
+            int setScreenLayout = settings[SCREEN_LAYOUT];
+            int layoutDir = screenLayout & MASK_LAYOUTDIR;
+            if(layoutDir != 0 && layoutDir != (setScreenLayout & MASK_LAYOUTDIR)){
+                return false;
+            }
+            // Any screen sizes for larger screens than the setting do not match
+            int screenSize = screenLayout & MASK_SCREENSIZE;
+            if(screenSize != 0 && screenSize > (setScreenLayout & MASK_SCREENSIZE)){
+                return false;
+            }
+            int screenLong = screenLayout & MASK_SCREENLONG;
+            if(screenLong != 0 && screenLong != (setScreenLayout & MASK_SCREENLONG)){
+                return false;
+            }
+            int setUiMode = settings[UI_MODE];
+            int uiModeType = uiMode & MASK_UI_MODE_TYPE;
+            if(uiModeType != 0 && uiModeType != (setUiMode & MASK_UI_MODE_TYPE)){
+                return false;
+            }
+            int uiModeNight = uiMode & MASK_UI_MODE_NIGHT;
+            if(uiModeNight != 0 && uiModeNight != (setUiMode & MASK_UI_MODE_NIGHT)){
+                return false;
+            }
+            if(smallestWidth != 0 && smallestWidth > settings[SMALLEST_SCREEN_WIDTH_DP]){
+                return false;
+            }
+        }
+        int screenLayout2 = keys[offset + SCREEN_LAYOUT2];
+        int colorMode = keys[offset + COLOR_MODE];
+        if(screenLayout2 != 0 || colorMode != 0){
+            int screenRound = screenLayout2 & MASK_SCREENROUND;
+            if(screenRound != 0 && screenRound != (settings[SCREEN_LAYOUT2] & MASK_SCREENROUND)){
+                return false;
+            }
+            int setColorMode = settings[COLOR_MODE];
+            int hdr = colorMode & MASK_HDR;
+            if(hdr != 0 && hdr != (setColorMode & MASK_HDR)){
+                return false;
+            }
+            int wideColorGamut = colorMode & MASK_WIDE_COLOR_GAMUT;
+            if(wideColorGamut != 0 && wideColorGamut != (setColorMode & MASK_WIDE_COLOR_GAMUT)){
+                return false;
+            }
+        }
+        int widthDp = keys[offset + SCREEN_WIDTH_DP];
+        if(widthDp != 0 && widthDp > settings[SCREEN_WIDTH_DP]){
+            return false;
+        }
+        int heightDp = keys[offset + SCREEN_HEIGHT_DP];
+        if(heightDp != 0 && heightDp > settings[SCREEN_HEIGHT_DP]){
+            return false;
+        }
+        // density always matches, it can be scaled. See isBetterThan
+        int orientation = keys[offset + ORIENTATION];
+        if(orientation != 0 && orientation != settings[ORIENTATION]){
+            return false;
+        }
+        int touchscreen = keys[offset + TOUCHSCREEN];
+        if(touchscreen != 0 && touchscreen != settings[TOUCHSCREEN]){
+            return false;
+        }
+        int inputFlags = keys[offset + INPUT_FLAGS];
+        int setInputFlags = settings[INPUT_FLAGS];
+        int keysHidden = inputFlags & MASK_KEYSHIDDEN;
+        int setKeysHidden = setInputFlags & MASK_KEYSHIDDEN;
+        if(keysHidden != 0 && keysHidden != setKeysHidden){
+            // For compatibility, a request for KEYSHIDDEN_NO also matches KEYSHIDDEN_SOFT
+            if(keysHidden != KEYSHIDDEN_NO || setKeysHidden != KEYSHIDDEN_SOFT){
+                return false;
+            }
+        }
+        int navHidden = inputFlags & MASK_NAVHIDDEN;
+        if(navHidden != 0 && navHidden != (setInputFlags & MASK_NAVHIDDEN)){
+            return false;
+        }
+        int keyboard = keys[offset + KEYBOARD];
+        if(keyboard != 0 && keyboard != settings[KEYBOARD]){
+            return false;
+        }
+        int navigation = keys[offset + NAVIGATION];
+        if(navigation != 0 && navigation != settings[NAVIGATION]){
+            return false;
+        }
+        int width = keys[offset + SCREEN_WIDTH];
+        if(width != 0 && width > settings[SCREEN_WIDTH]){
+            return false;
+        }
+        int height = keys[offset + SCREEN_HEIGHT];
+        if(height != 0 && height > settings[SCREEN_HEIGHT]){
+            return false;
+        }
+        int sdkVersion = keys[offset + SDK_VERSION];
+        if(sdkVersion != 0 && sdkVersion > settings[SDK_VERSION]){
+            return false;
+        }
+        int minorVersion = keys[offset + MINOR_VERSION];
+        if(minorVersion != 0 && minorVersion != settings[MINOR_VERSION]){
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Both configs are expected to {@link #match(int[], int, int[])} the requested config
+     * */
+    public static boolean isBetterThan(int[] keys, int offset, int[] oKeys, int oOffset, int[] requested){
+        int mcc = keys[offset + MCC];
+        int oMcc = oKeys[oOffset + MCC];
+        if(mcc != oMcc && requested[MCC] != 0){
+            return mcc != 0;
+        }
+        int mnc = keys[offset + MNC];
+        int oMnc = oKeys[oOffset + MNC];
+        if(mnc != oMnc && requested[MNC] != 0){
+            return mnc != 0;
+        }
+        if(isLocaleBetterThan(keys, offset, oKeys, oOffset, requested)){
+            return true;
+        }else if(isLocaleBetterThan(oKeys, oOffset, keys, offset, requested)){
+            return false;
+        }
+        int inflection = keys[offset + GRAMMATICAL_INFLECTION];
+        int oInflection = oKeys[oOffset + GRAMMATICAL_INFLECTION];
+        if(inflection != oInflection && requested[GRAMMATICAL_INFLECTION] != 0){
+            return inflection != 0;
+        }
+        int screenLayout = keys[offset + SCREEN_LAYOUT];
+        int oScreenLayout = oKeys[oOffset + SCREEN_LAYOUT];
+        int reqScreenLayout = requested[SCREEN_LAYOUT];
+        if(((screenLayout ^ oScreenLayout) & MASK_LAYOUTDIR) != 0
+                && (reqScreenLayout & MASK_LAYOUTDIR) != 0){
+            return (screenLayout & MASK_LAYOUTDIR) > (oScreenLayout & MASK_LAYOUTDIR);
+        }
+        int smallestWidth = keys[offset + SMALLEST_SCREEN_WIDTH_DP];
+        int oSmallestWidth = oKeys[oOffset + SMALLEST_SCREEN_WIDTH_DP];
+        if(smallestWidth != oSmallestWidth){
+            // Larger configs are already filtered out, so the largest is the closest
+            return smallestWidth > oSmallestWidth;
+        }
+        int widthDp = keys[offset + SCREEN_WIDTH_DP];
+        int heightDp = keys[offset + SCREEN_HEIGHT_DP];
+        int oWidthDp = oKeys[oOffset + SCREEN_WIDTH_DP];
+        int oHeightDp = oKeys[oOffset + SCREEN_HEIGHT_DP];
+        if(widthDp != 0 || heightDp != 0 || oWidthDp != 0 || oHeightDp != 0){
+            int myDelta = 0;
+            int otherDelta = 0;
+            int reqWidthDp = requested[SCREEN_WIDTH_DP];
+            if(reqWidthDp != 0){
+                myDelta += reqWidthDp - widthDp;
+                otherDelta += reqWidthDp - oWidthDp;
+            }
+            int reqHeightDp = requested[SCREEN_HEIGHT_DP];
+            if(reqHeightDp != 0){
+                myDelta += reqHeightDp - heightDp;
+                otherDelta += reqHeightDp - oHeightDp;
+            }
+            if(myDelta != otherDelta){
+                return myDelta < otherDelta;
+            }
+        }
+        if(((screenLayout ^ oScreenLayout) & MASK_SCREENSIZE) != 0
+                && (reqScreenLayout & MASK_SCREENSIZE) != 0){
+            // Undefined is considered equivalent to normal, but only if the
+            // requested size is at least normal
+            int mySL = screenLayout & MASK_SCREENSIZE;
+            int oSL = oScreenLayout & MASK_SCREENSIZE;
+            int fixedMySL = mySL;
+            int fixedOSL = oSL;
+            if((reqScreenLayout & MASK_SCREENSIZE) >= SCREENSIZE_NORMAL){
+                if(fixedMySL == 0){
+                    fixedMySL = SCREENSIZE_NORMAL;
+                }
+                if(fixedOSL == 0){
+                    fixedOSL = SCREENSIZE_NORMAL;
+                }
+            }
+            if(fixedMySL == fixedOSL){
+                return mySL != 0;
+            }
+            return fixedMySL > fixedOSL;
+        }
+        if(((screenLayout ^ oScreenLayout) & MASK_SCREENLONG) != 0
+                && (reqScreenLayout & MASK_SCREENLONG) != 0){
+            return (screenLayout & MASK_SCREENLONG) != 0;
+        }
+        int screenLayout2 = keys[offset + SCREEN_LAYOUT2];
+        int oScreenLayout2 = oKeys[oOffset + SCREEN_LAYOUT2];
+        if(((screenLayout2 ^ oScreenLayout2) & MASK_SCREENROUND) != 0
+                && (requested[SCREEN_LAYOUT2] & MASK_SCREENROUND) != 0){
+            return (screenLayout2 & MASK_SCREENROUND) != 0;
+        }
+        int colorMode = keys[offset + COLOR_MODE];
+        int oColorMode = oKeys[oOffset + COLOR_MODE];
+        int reqColorMode = requested[COLOR_MODE];
+        if(((colorMode ^ oColorMode) & MASK_HDR) != 0 && (reqColorMode & MASK_HDR) != 0){
+            return (colorMode & MASK_HDR) != 0;
+        }
+        if(((colorMode ^ oColorMode) & MASK_WIDE_COLOR_GAMUT) != 0
+                && (reqColorMode & MASK_WIDE_COLOR_GAMUT) != 0){
+            return (colorMode & MASK_WIDE_COLOR_GAMUT) != 0;
+        }
+        int orientation = keys[offset + ORIENTATION];
+        if(orientation != oKeys[oOffset + ORIENTATION] && requested[ORIENTATION] != 0){
+            return orientation != 0;
+        }
+        int uiMode = keys[offset + UI_MODE];
+        int oUiMode = oKeys[oOffset + UI_MODE];
+        int reqUiMode = requested[UI_MODE];
+        if(((uiMode ^ oUiMode) & MASK_UI_MODE_TYPE) != 0 && (reqUiMode & MASK_UI_MODE_TYPE) != 0){
+            return (uiMode & MASK_UI_MODE_TYPE) != 0;
+        }
+        if(((uiMode ^ oUiMode) & MASK_UI_MODE_NIGHT) != 0 && (reqUiMode & MASK_UI_MODE_NIGHT) != 0){
+            return (uiMode & MASK_UI_MODE_NIGHT) != 0;
+        }
+        int density = keys[offset + DENSITY];
+        int oDensity = oKeys[oOffset + DENSITY];
+        if(density != oDensity){
+            return isDensityBetterThan(density, oDensity, requested[DENSITY]);
+        }
+        int touchscreen = keys[offset + TOUCHSCREEN];
+        if(touchscreen != oKeys[oOffset + TOUCHSCREEN] && requested[TOUCHSCREEN] != 0){
+            return touchscreen != 0;
+        }
+        int inputFlags = keys[offset + INPUT_FLAGS];
+        int oInputFlags = oKeys[oOffset + INPUT_FLAGS];
+        int keysHidden = inputFlags & MASK_KEYSHIDDEN;
+        int oKeysHidden = oInputFlags & MASK_KEYSHIDDEN;
+        if(keysHidden != oKeysHidden){
+            int reqKeysHidden = requested[INPUT_FLAGS] & MASK_KEYSHIDDEN;
+            if(reqKeysHidden != 0){
+                if(keysHidden == 0){
+                    return false;
+                }
+                if(oKeysHidden == 0){
+                    return true;
+                }
+                // KEYSHIDDEN_NO counts as KEYSHIDDEN_SOFT, an exact match is more specific
+                if(reqKeysHidden == keysHidden){
+                    return true;
+                }
+                if(reqKeysHidden == oKeysHidden){
+                    return false;
+                }
+            }
+        }
+        int navHidden = inputFlags & MASK_NAVHIDDEN;
+        int oNavHidden = oInputFlags & MASK_NAVHIDDEN;
+        if(navHidden != oNavHidden && (requested[INPUT_FLAGS] & MASK_NAVHIDDEN) != 0){
+            if(navHidden == 0){
+                return false;
+            }
+            if(oNavHidden == 0){
+                return true;
+            }
+        }
+        int keyboard = keys[offset + KEYBOARD];
+        if(keyboard != oKeys[oOffset + KEYBOARD] && requested[KEYBOARD] != 0){
+            return keyboard != 0;
+        }
+        int navigation = keys[offset + NAVIGATION];
+        if(navigation != oKeys[oOffset + NAVIGATION] && requested[NAVIGATION] != 0){
+            return navigation != 0;
+        }
+        int width = keys[offset + SCREEN_WIDTH];
+        int height = keys[offset + SCREEN_HEIGHT];
+        int oWidth = oKeys[oOffset + SCREEN_WIDTH];
+        int oHeight = oKeys[oOffset + SCREEN_HEIGHT];
+        if(width != 0 || height != 0 || oWidth != 0 || oHeight != 0){
+            int myDelta = 0;
+            int otherDelta = 0;
+            int reqWidth = requested[SCREEN_WIDTH];
+            if(reqWidth != 0){
+                myDelta += reqWidth - width;
+                otherDelta += reqWidth - oWidth;
+            }
+            int reqHeight = requested[SCREEN_HEIGHT];
+            if(reqHeight != 0){
+                myDelta += reqHeight - height;
+                otherDelta += reqHeight - oHeight;
+            }
+            if(myDelta != otherDelta){
+                return myDelta < otherDelta;
+            }
+        }
+        int sdkVersion = keys[offset + SDK_VERSION];
+        int oSdkVersion = oKeys[oOffset + SDK_VERSION];
+        if(sdkVersion != oSdkVersion && requested[SDK_VERSION] != 0){
+            return sdkVersion > oSdkVersion;
+        }
+        int minorVersion = keys[offset + MINOR_VERSION];
+        if(minorVersion != oKeys[oOffset + MINOR_VERSION] && requested[MINOR_VERSION] != 0){
+            return minorVersion != 0;
+        }
+        return false;
+    }
+    private static boolean isDensityBetterThan(int density, int oDensity, int requestedDensity){
+        // Use the system default density if none specified
+        int thisDensity = density != 0 ? density : DENSITY_MEDIUM;
+        int otherDensity = oDensity != 0 ? oDensity : DENSITY_MEDIUM;
+        // Always prefer DENSITY_ANY over scaling a density bucket
+        if(thisDensity == DENSITY_ANY){
+            return true;
+        }else if(otherDensity == DENSITY_ANY){
+            return false;
+        }
+        if(requestedDensity == 0 || requestedDensity == DENSITY_ANY){
+            requestedDensity = DENSITY_MEDIUM;
+        }
+        int h = thisDensity;
+        int l = otherDensity;
+        boolean imBigger = true;
+        if(l > h){
+            h = otherDensity;
+            l = thisDensity;
+            imBigger = false;
+        }
+        if(requestedDensity >= h){
+            // requested value higher than both l and h, give h
+            return imBigger;
+        }
+        if(l >= requestedDensity){
+            // requested value lower than both l and h, give l
+            return !imBigger;
+        }
+        // saying that scaling down is 2x better than up
+        if(((2 * l) - requestedDensity) * h > requestedDensity * requestedDensity){
+            return !imBigger;
+        }
+        return imBigger;
+    }
+    private static boolean isLocaleBetterThan(int[] keys, int offset, int[] oKeys, int oOffset, int[] requested){
+        int reqLanguage = requested[LANGUAGE];
+        int reqCountry = requested[COUNTRY];
+        if(reqLanguage == 0 && reqCountry == 0){
+            // The request doesn't have a locale, so no resource is better than the other
+            return false;
+        }
+        int language = keys[offset + LANGUAGE];
+        int country = keys[offset + COUNTRY];
+        int oLanguage = oKeys[oOffset + LANGUAGE];
+        int oCountry = oKeys[oOffset + COUNTRY];
+        if(language == 0 && country == 0 && oLanguage == 0 && oCountry == 0){
+            return false;
+        }
+        if(!langsAreEquivalent(language, oLanguage)){
+            // Only one of them has a language. No-language resources are a better match
+            // for US English and similar locales than descendants of en-001
+            if(reqLanguage == ENGLISH){
+                if(reqCountry == UNITED_STATES){
+                    if(language != 0){
+                        return country == 0 || country == UNITED_STATES;
+                    }
+                    return !(oCountry == 0 || oCountry == UNITED_STATES);
+                }else if(LocaleData.localeDataIsCloseToUsEnglish(toChars(reqCountry))){
+                    if(language != 0){
+                        return LocaleData.localeDataIsCloseToUsEnglish(toChars(country));
+                    }
+                    return !LocaleData.localeDataIsCloseToUsEnglish(toChars(oCountry));
+                }
+            }
+            return language != 0;
+        }
+        // Both have a language equivalent to the request, check the region and variant
+        if(country != oCountry){
+            int comparison = LocaleData.localeDataCompareRegions(
+                    toChars(country), toChars(oCountry),
+                    toChars(reqLanguage), toScriptChars(requested[LOCALE_SCRIPT]),
+                    toChars(reqCountry));
+            if(comparison != 0){
+                return comparison > 0;
+            }
+        }
+        boolean localeMatches = keys[offset + LOCALE_VARIANT_HIGH] == requested[LOCALE_VARIANT_HIGH]
+                && keys[offset + LOCALE_VARIANT_LOW] == requested[LOCALE_VARIANT_LOW];
+        boolean otherMatches = oKeys[oOffset + LOCALE_VARIANT_HIGH] == requested[LOCALE_VARIANT_HIGH]
+                && oKeys[oOffset + LOCALE_VARIANT_LOW] == requested[LOCALE_VARIANT_LOW];
+        if(localeMatches != otherMatches){
+            return localeMatches;
+        }
+        // Identical language is better than just equivalent (Tagalog and Filipino)
+        return language == reqLanguage && oLanguage != reqLanguage;
+    }
+    private static boolean langsAreEquivalent(int language1, int language2){
+        return language1 == language2
+                || (isTagalog(language1) && isTagalog(language2));
+    }
+    private static boolean isTagalog(int language){
+        return language == TAGALOG || language == FILIPINO;
+    }
+    private static int computeScript(int language, int country){
+        if(language == 0){
+            return 0;
+        }
+        char[] script = new char[LocaleData.SCRIPT_LENGTH];
+        LocaleData.localeDataComputeScript(script, toChars(language), toChars(country));
+        return (script[0] << 24) | (script[1] << 16) | (script[2] << 8) | script[3];
+    }
+    private static char[] toChars(int value){
+        return new char[]{(char) ((value >> 8) & 0xff), (char) (value & 0xff)};
+    }
+    private static char[] toScriptChars(int value){
+        return new char[]{
+                (char) ((value >>> 24) & 0xff),
+                (char) ((value >> 16) & 0xff),
+                (char) ((value >> 8) & 0xff),
+                (char) (value & 0xff)
+        };
+    }
+    private static int toShort(byte[] bytes){
+        if(bytes == null){
+            return 0;
+        }
+        return ((bytes[0] & 0xff) << 8) | (bytes[1] & 0xff);
+    }
+    private static int toInt(byte[] bytes, int offset){
+        if(bytes == null){
+            return 0;
+        }
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+
+    public static final int KEY_SIZE = 26;
+
+    private static final int MCC = 0;
+    private static final int MNC = 1;
+    private static final int LANGUAGE = 2;
+    private static final int COUNTRY = 3;
+    private static final int ORIENTATION = 4;
+    private static final int TOUCHSCREEN = 5;
+    private static final int DENSITY = 6;
+    private static final int KEYBOARD = 7;
+    private static final int NAVIGATION = 8;
+    private static final int INPUT_FLAGS = 9;
+    private static final int GRAMMATICAL_INFLECTION = 10;
+    private static final int SCREEN_WIDTH = 11;
+    private static final int SCREEN_HEIGHT = 12;
+    private static final int SDK_VERSION = 13;
+    private static final int MINOR_VERSION = 14;
+    private static final int SCREEN_LAYOUT = 15;
+    private static final int UI_MODE = 16;
+    private static final int SMALLEST_SCREEN_WIDTH_DP = 17;
+    private static final int SCREEN_WIDTH_DP = 18;
+    private static final int SCREEN_HEIGHT_DP = 19;
+    private static final int LOCALE_SCRIPT = 20;
+    private static final int LOCALE_VARIANT_HIGH = 21;
+    private static final int LOCALE_VARIANT_LOW = 22;
+    private static final int SCREEN_LAYOUT2 = 23;
+    private static final int COLOR_MODE = 24;
+    // script given or computed from language and country, zero if unknown
+    private static final int MATCH_SCRIPT = 25;
+
+    private static final int MASK_KEYSHIDDEN = 0x03;
+    private static final int KEYSHIDDEN_NO = 0x01;
+    private static final int KEYSHIDDEN_SOFT = 0x03;
+    private static final int MASK_NAVHIDDEN = 0x0c;
+    private static final int MASK_SCREENSIZE = 0x0f;
+    private static final int SCREENSIZE_NORMAL = 0x02;
+    private static final int MASK_SCREENLONG = 0x30;
+    private static final int MASK_LAYOUTDIR = 0xC0;
+    private static final int MASK_UI_MODE_TYPE = 0x0f;
+    private static final int MASK_UI_MODE_NIGHT = 0x30;
+    private static final int MASK_SCREENROUND = 0x03;
+    private static final int MASK_WIDE_COLOR_GAMUT = 0x03;
+    private static final int MASK_HDR = 0x0c;
+    private static final int DENSITY_MEDIUM = 160;
+    private static final int DENSITY_ANY = 0xfffe;
+
+    private static final int ENGLISH = 0x656e;
+    private static final int UNITED_STATES = 0x5553;
+    private static final int TAGALOG = 0x746c;
+    // "fil" packed as three letter language
+    private static final int FILIPINO = 0xad05;
+}
@@ -179,6 +179,7 @@ public class ResValueMap extends AttributeValue implements Comparable<ResValueMa
     @Override
     public void setNameId(int id){
         putInteger(getBytesInternal(), OFFSET_NAME, id);
+        markModified();
     }
 
     @Override
@@ -64,15 +64,18 @@ public class ValueHeader extends BlockItem implements JSONConvert<JSONObject> {
     }
     public void setComplex(boolean complex){
         putBit(getBytesInternal(), OFFSET_FLAGS, 0, complex);
+        markModified();
     }
     public void setPublic(boolean b){
         putBit(getBytesInternal(), OFFSET_FLAGS,1, b);
+        markModified();
     }
     public boolean isPublic(){
         return getBit(getBytesInternal(), OFFSET_FLAGS,1);
     }
     public void setWeak(boolean b){
         putBit(getBytesInternal(), OFFSET_FLAGS, 2, b);
+        markModified();
     }
     public boolean isWeak(){
         return getBit(getBytesInternal(), OFFSET_FLAGS,2);
@@ -85,6 +88,7 @@ public class ValueHeader extends BlockItem implements JSONConvert<JSONObject> {
         int key = getKey();
         putBit(getBytesInternal(), OFFSET_FLAGS, 3, b);
         writeKey(key, b);
+        markModified();
     }
     public boolean isCompact(){
         return getBit(getBytesInternal(), OFFSET_FLAGS,3);
@@ -110,6 +114,7 @@ public class ValueHeader extends BlockItem implements JSONConvert<JSONObject> {
     private void writeKey(int key, boolean compact){
         if(compact){
             putShort(getBytesInternal(), 0, key);
+            markModified();
         }else {
             setData(key);
         }
@@ -119,12 +124,14 @@ public class ValueHeader extends BlockItem implements JSONConvert<JSONObject> {
     }
     void setData(int data){
         putInteger(getBytesInternal(), 4, data);
+        markModified();
     }
     byte getType(){
         return getBytesInternal()[OFFSET_DATA_TYPE];
     }
     void setType(byte type){
         getBytesInternal()[OFFSET_DATA_TYPE] = type;
+        markModified();
     }
     public void setKey(StringItem stringItem){
         if(ignoreUpdateKey(stringItem)){
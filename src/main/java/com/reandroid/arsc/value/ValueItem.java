@@ -97,6 +97,7 @@ public abstract class ValueItem extends BlockItem implements Value,
     }
     void setRes0(byte b){
         getBytesInternal()[this.sizeOffset + OFFSET_RES0] = b;
+        markModified();
     }
     public byte getType(){
         return getBytesInternal()[this.sizeOffset + OFFSET_TYPE];
@@ -109,6 +110,7 @@ public abstract class ValueItem extends BlockItem implements Value,
         int offset = this.sizeOffset + OFFSET_TYPE;
         byte old = bts[offset];
         bts[offset] = type;
+        markModified();
         onTypeChanged(old, type);
         onDataChanged();
     }
@@ -166,6 +168,7 @@ public abstract class ValueItem extends BlockItem implements Value,
     }
     void writeData(int data){
         putInteger(getBytesInternal(), this.sizeOffset + OFFSET_DATA, data);
+        markModified();
     }
 
     public StringItem getDataAsPoolString(){
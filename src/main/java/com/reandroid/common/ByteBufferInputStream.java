@@ -0,0 +1,102 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * InputStream over a (possibly memory-mapped) ByteBuffer, the buffer is not copied and
+ * consumers like {@link com.reandroid.arsc.io.BlockReader} can read straight from it.
+ * */
+public class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer byteBuffer;
+    private int mark;
+
+    public ByteBufferInputStream(ByteBuffer byteBuffer){
+        this.byteBuffer = byteBuffer.slice();
+    }
+
+    /**
+     * @return read-only view of the remaining bytes, position of this stream is not changed
+     * */
+    public ByteBuffer getByteBuffer(){
+        return byteBuffer.slice().asReadOnlyBuffer();
+    }
+    public int getLength(){
+        return byteBuffer.limit();
+    }
+    @Override
+    public int read() throws IOException {
+        ByteBuffer byteBuffer = this.byteBuffer;
+        if(!byteBuffer.hasRemaining()){
+            return -1;
+        }
+        return byteBuffer.get() & 0xff;
+    }
+    @Override
+    public int read(byte[] bytes) throws IOException {
+        return read(bytes, 0, bytes.length);
+    }
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if(length == 0){
+            return 0;
+        }
+        ByteBuffer byteBuffer = this.byteBuffer;
+        int available = byteBuffer.remaining();
+        if(available == 0){
+            return -1;
+        }
+        if(length > available){
+            length = available;
+        }
+        byteBuffer.get(bytes, offset, length);
+        return length;
+    }
+    @Override
+    public long skip(long amount) throws IOException {
+        if(amount <= 0){
+            return 0;
+        }
+        ByteBuffer byteBuffer = this.byteBuffer;
+        int skip = (int) Math.min(amount, byteBuffer.remaining());
+        ((Buffer) byteBuffer).position(byteBuffer.position() + skip);
+        return skip;
+    }
+    @Override
+    public int available() {
+        return byteBuffer.remaining();
+    }
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+    @Override
+    public synchronized void mark(int readLimit){
+        mark = byteBuffer.position();
+    }
+    @Override
+    public synchronized void reset() throws IOException {
+        ((Buffer) byteBuffer).position(mark);
+    }
+    @Override
+    public void close() {
+        ((Buffer) byteBuffer).position(byteBuffer.limit());
+    }
+}
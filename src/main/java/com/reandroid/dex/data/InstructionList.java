@@ -470,6 +470,12 @@ public class InstructionList extends FixedBlockContainer implements
     @Override
     public void append(SmaliWriter writer) throws IOException {
         InsBlockList insBlockList = getInsBlockList();
+        // code items may be shared between methods written on different threads
+        synchronized (insBlockList) {
+            appendLocked(insBlockList, writer);
+        }
+    }
+    private void appendLocked(InsBlockList insBlockList, SmaliWriter writer) throws IOException {
         Object lock = insBlockList.linkLocked();
         writer.buildLabels(getCodeLabels());
         writer.setStateWritingInstructions(true);
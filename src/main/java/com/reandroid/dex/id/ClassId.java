@@ -27,6 +27,7 @@ import com.reandroid.dex.program.ClassProgram;
 import com.reandroid.dex.reference.DataItemIndirectReference;
 import com.reandroid.dex.reference.TypeListReference;
 import com.reandroid.dex.sections.Section;
+import com.reandroid.dex.sections.SectionList;
 import com.reandroid.dex.sections.SectionType;
 import com.reandroid.dex.smali.model.SmaliClass;
 import com.reandroid.dex.smali.SmaliWriter;
@@ -202,6 +203,12 @@ public class ClassId extends IdItem implements ClassProgram, IdDefinition<TypeId
     public void setInterfaces(TypeListKey typeListKey){
         this.interfaces.setKey(typeListKey);
     }
+    public void onHierarchyChanged(){
+        SectionList sectionList = getSectionList();
+        if(sectionList != null){
+            sectionList.onClassChanged(this, null);
+        }
+    }
 
     @Override
     public Iterator<FieldDef> getStaticFields() {
@@ -40,6 +40,14 @@ public class SuperClassId extends IdItemIndirectReference<TypeId> implements Sma
     public ClassId getBlockItem() {
         return (ClassId) super.getBlockItem();
     }
+    @Override
+    public void setItem(TypeId item) {
+        if(item == getItem()){
+            return;
+        }
+        super.setItem(item);
+        getBlockItem().onHierarchyChanged();
+    }
 
     @Override
     public void append(SmaliWriter writer) throws IOException {
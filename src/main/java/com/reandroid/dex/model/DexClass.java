@@ -247,6 +247,13 @@ public class DexClass extends DexDeclaration implements ClassProgram, Comparable
         return CombiningIterator.two(getOverriding(), getSuperTypes());
     }
     public Iterator<DexClass> getSuperTypes() {
+        DexClassIndex classIndex = DexClassIndex.of(getClassRepository());
+        if (classIndex != null) {
+            Iterator<DexClass> superTypes = classIndex.getSuperTypes(this);
+            if (superTypes != null) {
+                return superTypes;
+            }
+        }
 
         Iterator<DexClass> iterator = CombiningIterator.two(
                 SingleIterator.of(getSuperClass()),
@@ -284,6 +291,13 @@ public class DexClass extends DexDeclaration implements ClassProgram, Comparable
         if (typeKey.equals(getKey()) || typeKey.equals(superType)) {
             return true;
         }
+        DexClassIndex classIndex = DexClassIndex.of(getClassRepository());
+        if (classIndex != null) {
+            Boolean instance = classIndex.isInstance(this, typeKey);
+            if (instance != null) {
+                return instance;
+            }
+        }
         DexClass superClass = search(superType);
         if (superClass != null && superClass.isInstance(typeKey)) {
             if (superClass.isInstance(typeKey)) {
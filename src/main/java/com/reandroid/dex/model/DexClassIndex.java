@@ -0,0 +1,291 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.model;
+
+import com.reandroid.common.ReflectionUtil;
+import com.reandroid.dex.id.ClassId;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.key.TypeListKey;
+import com.reandroid.dex.sections.DexLayoutBlock;
+import com.reandroid.utils.collection.ArrayCollection;
+import com.reandroid.utils.collection.ArrayIterator;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Repository wide TypeKey to DexClass map, shared by all modules of a root repository.
+ * Changes bound to one class (added, removed, renamed or new super types) are queued on the
+ * current map and applied by the next lookup. Any other class change bumps {@link #onChanged()},
+ * the next lookup then rebuilds the map and publishes it for the following lookups.
+ * */
+class DexClassIndex {
+
+    private final DexClassRepository repository;
+    private final AtomicInteger version;
+    private volatile Snapshot snapshot;
+    private int buildCount;
+
+    DexClassIndex(DexClassRepository repository) {
+        this.repository = repository;
+        this.version = new AtomicInteger();
+    }
+
+    void onChanged() {
+        this.version.incrementAndGet();
+    }
+    /**
+     * The given class was added, removed, renamed from oldKey or changed its super types.
+     * A null class stands for a renamed type which is not a class of this repository.
+     * */
+    synchronized void onClassChanged(DexClass dexClass, TypeKey oldKey) {
+        int version = this.version.get();
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.pendingVersion == version
+                && snapshot.pending.size() <= snapshot.classMap.size() / 2 + 16
+                && this.version.compareAndSet(version, version + 1)) {
+            snapshot.pending.add(new Change(dexClass, oldKey));
+            snapshot.pendingVersion = version + 1;
+        } else {
+            onChanged();
+        }
+    }
+    int getVersion() {
+        return version.get();
+    }
+    int getBuildCount() {
+        return buildCount;
+    }
+    DexClass get(TypeKey typeKey) {
+        if (typeKey == null) {
+            return null;
+        }
+        Snapshot snapshot = getSnapshot();
+        if (snapshot != null) {
+            return snapshot.classMap.get(typeKey);
+        }
+        return repository.searchClass(repository.modules(), typeKey);
+    }
+    Iterator<DexClass> getSuperTypes(DexClass dexClass) {
+        Snapshot snapshot = getSnapshot();
+        if (snapshot != null) {
+            Hierarchy hierarchy = snapshot.getHierarchy(dexClass);
+            if (hierarchy != null) {
+                return ArrayIterator.of(hierarchy.superClasses);
+            }
+        }
+        return null;
+    }
+    Boolean isInstance(DexClass dexClass, TypeKey typeKey) {
+        Snapshot snapshot = getSnapshot();
+        if (snapshot != null) {
+            Hierarchy hierarchy = snapshot.getHierarchy(dexClass);
+            if (hierarchy != null) {
+                return hierarchy.isInstance(typeKey);
+            }
+        }
+        return null;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.version == version.get()) {
+            return snapshot;
+        }
+        return build();
+    }
+    /**
+     * Returns null if classes changed while building, callers then search the modules
+     * */
+    private synchronized Snapshot build() {
+        int version = this.version.get();
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.version == version) {
+            return snapshot;
+        }
+        if (snapshot != null && snapshot.pendingVersion == version) {
+            if (snapshot.applyPending(repository)) {
+                snapshot.version = version;
+                return snapshot;
+            }
+        }
+        buildCount ++;
+        snapshot = new Snapshot(version, repository.getDexClassesCount());
+        Iterator<DexClassModule> modules = repository.modules();
+        while (modules.hasNext()) {
+            Iterator<DexClass> iterator = modules.next().getDexClasses();
+            while (iterator.hasNext()) {
+                DexClass dexClass = iterator.next();
+                snapshot.classMap.putIfAbsent(dexClass.getKey(), dexClass);
+            }
+        }
+        if (version != this.version.get()) {
+            this.snapshot = null;
+            return null;
+        }
+        this.snapshot = snapshot;
+        return snapshot;
+    }
+
+    static DexClassIndex of(DexClassRepository repository) {
+        if (repository instanceof DexDirectory) {
+            return ((DexDirectory) repository).getClassIndex();
+        }
+        if (repository instanceof DexFile) {
+            return ((DexFile) repository).getClassIndex();
+        }
+        return null;
+    }
+
+    static class Snapshot {
+
+        volatile int version;
+        int pendingVersion;
+        final Map<TypeKey, DexClass> classMap;
+        private final Map<TypeKey, Hierarchy> hierarchyMap;
+        final ArrayCollection<Change> pending;
+
+        Snapshot(int version, int size) {
+            this.version = version;
+            this.pendingVersion = version;
+            this.classMap = new ConcurrentHashMap<>(size + size / 2 + 1);
+            this.hierarchyMap = new ConcurrentHashMap<>();
+            this.pending = new ArrayCollection<>();
+        }
+
+        Hierarchy getHierarchy(DexClass dexClass) {
+            TypeKey key = dexClass.getKey();
+            DexClass indexed = classMap.get(key);
+            if (indexed == null || indexed.getId() != dexClass.getId()) {
+                return null;
+            }
+            Hierarchy hierarchy = hierarchyMap.get(key);
+            if (hierarchy == null) {
+                hierarchy = new Hierarchy(this, key);
+                hierarchyMap.put(key, hierarchy);
+            }
+            return hierarchy;
+        }
+        /**
+         * Returns false if a change can not be applied to single entries, the same key is
+         * defined by an other class and only a full pass knows which module comes first.
+         * */
+        boolean applyPending(DexClassRepository repository) {
+            hierarchyMap.clear();
+            ArrayCollection<Change> pending = this.pending;
+            int size = pending.size();
+            for (int i = 0; i < size; i++) {
+                Change change = pending.get(i);
+                DexClass dexClass = change.dexClass;
+                if (dexClass == null) {
+                    continue;
+                }
+                ClassId classId = dexClass.getId();
+                TypeKey oldKey = change.oldKey;
+                if (oldKey != null) {
+                    DexClass indexed = classMap.get(oldKey);
+                    if (indexed != null && indexed.getId() == classId) {
+                        classMap.remove(oldKey);
+                        DexClass other = repository.searchClass(repository.modules(), oldKey);
+                        if (other != null) {
+                            classMap.put(oldKey, other);
+                        }
+                    }
+                }
+                if (classId.getParentInstance(DexLayoutBlock.class) !=
+                        dexClass.getDexLayout().getDexLayoutBlock()) {
+                    // removed or moved, the move has its own change
+                    continue;
+                }
+                TypeKey key = classId.getKey();
+                if (key == null) {
+                    continue;
+                }
+                DexClass indexed = classMap.get(key);
+                if (indexed != null && indexed.getId() != classId && !indexed.getId().isRemoved()) {
+                    return false;
+                }
+                classMap.put(key, dexClass);
+            }
+            pending.clear();
+            return true;
+        }
+    }
+    static class Change {
+
+        final DexClass dexClass;
+        final TypeKey oldKey;
+
+        Change(DexClass dexClass, TypeKey oldKey) {
+            this.dexClass = dexClass;
+            this.oldKey = oldKey;
+        }
+    }
+
+    // all super classes and interfaces, in the order of DexClass.getSuperTypes()
+    static class Hierarchy {
+
+        final DexClass[] superClasses;
+        private final Set<TypeKey> superKeys;
+        private final ArrayCollection<TypeKey> unresolvedKeys;
+
+        Hierarchy(Snapshot snapshot, TypeKey typeKey) {
+            ArrayCollection<DexClass> superClasses = new ArrayCollection<>();
+            this.superKeys = new HashSet<>();
+            this.unresolvedKeys = new ArrayCollection<>();
+            superKeys.add(typeKey);
+            ArrayCollection<TypeKey> stack = new ArrayCollection<>();
+            pushDirectSuperTypes(stack, snapshot.classMap.get(typeKey));
+            while (!stack.isEmpty()) {
+                TypeKey key = stack.remove(stack.size() - 1);
+                if (key == null || !superKeys.add(key)) {
+                    continue;
+                }
+                DexClass dexClass = snapshot.classMap.get(key);
+                if (dexClass == null) {
+                    unresolvedKeys.add(key);
+                } else {
+                    superClasses.add(dexClass);
+                    pushDirectSuperTypes(stack, dexClass);
+                }
+            }
+            superKeys.remove(typeKey);
+            this.superClasses = superClasses.toArray(new DexClass[superClasses.size()]);
+        }
+        private static void pushDirectSuperTypes(ArrayCollection<TypeKey> stack, DexClass dexClass) {
+            TypeListKey interfaces = dexClass.getInterfacesKey();
+            for (int i = interfaces.size() - 1; i >= 0; i--) {
+                stack.add(interfaces.get(i));
+            }
+            stack.add(dexClass.getSuperClassKey());
+        }
+        boolean isInstance(TypeKey typeKey) {
+            if (superKeys.contains(typeKey)) {
+                return true;
+            }
+            for (TypeKey key : unresolvedKeys) {
+                if (ReflectionUtil.isInstanceReflection(key, typeKey)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
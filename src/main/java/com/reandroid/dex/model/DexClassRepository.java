@@ -80,7 +80,7 @@ public interface DexClassRepository extends FullRefresh, BlockRefresh {
     }
 
     default DexClass searchClass(TypeKey typeKey) {
-        return searchClass(getRootRepository().modules(), typeKey);
+        return getRootRepository().getDexClass(typeKey);
     }
     default DexClass searchClass(Iterator<DexClassModule> modules, TypeKey typeKey) {
         while (modules.hasNext()) {
@@ -295,6 +295,10 @@ public interface DexClassRepository extends FullRefresh, BlockRefresh {
         return new UniqueIterator<>(getDexClasses(),
                 dexClass -> dexClass.uses(key));
     }
+    default Iterator<DexMethod> findUserMethods(Key key){
+        return FilterIterator.of(getDeclaredMethods(),
+                dexMethod -> dexMethod.uses(key));
+    }
     default Iterator<DexClass> getDexClasses(){
         return getDexClasses(null);
     }
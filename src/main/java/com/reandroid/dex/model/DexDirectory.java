@@ -16,6 +16,7 @@
 package com.reandroid.dex.model;
 
 import com.reandroid.archive.ZipEntryMap;
+import com.reandroid.arsc.base.Block;
 import com.reandroid.dex.common.FullRefresh;
 import com.reandroid.dex.common.SectionItem;
 import com.reandroid.dex.id.ClassId;
@@ -24,6 +25,7 @@ import com.reandroid.dex.id.MethodId;
 import com.reandroid.dex.id.StringId;
 import com.reandroid.dex.key.*;
 import com.reandroid.dex.sections.*;
+import com.reandroid.dex.smali.ParallelSmaliWriter;
 import com.reandroid.dex.smali.SmaliWriter;
 import com.reandroid.utils.collection.*;
 
@@ -32,6 +34,11 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 
 public class DexDirectory implements Iterable<DexFile>, Closeable,
@@ -39,11 +46,17 @@ public class DexDirectory implements Iterable<DexFile>, Closeable,
 
     private final DexFileSourceSet dexSourceSet;
     private Object mTag;
+    private int smaliThreads;
+    private int renameThreads;
     private final ArrayCollection<TypeKeyReference> externalTypeKeyReferenceList;
+    private final DexClassIndex classIndex;
+    private int indexedModCount;
+    private DexXrefIndex xrefIndex;
 
     public DexDirectory() {
         this.dexSourceSet = new DexFileSourceSet();
         this.externalTypeKeyReferenceList = new ArrayCollection<>();
+        this.classIndex = new DexClassIndex(this);
     }
 
     public Object getTag() {
@@ -289,136 +302,93 @@ public class DexDirectory implements Iterable<DexFile>, Closeable,
         return renameTypes(new KeyPair<>(search, replace), renameInner, renameJava);
     }
     public Iterator<StringId> renameTypes(KeyPair<TypeKey, TypeKey> pair, boolean renameInner, boolean renameJava){
-        return FilterIterator.of(getClonedItems(SectionType.STRING_ID),
-                stringId -> renameTypes(stringId, pair, renameInner, renameJava));
+        return renameTypes(CollectionUtil.asList(pair), renameInner, renameJava);
     }
     public Iterator<StringId> renameTypes(Iterable<KeyPair<TypeKey, TypeKey>> iterable, boolean renameInner, boolean renameJava){
-        return FilterIterator.of(getClonedItems(SectionType.STRING_ID),
-                stringId -> renameTypes(stringId, iterable, renameInner, renameJava));
-    }
-    boolean renameTypes(StringId stringId, Iterable<KeyPair<TypeKey, TypeKey>> iterable, boolean renameInner, boolean renameJava){
-        for(KeyPair<TypeKey, TypeKey> pair : iterable){
-            boolean renamed = renameTypes(stringId, pair, renameInner, renameJava);
-            if(renamed){
-                return true;
+        TypeStringRenamer renamer = new TypeStringRenamer(iterable, renameInner, renameJava);
+        if(getRenameThreads() > 1 && size() > 1){
+            return renameTypesParallel(renamer);
+        }
+        return renameTypesSerial(renamer);
+    }
+    // strings are renamed as the caller iterates, inner class name fixes follow
+    // once the strings run out
+    private Iterator<StringId> renameTypesSerial(TypeStringRenamer renamer){
+        List<StringId> results = new ArrayCollection<>();
+        Iterator<StringId> iterator = FilterIterator.of(getClonedItems(SectionType.STRING_ID),
+                stringId -> {
+                    if(renamer.rename(stringId)){
+                        results.add(stringId);
+                        return true;
+                    }
+                    return false;
+                });
+        return new Iterator<StringId>() {
+            private boolean fixed;
+            @Override
+            public boolean hasNext() {
+                if(iterator.hasNext()){
+                    return true;
+                }
+                if(!fixed){
+                    fixed = true;
+                    fixDalvikInnerClassNames(results);
+                }
+                return false;
             }
-        }
-        return false;
+            @Override
+            public StringId next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                return iterator.next();
+            }
+        };
     }
-    boolean renameTypes(StringId stringId, KeyPair<TypeKey, TypeKey> pair, boolean renameInner, boolean renameJava){
-        boolean renamed = renameTypeString(stringId, pair, renameInner, renameJava);
-        if(renamed){
+    // each renamed string is a class index change, classes are looked up after all of them
+    private void fixDalvikInnerClassNames(List<StringId> renamedList){
+        for(StringId stringId : renamedList){
             DexClass dexClass = getDexClass(TypeKey.create(stringId.getString()));
             if(dexClass != null){
                 dexClass.fixDalvikInnerClassName();
             }
         }
-        return renamed;
     }
-    private boolean renameTypeString(StringId stringId, KeyPair<TypeKey, TypeKey> pair, boolean renameInner, boolean renameJava){
-
-        String text = stringId.getString();
-
-        TypeKey search = pair.getFirst();
-        TypeKey replace = pair.getSecond();
-        String type = search.getTypeName();
-        String type2 = replace.getTypeName();
-
-        if(type.equals(text)){
-            stringId.setString(type2);
-            return true;
-        }
-        if(renameInner){
-            type = type.replace(';', '$');
-            if(text.startsWith(type)){
-                type2 = replace.getTypeName();
-                type2 = type2.replace(';', '$');
-                text = text.substring(type.length());
-                stringId.setString(type2 + text);
-                return true;
-            }
-        }
-        type = search.getSignatureTypeName();
-        if(type.equals(text)){
-            type2 = replace.getSignatureTypeName();
-            stringId.setString(type2);
-            return true;
-        }
-        type = search.getArrayType(1);
-        if(type.equals(text)){
-            type2 = replace.getArrayType(1);
-            stringId.setString(type2);
-            return true;
-        }
-        if(renameInner){
-            type = type.replace(';', '$');
-            if(text.startsWith(type)){
-                type2 = replace.getArrayType(1);
-                type2 = type2.replace(';', '$');
-                text = text.substring(type.length());
-                stringId.setString(type2 + text);
-                return true;
-            }
-        }
-        type = search.getArrayType(2);
-        if(type.equals(text)){
-            type2 = replace.getArrayType(2);
-            stringId.setString(type2);
-            return true;
-        }
-        if(renameInner){
-            type = type.replace(';', '$');
-            if(text.startsWith(type)){
-                type2 = replace.getArrayType(2);
-                type2 = type2.replace(';', '$');
-                text = text.substring(type.length());
-                stringId.setString(type2 + text);
-                return true;
-            }
-        }
-        type = search.getArrayType(3);
-        if(type.equals(text)){
-            type2 = replace.getArrayType(3);
-            stringId.setString(type2);
-            return true;
-        }
-        if(renameInner){
-            type = type.replace(';', '$');
-            if(text.startsWith(type)){
-                type2 = replace.getArrayType(3);
-                type2 = type2.replace(';', '$');
-                text = text.substring(type.length());
-                stringId.setString(type2 + text);
-                return true;
+    // strings of each dex file are renamed on its own worker, class lookups and
+    // inner class name fixes follow on the calling thread
+    private Iterator<StringId> renameTypesParallel(TypeStringRenamer renamer){
+        List<DexFile> dexFileList = CollectionUtil.toList(iterator());
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(getRenameThreads(), dexFileList.size()));
+        List<StringId> results = new ArrayCollection<>();
+        try {
+            List<Future<List<StringId>>> futures = new ArrayCollection<>(dexFileList.size());
+            for(DexFile dexFile : dexFileList){
+                futures.add(executor.submit(() ->
+                        renamer.renameAll(dexFile.getClonedItems(SectionType.STRING_ID))));
             }
-        }
-        if(renameJava){
-            type = search.getSourceName();
-            if(type.equals(text)){
-                type2 = replace.getSourceName();
-                stringId.setString(type2);
-                return true;
+            for(Future<List<StringId>> future : futures){
+                results.addAll(awaitRename(future));
             }
-            if(renameInner){
-                type = type + "$";
-                if(text.startsWith(type)){
-                    type2 = replace.getSourceName();
-                    type2 = type2 + "$";
-                    text = text.substring(type.length());
-                    stringId.setString(type2 + text);
-                    return true;
-                }
-                type = type + ".";
-                if(text.startsWith(type)){
-                    type2 = replace.getSourceName();
-                    type2 = type2 + ".";
-                    text = text.substring(type.length());
-                    stringId.setString(type2 + text);
-                    return true;
-                }
+        } finally {
+            executor.shutdownNow();
+        }
+        fixDalvikInnerClassNames(results);
+        return results.iterator();
+    }
+    private static List<StringId> awaitRename(Future<List<StringId>> future){
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
             }
+            throw new IllegalStateException(cause);
         }
-        return false;
     }
     public List<MethodKey> replace(MethodKey methodKey, String name){
         List<MethodKey> results = rename(methodKey, name);
@@ -536,6 +506,75 @@ public class DexDirectory implements Iterable<DexFile>, Closeable,
         return this;
     }
     @Override
+    public DexClass getDexClass(TypeKey typeKey) {
+        return getClassIndex().get(typeKey);
+    }
+    @Override
+    public boolean containsClass(TypeKey key) {
+        return getClassIndex().get(key) != null;
+    }
+    public boolean isXrefIndexEnabled() {
+        return xrefIndex != null;
+    }
+    /**
+     * When enabled, {@link #findUserClasses(Key)} and {@link #findUserMethods(Key)} answer from
+     * a {@link DexXrefIndex} built on first query. Added, removed and edited classes as well
+     * as renamed keys are re-indexed on the next query.
+     * */
+    public void setXrefIndexEnabled(boolean enabled) {
+        if (!enabled) {
+            this.xrefIndex = null;
+        } else if (this.xrefIndex == null) {
+            this.xrefIndex = new DexXrefIndex(this);
+        }
+    }
+    public DexXrefIndex getXrefIndex() {
+        return xrefIndex;
+    }
+    @Override
+    public Iterator<DexClass> findUserClasses(Key key) {
+        DexXrefIndex xrefIndex = this.xrefIndex;
+        if (xrefIndex != null) {
+            return xrefIndex.findUserClasses(key);
+        }
+        return DexClassRepository.super.findUserClasses(key);
+    }
+    @Override
+    public Iterator<DexMethod> findUserMethods(Key key) {
+        DexXrefIndex xrefIndex = this.xrefIndex;
+        if (xrefIndex != null) {
+            return xrefIndex.findUserMethods(key);
+        }
+        return DexClassRepository.super.findUserMethods(key);
+    }
+    DexClassIndex getClassIndex() {
+        DexClassIndex classIndex = this.classIndex;
+        int modCount = getDexSourceSet().getModCount();
+        if (modCount != this.indexedModCount) {
+            this.indexedModCount = modCount;
+            classIndex.onChanged();
+        }
+        return classIndex;
+    }
+    void onClassesChanged() {
+        classIndex.onChanged();
+    }
+    void onClassChanged(DexClass dexClass, TypeKey oldKey) {
+        getClassIndex().onClassChanged(dexClass, oldKey);
+    }
+    void onKeyChanged(Key oldKey) {
+        DexXrefIndex xrefIndex = this.xrefIndex;
+        if (xrefIndex != null) {
+            xrefIndex.onKeyChanged(oldKey);
+        }
+    }
+    void onBlockEdited(Block block) {
+        DexXrefIndex xrefIndex = this.xrefIndex;
+        if (xrefIndex != null) {
+            xrefIndex.onBlockEdited(block);
+        }
+    }
+    @Override
     public Iterator<DexClassModule> modules() {
         return new IterableIterator<DexFile, DexClassModule>(iterator()) {
             @Override
@@ -652,9 +691,38 @@ public class DexDirectory implements Iterable<DexFile>, Closeable,
         this.clearExternalTypeKeyReferences();
     }
 
+    public int getSmaliThreads() {
+        return smaliThreads;
+    }
+    /**
+     * Number of workers used to write classes in {@link #writeSmali(SmaliWriter, File)},
+     * shared by all dex files. Values less than 2 keep the single-threaded mode, the
+     * written files are identical in both modes.
+     * */
+    public void setSmaliThreads(int smaliThreads) {
+        this.smaliThreads = smaliThreads;
+    }
+    public int getRenameThreads() {
+        return renameThreads;
+    }
+    /**
+     * Number of workers used by {@link #renameTypes(Iterable, boolean, boolean)} to rename
+     * strings, one dex file per worker. Values less than 2 keep the single-threaded mode
+     * where the returned iterator renames lazily, otherwise renaming is done before
+     * returning. Renamed strings are identical in both modes.
+     * */
+    public void setRenameThreads(int renameThreads) {
+        this.renameThreads = renameThreads;
+    }
     public void writeSmali(SmaliWriter writer, File root) throws IOException {
-        for(DexFile dexFile : this) {
-            dexFile.writeSmali(writer, root);
+        ParallelSmaliWriter parallelWriter = new ParallelSmaliWriter(writer, getSmaliThreads());
+        try {
+            for(DexFile dexFile : this) {
+                dexFile.writeSmali(parallelWriter, root);
+            }
+            parallelWriter.await();
+        } finally {
+            parallelWriter.close();
         }
     }
 
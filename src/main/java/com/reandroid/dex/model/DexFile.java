@@ -15,9 +15,13 @@
  */
 package com.reandroid.dex.model;
 
+import com.reandroid.arsc.base.Block;
 import com.reandroid.arsc.io.BlockReader;
 import com.reandroid.dex.id.ClassId;
+import com.reandroid.dex.key.Key;
+import com.reandroid.dex.key.TypeKey;
 import com.reandroid.dex.sections.*;
+import com.reandroid.dex.smali.ParallelSmaliWriter;
 import com.reandroid.dex.smali.SmaliWriter;
 import com.reandroid.utils.CompareUtil;
 import com.reandroid.utils.ObjectsUtil;
@@ -35,6 +39,9 @@ public class DexFile implements Closeable, DexClassRepository, Iterable<DexLayou
     private final DexContainerBlock containerBlock;
     private final DexFileLayoutController layoutController;
     private DexDirectory dexDirectory;
+    private int smaliThreads;
+    private final DexClassIndex classIndex;
+    private DexXrefIndex xrefIndex;
 
     private boolean closed;
 
@@ -42,6 +49,7 @@ public class DexFile implements Closeable, DexClassRepository, Iterable<DexLayou
         this.containerBlock = containerBlock;
         this.layoutController = new DexFileLayoutController(this);
         containerBlock.setLayoutBlockChangedListener(layoutController);
+        this.classIndex = new DexClassIndex(this);
     }
 
 
@@ -105,6 +113,9 @@ public class DexFile implements Closeable, DexClassRepository, Iterable<DexLayou
         return dexDirectory;
     }
     public void setDexDirectory(DexDirectory dexDirectory) {
+        if (dexDirectory != this.dexDirectory && dexDirectory != null) {
+            dexDirectory.onClassesChanged();
+        }
         this.dexDirectory = dexDirectory;
         DexContainerBlock containerBlock = getContainerBlock();
         containerBlock.setTag(this);
@@ -162,6 +173,91 @@ public class DexFile implements Closeable, DexClassRepository, Iterable<DexLayou
     public Iterator<DexClassModule> modules() {
         return ObjectsUtil.cast(iterator());
     }
+    @Override
+    public DexClass getDexClass(TypeKey typeKey) {
+        if (getDexDirectory() == null) {
+            return getClassIndex().get(typeKey);
+        }
+        return DexClassRepository.super.getDexClass(typeKey);
+    }
+    @Override
+    public boolean containsClass(TypeKey key) {
+        if (getDexDirectory() == null) {
+            return getClassIndex().get(key) != null;
+        }
+        return DexClassRepository.super.containsClass(key);
+    }
+    public boolean isXrefIndexEnabled() {
+        return xrefIndex != null;
+    }
+    /**
+     * When enabled, {@link #findUserClasses(Key)} and {@link #findUserMethods(Key)} answer from
+     * a {@link DexXrefIndex} built on first query. Added, removed and edited classes as well
+     * as renamed keys are re-indexed on the next query.
+     * */
+    public void setXrefIndexEnabled(boolean enabled) {
+        if (!enabled) {
+            this.xrefIndex = null;
+        } else if (this.xrefIndex == null) {
+            this.xrefIndex = new DexXrefIndex(this);
+        }
+    }
+    public DexXrefIndex getXrefIndex() {
+        return xrefIndex;
+    }
+    @Override
+    public Iterator<DexClass> findUserClasses(Key key) {
+        DexXrefIndex xrefIndex = this.xrefIndex;
+        if (xrefIndex != null) {
+            return xrefIndex.findUserClasses(key);
+        }
+        return DexClassRepository.super.findUserClasses(key);
+    }
+    @Override
+    public Iterator<DexMethod> findUserMethods(Key key) {
+        DexXrefIndex xrefIndex = this.xrefIndex;
+        if (xrefIndex != null) {
+            return xrefIndex.findUserMethods(key);
+        }
+        return DexClassRepository.super.findUserMethods(key);
+    }
+    DexClassIndex getClassIndex() {
+        return classIndex;
+    }
+    void onClassesChanged() {
+        classIndex.onChanged();
+        DexDirectory dexDirectory = getDexDirectory();
+        if (dexDirectory != null) {
+            dexDirectory.onClassesChanged();
+        }
+    }
+    void onClassChanged(DexClass dexClass, TypeKey oldKey) {
+        classIndex.onClassChanged(dexClass, oldKey);
+        DexDirectory dexDirectory = getDexDirectory();
+        if (dexDirectory != null) {
+            dexDirectory.onClassChanged(dexClass, oldKey);
+        }
+    }
+    void onKeyChanged(Key oldKey) {
+        DexXrefIndex xrefIndex = this.xrefIndex;
+        if (xrefIndex != null) {
+            xrefIndex.onKeyChanged(oldKey);
+        }
+        DexDirectory dexDirectory = getDexDirectory();
+        if (dexDirectory != null) {
+            dexDirectory.onKeyChanged(oldKey);
+        }
+    }
+    void onBlockEdited(Block block) {
+        DexXrefIndex xrefIndex = this.xrefIndex;
+        if (xrefIndex != null) {
+            xrefIndex.onBlockEdited(block);
+        }
+        DexDirectory dexDirectory = getDexDirectory();
+        if (dexDirectory != null) {
+            dexDirectory.onBlockEdited(block);
+        }
+    }
 
     public int clearDuplicateData(){
         int result = 0;
@@ -259,6 +355,18 @@ public class DexFile implements Closeable, DexClassRepository, Iterable<DexLayou
         getContainerBlock().writeBytes(outputStream);
     }
 
+    public int getSmaliThreads() {
+        return smaliThreads;
+    }
+    /**
+     * Number of workers used to parse smali files in {@link #parseSmaliDirectory(File)} and
+     * to write them in {@link #writeSmali(SmaliWriter, File)}, values less than 2 keep the
+     * single-threaded mode. Classes are added in file order, the resulting dex and the
+     * written files are identical in both modes.
+     * */
+    public void setSmaliThreads(int smaliThreads) {
+        this.smaliThreads = smaliThreads;
+    }
     public void parseSmaliDirectory(File dir) throws IOException {
         File fileInfo = new File(dir, DexFileInfo.FILE_NAME);
         if (fileInfo.isFile()) {
@@ -277,6 +385,16 @@ public class DexFile implements Closeable, DexClassRepository, Iterable<DexLayou
         }
     }
     public void writeSmali(SmaliWriter writer, File root) throws IOException {
+        requireNotClosed();
+        ParallelSmaliWriter parallelWriter = new ParallelSmaliWriter(writer, getSmaliThreads());
+        try {
+            writeSmali(parallelWriter, root);
+            parallelWriter.await();
+        } finally {
+            parallelWriter.close();
+        }
+    }
+    public void writeSmali(ParallelSmaliWriter writer, File root) throws IOException {
         requireNotClosed();
         root = new File(root, buildSmaliDirectoryName());
         DexFileInfo fileInfo = DexFileInfo.fromDex(this);
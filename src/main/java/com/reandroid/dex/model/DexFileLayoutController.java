@@ -15,7 +15,11 @@
  */
 package com.reandroid.dex.model;
 
+import com.reandroid.arsc.base.Block;
 import com.reandroid.common.ArraySupplier;
+import com.reandroid.dex.id.ClassId;
+import com.reandroid.dex.key.Key;
+import com.reandroid.dex.key.TypeKey;
 import com.reandroid.dex.sections.DexContainerBlock;
 import com.reandroid.dex.sections.DexLayoutBlock;
 import com.reandroid.utils.CompareUtil;
@@ -103,13 +107,36 @@ class DexFileLayoutController implements DexContainerBlock.LayoutBlockChangedLis
                 break;
             }
         }
+        dexFile.onClassesChanged();
     }
     @Override
     public void onLayoutAdded(DexLayoutBlock layoutBlock) {
         this.get(layoutBlock);
+        dexFile.onClassesChanged();
     }
     @Override
     public void onLayoutsCleared() {
         this.dexLayoutList.clear();
+        dexFile.onClassesChanged();
+    }
+    @Override
+    public void onLayoutClassesChanged(DexLayoutBlock layoutBlock) {
+        dexFile.onClassesChanged();
+    }
+    @Override
+    public void onLayoutClassChanged(DexLayoutBlock layoutBlock, ClassId classId, TypeKey oldKey) {
+        DexClass dexClass = null;
+        if (classId != null) {
+            dexClass = new DexClass(get(layoutBlock), classId);
+        }
+        dexFile.onClassChanged(dexClass, oldKey);
+    }
+    @Override
+    public void onLayoutKeyChanged(DexLayoutBlock layoutBlock, Key oldKey) {
+        dexFile.onKeyChanged(oldKey);
+    }
+    @Override
+    public void onBlockEdited(Block block) {
+        dexFile.onBlockEdited(block);
     }
 }
@@ -33,6 +33,7 @@ public class DexFileSourceSet implements Iterable<DexSource<DexFile>>, Closeable
     private final ArrayCollection<DexSource<DexFile>> sourceList;
     private ZipEntryMap zipEntryMap;
     private Predicate<SectionType<?>> readFilter;
+    private int modCount;
 
     public DexFileSourceSet(){
         this.sourceList = new ArrayCollection<>();
@@ -207,6 +208,7 @@ public class DexFileSourceSet implements Iterable<DexSource<DexFile>>, Closeable
         sourceList.remove(source);
         sourceList.add(source);
         sourceList.sort(CompareUtil.getComparableComparator());
+        modCount ++;
         return source;
     }
     public DexFile getDexFile(int index){
@@ -245,11 +247,13 @@ public class DexFileSourceSet implements Iterable<DexSource<DexFile>>, Closeable
             DexSource<DexFile> source = DexSource.create(
                     zipEntryMap, "classes.dex", DexFile.createDefault());
             sourceList.add(source);
+            modCount ++;
             return source;
         }
         DexSource<DexFile> source = last.createNext();
         sourceList.add(source);
         sourceList.sort(CompareUtil.getComparableComparator());
+        modCount ++;
         return source;
     }
 
@@ -263,6 +267,10 @@ public class DexFileSourceSet implements Iterable<DexSource<DexFile>>, Closeable
     public void remove(DexSource<DexFile> dexSource){
         sourceList.remove(dexSource);
         dexSource.set(null);
+        modCount ++;
+    }
+    public int getModCount() {
+        return modCount;
     }
     @Override
     public void close() throws IOException {
@@ -270,6 +278,7 @@ public class DexFileSourceSet implements Iterable<DexSource<DexFile>>, Closeable
             dexSource.close();
         }
         sourceList.clear();
+        modCount ++;
     }
 
     private void load(DexSource<DexFile> dexSource) throws IOException {
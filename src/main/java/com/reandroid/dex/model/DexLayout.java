@@ -25,6 +25,8 @@ import com.reandroid.dex.id.StringId;
 import com.reandroid.dex.key.Key;
 import com.reandroid.dex.key.TypeKey;
 import com.reandroid.dex.sections.*;
+import com.reandroid.dex.smali.ParallelSmaliParser;
+import com.reandroid.dex.smali.ParallelSmaliWriter;
 import com.reandroid.dex.smali.SmaliReader;
 import com.reandroid.dex.smali.SmaliWriter;
 import com.reandroid.dex.smali.model.SmaliClass;
@@ -295,6 +297,16 @@ public class DexLayout implements DexClassModule, Closeable,
             throw new FileNotFoundException("No such directory: " + dir);
         }
         FileIterator iterator = new FileIterator(dir, FileIterator.getExtensionFilter(".smali"));
+        int threads = getDexFile().getSmaliThreads();
+        if (threads > 1) {
+            parseSmaliFilesParallel(iterator, threads);
+        } else {
+            parseSmaliFiles(iterator);
+        }
+        sort();
+        shrink();
+    }
+    private void parseSmaliFiles(Iterator<File> iterator) throws IOException {
         FileByteSource byteSource = new FileByteSource();
         SmaliReader reader = new SmaliReader(byteSource);
         DexLayoutBlock layout = getDexLayoutBlock();
@@ -307,8 +319,18 @@ public class DexLayout implements DexClassModule, Closeable,
             smaliClass.parse(reader);
             layout.fromSmali(smaliClass);
         }
-        sort();
-        shrink();
+    }
+    private void parseSmaliFilesParallel(Iterator<File> iterator, int threads) throws IOException {
+        DexLayoutBlock layout = getDexLayoutBlock();
+        ParallelSmaliParser parser = new ParallelSmaliParser(iterator, threads);
+        try {
+            SmaliClass smaliClass;
+            while ((smaliClass = parser.read()) != null) {
+                layout.fromSmali(smaliClass);
+            }
+        } finally {
+            parser.close();
+        }
     }
 
     public void parseSmaliFile(File file) throws IOException {
@@ -341,6 +363,12 @@ public class DexLayout implements DexClassModule, Closeable,
             iterator.next().writeSmali(writer, root);
         }
     }
+    public void writeSmali(ParallelSmaliWriter writer, File root) throws IOException {
+        Iterator<DexClass> iterator = getDexClasses();
+        while (iterator.hasNext()) {
+            writer.submit(iterator.next(), root);
+        }
+    }
 
 
     public byte[] getBytes() {
@@ -0,0 +1,460 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.model;
+
+import com.reandroid.arsc.base.Block;
+import com.reandroid.dex.data.AnnotationGroup;
+import com.reandroid.dex.data.AnnotationItem;
+import com.reandroid.dex.data.AnnotationSet;
+import com.reandroid.dex.data.AnnotationsDirectory;
+import com.reandroid.dex.data.CodeItem;
+import com.reandroid.dex.data.DataItem;
+import com.reandroid.dex.data.Def;
+import com.reandroid.dex.id.ClassId;
+import com.reandroid.dex.id.IdItem;
+import com.reandroid.dex.key.CallSiteKey;
+import com.reandroid.dex.key.Key;
+import com.reandroid.dex.data.MethodDef;
+import com.reandroid.utils.collection.ArrayCollection;
+import com.reandroid.utils.collection.CombiningIterator;
+import com.reandroid.utils.collection.EmptyIterator;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cross-reference of every key used by classes and methods of a repository, built in one
+ * pass over the used ids of each class: code, annotations, static values and definitions.
+ * Users are kept as int ordinals per key. Classes added or removed are picked up
+ * incrementally on next query. Edits below a class (class data, code, annotations, static
+ * values) and key changes only mark the affected classes, which are re-indexed on next query.
+ * */
+public class DexXrefIndex {
+
+    private final DexClassRepository repository;
+
+    private final Map<Key, Integer> keyIds;
+    private int[][] classUsers;
+    private int[] classUserCounts;
+    private int[][] methodUsers;
+    private int[] methodUserCounts;
+
+    private final Map<ClassId, Integer> classOrdinals;
+    private final Map<Block, int[]> blockOwners;
+    private DexClass[] classes;
+    private int classCount;
+    private int removedCount;
+    private DexMethod[] methods;
+    private int[] methodOwners;
+    private int methodCount;
+
+    private boolean built;
+    private int classesVersion;
+    private BitSet dirtyClasses;
+    private Set<Key> changedKeys;
+
+    DexXrefIndex(DexClassRepository repository) {
+        this.repository = repository;
+        this.keyIds = new HashMap<>();
+        this.classOrdinals = new IdentityHashMap<>();
+        this.blockOwners = new IdentityHashMap<>();
+        this.dirtyClasses = new BitSet();
+        this.changedKeys = new HashSet<>();
+    }
+
+    public synchronized Iterator<DexClass> findUserClasses(Key key) {
+        sync();
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            return EmptyIterator.of();
+        }
+        int[] users = classUsers[id];
+        int count = classUserCounts[id];
+        ArrayCollection<DexClass> results = new ArrayCollection<>(count);
+        for (int i = 0; i < count; i++) {
+            DexClass dexClass = classes[users[i]];
+            if (dexClass != null && !key.equals(dexClass.getKey())) {
+                results.add(dexClass);
+            }
+        }
+        return results.iterator();
+    }
+    public synchronized Iterator<DexMethod> findUserMethods(Key key) {
+        sync();
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            return EmptyIterator.of();
+        }
+        int[] users = methodUsers[id];
+        int count = methodUserCounts[id];
+        ArrayCollection<DexMethod> results = new ArrayCollection<>(count);
+        for (int i = 0; i < count; i++) {
+            int method = users[i];
+            if (classes[methodOwners[method]] != null) {
+                DexMethod dexMethod = methods[method];
+                if (!key.equals(dexMethod.getKey())) {
+                    results.add(dexMethod);
+                }
+            }
+        }
+        return results.iterator();
+    }
+    /**
+     * Marks the indexed classes owning the given block, called for every block edited
+     * below the repository.
+     * */
+    synchronized void onBlockEdited(Block block) {
+        if (!built) {
+            return;
+        }
+        while (block != null) {
+            if (block instanceof ClassId) {
+                Integer ordinal = classOrdinals.get(block);
+                if (ordinal != null) {
+                    dirtyClasses.set(ordinal);
+                }
+                return;
+            }
+            if (block instanceof IdItem) {
+                return;
+            }
+            int[] owners = blockOwners.get(block);
+            if (owners != null) {
+                for (int ordinal : owners) {
+                    dirtyClasses.set(ordinal);
+                }
+                return;
+            }
+            if (block instanceof DataItem) {
+                // not reachable from any indexed class, whoever links it is marked
+                return;
+            }
+            block = block.getParent();
+        }
+    }
+    /**
+     * Records a changed id key, users of it or of any key mentioning it are re-indexed
+     * on next query.
+     * */
+    synchronized void onKeyChanged(Key oldKey) {
+        if (built) {
+            changedKeys.add(oldKey);
+        }
+    }
+    public synchronized void clear() {
+        keyIds.clear();
+        classOrdinals.clear();
+        blockOwners.clear();
+        dirtyClasses = new BitSet();
+        changedKeys = new HashSet<>();
+        classUsers = null;
+        classUserCounts = null;
+        methodUsers = null;
+        methodUserCounts = null;
+        classes = null;
+        methods = null;
+        methodOwners = null;
+        classCount = 0;
+        removedCount = 0;
+        methodCount = 0;
+        built = false;
+    }
+
+    private void sync() {
+        if (!built || removedCount > classCount / 2) {
+            build();
+            return;
+        }
+        int version = getClassesVersion();
+        if (version != this.classesVersion) {
+            this.classesVersion = version;
+            syncClasses();
+        }
+        // re-indexing reads keys, which may report further changed keys
+        while (!changedKeys.isEmpty() || !dirtyClasses.isEmpty()) {
+            if (!changedKeys.isEmpty()) {
+                markChangedKeyUsers();
+            }
+            BitSet dirty = this.dirtyClasses;
+            this.dirtyClasses = new BitSet();
+            for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+                DexClass dexClass = classes[i];
+                if (dexClass != null) {
+                    ClassId classId = dexClass.getId();
+                    remove(classId);
+                    if (!classId.isRemoved()) {
+                        add(dexClass);
+                    }
+                }
+            }
+        }
+    }
+    private void markChangedKeyUsers() {
+        Set<Key> changed = this.changedKeys;
+        this.changedKeys = new HashSet<>();
+        for (Map.Entry<Key, Integer> entry : keyIds.entrySet()) {
+            if (!mentions(entry.getKey(), changed)) {
+                continue;
+            }
+            int id = entry.getValue();
+            int[] users = classUsers[id];
+            int count = classUserCounts[id];
+            for (int i = 0; i < count; i++) {
+                dirtyClasses.set(users[i]);
+            }
+            users = methodUsers[id];
+            count = methodUserCounts[id];
+            for (int i = 0; i < count; i++) {
+                dirtyClasses.set(methodOwners[users[i]]);
+            }
+        }
+    }
+    private static boolean mentions(Key key, Set<Key> keys) {
+        if (keys.contains(key)) {
+            return true;
+        }
+        if (key instanceof CallSiteKey) {
+            // does not list its mentioned keys
+            return true;
+        }
+        Iterator<? extends Key> iterator = key.mentionedKeys();
+        while (iterator.hasNext()) {
+            if (keys.contains(iterator.next())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    private void build() {
+        clear();
+        int size = repository.getDexClassesCount();
+        this.classes = new DexClass[size + 16];
+        this.methods = new DexMethod[size * 4 + 16];
+        this.methodOwners = new int[methods.length];
+        this.classUsers = new int[size * 8 + 16][];
+        this.classUserCounts = new int[classUsers.length];
+        this.methodUsers = new int[classUsers.length][];
+        this.methodUserCounts = new int[classUsers.length];
+        this.classesVersion = getClassesVersion();
+        Iterator<DexClass> iterator = repository.getDexClasses();
+        while (iterator.hasNext()) {
+            add(iterator.next());
+        }
+        this.built = true;
+        this.dirtyClasses = new BitSet();
+        this.changedKeys = new HashSet<>();
+    }
+    private void syncClasses() {
+        boolean[] found = new boolean[classCount];
+        ArrayCollection<DexClass> added = new ArrayCollection<>();
+        Iterator<DexClass> iterator = repository.getDexClasses();
+        while (iterator.hasNext()) {
+            DexClass dexClass = iterator.next();
+            Integer ordinal = classOrdinals.get(dexClass.getId());
+            if (ordinal != null) {
+                found[ordinal] = true;
+            } else {
+                added.add(dexClass);
+            }
+        }
+        for (int i = 0; i < found.length; i++) {
+            DexClass dexClass = classes[i];
+            if (!found[i] && dexClass != null) {
+                remove(dexClass.getId());
+            }
+        }
+        for (DexClass dexClass : added) {
+            add(dexClass);
+        }
+    }
+    private void remove(ClassId classId) {
+        Integer ordinal = classOrdinals.remove(classId);
+        if (ordinal != null) {
+            classes[ordinal] = null;
+            removedCount ++;
+        }
+    }
+    private void add(DexClass dexClass) {
+        ClassId classId = dexClass.getId();
+        int ordinal = classCount;
+        if (ordinal == classes.length) {
+            classes = Arrays.copyOf(classes, ordinal * 2);
+        }
+        classes[ordinal] = dexClass;
+        classCount ++;
+        classOrdinals.put(classId, ordinal);
+        ArrayCollection<IdItem> usedIds = classId.listUsedIds();
+        int size = usedIds.size();
+        for (int i = 0; i < size; i++) {
+            IdItem idItem = usedIds.get(i);
+            if (idItem != null && !classId.equals(idItem)) {
+                addClassUser(idItem.getKey(), ordinal);
+            }
+        }
+        addOwners(classId, ordinal);
+        Iterator<DexMethod> iterator = dexClass.getDeclaredMethods();
+        while (iterator.hasNext()) {
+            addMethod(ordinal, iterator.next());
+        }
+    }
+    private void addOwners(ClassId classId, int ordinal) {
+        addOwner(classId.getClassData(), ordinal);
+        addOwner(classId.getStaticValuesEncodedArray(), ordinal);
+        addOwner(classId.getInterfaceTypeList(), ordinal);
+        AnnotationsDirectory directory = classId.getAnnotationsDirectory();
+        if (directory == null) {
+            return;
+        }
+        addOwner(directory, ordinal);
+        addOwner(directory.getClassAnnotationBlock(), ordinal);
+        Iterator<? extends Def<?>> iterator = CombiningIterator.four(
+                classId.getStaticFields(), classId.getInstanceFields(),
+                classId.getDirectMethods(), classId.getVirtualMethods());
+        while (iterator.hasNext()) {
+            Def<?> def = iterator.next();
+            Iterator<AnnotationSet> sets = directory.getAnnotations(def);
+            while (sets.hasNext()) {
+                addOwner(sets.next(), ordinal);
+            }
+            if (def instanceof MethodDef) {
+                Iterator<AnnotationGroup> groups = directory.getParameterAnnotation((MethodDef) def);
+                while (groups.hasNext()) {
+                    AnnotationGroup group = groups.next();
+                    addOwnerBlock(group, ordinal);
+                    for (AnnotationSet annotationSet : group) {
+                        addOwner(annotationSet, ordinal);
+                    }
+                }
+            }
+        }
+    }
+    private void addOwner(AnnotationSet annotationSet, int ordinal) {
+        if (annotationSet != null) {
+            addOwnerBlock(annotationSet, ordinal);
+            for (AnnotationItem annotationItem : annotationSet) {
+                addOwnerBlock(annotationItem, ordinal);
+            }
+        }
+    }
+    private void addOwner(Block block, int ordinal) {
+        if (block != null) {
+            addOwnerBlock(block, ordinal);
+        }
+    }
+    private void addOwnerBlock(Block block, int ordinal) {
+        int[] owners = blockOwners.get(block);
+        if (owners == null) {
+            owners = new int[]{ordinal};
+        } else if (owners[owners.length - 1] == ordinal) {
+            return;
+        } else {
+            owners = Arrays.copyOf(owners, owners.length + 1);
+            owners[owners.length - 1] = ordinal;
+        }
+        blockOwners.put(block, owners);
+    }
+    private void addMethod(int owner, DexMethod dexMethod) {
+        int method = methodCount;
+        if (method == methods.length) {
+            methods = Arrays.copyOf(methods, method * 2);
+            methodOwners = Arrays.copyOf(methodOwners, method * 2);
+        }
+        methods[method] = dexMethod;
+        methodOwners[method] = owner;
+        methodCount ++;
+        MethodDef methodDef = dexMethod.getDefinition();
+        CodeItem codeItem = methodDef.getCodeItem();
+        if (codeItem != null) {
+            addOwner(codeItem, owner);
+            addOwner(codeItem.getDebugInfo(), owner);
+        }
+        IdItem id = methodDef.getId();
+        Iterator<IdItem> iterator = methodDef.usedIds();
+        while (iterator.hasNext()) {
+            IdItem idItem = iterator.next();
+            if (idItem != null && !id.equals(idItem)) {
+                addMethodUser(idItem.getKey(), method);
+            }
+        }
+    }
+    private void addClassUser(Key key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        int id = getOrCreateKeyId(key);
+        int[] users = classUsers[id];
+        int count = classUserCounts[id];
+        if (users == null) {
+            users = new int[2];
+            classUsers[id] = users;
+        } else if (count != 0 && users[count - 1] == ordinal) {
+            return;
+        } else if (count == users.length) {
+            users = Arrays.copyOf(users, count * 2);
+            classUsers[id] = users;
+        }
+        users[count] = ordinal;
+        classUserCounts[id] = count + 1;
+    }
+    private void addMethodUser(Key key, int method) {
+        if (key == null) {
+            return;
+        }
+        int id = getOrCreateKeyId(key);
+        int[] users = methodUsers[id];
+        int count = methodUserCounts[id];
+        if (users == null) {
+            users = new int[2];
+            methodUsers[id] = users;
+        } else if (count != 0 && users[count - 1] == method) {
+            return;
+        } else if (count == users.length) {
+            users = Arrays.copyOf(users, count * 2);
+            methodUsers[id] = users;
+        }
+        users[count] = method;
+        methodUserCounts[id] = count + 1;
+    }
+    private int getOrCreateKeyId(Key key) {
+        Integer id = keyIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        int size = keyIds.size();
+        if (size == classUsers.length) {
+            int length = size * 2;
+            classUsers = Arrays.copyOf(classUsers, length);
+            classUserCounts = Arrays.copyOf(classUserCounts, length);
+            methodUsers = Arrays.copyOf(methodUsers, length);
+            methodUserCounts = Arrays.copyOf(methodUserCounts, length);
+        }
+        keyIds.put(key, size);
+        return size;
+    }
+    private int getClassesVersion() {
+        DexClassIndex classIndex = DexClassIndex.of(repository);
+        if (classIndex != null) {
+            return classIndex.getVersion();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.model;
+
+import com.reandroid.dex.id.StringId;
+import com.reandroid.dex.key.KeyPair;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.utils.collection.ArrayCollection;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Type rename pairs compiled into hash maps of whole strings and of inner class prefixes
+ * (which always end with '$'), thus each string costs one lookup plus one per '$' it
+ * contains regardless of the number of pairs. On several matches the first pair wins and
+ * within a pair the first form in order: type, inner type, signature type, 1..3 dimension
+ * arrays with their inner types, java source name and its inner source name.
+ * */
+class TypeStringRenamer {
+
+    private static final int FORMS = 16;
+
+    private final Map<String, Replace> exactMap;
+    private final Map<String, Replace> prefixMap;
+    private final List<Replace> otherPrefixes;
+
+    TypeStringRenamer(Iterable<KeyPair<TypeKey, TypeKey>> iterable, boolean renameInner, boolean renameJava) {
+        this.exactMap = new HashMap<>();
+        this.prefixMap = new HashMap<>();
+        this.otherPrefixes = new ArrayCollection<>();
+        int order = 0;
+        for (KeyPair<TypeKey, TypeKey> pair : iterable) {
+            add(pair.getFirst(), pair.getSecond(), order, renameInner, renameJava);
+            order += FORMS;
+        }
+    }
+
+    List<StringId> renameAll(Iterator<StringId> iterator) {
+        List<StringId> results = new ArrayCollection<>();
+        while (iterator.hasNext()) {
+            StringId stringId = iterator.next();
+            if (rename(stringId)) {
+                results.add(stringId);
+            }
+        }
+        return results;
+    }
+    boolean rename(StringId stringId) {
+        String replace = apply(stringId.getString());
+        if (replace != null) {
+            stringId.setString(replace);
+            return true;
+        }
+        return false;
+    }
+    String apply(String text) {
+        Replace replace = exactMap.get(text);
+        int end = -1;
+        if (!prefixMap.isEmpty()) {
+            int i = text.indexOf('$');
+            while (i >= 0) {
+                Replace prefix = prefixMap.get(text.substring(0, i + 1));
+                if (prefix != null && (replace == null || prefix.order < replace.order)) {
+                    replace = prefix;
+                    end = i + 1;
+                }
+                i = text.indexOf('$', i + 1);
+            }
+        }
+        for (Replace prefix : otherPrefixes) {
+            if ((replace == null || prefix.order < replace.order) && text.startsWith(prefix.search)) {
+                replace = prefix;
+                end = prefix.search.length();
+            }
+        }
+        if (replace == null) {
+            return null;
+        }
+        if (end < 0) {
+            return replace.text;
+        }
+        return replace.text.concat(text.substring(end));
+    }
+
+    private void add(TypeKey search, TypeKey replace, int order, boolean renameInner, boolean renameJava) {
+        String type = search.getTypeName();
+        String type2 = replace.getTypeName();
+        put(exactMap, type, type2, order);
+        if (renameInner) {
+            putPrefix(type.replace(';', '$'), type2.replace(';', '$'), order + 1);
+        }
+        put(exactMap, search.getSignatureTypeName(), replace.getSignatureTypeName(), order + 2);
+        for (int dimension = 1; dimension <= 3; dimension++) {
+            type = search.getArrayType(dimension);
+            type2 = replace.getArrayType(dimension);
+            int arrayOrder = order + 1 + dimension * 2;
+            put(exactMap, type, type2, arrayOrder);
+            if (renameInner) {
+                putPrefix(type.replace(';', '$'), type2.replace(';', '$'), arrayOrder + 1);
+            }
+        }
+        if (renameJava) {
+            type = search.getSourceName();
+            type2 = replace.getSourceName();
+            put(exactMap, type, type2, order + 9);
+            if (renameInner) {
+                putPrefix(type + "$", type2 + "$", order + 10);
+            }
+        }
+    }
+    private void putPrefix(String search, String replace, int order) {
+        if (search.length() != 0 && search.charAt(search.length() - 1) == '$') {
+            put(prefixMap, search, replace, order);
+        } else {
+            // e.g. primitive types, have no '$' to anchor on
+            otherPrefixes.add(new Replace(search, replace, order));
+        }
+    }
+    private static void put(Map<String, Replace> map, String search, String replace, int order) {
+        Replace exist = map.get(search);
+        if (exist == null || order < exist.order) {
+            map.put(search, new Replace(search, replace, order));
+        }
+    }
+
+    static class Replace {
+
+        final String search;
+        final String text;
+        final int order;
+
+        Replace(String search, String text, int order) {
+            this.search = search;
+            this.text = text;
+            this.order = order;
+        }
+    }
+}
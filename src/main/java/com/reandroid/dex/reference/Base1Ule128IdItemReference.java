@@ -62,6 +62,7 @@ public class Base1Ule128IdItemReference<T extends IdItem> extends Ule128Item imp
         if(item != null){
             item.addUsageType(UsageMarker.USAGE_DEBUG);
         }
+        markDirty();
     }
     @Override
     public Key getKey(){
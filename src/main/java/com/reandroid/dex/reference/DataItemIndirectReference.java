@@ -71,6 +71,7 @@ public class DataItemIndirectReference<T extends DataItem> extends IndirectItem<
         set(value);
         this.item = item;
         updateItemUsage();
+        getBlockItem().markDirty();
     }
     @Override
     public void setKey(Key key){
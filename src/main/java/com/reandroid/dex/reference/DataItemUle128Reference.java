@@ -60,6 +60,7 @@ public class DataItemUle128Reference<T extends DataItem> extends Ule128Item impl
         this.item = item;
         set(offset);
         updateItemUsage();
+        markDirty();
     }
     @Override
     public void setKey(Key key){
@@ -64,6 +64,7 @@ public class IdItemIndirectReference<T extends IdItem> extends IndirectItem<Sect
         set(index);
         this.item = item;
         updateItemUsage();
+        getBlockItem().markDirty();
     }
     @Override
     public void pullItem(){
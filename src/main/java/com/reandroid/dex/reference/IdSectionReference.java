@@ -15,6 +15,7 @@
  */
 package com.reandroid.dex.reference;
 
+import com.reandroid.arsc.base.Block;
 import com.reandroid.dex.base.DexException;
 import com.reandroid.dex.common.SectionTool;
 import com.reandroid.dex.id.IdItem;
@@ -69,6 +70,7 @@ public abstract class IdSectionReference<T extends IdItem> implements
         this.item = item;
         set(item.getIdx());
         updateUsage();
+        onItemChanged();
     }
 
     @Override
@@ -79,6 +81,7 @@ public abstract class IdSectionReference<T extends IdItem> implements
         int idx = onSetKey(item.getIdx());
         set(idx);
         updateUsage();
+        onItemChanged();
     }
     protected int onSetKey(int idx) {
         return idx;
@@ -99,6 +102,12 @@ public abstract class IdSectionReference<T extends IdItem> implements
         updateUsage();
     }
 
+    private void onItemChanged() {
+        SectionTool sectionTool = getSectionTool();
+        if (sectionTool instanceof Block) {
+            ((Block) sectionTool).markDirty();
+        }
+    }
     private void updateUsage(){
         T item = this.getItem();
         if (item != null) {
@@ -61,6 +61,7 @@ public class IntegerDataReference<T extends DataItem> extends IntegerItem
         this.item = item;
         set(offset);
         updateItemUsage();
+        markDirty();
     }
 
     @Override
@@ -72,6 +72,7 @@ public class ShortIdReference<T extends IdItem> extends ShortItem
         set(index);
         this.item = item;
         updateItemUsage();
+        markDirty();
     }
     @Override
     public void pullItem(){
@@ -17,6 +17,7 @@ package com.reandroid.dex.reference;
 
 import com.reandroid.dex.common.SectionItem;
 import com.reandroid.dex.data.TypeList;
+import com.reandroid.dex.id.ClassId;
 import com.reandroid.dex.id.TypeId;
 import com.reandroid.dex.key.Key;
 import com.reandroid.dex.key.TypeKey;
@@ -59,6 +60,10 @@ public class TypeListReference extends DataItemIndirectReference<TypeList> imple
             key = null;
         }
         super.setKey(key);
+        SectionItem sectionItem = getBlockItem();
+        if (sectionItem instanceof ClassId) {
+            ((ClassId) sectionItem).onHierarchyChanged();
+        }
     }
 
     public void add(TypeKey typeKey){
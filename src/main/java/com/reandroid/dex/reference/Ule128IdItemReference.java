@@ -50,6 +50,7 @@ public class Ule128IdItemReference<T extends IdItem> extends Ule128Item implemen
         }
         this.item = item;
         set(index);
+        markDirty();
     }
     @Override
     public Key getKey(){
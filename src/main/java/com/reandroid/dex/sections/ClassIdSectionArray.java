@@ -20,6 +20,7 @@ import com.reandroid.dex.header.DexHeader;
 import com.reandroid.dex.id.ClassId;
 import com.reandroid.dex.key.TypeKey;
 import com.reandroid.dex.pool.DexSectionPool;
+import com.reandroid.utils.collection.ArrayCollection;
 
 import java.util.Comparator;
 import java.util.HashSet;
@@ -29,11 +30,58 @@ import java.util.Set;
 public class ClassIdSectionArray extends IdSectionArray<ClassId> {
 
     private boolean mDefinitionSortDisabled;
+    private int mNotifiedCount;
 
     public ClassIdSectionArray(IntegerPair countAndOffset) {
         super(countAndOffset, SectionType.CLASS_ID.getCreator());
     }
 
+    @Override
+    public void onChanged() {
+        super.onChanged();
+        // added and removed classes are reported one by one from the monitor,
+        // other count changes (reading, clearing) are reported for all classes
+        int count = getCount();
+        if(count != mNotifiedCount){
+            mNotifiedCount = count;
+            SectionList sectionList = getSectionList();
+            if(sectionList != null){
+                sectionList.onClassesChanged();
+            }
+        }
+    }
+    @Override
+    protected ArrayCollection.Monitor<ClassId> getMonitor() {
+        ArrayCollection.Monitor<ClassId> monitor = super.getMonitor();
+        return new ArrayCollection.Monitor<ClassId>() {
+            @Override
+            public void onAdd(int i, ClassId item) {
+                monitor.onAdd(i, item);
+                mNotifiedCount ++;
+                onClassChanged(item, null);
+            }
+            @Override
+            public void onRemoved(int i, ClassId item) {
+                TypeKey key = item.getKey();
+                monitor.onRemoved(i, item);
+                mNotifiedCount --;
+                onClassChanged(item, key);
+            }
+        };
+    }
+    private void onClassChanged(ClassId classId, TypeKey oldKey) {
+        SectionList sectionList = getSectionList();
+        if(sectionList != null){
+            sectionList.onClassChanged(classId, oldKey);
+        }
+    }
+    private SectionList getSectionList() {
+        Section<ClassId> section = getParentSection();
+        if(section != null){
+            return section.getSectionList();
+        }
+        return null;
+    }
     @Override
     public boolean sort(Comparator<? super ClassId> comparator) {
         Section<ClassId> section = getParentSection();
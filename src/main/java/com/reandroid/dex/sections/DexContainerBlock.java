@@ -15,6 +15,7 @@
  */
 package com.reandroid.dex.sections;
 
+import com.reandroid.arsc.base.Block;
 import com.reandroid.arsc.container.BlockList;
 import com.reandroid.arsc.io.BlockReader;
 import com.reandroid.common.BytesOutputStream;
@@ -22,6 +23,9 @@ import com.reandroid.dex.common.FullRefresh;
 import com.reandroid.dex.common.SectionItem;
 import com.reandroid.dex.header.DexHeader;
 import com.reandroid.dex.header.DexVersion;
+import com.reandroid.dex.id.ClassId;
+import com.reandroid.dex.key.Key;
+import com.reandroid.dex.key.TypeKey;
 import com.reandroid.utils.collection.ComputeIterator;
 
 import java.io.File;
@@ -37,6 +41,7 @@ public class DexContainerBlock extends BlockList<DexLayoutBlock> implements
     private LayoutBlockChangedListener layoutBlockChangedListener;
     private Object mTag;
     private String mSimpleName;
+    private boolean mRefreshing;
 
     public DexContainerBlock() {
         super();
@@ -124,9 +129,15 @@ public class DexContainerBlock extends BlockList<DexLayoutBlock> implements
 
     @Override
     public void refreshFull() {
-        clearEmptyLayouts();
-        for (DexLayoutBlock layoutBlock : this) {
-            layoutBlock.refreshFull();
+        boolean refreshing = this.mRefreshing;
+        this.mRefreshing = true;
+        try {
+            clearEmptyLayouts();
+            for (DexLayoutBlock layoutBlock : this) {
+                layoutBlock.refreshFull();
+            }
+        } finally {
+            this.mRefreshing = refreshing;
         }
     }
 
@@ -134,10 +145,22 @@ public class DexContainerBlock extends BlockList<DexLayoutBlock> implements
     protected void onPreRefresh() {
         super.onPreRefresh();
         fixMinimumVersion();
+        this.mRefreshing = true;
     }
     @Override
     protected void onRefreshed() {
         super.onRefreshed();
+        this.mRefreshing = false;
+    }
+    // edits made by refresh keep every key, only user edits are forwarded
+    @Override
+    protected void onMarkedDirty(Block block) {
+        if (!mRefreshing) {
+            LayoutBlockChangedListener listener = this.layoutBlockChangedListener;
+            if (listener != null) {
+                listener.onBlockEdited(block);
+            }
+        }
     }
 
     @Override
@@ -158,6 +181,24 @@ public class DexContainerBlock extends BlockList<DexLayoutBlock> implements
             listener.onLayoutRemoved(layoutBlock);
         }
     }
+    void onClassesChanged(DexLayoutBlock layoutBlock) {
+        LayoutBlockChangedListener listener = this.layoutBlockChangedListener;
+        if (listener != null) {
+            listener.onLayoutClassesChanged(layoutBlock);
+        }
+    }
+    void onClassChanged(DexLayoutBlock layoutBlock, ClassId classId, TypeKey oldKey) {
+        LayoutBlockChangedListener listener = this.layoutBlockChangedListener;
+        if (listener != null) {
+            listener.onLayoutClassChanged(layoutBlock, classId, oldKey);
+        }
+    }
+    void onKeyChanged(DexLayoutBlock layoutBlock, Key oldKey) {
+        LayoutBlockChangedListener listener = this.layoutBlockChangedListener;
+        if (listener != null) {
+            listener.onLayoutKeyChanged(layoutBlock, oldKey);
+        }
+    }
     private void notifyLayoutsCleared() {
         LayoutBlockChangedListener listener = this.layoutBlockChangedListener;
         if (listener != null) {
@@ -300,5 +341,9 @@ public class DexContainerBlock extends BlockList<DexLayoutBlock> implements
         void onLayoutRemoved(DexLayoutBlock layoutBlock);
         void onLayoutAdded(DexLayoutBlock layoutBlock);
         void onLayoutsCleared();
+        void onLayoutClassesChanged(DexLayoutBlock layoutBlock);
+        void onLayoutClassChanged(DexLayoutBlock layoutBlock, ClassId classId, TypeKey oldKey);
+        void onLayoutKeyChanged(DexLayoutBlock layoutBlock, Key oldKey);
+        void onBlockEdited(Block block);
     }
 }
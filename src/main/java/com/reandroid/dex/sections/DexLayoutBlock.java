@@ -41,8 +41,8 @@ public class DexLayoutBlock extends FixedBlockContainer implements FullRefresh {
 
     private final SectionList sectionList;
 
-    private final MultiMap<TypeKey, ClassId> extendingClassMap;
-    private final MultiMap<TypeKey, ClassId> interfaceMap;
+    private volatile MultiMap<TypeKey, ClassId> extendingClassMap;
+    private volatile MultiMap<TypeKey, ClassId> interfaceMap;
 
     private Object mTag;
 
@@ -50,9 +50,6 @@ public class DexLayoutBlock extends FixedBlockContainer implements FullRefresh {
         super(1);
         this.sectionList = new SectionList();
         addChild(0, sectionList);
-
-        this.extendingClassMap = new MultiMap<>();
-        this.interfaceMap = new MultiMap<>();
     }
 
     public int getVersion(){
@@ -76,29 +73,35 @@ public class DexLayoutBlock extends FixedBlockContainer implements FullRefresh {
         };
     }
     public Iterator<ClassId> getExtendingClassIds(TypeKey typeKey){
-        if(extendingClassMap.size() == 0){
-            loadExtendingClassMap();
+        MultiMap<TypeKey, ClassId> superClassMap = this.extendingClassMap;
+        if(superClassMap == null){
+            superClassMap = loadExtendingClassMap();
         }
-        return this.extendingClassMap.getAll(typeKey);
+        return superClassMap.getAll(typeKey);
     }
     public Iterator<ClassId> getImplementationIds(TypeKey interfaceClass){
-        if(interfaceMap.size() == 0){
-            loadInterfacesMap();
+        MultiMap<TypeKey, ClassId> interfaceMap = this.interfaceMap;
+        if(interfaceMap == null){
+            interfaceMap = loadInterfacesMap();
         }
-        return this.interfaceMap.getAll(interfaceClass);
+        return interfaceMap.getAll(interfaceClass);
     }
 
     public void clear(){
-        extendingClassMap.clear();
-        interfaceMap.clear();
+        clearClassMaps();
         getSectionList().clear();
     }
-    private void loadExtendingClassMap(){
+    // the maps are published only after loading, smali writers may search concurrently;
+    // empty maps are published too, they are cleared with the other maps on class changes
+    private synchronized MultiMap<TypeKey, ClassId> loadExtendingClassMap(){
         MultiMap<TypeKey, ClassId> superClassMap = this.extendingClassMap;
-        superClassMap.clear();
+        if(superClassMap != null){
+            return superClassMap;
+        }
+        superClassMap = new MultiMap<>();
         Section<ClassId> section = getSectionList().getSection(SectionType.CLASS_ID);
         if(section == null) {
-            return;
+            return superClassMap;
         }
         superClassMap.setInitialSize(section.getCount());
         for (ClassId classId : section) {
@@ -107,13 +110,18 @@ public class DexLayoutBlock extends FixedBlockContainer implements FullRefresh {
                 superClassMap.put(typeKey, classId);
             }
         }
+        this.extendingClassMap = superClassMap;
+        return superClassMap;
     }
-    private void loadInterfacesMap(){
+    private synchronized MultiMap<TypeKey, ClassId> loadInterfacesMap(){
         MultiMap<TypeKey, ClassId> interfaceMap = this.interfaceMap;
-        interfaceMap.clear();
+        if(interfaceMap != null){
+            return interfaceMap;
+        }
+        interfaceMap = new MultiMap<>();
         Section<ClassId> section = getSectionList().getSection(SectionType.CLASS_ID);
         if(section == null) {
-            return;
+            return interfaceMap;
         }
         for (ClassId classId : section) {
             for (TypeKey typeKey : classId.getInterfacesKey()) {
@@ -122,6 +130,32 @@ public class DexLayoutBlock extends FixedBlockContainer implements FullRefresh {
                 }
             }
         }
+        this.interfaceMap = interfaceMap;
+        return interfaceMap;
+    }
+    public void onClassesChanged(){
+        clearClassMaps();
+        DexContainerBlock containerBlock = getParentInstance(DexContainerBlock.class);
+        if(containerBlock != null){
+            containerBlock.onClassesChanged(this);
+        }
+    }
+    public void onClassChanged(ClassId classId, TypeKey oldKey){
+        clearClassMaps();
+        DexContainerBlock containerBlock = getParentInstance(DexContainerBlock.class);
+        if(containerBlock != null){
+            containerBlock.onClassChanged(this, classId, oldKey);
+        }
+    }
+    public void onKeyChanged(Key oldKey){
+        DexContainerBlock containerBlock = getParentInstance(DexContainerBlock.class);
+        if(containerBlock != null){
+            containerBlock.onKeyChanged(this, oldKey);
+        }
+    }
+    private void clearClassMaps(){
+        this.extendingClassMap = null;
+        this.interfaceMap = null;
     }
     public Iterator<StringId> getStrings(){
         return getItems(SectionType.STRING_ID);
@@ -150,8 +184,7 @@ public class DexLayoutBlock extends FixedBlockContainer implements FullRefresh {
     @Override
     protected void onPreRefresh() {
         super.onPreRefresh();
-        interfaceMap.clear();
-        extendingClassMap.clear();
+        clearClassMaps();
         this.updateHeaderOffset();
     }
     @Override
@@ -213,8 +246,7 @@ public class DexLayoutBlock extends FixedBlockContainer implements FullRefresh {
         getSectionList().clearPoolMap(sectionType);
     }
     public void clearPoolMap(){
-        extendingClassMap.clear();
-        interfaceMap.clear();
+        clearClassMaps();
         getSectionList().clearPoolMap();
     }
     public boolean sortStrings(){
@@ -38,7 +38,7 @@ public class Section<T extends SectionItem>  extends FixedDexContainer
     private final DexPositionAlign sectionAlign;
     private final SectionArray<T> itemArray;
 
-    private DexSectionPool<T> dexSectionPool;
+    private volatile DexSectionPool<T> dexSectionPool;
 
     Section(SectionType<T> sectionType, SectionArray<T> itemArray){
         super(2);
@@ -129,11 +129,19 @@ public class Section<T extends SectionItem>  extends FixedDexContainer
         return false;
     }
     public DexSectionPool<T> getPool(){
+        DexSectionPool<T> dexSectionPool = this.dexSectionPool;
+        if(dexSectionPool == null){
+            dexSectionPool = loadPool();
+        }
+        return dexSectionPool;
+    }
+    // published only after loading, concurrent smali writers look up classes
+    private synchronized DexSectionPool<T> loadPool(){
         DexSectionPool<T> dexSectionPool = this.dexSectionPool;
         if(dexSectionPool == null){
             dexSectionPool = createPool();
-            this.dexSectionPool = dexSectionPool;
             dexSectionPool.load();
+            this.dexSectionPool = dexSectionPool;
         }
         return dexSectionPool;
     }
@@ -272,6 +272,7 @@ public class SectionList extends FixedBlockContainer
         idSectionList.clearChildes();
         dataSectionList.clearChildes();
         typeMap.clear();
+        onClassesChanged();
     }
     public void clearPoolMap(SectionType<?> sectionType){
         Section<?> section = getSection(sectionType);
@@ -441,13 +442,40 @@ public class SectionList extends FixedBlockContainer
             return;
         }
         section.keyChanged(item, oldKey);
+        // renamed type strings reach here again as TYPE_ID, and renamed types as CLASS_ID
         if(sectionType == SectionType.TYPE_ID){
             ClassId classId = getLoaded(SectionType.CLASS_ID, oldKey);
             if(classId != null){
                 // getKey() call triggers keyChanged event
                 classId.getKey();
+            }else {
+                onClassChanged(null, (TypeKey) oldKey);
             }
             //TODO: notify to all uses TypeKey
+        }else if(sectionType == SectionType.CLASS_ID){
+            onClassChanged((ClassId) item, (TypeKey) oldKey);
+        }
+        DexLayoutBlock layoutBlock = getParentInstance(DexLayoutBlock.class);
+        if(layoutBlock != null){
+            layoutBlock.onKeyChanged(oldKey);
+        }
+    }
+    // classes changed in a way not bound to one class; invalidates class indexes above
+    public void onClassesChanged(){
+        DexLayoutBlock layoutBlock = getParentInstance(DexLayoutBlock.class);
+        if(layoutBlock != null){
+            layoutBlock.onClassesChanged();
+        }
+    }
+    /**
+     * A single class was added, removed, renamed from oldKey or changed its super types.
+     * The class is null when a type that is not defined here was renamed from oldKey,
+     * super types of other classes may have changed.
+     * */
+    public void onClassChanged(ClassId classId, TypeKey oldKey){
+        DexLayoutBlock layoutBlock = getParentInstance(DexLayoutBlock.class);
+        if(layoutBlock != null){
+            layoutBlock.onClassChanged(classId, oldKey);
         }
     }
     public Iterator<Section<?>> getSections() {
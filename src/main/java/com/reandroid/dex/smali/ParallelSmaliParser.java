@@ -0,0 +1,101 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.smali;
+
+import com.reandroid.dex.smali.model.SmaliClass;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses smali files to {@link SmaliClass} on a bounded worker pool. Classes are returned
+ * in the order of the given files regardless of which worker finishes first, and only a
+ * few files per worker are read ahead of the caller.
+ * */
+public class ParallelSmaliParser implements Closeable {
+
+    private final Iterator<File> files;
+    private final ExecutorService executorService;
+    private final ArrayDeque<Future<SmaliClass>> pending;
+    private final int window;
+
+    public ParallelSmaliParser(Iterator<File> files, int threads) {
+        this.files = files;
+        this.executorService = Executors.newFixedThreadPool(threads);
+        this.pending = new ArrayDeque<>();
+        this.window = threads * 4;
+    }
+
+    /**
+     * Returns the next parsed class, or null after the last file. Failures are thrown in
+     * file order, the same as parsing one file after the other.
+     * */
+    public SmaliClass read() throws IOException {
+        fill();
+        Future<SmaliClass> future = pending.poll();
+        if (future == null) {
+            return null;
+        }
+        SmaliClass smaliClass = awaitWorker(future);
+        fill();
+        return smaliClass;
+    }
+    private void fill() {
+        ArrayDeque<Future<SmaliClass>> pending = this.pending;
+        Iterator<File> files = this.files;
+        while (pending.size() < window && files.hasNext()) {
+            File file = files.next();
+            pending.add(executorService.submit(() -> parse(file)));
+        }
+    }
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+        pending.clear();
+    }
+
+    private static SmaliClass parse(File file) throws IOException {
+        SmaliReader reader = SmaliReader.of(file);
+        SmaliClass smaliClass = new SmaliClass();
+        smaliClass.parse(reader);
+        return smaliClass;
+    }
+    private static SmaliClass awaitWorker(Future<SmaliClass> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.smali;
+
+import com.reandroid.dex.model.DexClass;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes whole classes to their own smali files on a bounded worker pool. Each worker has its
+ * own {@link SmaliWriter} sharing the {@link SmaliWriterSetting} of the given writer, the written files are
+ * the same as writing one class after the other. Classes must not be modified before
+ * {@link #await()} returns. With less than 2 threads classes are written on the calling
+ * thread by the given writer.
+ * */
+public class ParallelSmaliWriter implements Closeable {
+
+    private final SmaliWriter serialWriter;
+    private final ExecutorService executorService;
+    private final ThreadLocal<SmaliWriter> writers;
+    private final ArrayDeque<Future<Void>> pending;
+    private final int window;
+
+    public ParallelSmaliWriter(SmaliWriter writer, int threads) {
+        if (threads < 2) {
+            this.serialWriter = writer;
+            this.executorService = null;
+            this.writers = null;
+        } else {
+            SmaliWriterSetting writerSetting = writer.getWriterSetting();
+            this.serialWriter = null;
+            this.executorService = Executors.newFixedThreadPool(threads);
+            this.writers = ThreadLocal.withInitial(() -> {
+                SmaliWriter smaliWriter = new SmaliWriter();
+                smaliWriter.setWriterSetting(writerSetting);
+                return smaliWriter;
+            });
+        }
+        this.pending = new ArrayDeque<>();
+        this.window = threads * 16;
+    }
+
+    /**
+     * Queues dexClass to be written under dir, blocks while too many classes are in flight.
+     * */
+    public void submit(DexClass dexClass, File dir) throws IOException {
+        SmaliWriter serialWriter = this.serialWriter;
+        if (serialWriter != null) {
+            dexClass.writeSmali(serialWriter, dir);
+            return;
+        }
+        ArrayDeque<Future<Void>> pending = this.pending;
+        while (pending.size() >= window) {
+            awaitWorker(pending.poll());
+        }
+        pending.add(executorService.submit(() -> {
+            dexClass.writeSmali(writers.get(), dir);
+            return null;
+        }));
+    }
+    /**
+     * Waits for every submitted class, failures are thrown in submission order.
+     * */
+    public void await() throws IOException {
+        ArrayDeque<Future<Void>> pending = this.pending;
+        try {
+            while (!pending.isEmpty()) {
+                awaitWorker(pending.poll());
+            }
+        } finally {
+            pending.clear();
+        }
+    }
+    @Override
+    public void close() {
+        ExecutorService executorService = this.executorService;
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+        pending.clear();
+    }
+
+    private void awaitWorker(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
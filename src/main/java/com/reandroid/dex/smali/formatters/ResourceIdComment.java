@@ -29,10 +29,16 @@ public interface ResourceIdComment extends SmaliComment {
 
     void writeComment(SmaliWriter writer, int id) throws IOException;
 
+    /**
+     * Comments resource ids with their reference and value. Lookups go through the lazily
+     * built caches of the table, they are done one at a time so that one instance can be
+     * shared by smali writers on several threads. The table must not be modified meanwhile.
+     * */
     class ResourceTableComment implements ResourceIdComment{
 
         private final PackageBlock packageBlock;
         private final TableBlock tableBlock;
+        private final Object mLock = new Object();
 
         public ResourceTableComment(PackageBlock packageBlock){
             this.packageBlock = packageBlock;
@@ -44,7 +50,10 @@ public interface ResourceIdComment extends SmaliComment {
             if(!PackageBlock.isResourceId(resourceId)){
                 return;
             }
-            String comment = buildComment(resourceId);
+            String comment;
+            synchronized (mLock){
+                comment = buildComment(resourceId);
+            }
             if(comment != null){
                 writer.appendComment(comment);
             }
@@ -57,6 +57,7 @@ public abstract class SectionValue<T extends SectionItem> extends DexValueBlock<
         this.mData = data;
         set(getSectionValue(data));
         updateUsageType(data);
+        markDirty();
     }
     @Override
     public void setKey(Key key){
@@ -1,5 +1,7 @@
 package com.reandroid;
 
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.value.Entry;
 import com.reandroid.utils.io.FileUtil;
 import org.junit.Assert;
 
@@ -23,6 +25,19 @@ public class TestUtils {
         Assert.assertTrue("Failed to create temp sub dir: " + dir, dir.exists() || dir.mkdirs());
         return dir;
     }
+    /**
+     * Creates the entry in each of the given configs with its qualifiers as string value,
+     * returns the resource id
+     * */
+    public static int addEntries(PackageBlock packageBlock, String type, String name, String... qualifiersList){
+        int resourceId = 0;
+        for(String qualifiers : qualifiersList){
+            Entry entry = packageBlock.getOrCreate(qualifiers, type, name);
+            entry.setValueAsString(qualifiers);
+            resourceId = entry.getResourceId();
+        }
+        return resourceId;
+    }
     public static void log(String message){
         System.out.println(message);
     }
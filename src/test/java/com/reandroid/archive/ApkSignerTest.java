@@ -0,0 +1,288 @@
+package com.reandroid.archive;
+
+import com.reandroid.TestUtils;
+import com.reandroid.apk.ApkModuleTest;
+import com.reandroid.archive.block.ApkSignatureBlock;
+import com.reandroid.archive.writer.ApkFileWriter;
+import com.reandroid.archive.writer.ApkSigner;
+import com.reandroid.archive.writer.ApkStreamWriter;
+import com.reandroid.utils.io.IOUtil;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.*;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Verifies signatures with an independent parser of the APK signing block, following the
+ * published v2/v3 format rather than the writer's own digest code.
+ * */
+public class ApkSignerTest {
+
+    private static PrivateKey privateKey;
+    private static X509Certificate certificate;
+
+    @BeforeClass
+    public static void loadKey() throws Exception {
+        privateKey = KeyFactory.getInstance("EC").generatePrivate(
+                new PKCS8EncodedKeySpec(Base64.getDecoder().decode(TEST_KEY)));
+        certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(Base64.getDecoder().decode(TEST_CERTIFICATE)));
+    }
+
+    @Test
+    public void testSignedFile() throws Exception {
+        File file = new File(TestUtils.getTempDir(), "signed.apk");
+        ApkFileWriter writer = new ApkModuleTest().createApkModule().createApkFileWriter(file);
+        writer.setApkSigner(createSigner(1));
+        writer.write();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        verify(bytes);
+
+        ArchiveFile archive = new ArchiveFile(file);
+        assertArchiveReadable(archive);
+        archive.close();
+        file.delete();
+    }
+    @Test
+    public void testSignedStreamParallelDigest() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ApkStreamWriter writer = new ApkModuleTest().createApkModule().createApkStreamWriter(outputStream);
+        writer.setApkSigner(createSigner(4));
+        writer.write();
+        byte[] bytes = outputStream.toByteArray();
+        verify(bytes);
+        assertArchiveReadable(new ArchiveBytes(bytes));
+    }
+    @Test
+    public void testSignedV2Only() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ApkStreamWriter writer = new ApkModuleTest().createApkModule().createApkStreamWriter(outputStream);
+        ApkSigner signer = createSigner(1);
+        signer.setV3SigningEnabled(false);
+        writer.setApkSigner(signer);
+        writer.write();
+        List<Pair> pairs = readSigningBlock(outputStream.toByteArray()).pairs;
+        Assert.assertNotNull("Missing v2 block", findPair(pairs, V2_BLOCK_ID));
+        Assert.assertNull("Unexpected v3 block", findPair(pairs, V3_BLOCK_ID));
+        verify(outputStream.toByteArray(), V2_BLOCK_ID);
+    }
+    @Test
+    public void testTamperedContentFails() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ApkStreamWriter writer = new ApkModuleTest().createApkModule().createApkStreamWriter(outputStream);
+        writer.setApkSigner(createSigner(1));
+        writer.write();
+        byte[] bytes = outputStream.toByteArray();
+        // last byte of the first local header's file name
+        bytes[30 + (bytes[26] & 0xff) - 1] ^= 1;
+        try{
+            verify(bytes, V2_BLOCK_ID);
+        }catch (AssertionError error){
+            Assert.assertTrue(error.getMessage(), error.getMessage().startsWith("Content digest mismatch"));
+            return;
+        }
+        Assert.fail("Tampered content verified");
+    }
+
+    private void assertArchiveReadable(Archive<?> archive) throws IOException {
+        ApkSignatureBlock signatureBlock = archive.getApkSignatureBlock();
+        Assert.assertNotNull("Missing signature block", signatureBlock);
+        ArchiveEntry entry = archive.getEntry("classes.dex");
+        Assert.assertNotNull("Missing classes.dex", entry);
+        byte[] expected = IOUtil.readFully(new ApkModuleTest().createApkModule()
+                .getInputSource("classes.dex").openStream());
+        Assert.assertArrayEquals(expected, IOUtil.readFully(archive.openInputStream(entry)));
+    }
+    private ApkSigner createSigner(int digestThreads){
+        ApkSigner signer = new ApkSigner(privateKey, Collections.singletonList(certificate));
+        signer.setDigestThreads(digestThreads);
+        return signer;
+    }
+
+    private void verify(byte[] apk) throws Exception {
+        verify(apk, V2_BLOCK_ID);
+        verify(apk, V3_BLOCK_ID);
+    }
+    private void verify(byte[] apk, int blockId) throws Exception {
+        SigningBlock signingBlock = readSigningBlock(apk);
+        Pair pair = findPair(signingBlock.pairs, blockId);
+        Assert.assertNotNull("Missing block: " + Integer.toHexString(blockId), pair);
+        byte[] contentDigest = computeContentDigest(apk, signingBlock);
+
+        ByteBuffer signers = lengthPrefixed(pair.value);
+        Assert.assertTrue("No signers", signers.hasRemaining());
+        ByteBuffer signer = lengthPrefixed(signers);
+        Assert.assertFalse("Expecting one signer", signers.hasRemaining());
+
+        ByteBuffer signedData = lengthPrefixed(signer);
+        byte[] signedDataBytes = toBytes(signedData.duplicate());
+        int minSdk = 0;
+        int maxSdk = 0;
+        if(blockId == V3_BLOCK_ID){
+            minSdk = signer.getInt();
+            maxSdk = signer.getInt();
+        }
+        ByteBuffer signatures = lengthPrefixed(signer);
+        byte[] publicKeyBytes = toBytes(lengthPrefixed(signer));
+        PublicKey publicKey = KeyFactory.getInstance("EC")
+                .generatePublic(new X509EncodedKeySpec(publicKeyBytes));
+        Assert.assertArrayEquals(certificate.getPublicKey().getEncoded(), publicKeyBytes);
+
+        int signatureCount = 0;
+        while (signatures.hasRemaining()){
+            ByteBuffer signature = lengthPrefixed(signatures);
+            Assert.assertEquals(ALGORITHM_ECDSA_WITH_SHA256, signature.getInt());
+            Signature verifier = Signature.getInstance("SHA256withECDSA");
+            verifier.initVerify(publicKey);
+            verifier.update(signedDataBytes);
+            Assert.assertTrue("Invalid signature", verifier.verify(toBytes(lengthPrefixed(signature))));
+            signatureCount ++;
+        }
+        Assert.assertEquals(1, signatureCount);
+
+        ByteBuffer digests = lengthPrefixed(signedData);
+        ByteBuffer digest = lengthPrefixed(digests);
+        Assert.assertEquals(ALGORITHM_ECDSA_WITH_SHA256, digest.getInt());
+        Assert.assertArrayEquals("Content digest mismatch", contentDigest, toBytes(lengthPrefixed(digest)));
+        Assert.assertFalse(digests.hasRemaining());
+
+        ByteBuffer certificates = lengthPrefixed(signedData);
+        Assert.assertArrayEquals(certificate.getEncoded(), toBytes(lengthPrefixed(certificates)));
+        if(blockId == V3_BLOCK_ID){
+            Assert.assertEquals(minSdk, signedData.getInt());
+            Assert.assertEquals(maxSdk, signedData.getInt());
+            Assert.assertEquals(28, minSdk);
+        }
+    }
+
+    private static byte[] computeContentDigest(byte[] apk, SigningBlock signingBlock) throws Exception {
+        byte[] endRecord = Arrays.copyOfRange(apk, signingBlock.endRecordOffset, apk.length);
+        ByteBuffer.wrap(endRecord).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(16, (int) signingBlock.blockOffset);
+        List<byte[]> chunkDigests = new ArrayList<>();
+        digestChunks(chunkDigests, apk, 0, (int) signingBlock.blockOffset);
+        digestChunks(chunkDigests, apk, (int) signingBlock.centralDirectoryOffset,
+                signingBlock.endRecordOffset - (int) signingBlock.centralDirectoryOffset);
+        digestChunks(chunkDigests, endRecord, 0, endRecord.length);
+
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        messageDigest.update((byte) 0x5a);
+        messageDigest.update(intLE(chunkDigests.size()));
+        for(byte[] chunkDigest : chunkDigests){
+            messageDigest.update(chunkDigest);
+        }
+        return messageDigest.digest();
+    }
+    private static void digestChunks(List<byte[]> results, byte[] bytes, int offset, int length) throws Exception {
+        int end = offset + length;
+        while (offset < end){
+            int chunk = Math.min(CHUNK_SIZE, end - offset);
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update((byte) 0xa5);
+            messageDigest.update(intLE(chunk));
+            messageDigest.update(bytes, offset, chunk);
+            results.add(messageDigest.digest());
+            offset += chunk;
+        }
+    }
+    private static SigningBlock readSigningBlock(byte[] apk){
+        ByteBuffer buffer = ByteBuffer.wrap(apk).order(ByteOrder.LITTLE_ENDIAN);
+        int endRecordOffset = apk.length - 22;
+        while (endRecordOffset >= 0 && buffer.getInt(endRecordOffset) != 0x06054b50){
+            endRecordOffset --;
+        }
+        Assert.assertTrue("Missing end record", endRecordOffset >= 0);
+        long centralDirectoryOffset = buffer.getInt(endRecordOffset + 16) & 0xffffffffL;
+        Assert.assertEquals(endRecordOffset, centralDirectoryOffset + (buffer.getInt(endRecordOffset + 12) & 0xffffffffL));
+
+        int magicOffset = (int) centralDirectoryOffset - 16;
+        Assert.assertEquals("APK Sig Block 42",
+                new String(apk, magicOffset, 16, StandardCharsets.US_ASCII));
+        long size = buffer.getLong(magicOffset - 8);
+        long blockOffset = centralDirectoryOffset - size - 8;
+        Assert.assertEquals(size, buffer.getLong((int) blockOffset));
+
+        SigningBlock signingBlock = new SigningBlock();
+        signingBlock.blockOffset = blockOffset;
+        signingBlock.centralDirectoryOffset = centralDirectoryOffset;
+        signingBlock.endRecordOffset = endRecordOffset;
+        ByteBuffer pairs = ByteBuffer.wrap(apk, (int) blockOffset + 8, (int) size - 24)
+                .slice().order(ByteOrder.LITTLE_ENDIAN);
+        while (pairs.hasRemaining()){
+            long length = pairs.getLong();
+            Pair pair = new Pair();
+            pair.id = pairs.getInt();
+            ByteBuffer value = pairs.slice().order(ByteOrder.LITTLE_ENDIAN);
+            value.limit((int) length - 4);
+            pair.value = value;
+            pairs.position(pairs.position() + (int) length - 4);
+            signingBlock.pairs.add(pair);
+        }
+        return signingBlock;
+    }
+    private static Pair findPair(List<Pair> pairs, int id){
+        for(Pair pair : pairs){
+            if(pair.id == id){
+                return pair;
+            }
+        }
+        return null;
+    }
+    private static ByteBuffer lengthPrefixed(ByteBuffer buffer){
+        int length = buffer.getInt();
+        ByteBuffer result = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        result.limit(length);
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+    private static byte[] toBytes(ByteBuffer buffer){
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+    private static byte[] intLE(int value){
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+
+    static class SigningBlock {
+        long blockOffset;
+        long centralDirectoryOffset;
+        int endRecordOffset;
+        final List<Pair> pairs = new ArrayList<>();
+    }
+    static class Pair {
+        int id;
+        ByteBuffer value;
+    }
+
+    private static final int V2_BLOCK_ID = 0x7109871a;
+    private static final int V3_BLOCK_ID = 0xf05368c0;
+    private static final int ALGORITHM_ECDSA_WITH_SHA256 = 0x0201;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    // Throwaway secp256r1 key and self-signed certificate "CN=ARSCLib Test", used only by this test
+    private static final String TEST_KEY = "MEECAQAwEwYHKoZIzj0CAQYIKoZIzj0DAQcEJzAlAgEBBCAgAZaqaw8wfP0kdTPXhHPnTYNpLE8LBQkEZrw6lJnSmw==";
+    private static final String TEST_CERTIFICATE = "MIIBRzCB7qADAgECAgkA1awPvlms7mowCgYIKoZIzj0EAwIwFzEVMBMGA1UEAxMMQVJTQ0xpYiBUZXN0MCAXDTI2"
+            + "MTAxNzE3MzIwN1oYDzIxMjYwOTIzMTczMjA3WjAXMRUwEwYDVQQDEwxBUlNDTGliIFRlc3QwWTATBgcqhkjOPQIB"
+            + "BggqhkjOPQMBBwNCAAT1wS6EWGqgLSNFKFGIxFnrv39b7CBklCsERTGTapeqnhSXl4xUtM8gUl8Ts0KyXEyGgrL2"
+            + "9MNorpwxh26J3H6ooyEwHzAdBgNVHQ4EFgQUwcSvEBBMiv5GYElrBIP0nzVpyF0wCgYIKoZIzj0EAwIDSAAwRQIg"
+            + "YcwSLw+H76kqKBx1PbH6yYWljcqWFZUQSLYneAFDgD8CIQCVFILLwFXwFaAtH6OLw4UdR6NxzqC3ZaI3BmYfpFJ3Qw==";
+}
@@ -1,14 +1,21 @@
 package com.reandroid.archive;
 
 import com.reandroid.apk.ApkModule;
+import com.reandroid.TestUtils;
 import com.reandroid.apk.ApkModuleTest;
 import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.archive.writer.ApkFileWriter;
+import com.reandroid.archive.writer.ApkIncrementalWriter;
+import com.reandroid.archive.writer.ApkStreamWriter;
 import com.reandroid.arsc.chunk.xml.AndroidManifestBlock;
+import com.reandroid.utils.io.IOUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
 public class ApkWriterTest {
     @Test
@@ -41,6 +48,128 @@ public class ApkWriterTest {
         Assert.assertNotNull("Missing classes.dex", inputSource);
     }
 
+    @Test
+    public void testStreamingWindow() throws IOException {
+        ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+        getApkModule().writeApk(buffered);
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        ApkStreamWriter writer = getApkModule().createApkStreamWriter(streamed);
+        writer.setStreamingWindow(64);
+        writer.write();
+
+        ApkModule apkModule = ApkModule.readApkBytes(streamed.toByteArray());
+        Assert.assertNotNull("Missing manifest", apkModule.getAndroidManifest());
+        Assert.assertNotNull("Missing table", apkModule.getTableBlock());
+        Assert.assertArrayEquals("Streamed classes.dex differs",
+                IOUtil.readFully(ApkModule.readApkBytes(buffered.toByteArray())
+                        .getInputSource("classes.dex").openStream()),
+                IOUtil.readFully(apkModule.getInputSource("classes.dex").openStream()));
+    }
+
+    @Test
+    public void testParallelCompression() throws IOException {
+        File dir = TestUtils.getTempDir();
+        File serial = new File(dir, "serial_compress.apk");
+        File parallel = new File(dir, "parallel_compress.apk");
+
+        ApkFileWriter writer = getApkModule().createApkFileWriter(serial);
+        writer.write();
+
+        writer = getApkModule().createApkFileWriter(parallel);
+        writer.setCompressionThreads(4);
+        writer.write();
+
+        Assert.assertArrayEquals("Parallel compression output differs",
+                Files.readAllBytes(serial.toPath()), Files.readAllBytes(parallel.toPath()));
+        serial.delete();
+        parallel.delete();
+    }
+    @Test
+    public void testParallelCompressionLargeEntry() throws IOException {
+        File dir = TestUtils.getTempDir();
+        File serial = new File(dir, "serial_large.apk");
+        File parallel = new File(dir, "parallel_large.apk");
+        // larger than the in memory read ahead limit
+        byte[] large = new byte[9 * 1024 * 1024];
+        for(int i = 0; i < large.length; i++){
+            large[i] = (byte) (i % 251);
+        }
+
+        ApkModule apkModule = getApkModule();
+        apkModule.add(new ByteInputSource(large, "assets/large.bin"));
+        apkModule.createApkFileWriter(serial).write();
+
+        apkModule = getApkModule();
+        apkModule.add(new ByteInputSource(large, "assets/large.bin"));
+        ApkFileWriter writer = apkModule.createApkFileWriter(parallel);
+        writer.setCompressionThreads(4);
+        writer.write();
+
+        Assert.assertArrayEquals("Parallel compression output differs",
+                Files.readAllBytes(serial.toPath()), Files.readAllBytes(parallel.toPath()));
+        ApkModule loaded = ApkModule.loadApkFile(parallel);
+        Assert.assertArrayEquals(large, IOUtil.readFully(
+                loaded.getInputSource("assets/large.bin").openStream()));
+        loaded.close();
+        String[] names = dir.list();
+        Assert.assertNotNull(names);
+        for(String name : names){
+            Assert.assertFalse("Read ahead file left: " + name, name.contains("_read"));
+        }
+        serial.delete();
+        parallel.delete();
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws IOException {
+        File file = new File(TestUtils.getTempDir(), "incremental.apk");
+        getApkModule().writeApk(file);
+
+        ApkModule apkModule = ApkModule.loadApkFile(file);
+        apkModule.getAndroidManifest().setVersionName("incremental");
+        apkModule.getAndroidManifest().refresh();
+        ApkIncrementalWriter writer = apkModule.createApkIncrementalWriter(file);
+        Assert.assertTrue("No retained entries", writer.countRetained() > 0);
+        writer.write();
+        apkModule.close();
+
+        ApkModule apkModule2 = ApkModule.loadApkFile(file);
+        Assert.assertEquals("incremental", apkModule2.getAndroidManifest().getVersionName());
+        Assert.assertNotNull("Missing table", apkModule2.getTableBlock());
+        Assert.assertNotNull("Missing classes.dex", apkModule2.getInputSource("classes.dex"));
+        apkModule2.close();
+        file.delete();
+    }
+
+    @Test
+    public void testCompactingUpdate() throws IOException {
+        File file = new File(TestUtils.getTempDir(), "compact.apk");
+        getApkModule().writeApk(file);
+
+        ApkModule apkModule = ApkModule.loadApkFile(file);
+        byte[] dex = IOUtil.readFully(apkModule.getInputSource("classes.dex").openStream());
+        apkModule.getAndroidManifest().setVersionName("compacted");
+        apkModule.getAndroidManifest().refresh();
+        ApkIncrementalWriter writer = apkModule.createApkIncrementalWriter(file);
+        Assert.assertTrue("Nothing to compact", writer.getUnusedBytes() > 0);
+        writer.close();
+        apkModule.updateApk(file, 0.0f);
+        Assert.assertFalse("Temporary file left",
+                new File(file.getAbsolutePath() + ".tmp").exists());
+        // entries of the module now read from the replaced file
+        Assert.assertArrayEquals(dex, IOUtil.readFully(
+                apkModule.getInputSource("classes.dex").openStream()));
+        apkModule.close();
+
+        ApkModule apkModule2 = ApkModule.loadApkFile(file);
+        Assert.assertEquals("compacted", apkModule2.getAndroidManifest().getVersionName());
+        Assert.assertArrayEquals(dex, IOUtil.readFully(
+                apkModule2.getInputSource("classes.dex").openStream()));
+        apkModule2.close();
+        file.delete();
+    }
+
     private ApkModule getApkModule() throws IOException {
         ApkModuleTest apkModuleTest = new ApkModuleTest();
         return apkModuleTest.createApkModule();
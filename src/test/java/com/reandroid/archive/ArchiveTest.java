@@ -0,0 +1,174 @@
+package com.reandroid.archive;
+
+import com.reandroid.TestUtils;
+import com.reandroid.apk.ApkModuleTest;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.io.ZipByteInput;
+import com.reandroid.utils.io.FileUtil;
+import com.reandroid.utils.io.IOUtil;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ArchiveTest {
+
+    private static byte[] apkBytes;
+
+    @BeforeClass
+    public static void createApkBytes() throws IOException {
+        apkBytes = new ApkModuleTest().createApkModule().writeApkBytes();
+    }
+
+    @Test
+    public void testGetEntryAfterRename() throws IOException {
+        ArchiveBytes archive = new ArchiveBytes(apkBytes);
+        ArchiveEntry entry = archive.getEntry("classes.dex");
+        Assert.assertNotNull("Missing classes.dex", entry);
+
+        entry.setName("renamed.dex");
+        Assert.assertSame(entry, archive.getEntry("renamed.dex"));
+        Assert.assertNull(archive.getEntry("classes.dex"));
+        Assert.assertNotNull(archive.getEntrySource("renamed.dex"));
+    }
+
+    @Test
+    public void testLazyEntriesMatchEager() throws IOException {
+        assertLazyMatchesEager(apkBytes);
+        assertLazyMatchesEager(createZipWithLocalExtra());
+    }
+    private void assertLazyMatchesEager(byte[] zipBytes) throws IOException {
+        ArchiveBytes eager = new ArchiveBytes(zipBytes);
+        ArchiveBytes lazy = new ArchiveBytes(new ZipByteInput(zipBytes), true);
+        Assert.assertEquals(eager.size(), lazy.size());
+
+        Iterator<ArchiveEntry> eagerIterator = eager.iterator();
+        Iterator<ArchiveEntry> lazyIterator = lazy.iterator();
+        while (eagerIterator.hasNext()){
+            ArchiveEntry expected = eagerIterator.next();
+            LazyArchiveEntry entry = (LazyArchiveEntry) lazyIterator.next();
+            Assert.assertFalse(entry.isResolved());
+            LocalFileHeader lfh = entry.getLocalFileHeader();
+            Assert.assertTrue(entry.isResolved());
+            Assert.assertEquals(expected.getName(), entry.getName());
+            Assert.assertEquals(expected.getFileOffset(), entry.getFileOffset());
+            Assert.assertArrayEquals("Local header differs: " + entry.getName(),
+                    expected.getLocalFileHeader().getBytes(), lfh.getBytes());
+            Assert.assertEquals(expected.getLocalFileHeader().getDataDescriptor() == null,
+                    lfh.getDataDescriptor() == null);
+        }
+        for(InputSource inputSource : eager.getInputSources()){
+            Assert.assertArrayEquals(IOUtil.readFully(inputSource.openStream()),
+                    IOUtil.readFully(lazy.getEntrySource(inputSource.getAlias()).openStream()));
+        }
+    }
+    @Test
+    public void testParallelExtractMatchesSerial() throws IOException {
+        File root = new File(TestUtils.getTempDir(), "archive_extract");
+        File file = new File(root, "source.zip");
+        FileUtil.ensureParentDirectory(file);
+        Files.write(file.toPath(), createZipWithLocalExtra());
+        try{
+            assertParallelExtract(new ArchiveFile(file), new File(root, "file"));
+            assertParallelExtract(new ArchiveBytes(apkBytes), new File(root, "bytes"));
+        }finally {
+            FileUtil.deleteDirectory(root);
+        }
+    }
+    private void assertParallelExtract(Archive<?> archive, File dir) throws IOException {
+        File serialDir = new File(dir, "serial");
+        File parallelDir = new File(dir, "parallel");
+        int serial = archive.extractAll(serialDir);
+        int parallel = archive.extractAll(parallelDir, null, null, 4);
+        Assert.assertEquals(serial, parallel);
+        Iterator<ArchiveEntry> iterator = archive.getFiles();
+        while (iterator.hasNext()){
+            ArchiveEntry entry = iterator.next();
+            Assert.assertArrayEquals("Extracted content differs: " + entry.getName(),
+                    Files.readAllBytes(archive.toFile(serialDir, entry).toPath()),
+                    Files.readAllBytes(archive.toFile(parallelDir, entry).toPath()));
+        }
+        archive.close();
+    }
+    @Test
+    public void testExtractTruncatedEntry() throws IOException {
+        File dir = new File(TestUtils.getTempDir(), "archive_truncated");
+        try{
+            assertTruncatedExtract("deflated.txt", dir);
+            assertTruncatedExtract("stored.txt", dir);
+        }finally {
+            FileUtil.deleteDirectory(dir);
+        }
+    }
+    private void assertTruncatedExtract(String name, File dir) throws IOException {
+        byte[] zipBytes = createZipWithLocalExtra();
+        ArchiveBytes archive = new ArchiveBytes(zipBytes);
+        ArchiveEntry entry = archive.getEntry(name);
+        if(entry.isCompressed()){
+            // inflater runs out of input before the stream end
+            entry.setCompressedSize(entry.getCompressedSize() / 2);
+        }else {
+            // data ends before the declared size
+            entry.setSize(zipBytes.length);
+        }
+        Predicate<ArchiveEntry> filter = archiveEntry -> archiveEntry == entry;
+        try{
+            archive.extractAll(dir, filter, null, 2);
+            Assert.fail("Truncated entry extracted: " + name);
+        }catch (EOFException ignored){
+        }
+        if(entry.isCompressed()){
+            try{
+                archive.extractAll(dir, filter, null);
+                Assert.fail("Truncated entry extracted: " + name);
+            }catch (EOFException ignored){
+            }
+        }
+    }
+    /**
+     * Local extra field and data descriptor flag are not present in central directory
+     * */
+    private static byte[] createZipWithLocalExtra() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        byte[] data = "stored entry with extra".getBytes(StandardCharsets.UTF_8);
+        ZipEntry stored = new ZipEntry("stored.txt");
+        stored.setMethod(ZipEntry.STORED);
+        stored.setSize(data.length);
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        stored.setCrc(crc32.getValue());
+        stored.setExtra(new byte[]{(byte) 0xfe, (byte) 0xca, 4, 0, 1, 2, 3, 4});
+        zipOutputStream.putNextEntry(stored);
+        zipOutputStream.write(data);
+        zipOutputStream.closeEntry();
+        zipOutputStream.putNextEntry(new ZipEntry("deflated.txt"));
+        for(int i = 0; i < 100; i++){
+            zipOutputStream.write(data);
+        }
+        zipOutputStream.closeEntry();
+        zipOutputStream.close();
+        return outputStream.toByteArray();
+    }
+    @Test
+    public void testLazyEntryResolvesBeforeEdit() throws IOException {
+        ArchiveBytes lazy = new ArchiveBytes(new ZipByteInput(apkBytes), true);
+        LazyArchiveEntry entry = (LazyArchiveEntry) lazy.getEntry("classes.dex");
+        Assert.assertFalse(entry.isResolved());
+        entry.setName("renamed.dex");
+        Assert.assertTrue(entry.isResolved());
+        Assert.assertEquals("renamed.dex", entry.getLocalFileHeader().getFileName());
+        Assert.assertEquals("renamed.dex", entry.getCentralEntryHeader().getFileName());
+    }
+}
@@ -0,0 +1,107 @@
+package com.reandroid.archive;
+
+import com.reandroid.apk.ApkModuleTest;
+import com.reandroid.utils.io.IOUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class ZipCodecPoolTest {
+
+    @Test
+    public void testReuse() {
+        ZipCodecPool pool = new ZipCodecPool(2);
+        Deflater deflater = pool.obtainDeflater(Deflater.BEST_SPEED);
+        pool.release(deflater);
+        Assert.assertSame(deflater, pool.obtainDeflater(Deflater.BEST_SPEED));
+        Assert.assertEquals(1, pool.getDeflaterHits());
+        Assert.assertEquals(2, pool.getDeflaterRequests());
+
+        Inflater inflater = pool.obtainInflater();
+        pool.release(inflater);
+        Assert.assertSame(inflater, pool.obtainInflater());
+        Assert.assertEquals(1, pool.getInflaterHits());
+    }
+    @Test
+    public void testLevelsAreSeparate() {
+        ZipCodecPool pool = new ZipCodecPool(2);
+        Deflater fast = pool.obtainDeflater(Deflater.BEST_SPEED);
+        pool.release(fast);
+        Deflater best = pool.obtainDeflater(Deflater.BEST_COMPRESSION);
+        Assert.assertNotSame(fast, best);
+        Assert.assertEquals(0, pool.getDeflaterHits());
+        Assert.assertEquals(1, pool.getIdleDeflaters());
+        pool.release(best);
+        Assert.assertEquals(2, pool.getIdleDeflaters());
+    }
+    @Test
+    public void testMaxIdle() {
+        ZipCodecPool pool = new ZipCodecPool(1);
+        Inflater inflater1 = pool.obtainInflater();
+        Inflater inflater2 = pool.obtainInflater();
+        Assert.assertEquals(2, pool.getLiveInflaters());
+        pool.release(inflater1);
+        pool.release(inflater2);
+        Assert.assertEquals(1, pool.getIdleInflaters());
+        Assert.assertEquals(1, pool.getLiveInflaters());
+
+        Deflater deflater1 = pool.obtainDeflater(Deflater.DEFAULT_COMPRESSION);
+        Deflater deflater2 = pool.obtainDeflater(Deflater.DEFAULT_COMPRESSION);
+        pool.release(deflater1);
+        pool.release(deflater2);
+        Assert.assertEquals(1, pool.getIdleDeflaters());
+        Assert.assertEquals(1, pool.getLiveDeflaters());
+
+        pool.clear();
+        Assert.assertEquals(0, pool.getIdleDeflaters());
+        Assert.assertEquals(0, pool.getIdleInflaters());
+        Assert.assertEquals(0, pool.getLiveDeflaters());
+        Assert.assertEquals(0, pool.getLiveInflaters());
+        Assert.assertEquals(0, pool.getNativeMemoryEstimate());
+    }
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        new ZipCodecPool().obtainDeflater(Deflater.BEST_COMPRESSION + 1);
+    }
+    @Test
+    public void testStreamsRoundTrip() throws IOException {
+        ZipCodecPool pool = new ZipCodecPool(2);
+        byte[] data = "pooled codec round trip, pooled codec round trip"
+                .getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream outputStream = pool.openDeflaterOutputStream(compressed, Deflater.BEST_COMPRESSION);
+        outputStream.write(data);
+        outputStream.close();
+        outputStream.close();
+        Assert.assertEquals(1, pool.getIdleDeflaters());
+
+        InputStream inputStream = pool.openInflaterInputStream(
+                new ByteArrayInputStream(compressed.toByteArray()), 16);
+        Assert.assertArrayEquals(data, IOUtil.readFully(inputStream));
+        inputStream.close();
+        Assert.assertEquals(1, pool.getIdleInflaters());
+        Assert.assertEquals(1, pool.getLiveInflaters());
+    }
+    @Test
+    public void testArchiveUsesConfiguredPool() throws IOException {
+        byte[] apkBytes = new ApkModuleTest().createApkModule().writeApkBytes();
+        ArchiveBytes archive = new ArchiveBytes(apkBytes);
+        ZipCodecPool pool = new ZipCodecPool(2);
+        archive.setCodecPool(pool);
+        ArchiveEntry entry = archive.getEntry("classes.dex");
+        Assert.assertTrue(entry.isCompressed());
+        Assert.assertSame(pool, entry.getCodecPool());
+
+        IOUtil.readFully(archive.getEntrySource("classes.dex").openStream());
+        IOUtil.readFully(archive.openInputStream(entry));
+        Assert.assertEquals(2, pool.getInflaterRequests());
+    }
+}
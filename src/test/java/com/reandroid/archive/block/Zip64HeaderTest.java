@@ -0,0 +1,160 @@
+package com.reandroid.archive.block;
+
+import com.reandroid.archive.Archive;
+import com.reandroid.archive.ZipSignature;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class Zip64HeaderTest {
+
+    @Test
+    public void testLocalSizes() throws IOException {
+        LocalFileHeader lfh = newLocalFileHeader();
+        lfh.setSize(SIZE_5G);
+        lfh.setCompressedSize(0xffffffffL);
+        Assert.assertTrue(lfh.hasZip64Extra());
+
+        LocalFileHeader read = LocalFileHeader.read(new ByteArrayInputStream(lfh.getBytes()));
+        Assert.assertNotNull(read);
+        Assert.assertEquals(SIZE_5G, read.getSize());
+        Assert.assertEquals(0xffffffffL, read.getCompressedSize());
+        Assert.assertEquals(0x12345678L, read.getCrc());
+        Assert.assertEquals("big.bin", read.getFileName());
+        Assert.assertEquals(0xffffffffL, read.getIntegerUnsigned(OFFSET_LOCAL_SIZE));
+        Assert.assertEquals(0xffffffffL, read.getIntegerUnsigned(OFFSET_LOCAL_COMPRESSED_SIZE));
+    }
+    @Test
+    public void testLocalDataDescriptor() throws IOException {
+        LocalFileHeader lfh = newLocalFileHeader();
+        lfh.setHasDataDescriptor(true);
+        Assert.assertFalse(lfh.hasZip64Extra());
+        Assert.assertEquals(DataDescriptor.MIN_LENGTH, lfh.getDataDescriptor().countBytes());
+
+        lfh.setSize(SIZE_5G);
+        lfh.setCompressedSize(SIZE_5G + 1);
+        Assert.assertTrue("Missing zip64 extra", lfh.hasZip64Extra());
+        Assert.assertEquals(DataDescriptor.ZIP64_LENGTH, lfh.getDataDescriptor().countBytes());
+
+        LocalFileHeader read = readWithDataDescriptor(lfh);
+        Assert.assertEquals(SIZE_5G, read.getSize());
+        Assert.assertEquals(SIZE_5G + 1, read.getCompressedSize());
+        Assert.assertEquals(0x12345678L, read.getCrc());
+    }
+    @Test
+    public void testSmallZip64DataDescriptor() throws IOException {
+        LocalFileHeader lfh = newLocalFileHeader();
+        lfh.setHasDataDescriptor(true);
+        lfh.setSize(SIZE_5G);
+        lfh.setSize(100);
+        lfh.setCompressedSize(60);
+        // zip64 extra stays, so the descriptor keeps 8 byte sizes
+        Assert.assertTrue(lfh.hasZip64Extra());
+        Assert.assertEquals(DataDescriptor.ZIP64_LENGTH, lfh.getDataDescriptor().countBytes());
+
+        LocalFileHeader read = readWithDataDescriptor(lfh);
+        Assert.assertTrue(read.getDataDescriptor().isZip64());
+        Assert.assertEquals(100, read.getSize());
+        Assert.assertEquals(60, read.getCompressedSize());
+    }
+    @Test
+    public void testReservedZip64DataDescriptor() throws IOException {
+        LocalFileHeader lfh = newLocalFileHeader();
+        lfh.reserveZip64DataDescriptor();
+        Assert.assertTrue(lfh.hasDataDescriptor());
+        Assert.assertTrue(lfh.hasZip64Extra());
+        Assert.assertEquals(0, lfh.getIntegerUnsigned(OFFSET_LOCAL_SIZE));
+        Assert.assertEquals(DataDescriptor.ZIP64_LENGTH, lfh.getDataDescriptor().countBytes());
+
+        // sizes arrive after the header went out, small or not
+        lfh.setSize(100);
+        lfh.setCompressedSize(SIZE_5G);
+        LocalFileHeader read = readWithDataDescriptor(lfh);
+        Assert.assertEquals(100, read.getSize());
+        Assert.assertEquals(SIZE_5G, read.getCompressedSize());
+    }
+    @Test
+    public void testCentralValues() throws IOException {
+        CentralEntryHeader ceh = newCentralEntryHeader();
+        ceh.setSize(0xffffffffL);
+        ceh.setCompressedSize(100);
+        ceh.setLocalRelativeOffset(SIZE_5G);
+        Assert.assertEquals(4 + 16, ceh.getExtraLength());
+
+        CentralEntryHeader read = readCentral(ceh);
+        Assert.assertEquals(0xffffffffL, read.getSize());
+        Assert.assertEquals(100, read.getCompressedSize());
+        Assert.assertEquals(SIZE_5G, read.getLocalRelativeOffset());
+        Assert.assertEquals("big.bin", read.getFileName());
+
+        read.setSize(10);
+        Assert.assertEquals(4 + 8, read.getExtraLength());
+        read = readCentral(read);
+        Assert.assertEquals(10, read.getSize());
+        Assert.assertEquals(100, read.getCompressedSize());
+        Assert.assertEquals(SIZE_5G, read.getLocalRelativeOffset());
+
+        read.setLocalRelativeOffset(20);
+        Assert.assertEquals(0, read.getExtraLength());
+        read = readCentral(read);
+        Assert.assertEquals(10, read.getSize());
+        Assert.assertEquals(20, read.getLocalRelativeOffset());
+    }
+    @Test
+    public void testCentralKeepsOtherExtra() throws IOException {
+        byte[] other = new byte[]{(byte) 0xfe, (byte) 0xca, 4, 0, 1, 2, 3, 4};
+        CentralEntryHeader ceh = newCentralEntryHeader();
+        ceh.setExtra(other);
+        ceh.setCompressedSize(SIZE_5G);
+        Assert.assertEquals(4 + 8 + other.length, ceh.getExtraLength());
+
+        CentralEntryHeader read = readCentral(ceh);
+        Assert.assertEquals(SIZE_5G, read.getCompressedSize());
+        read.setCompressedSize(30);
+        Assert.assertArrayEquals(other, read.getExtra());
+        Assert.assertEquals(30, readCentral(read).getCompressedSize());
+    }
+
+    private static LocalFileHeader readWithDataDescriptor(LocalFileHeader lfh) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        lfh.writeBytes(outputStream);
+        lfh.getDataDescriptor().writeBytes(outputStream);
+        InputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+        LocalFileHeader read = LocalFileHeader.read(inputStream);
+        Assert.assertNotNull(read);
+        read.updateDataDescriptor();
+        DataDescriptor dataDescriptor = read.getDataDescriptor();
+        Assert.assertNotNull("Missing data descriptor", dataDescriptor);
+        Assert.assertEquals(lfh.getDataDescriptor().countBytes(), dataDescriptor.readBytes(inputStream));
+        Assert.assertEquals(-1, inputStream.read());
+        return read;
+    }
+    private static CentralEntryHeader readCentral(CentralEntryHeader ceh) throws IOException {
+        CentralEntryHeader read = new CentralEntryHeader();
+        read.readBytes(new ByteArrayInputStream(ceh.getBytes()));
+        Assert.assertTrue(read.isValidSignature());
+        return read;
+    }
+    private static LocalFileHeader newLocalFileHeader(){
+        LocalFileHeader lfh = new LocalFileHeader("big.bin");
+        lfh.setSignature(ZipSignature.LOCAL_FILE);
+        lfh.setMethod(Archive.DEFLATED);
+        lfh.setCrc(0x12345678L);
+        return lfh;
+    }
+    private static CentralEntryHeader newCentralEntryHeader(){
+        CentralEntryHeader ceh = new CentralEntryHeader();
+        ceh.setSignature(ZipSignature.CENTRAL_FILE);
+        ceh.setFileName("big.bin");
+        ceh.setMethod(Archive.DEFLATED);
+        return ceh;
+    }
+
+    private static final long SIZE_5G = 5L * 1024 * 1024 * 1024;
+    private static final int OFFSET_LOCAL_COMPRESSED_SIZE = 18;
+    private static final int OFFSET_LOCAL_SIZE = 22;
+}
@@ -0,0 +1,61 @@
+package com.reandroid.archive.writer;
+
+import com.reandroid.apk.ApkModuleTest;
+import com.reandroid.archive.ArchiveBytes;
+import com.reandroid.archive.ArchiveEntry;
+import com.reandroid.archive.ZipCodecPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+public class CompressionLevelsTest {
+
+    @Test
+    public void testPatternOrder() {
+        CompressionLevels levels = new CompressionLevels();
+        Assert.assertEquals(Deflater.DEFAULT_COMPRESSION, levels.getLevel("classes.dex"));
+
+        levels.setLevel(Pattern.compile("^classes\\d*\\.dex$"), Deflater.BEST_COMPRESSION);
+        levels.setLevel(Pattern.compile("^.*\\.dex$"), Deflater.NO_COMPRESSION);
+        levels.setLevel(Pattern.compile("^res/raw/.*"), Deflater.BEST_SPEED);
+        levels.setDefaultLevel(3);
+
+        Assert.assertEquals(Deflater.BEST_COMPRESSION, levels.getLevel("classes2.dex"));
+        Assert.assertEquals(Deflater.NO_COMPRESSION, levels.getLevel("assets/a.dex"));
+        Assert.assertEquals(Deflater.BEST_SPEED, levels.getLevel("res/raw/a.bin"));
+        Assert.assertEquals(3, levels.getLevel("AndroidManifest.xml"));
+        Assert.assertEquals(3, levels.getLevel(null));
+
+        levels.clearLevels();
+        Assert.assertEquals(3, levels.getLevel("classes2.dex"));
+    }
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        new CompressionLevels().setLevel(Pattern.compile(".*"), 10);
+    }
+    @Test
+    public void testWriterLevels() throws IOException {
+        byte[] fast = writeWithLevel(Deflater.NO_COMPRESSION);
+        byte[] best = writeWithLevel(Deflater.BEST_COMPRESSION);
+        ArchiveEntry fastDex = new ArchiveBytes(fast).getEntry("classes.dex");
+        ArchiveEntry bestDex = new ArchiveBytes(best).getEntry("classes.dex");
+        Assert.assertEquals(fastDex.getCrc(), bestDex.getCrc());
+        Assert.assertTrue("Level not applied: " + fastDex.getCompressedSize()
+                        + " <= " + bestDex.getCompressedSize(),
+                fastDex.getCompressedSize() > bestDex.getCompressedSize());
+    }
+    private byte[] writeWithLevel(int level) throws IOException {
+        ApkByteWriter writer = new ApkModuleTest().createApkModule().createApkByteWriter();
+        CompressionLevels levels = new CompressionLevels();
+        levels.setLevel(Pattern.compile("^classes\\d*\\.dex$"), level);
+        writer.setCompressionLevels(levels);
+        ZipCodecPool pool = new ZipCodecPool(2);
+        writer.setCodecPool(pool);
+        writer.write();
+        Assert.assertTrue("Writer did not use its pool", pool.getDeflaterRequests() > 0);
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,322 @@
+package com.reandroid.arsc.chunk;
+
+import com.reandroid.apk.AndroidFrameworks;
+import com.reandroid.arsc.base.Block;
+import com.reandroid.arsc.base.BlockCounter;
+import com.reandroid.arsc.io.BlockWriter;
+import com.reandroid.arsc.io.ByteBufferPool;
+import com.reandroid.arsc.model.ConfigResolver;
+import com.reandroid.arsc.model.ResourceEntry;
+import com.reandroid.arsc.model.ResourceIdIndex;
+import com.reandroid.arsc.pool.TableStringPool;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.arsc.value.StagedAliasEntry;
+import com.reandroid.arsc.value.ValueType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class TableBlockTest {
+
+    @Test
+    public void testResourceIdIndex() throws IOException {
+        TableBlock framework = AndroidFrameworks.getLatest().getTableBlock();
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        packageBlock.getOrCreate("", "string", "app_name").setValueAsString("Example");
+        tableBlock.addFramework(framework);
+        tableBlock.refresh();
+
+        Set<Integer> idSet = new TreeSet<>();
+        for(TableBlock table : new TableBlock[]{tableBlock, framework}){
+            for(PackageBlock pkg : table){
+                Iterator<ResourceEntry> iterator = pkg.getResources();
+                while (iterator.hasNext()){
+                    int id = iterator.next().getResourceId();
+                    idSet.add(id);
+                    idSet.add(id + 1);
+                }
+                for(StagedAlias stagedAlias : pkg.listStagedAlias()){
+                    for(StagedAliasEntry aliasEntry : stagedAlias.listStagedAliasEntry()){
+                        idSet.add(aliasEntry.getStagedResId());
+                    }
+                }
+            }
+        }
+        for(int id : idSet){
+            tableBlock.setResourceIdIndexEnabled(false);
+            ResourceEntry expected = tableBlock.getResource(id);
+            tableBlock.setResourceIdIndexEnabled(true);
+            ResourceEntry actual = tableBlock.getResource(id);
+            String message = String.format("id = 0x%08x", id);
+            if(expected == null){
+                Assert.assertNull(message, actual);
+                continue;
+            }
+            Assert.assertNotNull(message, actual);
+            Assert.assertEquals(message, expected.getResourceId(), actual.getResourceId());
+            Assert.assertSame(message, expected.getPackageBlock(), actual.getPackageBlock());
+        }
+
+        ResourceIdIndex index = tableBlock.getResourceIdIndex();
+        tableBlock.getResource(idSet.iterator().next());
+        Assert.assertSame("Index rebuilt without changes", index, tableBlock.getResourceIdIndex());
+
+        Entry entry = packageBlock.getOrCreate("", "string", "added");
+        entry.setValueAsString("Added");
+        int newId = entry.getResourceId();
+        Assert.assertNotNull("Index not rebuilt after adding entry", tableBlock.getResource(newId));
+
+        entry.setNull(true);
+        tableBlock.setResourceIdIndexEnabled(false);
+        ResourceEntry expected = tableBlock.getResource(newId);
+        tableBlock.setResourceIdIndexEnabled(true);
+        Assert.assertEquals("Index not rebuilt after removing entry",
+                expected == null, tableBlock.getResource(newId) == null);
+
+        Entry other = packageBlock.getOrCreate("", "string", "added_after_refresh");
+        other.setValueAsString("Added");
+        tableBlock.refresh();
+        Assert.assertNotNull("Index not rebuilt after refresh",
+                tableBlock.getResource(other.getResourceId()));
+
+        index = tableBlock.getResourceIdIndex();
+        ConfigResolver resolver = tableBlock.getConfigResolver();
+        other.setValueAsString("Edited to a longer value");
+        tableBlock.getTableStringPool().getOrCreate("unused string");
+        tableBlock.refresh();
+        Assert.assertSame("Index rebuilt after value edits", index, tableBlock.getResourceIdIndex());
+        Assert.assertSame("Resolver rebuilt after value edits", resolver, tableBlock.getConfigResolver());
+
+        int packageId = packageBlock.getId();
+        packageBlock.setId(0x7e);
+        Assert.assertNotSame("Index not rebuilt after package id change",
+                index, tableBlock.getResourceIdIndex());
+        Assert.assertNotSame("Resolver not rebuilt after package id change",
+                resolver, tableBlock.getConfigResolver());
+        packageBlock.setId(packageId);
+    }
+
+    @Test
+    public void testLazyDecodeStringPool() throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        for(int i = 0; i < 1000; i++){
+            String value = (i % 3 == 0) ? "\u0421\u0442\u0440\u043e\u043a\u0430 " + i : "String " + i;
+            packageBlock.getOrCreate("", "string", "name_" + i).setValueAsString(value);
+        }
+        packageBlock.getOrCreate("", "string", "empty").setValueAsString("");
+        tableBlock.refresh();
+        byte[] bytes = tableBlock.getBytes();
+
+        TableBlock eager = new TableBlock();
+        eager.readBytes(new ByteArrayInputStream(bytes));
+        TableBlock lazy = new TableBlock();
+        lazy.getTableStringPool().setLazyDecode(true);
+        lazy.readBytes(new ByteArrayInputStream(bytes));
+
+        Assert.assertArrayEquals(eager.getBytes(), lazy.getBytes());
+        TableStringPool eagerPool = eager.getTableStringPool();
+        TableStringPool lazyPool = lazy.getTableStringPool();
+        Assert.assertEquals(eagerPool.size(), lazyPool.size());
+        for(int i = 0; i < eagerPool.size(); i++){
+            Assert.assertEquals(eagerPool.get(i).getXml(), lazyPool.get(i).getXml());
+        }
+        Assert.assertTrue(lazyPool.contains("String 1"));
+
+        lazyPool.get(1).set("Changed");
+        eagerPool.get(1).set("Changed");
+        Assert.assertEquals(eagerPool.getOrCreate("Changed").getIndex(),
+                lazyPool.getOrCreate("Changed").getIndex());
+        lazy.refresh();
+        eager.refresh();
+        Assert.assertArrayEquals(eager.getBytes(), lazy.getBytes());
+    }
+
+    @Test
+    public void testParallelLoad() throws IOException {
+        TableBlock framework = AndroidFrameworks.getLatest().getTableBlock();
+        framework.refresh();
+        byte[] bytes = framework.getBytes();
+
+        TableBlock serial = new TableBlock();
+        serial.readBytes(new ByteArrayInputStream(bytes));
+        TableBlock parallel = new TableBlock();
+        parallel.setLoadThreads(4);
+        parallel.readBytes(new ByteArrayInputStream(bytes));
+
+        Assert.assertArrayEquals(serial.getBytes(), parallel.getBytes());
+        Assert.assertEquals(serial.toJson().toString(), parallel.toJson().toString());
+
+        PackageBlock serialPackage = serial.pickOne();
+        PackageBlock parallelPackage = parallel.pickOne();
+        Iterator<ResourceEntry> iterator = serialPackage.getResources();
+        while (iterator.hasNext()){
+            ResourceEntry expected = iterator.next();
+            ResourceEntry actual = parallelPackage.getResource(expected.getResourceId());
+            Assert.assertNotNull(actual);
+            Assert.assertEquals(expected.getType(), actual.getType());
+            Assert.assertEquals(expected.getName(), actual.getName());
+        }
+    }
+    @Test
+    public void testIncrementalRefresh() throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        for(int i = 0; i < 50; i++){
+            packageBlock.getOrCreate("", "string", "name" + i).setValueAsString("value " + i);
+            packageBlock.getOrCreate("-fr", "string", "name" + i).setValueAsString("valeur " + i);
+            packageBlock.getOrCreate("", "dimen", "size" + i).setValueAsRaw(ValueType.DEC, i);
+        }
+        tableBlock.refresh();
+        int fullCount = tableBlock.getRefreshedBlocksCount();
+        Assert.assertTrue(fullCount > 0);
+        tableBlock.refresh();
+        Assert.assertEquals(0, tableBlock.getRefreshedBlocksCount());
+
+        // same size edits do not need refresh
+        Entry entry = packageBlock.getOrCreate("", "dimen", "size3");
+        entry.setValueAsRaw(ValueType.DEC, 100);
+        tableBlock.refresh();
+        Assert.assertEquals(0, tableBlock.getRefreshedBlocksCount());
+        assertRefreshed(tableBlock);
+
+        packageBlock.getOrCreate("-fr", "string", "name3").setValueAsString("une valeur plus longue");
+        packageBlock.getOrCreate("-de", "dimen", "size3").setValueAsRaw(ValueType.DEC, 3);
+        packageBlock.getOrCreate("", "bool", "enabled").setValueAsBoolean(true);
+        entry.ensureComplex(true);
+        entry.getResTableMapEntry().setValuesCount(2);
+        tableBlock.refresh();
+        int count = tableBlock.getRefreshedBlocksCount();
+        Assert.assertTrue(count > 0);
+        Assert.assertTrue(count < fullCount);
+        assertRefreshed(tableBlock);
+
+        packageBlock.getOrCreate("-fr", "string", "name4").setNull(true);
+        tableBlock.refreshFull();
+        assertRefreshed(tableBlock);
+    }
+    @Test
+    public void testWriteBytes() throws IOException {
+        TableBlock framework = AndroidFrameworks.getLatest().getTableBlock();
+        framework.refresh();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        framework.writeBytes(outputStream);
+        byte[] expected = outputStream.toByteArray();
+        Assert.assertArrayEquals(expected, framework.getBytes());
+
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length + 8);
+        buffer.putInt(1);
+        Assert.assertEquals(expected.length, framework.writeBytes(buffer));
+        Assert.assertEquals(expected.length + 4, buffer.position());
+        byte[] bytes = new byte[expected.length];
+        buffer.position(4);
+        buffer.get(bytes);
+        Assert.assertArrayEquals(expected, bytes);
+        try {
+            framework.writeBytes(ByteBuffer.allocate(expected.length - 1));
+            Assert.fail("Buffer overflow not detected");
+        } catch (IOException ignored) {
+        }
+
+        outputStream = new ByteArrayOutputStream();
+        framework.writeBytes(Channels.newChannel(outputStream));
+        Assert.assertArrayEquals(expected, outputStream.toByteArray());
+
+        // small buffer to go through draining and direct writes
+        outputStream = new ByteArrayOutputStream();
+        BlockWriter writer = new BlockWriter(outputStream, new ByteBufferPool(100, 1));
+        writer.write(framework);
+        writer.close();
+        Assert.assertArrayEquals(expected, outputStream.toByteArray());
+
+        File file = File.createTempFile("resources", ".arsc");
+        try {
+            Assert.assertEquals(expected.length, framework.writeBytes(file));
+            Assert.assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+    @Test
+    public void testGetBytesMiscounted() {
+        byte[] data = new byte[]{1, 2, 3, 4};
+        // counted less and more than written
+        Assert.assertArrayEquals(data, BlockWriter.getBytes(new MiscountedBlock(data, 2)));
+        Assert.assertArrayEquals(data, BlockWriter.getBytes(new MiscountedBlock(data, 6)));
+        Assert.assertArrayEquals(data, BlockWriter.getBytes(new MiscountedBlock(data, 4)));
+        try {
+            BlockWriter.toByteArray(new MiscountedBlock(data, 6));
+            Assert.fail("Size mismatch not detected");
+        } catch (IOException ignored) {
+        }
+    }
+    @Test
+    public void testWriteFailureNotMasked() {
+        byte[] data = new byte[]{1, 2, 3, 4};
+        Block failing = new MiscountedBlock(data, 4){
+            @Override
+            protected int onWriteBytes(OutputStream stream) throws IOException {
+                stream.write(data);
+                throw new IOException("Block failed");
+            }
+        };
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Stream failed");
+            }
+        };
+        try {
+            BlockWriter.write(failing, broken);
+            Assert.fail("Write failure not thrown");
+        } catch (IOException ex) {
+            Assert.assertEquals("Block failed", ex.getMessage());
+        }
+    }
+    private static class MiscountedBlock extends Block {
+        private final byte[] data;
+        private final int count;
+        MiscountedBlock(byte[] data, int count){
+            this.data = data;
+            this.count = count;
+        }
+        @Override
+        public byte[] getBytes() {
+            return data;
+        }
+        @Override
+        public int countBytes() {
+            return count;
+        }
+        @Override
+        public void onCountUpTo(BlockCounter counter) {
+            counter.addCount(count);
+        }
+        @Override
+        protected int onWriteBytes(OutputStream stream) throws IOException {
+            stream.write(data);
+            return data.length;
+        }
+    }
+    private static void assertRefreshed(TableBlock tableBlock) throws IOException {
+        byte[] bytes = tableBlock.getBytes();
+        Assert.assertEquals(bytes.length, tableBlock.getHeaderBlock().getChunkSize());
+        TableBlock loaded = new TableBlock();
+        loaded.readBytes(new ByteArrayInputStream(bytes));
+        loaded.refresh();
+        Assert.assertArrayEquals(bytes, loaded.getBytes());
+        Assert.assertEquals(tableBlock.toJson().toString(), loaded.toJson().toString());
+    }
+}
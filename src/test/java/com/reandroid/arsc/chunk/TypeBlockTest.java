@@ -0,0 +1,92 @@
+package com.reandroid.arsc.chunk;
+
+import com.reandroid.arsc.array.EntryArray;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.arsc.value.ResConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class TypeBlockTest {
+
+    @Test
+    public void testSparseEntryLookup() throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        String[] types = new String[]{"string", "drawable"};
+        List<Integer> idList = new ArrayList<>();
+        for(int i = 0; i < 0xffff; i++){
+            idList.add(i);
+        }
+        Random random = new Random(100000);
+        for(String type : types){
+            TypeBlock typeBlock = packageBlock.getOrCreateSpecTypePair(type)
+                    .getTypeBlockArray().getOrCreate(ResConfig.parse("-land"), true);
+            Assert.assertTrue(typeBlock.isSparse());
+            // half ascending as aapt2 writes them, then shuffled to defeat any ordering
+            for(int i = 0; i < 25000; i++){
+                typeBlock.getOrCreateEntry((short) (i * 2)).setValueAsBoolean(true);
+            }
+            Collections.shuffle(idList, random);
+            int count = 0;
+            for(int id : idList){
+                if(id < 50000 && (id & 1) == 0){
+                    continue;
+                }
+                typeBlock.getOrCreateEntry((short) id).setValueAsBoolean(true);
+                count ++;
+                if(count == 25000){
+                    break;
+                }
+            }
+        }
+        tableBlock.refresh();
+        for(String type : types){
+            assertSparseLookup(packageBlock.getSpecTypePair(type).getTypeBlock("-land"));
+        }
+
+        byte[] bytes = tableBlock.getBytes();
+        TableBlock loaded = TableBlock.load(new ByteArrayInputStream(bytes));
+        Assert.assertArrayEquals(bytes, loaded.getBytes());
+        for(String type : types){
+            assertSparseLookup(loaded.pickOne().getSpecTypePair(type).getTypeBlock("-land"));
+        }
+
+        TypeBlock typeBlock = loaded.pickOne().getSpecTypePair("string").getTypeBlock("-land");
+        Assert.assertNull(typeBlock.getEntry((short) 0xffff));
+        typeBlock.getOrCreateEntry((short) 0xffff).setValueAsBoolean(true);
+        Assert.assertEquals(0xffff, typeBlock.getEntry((short) 0xffff).getId());
+        Assert.assertEquals(0xffff, typeBlock.getEntryArray().getHighestEntryId());
+    }
+    private static void assertSparseLookup(TypeBlock typeBlock){
+        Assert.assertTrue(typeBlock.isSparse());
+        EntryArray entryArray = typeBlock.getEntryArray();
+        Assert.assertEquals(50000, entryArray.size());
+        int highest = 0;
+        boolean[] present = new boolean[0x10000];
+        for(int i = 0; i < entryArray.size(); i++){
+            int id = entryArray.getEntryId(i);
+            present[id] = true;
+            if(id > highest){
+                highest = id;
+            }
+            Assert.assertEquals(i, entryArray.getEntryIndex(id));
+        }
+        Assert.assertEquals(highest, entryArray.getHighestEntryId());
+        for(int id = 0; id < present.length; id++){
+            Entry entry = entryArray.getEntry(id);
+            if(present[id]){
+                Assert.assertNotNull(entry);
+                Assert.assertEquals(id, entry.getId());
+            }else {
+                Assert.assertNull(entry);
+            }
+        }
+    }
+}
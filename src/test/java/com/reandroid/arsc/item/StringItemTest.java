@@ -0,0 +1,80 @@
+package com.reandroid.arsc.item;
+
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.pool.TableStringPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class StringItemTest {
+
+    @Test
+    public void testConcurrentTableLoad() throws Exception {
+        String[] samples = new String[]{
+                "plain ascii",
+                "Сообщение",
+                "メッセージ",
+                "emoji 😀 pair",
+                "mixed éè 中文 text"
+        };
+        List<String> expected = new ArrayList<>();
+        byte[] utf8 = buildTable(samples, true, expected);
+        byte[] utf16 = buildTable(samples, false, null);
+
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for(int i = 0; i < threads * 4; i++){
+                byte[] bytes = (i & 1) == 0 ? utf8 : utf16;
+                boolean lazy = (i & 2) != 0;
+                results.add(executor.submit(loadAndVerify(bytes, lazy, expected)));
+            }
+            for(Future<Integer> future : results){
+                Assert.assertEquals(Integer.valueOf(expected.size()), future.get());
+            }
+        }finally {
+            executor.shutdownNow();
+        }
+    }
+    private static Callable<Integer> loadAndVerify(byte[] bytes, boolean lazy, List<String> expected){
+        return () -> {
+            TableBlock tableBlock = new TableBlock();
+            TableStringPool stringPool = tableBlock.getTableStringPool();
+            stringPool.setLazyDecode(lazy);
+            tableBlock.readBytes(new ByteArrayInputStream(bytes));
+            int size = stringPool.size();
+            Assert.assertEquals(expected.size(), size);
+            for(int i = 0; i < size; i++){
+                Assert.assertEquals(expected.get(i), stringPool.get(i).get());
+            }
+            return size;
+        };
+    }
+    private static byte[] buildTable(String[] samples, boolean utf8, List<String> values) throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        for(int i = 0; i < 5000; i++){
+            String value = samples[i % samples.length] + " " + i;
+            packageBlock.getOrCreate("", "string", "name_" + i).setValueAsString(value);
+        }
+        tableBlock.getTableStringPool().setUtf8(utf8);
+        tableBlock.refresh();
+        if(values != null){
+            TableStringPool stringPool = tableBlock.getTableStringPool();
+            for(int i = 0; i < stringPool.size(); i++){
+                values.add(stringPool.get(i).get());
+            }
+        }
+        return tableBlock.getBytes();
+    }
+}
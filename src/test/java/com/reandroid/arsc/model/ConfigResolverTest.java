@@ -0,0 +1,121 @@
+package com.reandroid.arsc.model;
+
+import com.reandroid.TestUtils;
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.arsc.value.ResConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConfigResolverTest {
+
+    @Test
+    public void testBestMatch() {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        int fr = TestUtils.addEntries(packageBlock, "string", "fr", "", "-fr", "-fr-rCA");
+        int es = TestUtils.addEntries(packageBlock, "string", "es", "", "-es", "-es-rUS", "-b+es+419");
+        int pt = TestUtils.addEntries(packageBlock, "string", "pt", "", "-pt", "-pt-rBR");
+        int zh = TestUtils.addEntries(packageBlock, "string", "zh", "", "-zh-rCN", "-zh-rTW");
+        int en = TestUtils.addEntries(packageBlock, "string", "en", "", "-en-rGB", "-en");
+        int icon = TestUtils.addEntries(packageBlock, "drawable", "icon", "", "-hdpi", "-xhdpi", "-xxxhdpi");
+        int version = TestUtils.addEntries(packageBlock, "bool", "version", "", "-v21", "-v31");
+        int night = TestUtils.addEntries(packageBlock, "color", "night", "", "-night");
+        int width = TestUtils.addEntries(packageBlock, "dimen", "width", "", "-land", "-sw600dp", "-sw600dp-land");
+        tableBlock.refresh();
+
+        assertResolved(tableBlock, fr, "-fr-rCA", "-fr-rCA");
+        assertResolved(tableBlock, fr, "-fr-rBE", "-fr");
+        assertResolved(tableBlock, fr, "-de-rDE", "");
+        // es-MX is a descendant of es-419
+        assertResolved(tableBlock, es, "-es-rMX", "-b+es+419");
+        assertResolved(tableBlock, es, "-es-rUS", "-es-rUS");
+        assertResolved(tableBlock, es, "-es-rES", "-es");
+        assertResolved(tableBlock, pt, "-pt-rPT", "-pt");
+        assertResolved(tableBlock, pt, "-pt-rBR", "-pt-rBR");
+        // scripts must match: zh-HK is Hant like zh-TW
+        assertResolved(tableBlock, zh, "-zh-rHK", "-zh-rTW");
+        assertResolved(tableBlock, zh, "-zh-rSG", "-zh-rCN");
+        // ancestor en is better than sibling en-GB
+        assertResolved(tableBlock, en, "-en-rAU", "-en");
+        assertResolved(tableBlock, en, "-en-rUS", "-en");
+        // scaling down is preferred, unspecified density counts as mdpi
+        assertResolved(tableBlock, icon, "-xxhdpi", "-xxxhdpi");
+        assertResolved(tableBlock, icon, "-mdpi", "");
+        assertResolved(tableBlock, icon, "-xhdpi", "-xhdpi");
+        assertResolved(tableBlock, version, "-v30", "-v21");
+        assertResolved(tableBlock, version, "-v34", "-v31");
+        assertResolved(tableBlock, version, "-v19", "");
+        assertResolved(tableBlock, night, "-night", "-night");
+        assertResolved(tableBlock, night, "-notnight", "");
+        assertResolved(tableBlock, width, "-sw720dp-land", "-sw600dp-land");
+        assertResolved(tableBlock, width, "-sw720dp-port", "-sw600dp");
+        assertResolved(tableBlock, width, "-sw320dp-land", "-land");
+
+        Assert.assertNull(tableBlock.getConfigResolver().resolve(0x7f7f0000, new ResConfig()));
+        ResourceEntry resourceEntry = packageBlock.getResource(fr);
+        Assert.assertEquals("-fr", resourceEntry.getBestMatch(ResConfig.parse("-fr-rFR"))
+                .getResValue().getValueAsString());
+    }
+    @Test
+    public void testReferenceChain() {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        int target = TestUtils.addEntries(packageBlock, "string", "target", "", "-fr");
+        Entry middle = packageBlock.getOrCreate("", "string", "middle");
+        middle.setValueAsReference(target);
+        Entry start = packageBlock.getOrCreate("-fr", "string", "start");
+        start.setValueAsReference(middle.getResourceId());
+        Entry loop1 = packageBlock.getOrCreate("", "string", "loop1");
+        Entry loop2 = packageBlock.getOrCreate("", "string", "loop2");
+        loop1.setValueAsReference(loop2.getResourceId());
+        loop2.setValueAsReference(loop1.getResourceId());
+        tableBlock.refresh();
+
+        ConfigResolver resolver = tableBlock.getConfigResolver();
+        ResConfig french = ResConfig.parse("-fr-rFR");
+        Entry resolved = resolver.resolveReference(start.getResourceId(), french);
+        Assert.assertNotNull(resolved);
+        Assert.assertEquals("-fr", resolved.getResValue().getValueAsString());
+        Assert.assertNull(resolver.resolveReference(start.getResourceId(), new ResConfig()));
+        Assert.assertNull(resolver.resolveReference(loop1.getResourceId(), french));
+        Assert.assertSame(resolver.forConfig(french), resolver.forConfig(ResConfig.parse("-fr-rFR")));
+
+        Entry added = packageBlock.getOrCreate("-fr-rFR", "string", "target");
+        added.setValueAsString("-fr-rFR");
+        tableBlock.refresh();
+        Assert.assertNotSame(resolver, tableBlock.getConfigResolver());
+        resolved = tableBlock.getConfigResolver().resolveReference(start.getResourceId(), french);
+        Assert.assertEquals("-fr-rFR", resolved.getResValue().getValueAsString());
+    }
+    @Test
+    public void testReferenceDepthLimit() {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        int target = TestUtils.addEntries(packageBlock, "string", "target", "");
+        int[] chain = new int[ConfigResolver.MAX_REFERENCE_DEPTH + 1];
+        int next = target;
+        for(int i = 0; i < chain.length; i++){
+            Entry link = packageBlock.getOrCreate("", "string", "link_" + i);
+            link.setValueAsReference(next);
+            next = link.getResourceId();
+            chain[i] = next;
+        }
+        tableBlock.refresh();
+
+        ConfigResolver resolver = tableBlock.getConfigResolver();
+        ResConfig config = new ResConfig();
+        int limit = chain[ConfigResolver.MAX_REFERENCE_DEPTH - 1];
+        Entry resolved = resolver.resolveReference(limit, config);
+        Assert.assertNotNull("Chain of max depth not resolved", resolved);
+        Assert.assertEquals(target, resolved.getResourceId());
+        Assert.assertNull("Chain deeper than max depth resolved",
+                resolver.resolveReference(chain[ConfigResolver.MAX_REFERENCE_DEPTH], config));
+    }
+    private static void assertResolved(TableBlock tableBlock, int resourceId, String device, String expected){
+        Entry entry = tableBlock.getConfigResolver().resolve(resourceId, ResConfig.parse(device));
+        Assert.assertNotNull(device, entry);
+        Assert.assertEquals(device, expected, entry.getResValue().getValueAsString());
+    }
+}
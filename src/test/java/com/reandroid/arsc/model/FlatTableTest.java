@@ -0,0 +1,192 @@
+package com.reandroid.arsc.model;
+
+import com.reandroid.TestUtils;
+import com.reandroid.apk.AndroidFrameworks;
+import com.reandroid.apk.FrameworkApk;
+import com.reandroid.archive.ZipEntryMap;
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.chunk.TypeBlock;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.arsc.value.ResConfig;
+import com.reandroid.arsc.value.ValueType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+public class FlatTableTest {
+
+    @Test
+    public void testQueries() throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        int app = TestUtils.addEntries(packageBlock, "string", "app_name", "", "-fr", "-de-rDE");
+        int width = TestUtils.addEntries(packageBlock, "dimen", "width", "", "-land", "-sw600dp");
+        Entry flag = packageBlock.getOrCreate("", "bool", "flag");
+        flag.setValueAsBoolean(true);
+        Entry style = packageBlock.getOrCreate("", "style", "Theme");
+        style.ensureComplex(true);
+        tableBlock.refresh();
+
+        FlatTable flatTable = FlatTable.load(tableBlock.getBytes());
+        Assert.assertEquals(1, flatTable.size());
+        Assert.assertEquals(tableBlock.getTableStringPool().size(), flatTable.getStringsCount());
+        FlatPackage flatPackage = flatTable.pickOne();
+        Assert.assertEquals(0x7f, flatPackage.getId());
+        Assert.assertEquals("com.example", flatPackage.getName());
+        Assert.assertSame(flatPackage, flatTable.getPackage("com.example"));
+
+        FlatResource resource = flatTable.getResource(app);
+        Assert.assertNotNull(resource);
+        Assert.assertEquals("string", resource.getType());
+        Assert.assertEquals("app_name", resource.getName());
+        Assert.assertEquals(3, resource.getConfigsCount());
+        Assert.assertEquals(ValueType.STRING, resource.getValueType());
+        Assert.assertEquals("", resource.getValueAsString());
+        Assert.assertEquals(resource, flatTable.getResource(null, "string", "app_name"));
+        Assert.assertEquals(resource, flatTable.getResource(
+                new ResourceName("com.example", "string", "app_name")));
+        Assert.assertNull(flatTable.getResource(null, "string", "missing"));
+        Assert.assertNull(flatTable.getResource(app + 10));
+
+        Assert.assertEquals("-fr", resource.getValueAsString(
+                resource.getBestMatchIndex(ResConfig.parse("-fr-rCA"))));
+        Assert.assertEquals("-sw600dp", flatTable.getResource(width).getValueAsString(
+                flatTable.getResource(width).getBestMatchIndex(ResConfig.parse("-sw720dp"))));
+        Assert.assertEquals(ValueType.BOOLEAN, flatTable.getResource(flag.getResourceId()).getValueType());
+        FlatResource theme = flatTable.getResource(style.getResourceId());
+        Assert.assertTrue(theme.isComplex(0));
+        Assert.assertNull(theme.getValueType());
+
+        int count = 0;
+        Iterator<FlatResource> iterator = flatTable.getResources();
+        while (iterator.hasNext()){
+            FlatResource flatResource = iterator.next();
+            ResourceEntry resourceEntry = packageBlock.getResource(flatResource.getResourceId());
+            Assert.assertNotNull(resourceEntry);
+            Assert.assertEquals(resourceEntry.getName(), flatResource.getName());
+            count ++;
+        }
+        Assert.assertEquals(4, count);
+    }
+    @Test
+    public void testMaterialize() throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        int app = TestUtils.addEntries(packageBlock, "string", "app_name", "", "-fr", "-de-rDE");
+        TestUtils.addEntries(packageBlock, "color", "primary", "", "-night");
+        tableBlock.refresh();
+
+        FlatTable flatTable = FlatTable.load(tableBlock.getBytes());
+        Assert.assertEquals(0, flatTable.getMaterializedCount());
+        FlatResource resource = flatTable.getResource(app);
+        Entry entry = resource.get("-fr");
+        Assert.assertNotNull(entry);
+        Assert.assertEquals(app, entry.getResourceId());
+        Assert.assertEquals("-fr", entry.getResValue().getValueAsString());
+        Assert.assertEquals(1, flatTable.getMaterializedCount());
+        Assert.assertSame(entry, resource.get(ResConfig.parse("-fr")));
+        Assert.assertEquals(1, flatTable.getMaterializedCount());
+        Entry best = resource.getBestMatch(ResConfig.parse("-de-rDE"));
+        Assert.assertEquals("-de-rDE", best.getResValue().getValueAsString());
+        Assert.assertEquals(2, flatTable.getMaterializedCount());
+    }
+    @Test
+    public void testFramework() throws IOException {
+        FrameworkApk frameworkApk = AndroidFrameworks.getLatest();
+        TableBlock framework = frameworkApk.getTableBlock();
+        FlatTable flatTable = frameworkApk.getFlatTable();
+        Assert.assertSame(flatTable, frameworkApk.getFlatTable());
+        ResConfig device = ResConfig.parse("-fr-rFR-night-v34");
+        ConfigResolver.DeviceResolver resolver = framework.getConfigResolver().forConfig(device);
+        int count = 0;
+        Iterator<FlatResource> iterator = flatTable.getResources();
+        while (iterator.hasNext() && count < 2000){
+            FlatResource flatResource = iterator.next();
+            int resourceId = flatResource.getResourceId();
+            ResourceEntry resourceEntry = framework.getResource(resourceId);
+            Assert.assertNotNull(flatResource.getHexId(), resourceEntry);
+            Assert.assertEquals(resourceEntry.getName(), flatResource.getName());
+            Assert.assertEquals(resourceEntry.getType(), flatResource.getType());
+            Entry expected = resolver.resolve(resourceId);
+            int index = flatResource.getBestMatchIndex(device);
+            if(expected == null){
+                Assert.assertEquals(-1, index);
+            }else {
+                Assert.assertEquals(expected.getResConfig(), flatResource.getResConfig(index));
+            }
+            count ++;
+        }
+        Assert.assertEquals(2000, count);
+    }
+    @Test
+    public void testSparseOutOfOrder() throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        TypeBlock typeBlock = packageBlock.getOrCreateSpecTypePair("integer")
+                .getTypeBlockArray().getOrCreate(ResConfig.parse("-land"), true);
+        int[] ids = new int[]{2, 7, 30, 5, 0, 12, 9};
+        for(int id : ids){
+            typeBlock.getOrCreateEntry((short) id).setValueAsRaw(ValueType.DEC, 100 + id);
+        }
+        tableBlock.refresh();
+        Assert.assertTrue(typeBlock.isSparse());
+
+        FlatTable flatTable = FlatTable.load(tableBlock.getBytes());
+        int typeId = typeBlock.getId();
+        for(int id = 0; id <= 31; id++){
+            int resourceId = 0x7f000000 | (typeId << 16) | id;
+            Entry entry = typeBlock.getEntry((short) id);
+            FlatResource resource = flatTable.getResource(resourceId);
+            String message = String.format("id = 0x%08x", resourceId);
+            if(entry == null){
+                Assert.assertNull(message, resource);
+                continue;
+            }
+            Assert.assertNotNull(message, resource);
+            Assert.assertEquals(message, 1, resource.getConfigsCount());
+            Assert.assertEquals(message, 100 + id, resource.get(0).getResValue().getData());
+        }
+    }
+    @Test
+    public void testFrameworkFlatTableFollowsChanges() throws IOException {
+        FrameworkTable frameworkTable = new FrameworkTable();
+        PackageBlock packageBlock = frameworkTable.newPackage(0x01, "android");
+        int app = TestUtils.addEntries(packageBlock, "string", "app_name", "", "-fr");
+        frameworkTable.refresh();
+        FrameworkApk frameworkApk = new FrameworkApk(new ZipEntryMap());
+        frameworkApk.setTableBlock(frameworkTable);
+
+        FlatTable flatTable = frameworkApk.getFlatTable();
+        Assert.assertNotNull(flatTable.getResource(app));
+        Assert.assertSame(flatTable, frameworkApk.getFlatTable());
+
+        int added = TestUtils.addEntries(packageBlock, "string", "added", "");
+        Assert.assertNull(flatTable.getResource(added));
+        FlatTable updated = frameworkApk.getFlatTable();
+        Assert.assertNotSame(flatTable, updated);
+        Assert.assertNotNull(updated.getResource(added));
+        Assert.assertSame(updated, frameworkApk.getFlatTable());
+    }
+    @Test
+    public void testFrameworkFlatTableFollowsValueEdits() throws IOException {
+        FrameworkTable frameworkTable = new FrameworkTable();
+        PackageBlock packageBlock = frameworkTable.newPackage(0x01, "android");
+        Entry width = packageBlock.getOrCreate("", "dimen", "width");
+        width.setValueAsRaw(ValueType.DEC, 10);
+        frameworkTable.refresh();
+        FrameworkApk frameworkApk = new FrameworkApk(new ZipEntryMap());
+        frameworkApk.setTableBlock(frameworkTable);
+
+        FlatTable flatTable = frameworkApk.getFlatTable();
+        Assert.assertEquals(10, flatTable.getResource(width.getResourceId()).getData(0));
+
+        // same size edit in place, nothing changes in structure
+        width.getResValue().setData(20);
+        FlatTable updated = frameworkApk.getFlatTable();
+        Assert.assertNotSame(flatTable, updated);
+        Assert.assertEquals(20, updated.getResource(width.getResourceId()).getData(0));
+    }
+}
@@ -0,0 +1,143 @@
+package com.reandroid.arsc.pool;
+
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.chunk.TypeBlock;
+import com.reandroid.arsc.container.SpecTypePair;
+import com.reandroid.arsc.item.SpecString;
+import com.reandroid.arsc.value.Entry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+public class SpecStringPoolTest {
+
+    private static final String[] TYPES = new String[]{"string", "id", "drawable"};
+
+    @Test
+    public void testLookupMatchesScan() throws IOException {
+        PackageBlock packageBlock = createPackage();
+        assertMatchesScan(packageBlock, "missing");
+    }
+    @Test
+    public void testRenameSpecString() throws IOException {
+        PackageBlock packageBlock = createPackage();
+        SpecStringPool specStringPool = packageBlock.getSpecStringPool();
+        int typeId = packageBlock.typeIdOf("string");
+        // build the index before renaming
+        int id = specStringPool.resolveResourceId(typeId, "name_3");
+        Assert.assertNotEquals(0, id);
+
+        Entry entry = packageBlock.getResource(id).get();
+        SpecString specString = entry.getSpecString();
+        specString.set("renamed_3");
+
+        Assert.assertEquals(0, specStringPool.resolveResourceId(typeId, "name_3"));
+        Assert.assertEquals(id, specStringPool.resolveResourceId(typeId, "renamed_3"));
+        assertMatchesScan(packageBlock, "name_3", "renamed_3");
+
+        // rename back onto a name that has other users
+        specString.set("name_4");
+        assertMatchesScan(packageBlock, "name_3", "name_4", "renamed_3");
+    }
+    @Test
+    public void testAddAndRemoveEntries() throws IOException {
+        PackageBlock packageBlock = createPackage();
+        SpecStringPool specStringPool = packageBlock.getSpecStringPool();
+        int typeId = packageBlock.typeIdOf("string");
+        Assert.assertEquals(0, specStringPool.resolveResourceId(typeId, "added"));
+
+        Entry added = packageBlock.getOrCreate("", "string", "added");
+        added.setValueAsString("Added");
+        Entry addedLand = packageBlock.getOrCreate("-land", "string", "added_land");
+        addedLand.setValueAsString("Added");
+        Assert.assertEquals(added.getResourceId(),
+                specStringPool.resolveResourceId(typeId, "added"));
+        Assert.assertEquals(addedLand.getResourceId(),
+                specStringPool.resolveResourceId(typeId, "added_land"));
+        assertMatchesScan(packageBlock, "added", "added_land");
+
+        int removedId = specStringPool.resolveResourceId(typeId, "name_5");
+        Iterator<Entry> iterator = packageBlock.getResource(removedId).iterator(true);
+        List<Entry> entryList = new ArrayList<>();
+        while (iterator.hasNext()){
+            entryList.add(iterator.next());
+        }
+        for(Entry entry : entryList){
+            entry.setNull(true);
+        }
+        packageBlock.getSpecTypePair(typeId).removeNullEntries(removedId & 0xffff);
+        assertMatchesScan(packageBlock, "added", "added_land", "name_5");
+    }
+
+    private static void assertMatchesScan(PackageBlock packageBlock, String ... extraNames){
+        SpecStringPool specStringPool = packageBlock.getSpecStringPool();
+        List<String> names = new ArrayList<>();
+        Iterator<SpecString> iterator = specStringPool.iterator();
+        while (iterator.hasNext()){
+            names.add(iterator.next().get());
+        }
+        for(String name : extraNames){
+            names.add(name);
+        }
+        for(String type : TYPES){
+            int typeId = packageBlock.typeIdOf(type);
+            for(String name : names){
+                String message = type + "/" + name;
+                Set<Integer> expected = scanResourceIds(packageBlock, typeId, name);
+                int id = specStringPool.resolveResourceId(typeId, name);
+                Entry entry = specStringPool.getEntry(typeId, name);
+                if(expected.isEmpty()){
+                    Assert.assertEquals(message, 0, id);
+                    Assert.assertNull(message, entry);
+                }else {
+                    // any of the duplicates if a name is used twice in a type
+                    Assert.assertTrue(message, expected.contains(id));
+                    Assert.assertEquals(message, name, entry.getName());
+                    Assert.assertEquals(message, typeId, entry.getTypeId());
+                }
+            }
+        }
+    }
+    private static Set<Integer> scanResourceIds(PackageBlock packageBlock, int typeId, String name){
+        Set<Integer> results = new HashSet<>();
+        for(SpecTypePair specTypePair : packageBlock.listSpecTypePairs()){
+            if(specTypePair.getId() != typeId){
+                continue;
+            }
+            Iterator<TypeBlock> typeBlocks = specTypePair.getTypeBlocks();
+            while (typeBlocks.hasNext()){
+                for(Entry entry : typeBlocks.next().listEntries(true)){
+                    if(!entry.isNull() && name.equals(entry.getName())){
+                        results.add(entry.getResourceId());
+                    }
+                }
+            }
+        }
+        return results;
+    }
+    private static PackageBlock createPackage() throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        for(String type : TYPES){
+            for(int i = 0; i < 20; i++){
+                // names are shared between types
+                packageBlock.getOrCreate("", type, "name_" + i).setValueAsBoolean(true);
+                if(i % 4 == 0){
+                    packageBlock.getOrCreate("-land", type, "name_" + i).setValueAsBoolean(false);
+                }
+            }
+        }
+        tableBlock.refresh();
+        TableBlock loaded = new TableBlock();
+        loaded.readBytes(new ByteArrayInputStream(tableBlock.getBytes()));
+        return loaded.pickOne();
+    }
+}
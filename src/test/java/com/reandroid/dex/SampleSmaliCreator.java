@@ -0,0 +1,46 @@
+package com.reandroid.dex;
+
+import org.junit.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class SampleSmaliCreator {
+
+    /**
+     * Writes classes Lcom/example/p(i % 5)/C(i); spread over five packages, each class
+     * extends C(i - 5) and the first five extend Object. Every class has a static TAG field,
+     * an instance field, a constructor and a get() method returning "value (i)" which also
+     * loads resource id 0x7f01(i).
+     * */
+    public static void writeSmaliClasses(File dir, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            writeSmaliClass(dir, i);
+        }
+    }
+    public static void writeSmaliClass(File dir, int i) throws IOException {
+        String pkg = "com/example/p" + (i % 5);
+        String name = "L" + pkg + "/C" + i + ";";
+        String superClass = i < 5 ? "Ljava/lang/Object;" : "Lcom/example/p" + ((i - 5) % 5) + "/C" + (i - 5) + ";";
+        String smali = ".class public " + name + "\n" +
+                ".super " + superClass + "\n\n" +
+                ".field private static final TAG:Ljava/lang/String; = \"C" + i + "\"\n\n" +
+                ".field public value:I\n\n" +
+                ".method public constructor <init>()V\n" +
+                "    .registers 1\n" +
+                "    invoke-direct {p0}, " + superClass + "-><init>()V\n" +
+                "    return-void\n" +
+                ".end method\n\n" +
+                ".method public get()Ljava/lang/String;\n" +
+                "    .registers 3\n" +
+                "    const v1, " + String.format("0x%08x", 0x7f010000 | i) + "\n" +
+                "    const-string v0, \"value " + i + "\"\n" +
+                "    return-object v0\n" +
+                ".end method\n";
+        File file = new File(dir, pkg + "/C" + i + ".smali");
+        Assert.assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), smali.getBytes(StandardCharsets.UTF_8));
+    }
+}
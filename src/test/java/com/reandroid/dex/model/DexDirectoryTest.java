@@ -0,0 +1,292 @@
+package com.reandroid.dex.model;
+
+import com.reandroid.TestUtils;
+import com.reandroid.dex.SampleSmaliCreator;
+import com.reandroid.dex.id.StringId;
+import com.reandroid.dex.ins.Opcode;
+import com.reandroid.dex.key.FieldKey;
+import com.reandroid.dex.key.Key;
+import com.reandroid.dex.key.KeyPair;
+import com.reandroid.dex.key.MethodKey;
+import com.reandroid.dex.key.StringKey;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.utils.CompareUtil;
+import com.reandroid.utils.collection.CollectionUtil;
+import com.reandroid.utils.collection.ComputeIterator;
+import com.reandroid.utils.io.FileUtil;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class DexDirectoryTest {
+
+    private static File tempDir;
+    private static File smaliDir;
+
+    @BeforeClass
+    public static void createSmaliSources() throws IOException {
+        tempDir = new File(TestUtils.getTempDir(), "dex_directory_test");
+        FileUtil.deleteDirectory(tempDir);
+        smaliDir = new File(tempDir, "smali");
+        SampleSmaliCreator.writeSmaliClasses(smaliDir, 20);
+    }
+    @AfterClass
+    public static void deleteTempDir() {
+        FileUtil.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testClassIndex() throws IOException {
+        DexDirectory directory = new DexDirectory();
+        DexFile first = directory.createDefault();
+        first.parseSmaliDirectory(smaliDir);
+        DexFile second = directory.createDefault();
+        TypeKey other = TypeKey.create("Lcom/example/Other;");
+        second.getOrCreateFirst().getOrCreateClass(other);
+
+        TypeKey c0 = TypeKey.create("Lcom/example/p0/C0;");
+        TypeKey c5 = TypeKey.create("Lcom/example/p0/C5;");
+        TypeKey c10 = TypeKey.create("Lcom/example/p0/C10;");
+        DexClass dexClass = directory.getDexClass(c10);
+        Assert.assertNotNull(dexClass);
+        List<TypeKey> superTypes = CollectionUtil.toList(
+                ComputeIterator.of(dexClass.getSuperTypes(), DexClass::getKey));
+        Assert.assertEquals(2, superTypes.size());
+        Assert.assertEquals(c5, superTypes.get(0));
+        Assert.assertEquals(c0, superTypes.get(1));
+        Assert.assertTrue(dexClass.isInstance(c0));
+        Assert.assertFalse(dexClass.isInstance(other));
+        Assert.assertTrue(directory.getDexClass(other).isInstance(TypeKey.OBJECT));
+
+        TypeKey renamed = TypeKey.create("Lcom/example/p0/Renamed;");
+        directory.rename(c10, renamed);
+        Assert.assertNull(directory.getDexClass(c10));
+        Assert.assertEquals(renamed, directory.getDexClass(renamed).getKey());
+
+        directory.getDexClass(other).getId().setSuperClass(renamed);
+        Assert.assertTrue(directory.getDexClass(other).isInstance(c0));
+
+        Assert.assertTrue(directory.removeClass(c5));
+        Assert.assertNull(directory.getDexClass(c5));
+        Assert.assertFalse(directory.getDexClass(renamed).isInstance(c0));
+
+        DexFile source = DexFile.createDefault();
+        TypeKey merged = TypeKey.create("Lcom/example/Merged;");
+        source.getOrCreateFirst().getOrCreateClass(merged);
+        Assert.assertFalse(directory.containsClass(merged));
+        Assert.assertTrue(directory.merge(source.getDexClass(merged)));
+        Assert.assertTrue(directory.containsClass(merged));
+        Assert.assertNotNull(directory.getDexClass(merged));
+
+        directory.refreshFull();
+        Assert.assertNotNull(directory.getDexClass(renamed));
+        Assert.assertEquals(21, directory.getDexClassesCount());
+        directory.close();
+        source.close();
+    }
+    @Test
+    public void testClassIndexMergeAll() throws IOException {
+        DexFile source = DexFile.createDefault();
+        source.parseSmaliDirectory(smaliDir);
+        DexLayout layout = source.getOrCreateFirst();
+        for (int i = 0; i < 200; i++) {
+            layout.getOrCreateClass(TypeKey.create("Lcom/example/m/M" + i + ";")).getId()
+                    .setSuperClass(TypeKey.create("Lcom/example/p" + (i % 5) + "/C" + (i % 20) + ";"));
+        }
+        List<DexClass> classes = CollectionUtil.toList(source.getDexClasses());
+
+        DexDirectory directory = new DexDirectory();
+        TypeKey other = TypeKey.create("Lcom/example/Other;");
+        directory.createDefault().getOrCreateFirst().getOrCreateClass(other);
+        DexClassIndex classIndex = directory.getClassIndex();
+        Assert.assertNotNull(directory.getDexClass(other));
+        int builds = classIndex.getBuildCount();
+
+        Assert.assertEquals(220, directory.mergeAll(new DexMergeOptions(), classes));
+        Assert.assertEquals(builds, classIndex.getBuildCount());
+        DexClass m17 = directory.getDexClass(TypeKey.create("Lcom/example/m/M17;"));
+        Assert.assertNotNull(m17);
+        Assert.assertTrue(m17.isInstance(TypeKey.create("Lcom/example/p2/C7;")));
+        Assert.assertTrue(m17.isInstance(TypeKey.create("Lcom/example/p2/C2;")));
+        Assert.assertNotNull(directory.getDexClass(other));
+        Assert.assertEquals(builds, classIndex.getBuildCount());
+        Assert.assertEquals(221, directory.getDexClassesCount());
+        directory.close();
+        source.close();
+    }
+    @Test
+    public void testXrefIndex() throws IOException {
+        DexDirectory directory = new DexDirectory();
+        DexFile dexFile = directory.createDefault();
+        dexFile.parseSmaliDirectory(smaliDir);
+        directory.refreshFull();
+
+        TypeKey c0 = TypeKey.create("Lcom/example/p0/C0;");
+        MethodKey init = MethodKey.parse("Lcom/example/p0/C5;-><init>()V");
+        StringKey value = StringKey.create("value 7");
+        Key[] keys = new Key[]{c0, init, value, TypeKey.OBJECT,
+                FieldKey.parse("Lcom/example/p2/C7;->TAG:Ljava/lang/String;")};
+        List<String> expected = scanUsers(directory, keys);
+        directory.setXrefIndexEnabled(true);
+        Assert.assertEquals(expected, listUsers(directory, keys));
+        Assert.assertEquals(1, CollectionUtil.count(directory.findUserClasses(c0)));
+        Assert.assertEquals(1, CollectionUtil.count(directory.findUserMethods(init)));
+
+        directory.removeClass(TypeKey.create("Lcom/example/p0/C5;"));
+        dexFile.getOrCreateFirst().getOrCreateClass(TypeKey.create("Lcom/example/p0/C20;"))
+                .getId().setSuperClass(c0);
+        Iterator<DexClass> users = directory.findUserClasses(c0);
+        Assert.assertEquals(TypeKey.create("Lcom/example/p0/C20;"), users.next().getKey());
+        Assert.assertFalse(users.hasNext());
+        directory.rename(TypeKey.create("Lcom/example/p0/C15;"), TypeKey.create("Lcom/example/p0/D15;"));
+        keys = new Key[]{c0, init, TypeKey.create("Lcom/example/p0/C10;"),
+                TypeKey.create("Lcom/example/p0/D15;"), TypeKey.OBJECT};
+        Assert.assertEquals(scanUsers(directory, keys), listUsers(directory, keys));
+        expected = listUsers(directory, keys);
+        directory.setXrefIndexEnabled(false);
+        Assert.assertEquals(expected, listUsers(directory, keys));
+        directory.close();
+    }
+    @Test
+    public void testXrefIndexFollowsEdits() throws IOException {
+        DexDirectory directory = new DexDirectory();
+        directory.createDefault().parseSmaliDirectory(smaliDir);
+        directory.setXrefIndexEnabled(true);
+
+        StringKey value7 = StringKey.create("value 7");
+        Assert.assertEquals(1, CollectionUtil.count(directory.findUserMethods(value7)));
+        DexClass c7 = directory.getDexClass(TypeKey.create("Lcom/example/p2/C7;"));
+        c7.getDeclaredMethod(MethodKey.parse("Lcom/example/p2/C7;->get()Ljava/lang/String;"))
+                .removeSelf();
+        Assert.assertFalse(directory.findUserMethods(value7).hasNext());
+        Assert.assertFalse(directory.findUserClasses(value7).hasNext());
+
+        // in place operand edit
+        StringKey value9 = StringKey.create("value 9");
+        DexMethod get8 = getMethod(directory, "Lcom/example/p3/C8;->get()Ljava/lang/String;");
+        getConstString(get8).setString("value 9");
+        Key[] keys = new Key[]{StringKey.create("value 8"), value9};
+        Assert.assertEquals(scanUsers(directory, keys), listUsers(directory, keys));
+        Assert.assertEquals(2, CollectionUtil.count(directory.findUserMethods(value9)));
+
+        // added instruction
+        StringKey added = StringKey.create("added");
+        DexMethod get11 = getMethod(directory, "Lcom/example/p1/C11;->get()Ljava/lang/String;");
+        get11.addInstruction(Opcode.CONST_STRING).setString("added");
+        Assert.assertEquals(get11.getKey(), directory.findUserMethods(added).next().getKey());
+
+        // annotation, super class and interface of existing classes
+        TypeKey marker = TypeKey.create("Lcom/example/Marker;");
+        TypeKey c0 = TypeKey.create("Lcom/example/p0/C0;");
+        TypeKey runnable = TypeKey.create("Ljava/lang/Runnable;");
+        directory.getDexClass(TypeKey.create("Lcom/example/p2/C12;")).getOrCreateDexAnnotation(marker);
+        directory.getDexClass(TypeKey.create("Lcom/example/p3/C13;")).getId().setSuperClass(c0);
+        directory.getDexClass(TypeKey.create("Lcom/example/p4/C14;")).addInterface(runnable);
+        keys = new Key[]{marker, c0, runnable, TypeKey.create("Lcom/example/p3/C8;")};
+        Assert.assertEquals(scanUsers(directory, keys), listUsers(directory, keys));
+
+        // type renamed, method keys mentioning it change too
+        directory.rename(TypeKey.create("Lcom/example/p1/C6;"), TypeKey.create("Lcom/example/p1/R6;"));
+        keys = new Key[]{TypeKey.create("Lcom/example/p1/C6;"), TypeKey.create("Lcom/example/p1/R6;"),
+                MethodKey.parse("Lcom/example/p1/C6;-><init>()V"),
+                MethodKey.parse("Lcom/example/p1/R6;-><init>()V")};
+        Assert.assertEquals(scanUsers(directory, keys), listUsers(directory, keys));
+        Assert.assertEquals(1, CollectionUtil.count(directory.findUserMethods(
+                MethodKey.parse("Lcom/example/p1/R6;-><init>()V"))));
+        directory.close();
+    }
+    @Test
+    public void testParallelRenameTypes() throws IOException {
+        DexDirectory serial = createRenameDirectory(smaliDir);
+        DexDirectory parallel = createRenameDirectory(smaliDir);
+        parallel.setRenameThreads(4);
+
+        List<KeyPair<TypeKey, TypeKey>> pairs = new ArrayList<>();
+        pairs.add(new KeyPair<>(TypeKey.create("Lcom/example/p0/C0;"), TypeKey.create("Lcom/example/q/A0;")));
+        pairs.add(new KeyPair<>(TypeKey.create("Lcom/example/p0/C5;"), TypeKey.create("Lcom/example/q/A5;")));
+        pairs.add(new KeyPair<>(TypeKey.create("Lcom/example/p0/C0$Inner;"), TypeKey.create("Lcom/example/q/Skipped;")));
+        List<String> expected = CollectionUtil.toList(ComputeIterator.of(
+                serial.renameTypes(pairs, true, true), StringId::getString));
+        List<String> renamed = CollectionUtil.toList(ComputeIterator.of(
+                parallel.renameTypes(pairs, true, true), StringId::getString));
+        Assert.assertEquals(expected, renamed);
+        Assert.assertTrue(renamed.contains("Lcom/example/q/A0$Inner;"));
+        Assert.assertTrue(renamed.contains("[Lcom/example/q/A5;"));
+        Assert.assertNotNull(parallel.getDexClass(TypeKey.create("Lcom/example/q/A0$Inner;")));
+        Assert.assertNull(parallel.getDexClass(TypeKey.create("Lcom/example/p0/C5;")));
+
+        serial.refreshFull();
+        parallel.refreshFull();
+        Iterator<DexFile> iterator = parallel.iterator();
+        for (DexFile dexFile : serial) {
+            Assert.assertArrayEquals(dexFile.getBytes(), iterator.next().getBytes());
+        }
+        serial.close();
+        parallel.close();
+    }
+    private static DexMethod getMethod(DexDirectory directory, String method) {
+        MethodKey methodKey = MethodKey.parse(method);
+        return directory.getDexClass(methodKey.getDeclaring()).getDeclaredMethod(methodKey);
+    }
+    private static DexInstruction getConstString(DexMethod dexMethod) {
+        Iterator<DexInstruction> iterator = dexMethod.getInstructions(Opcode.CONST_STRING);
+        return iterator.next();
+    }
+    private static DexDirectory createRenameDirectory(File dir) throws IOException {
+        DexDirectory directory = new DexDirectory();
+        directory.createDefault().parseSmaliDirectory(dir);
+        DexFile dexFile = directory.createDefault();
+        DexClass dexClass = dexFile.getOrCreateFirst().getOrCreateClass(
+                TypeKey.create("Lcom/example/p0/C0$Inner;"));
+        dexClass.getOrCreateStaticField(FieldKey.parse(
+                "Lcom/example/p0/C0$Inner;->ARRAY:[Lcom/example/p0/C5;"));
+        return directory;
+    }
+    private static List<String> listUsers(DexClassRepository repository, Key[] keys) {
+        List<String> results = new ArrayList<>();
+        for (Key key : keys) {
+            List<String> users = new ArrayList<>();
+            Iterator<DexClass> classes = repository.findUserClasses(key);
+            while (classes.hasNext()) {
+                users.add(classes.next().getKey().toString());
+            }
+            Iterator<DexMethod> methods = repository.findUserMethods(key);
+            while (methods.hasNext()) {
+                users.add(methods.next().getKey().toString());
+            }
+            users.sort(CompareUtil.getComparableComparator());
+            results.add(key + " " + users);
+        }
+        return results;
+    }
+    private static List<String> scanUsers(DexClassRepository repository, Key[] keys) {
+        List<String> results = new ArrayList<>();
+        for (Key key : keys) {
+            List<String> users = new ArrayList<>();
+            Iterator<DexClass> classes = repository.getDexClasses();
+            while (classes.hasNext()) {
+                DexClass dexClass = classes.next();
+                if (dexClass.uses(key)) {
+                    users.add(dexClass.getKey().toString());
+                }
+                Iterator<DexMethod> methods = dexClass.getDeclaredMethods();
+                while (methods.hasNext()) {
+                    DexMethod dexMethod = methods.next();
+                    if (dexMethod.uses(key)) {
+                        users.add(dexMethod.getKey().toString());
+                    }
+                }
+            }
+            users.sort(CompareUtil.getComparableComparator());
+            results.add(key + " " + users);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,118 @@
+package com.reandroid.dex.model;
+
+import com.reandroid.TestUtils;
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.dex.SampleSmaliCreator;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.smali.SmaliWriter;
+import com.reandroid.dex.smali.SmaliWriterSetting;
+import com.reandroid.utils.CompareUtil;
+import com.reandroid.utils.collection.CollectionUtil;
+import com.reandroid.utils.io.FileIterator;
+import com.reandroid.utils.io.FileUtil;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+public class DexFileTest {
+
+    private static File tempDir;
+    private static File smaliDir;
+
+    @BeforeClass
+    public static void createSmaliSources() throws IOException {
+        tempDir = new File(TestUtils.getTempDir(), "dex_file_test");
+        FileUtil.deleteDirectory(tempDir);
+        smaliDir = new File(tempDir, "smali");
+        SampleSmaliCreator.writeSmaliClasses(smaliDir, 20);
+    }
+    @AfterClass
+    public static void deleteTempDir() {
+        FileUtil.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testParallelSmaliDirectory() throws IOException {
+        DexFile serial = DexFile.createDefault();
+        serial.parseSmaliDirectory(smaliDir);
+        serial.refreshFull();
+
+        DexFile parallel = DexFile.createDefault();
+        parallel.setSmaliThreads(4);
+        parallel.parseSmaliDirectory(smaliDir);
+        parallel.refreshFull();
+
+        Assert.assertNotNull(parallel.getDexClass(TypeKey.create("Lcom/example/p0/C5;")));
+        Assert.assertArrayEquals(serial.getBytes(), parallel.getBytes());
+        serial.close();
+        parallel.close();
+    }
+    @Test
+    public void testParallelWriteSmali() throws IOException {
+        File dir = new File(tempDir, "parallel_write_smali");
+        DexFile dexFile = DexFile.createDefault();
+        dexFile.parseSmaliDirectory(smaliDir);
+        dexFile.refreshFull();
+
+        File serialDir = new File(dir, "serial");
+        dexFile.writeSmali(createCommentWriter(dexFile, false), serialDir);
+        List<File> serialFiles = listFiles(serialDir);
+        Assert.assertEquals(21, serialFiles.size());
+        String c3 = new String(Files.readAllBytes(new File(serialDir,
+                "classes/com/example/p3/C3.smali").toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(c3, c3.contains("@string/res_3 'text 3'"));
+
+        dexFile.setSmaliThreads(4);
+        // fresh tables, lazy lookup caches are filled by the workers
+        for (boolean resourceIdIndex : new boolean[]{false, true}) {
+            File parallelDir = new File(dir, "parallel_" + resourceIdIndex);
+            dexFile.writeSmali(createCommentWriter(dexFile, resourceIdIndex), parallelDir);
+            List<File> parallelFiles = listFiles(parallelDir);
+            Assert.assertEquals(serialFiles.size(), parallelFiles.size());
+            for (int i = 0; i < serialFiles.size(); i++) {
+                File serial = serialFiles.get(i);
+                File parallel = parallelFiles.get(i);
+                Assert.assertEquals(serialDir.toPath().relativize(serial.toPath()),
+                        parallelDir.toPath().relativize(parallel.toPath()));
+                Assert.assertArrayEquals(serial.getPath(), Files.readAllBytes(serial.toPath()),
+                        Files.readAllBytes(parallel.toPath()));
+            }
+        }
+        dexFile.close();
+    }
+    private static SmaliWriter createCommentWriter(DexFile dexFile, boolean resourceIdIndex)
+            throws IOException {
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, "com.example");
+        for (int i = 0; i < 20; i++) {
+            packageBlock.getOrCreate("", "string", "res_" + i).setValueAsString("text " + i);
+            packageBlock.getOrCreate("-land", "string", "res_" + i).setValueAsString("land " + i);
+        }
+        tableBlock.refresh();
+        TableBlock loaded = TableBlock.load(new ByteArrayInputStream(tableBlock.getBytes()));
+        loaded.setResourceIdIndexEnabled(resourceIdIndex);
+
+        SmaliWriterSetting setting = new SmaliWriterSetting();
+        setting.addClassComments(dexFile);
+        setting.addMethodComments(dexFile);
+        setting.setResourceIdComment(loaded.pickOne());
+        SmaliWriter writer = new SmaliWriter();
+        writer.setWriterSetting(setting);
+        return writer;
+    }
+    private static List<File> listFiles(File dir) {
+        FileIterator iterator = new FileIterator(dir);
+        List<File> results = CollectionUtil.toList(iterator);
+        results.sort(CompareUtil.getComparableComparator());
+        return results;
+    }
+}